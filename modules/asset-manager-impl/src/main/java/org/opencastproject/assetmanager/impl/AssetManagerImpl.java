@@ -72,6 +72,7 @@ import org.opencastproject.elasticsearch.index.objects.event.EventIndexUtils;
 import org.opencastproject.elasticsearch.index.rebuild.AbstractIndexProducer;
 import org.opencastproject.elasticsearch.index.rebuild.IndexProducer;
 import org.opencastproject.elasticsearch.index.rebuild.IndexRebuildException;
+import org.opencastproject.elasticsearch.index.rebuild.IndexRebuildRunner;
 import org.opencastproject.elasticsearch.index.rebuild.IndexRebuildService;
 import org.opencastproject.elasticsearch.index.rebuild.IndexRebuildService.DataType;
 import org.opencastproject.mediapackage.Catalog;
@@ -165,8 +166,6 @@ public class AssetManagerImpl extends AbstractIndexProducer implements AssetMana
 
   private static final Logger logger = LoggerFactory.getLogger(AssetManagerImpl.class);
 
-  private static final int PAGE_SIZE = 1000;
-
   enum AdminRole {
     GLOBAL, ORGANIZATION, NONE
   }
@@ -948,6 +947,15 @@ public class AssetManagerImpl extends AbstractIndexProducer implements AssetMana
 
   @Override
   public void repopulate(DataType dataType) throws IndexRebuildException {
+    repopulate(dataType, new IndexRebuildRunner(getService()));
+  }
+
+  @Override
+  public void repopulate(DataType dataType, IndexRebuildRunner runner) throws IndexRebuildException {
+    if (dataType != DataType.ALL && dataType != DataType.ACL) {
+      throw new IndexRebuildException(dataType + " is not a supported data type. "
+          + "Accepted values are " + Arrays.toString(getSupportedDataTypes()) + ".");
+    }
     final Organization originalOrg = securityService.getOrganization();
     final User originalUser = (originalOrg != null ? securityService.getUser() : null);
     try {
@@ -956,20 +964,19 @@ public class AssetManagerImpl extends AbstractIndexProducer implements AssetMana
       securityService.setOrganization(defaultOrg);
       securityService.setUser(defaultSystemUser);
 
-      int offset = 0;
       int total = (int) countEvents(null);
       final AQueryBuilder q = createQuery();
-      RichAResult r;
-      int current = 0;
       logIndexRebuildBegin(logger, total, "snapshot(s)");
-      var updatedEventRange = new ArrayList<Event>();
-      do {
-        r = enrich(q.select(q.snapshot()).where(q.version().isLatest()).orderBy(q.mediapackageId().desc())
-            .page(offset, PAGE_SIZE).run());
-        offset += PAGE_SIZE;
-        int n = 20;
-
-        final Map<String, List<Snapshot>> byOrg = r.getSnapshots().stream()
+      runner.run(total, securityService, (after, limit) -> {
+        Predicate latest = q.version().isLatest();
+        if (after != null) {
+          latest = latest.and(q.mediapackageId().lt(after));
+        }
+        return enrich(q.select(q.snapshot()).where(latest).orderBy(q.mediapackageId().desc()).page(0, limit).run())
+            .getSnapshots();
+      }, snapshot -> snapshot.getMediaPackage().getIdentifier().toString(), snapshots -> {
+        var updatedEventRange = new ArrayList<Event>();
+        final Map<String, List<Snapshot>> byOrg = snapshots.stream()
             .collect(Collectors.groupingBy(Snapshot::getOrganizationId));
         for (String orgId : byOrg.keySet()) {
           final Organization snapshotOrg;
@@ -980,29 +987,18 @@ public class AssetManagerImpl extends AbstractIndexProducer implements AssetMana
             securityService.setUser(snapshotSystemUser);
             for (Snapshot snapshot : byOrg.get(orgId)) {
               try {
-                current++;
-
                 var updatedEventData = index.getEvent(snapshot.getMediaPackage().getIdentifier().toString(), orgId,
                     snapshotSystemUser);
                 if (dataType == DataType.ALL) {
                   // Reindex everything (default)
                   updatedEventData = getEventUpdateFunction(snapshot, orgId, snapshotSystemUser)
                       .apply(updatedEventData);
-                } else if (dataType == DataType.ACL) {
+                } else {
                   // Only reindex ACLs
                   updatedEventData = getEventUpdateFunctionOnlyAcl(snapshot, orgId, snapshotSystemUser)
                       .apply(updatedEventData);
-                } else {
-                  throw new IndexRebuildException(dataType + " is not a supported data type. "
-                      + "Accepted values are " + Arrays.toString(getSupportedDataTypes()) + ".");
                 }
                 updatedEventRange.add(updatedEventData.get());
-
-                if (updatedEventRange.size() >= n || current >= total) {
-                  index.bulkEventUpdate(updatedEventRange);
-                  logIndexRebuildProgress(logger, total, current, n);
-                  updatedEventRange.clear();
-                }
               } catch (Throwable t) {
                 logSkippingElement(logger, "event", snapshot.getMediaPackage().getIdentifier().toString(),
                     snapshotOrg, t);
@@ -1016,7 +1012,10 @@ public class AssetManagerImpl extends AbstractIndexProducer implements AssetMana
             securityService.setUser(defaultSystemUser);
           }
         }
-      } while (offset < total);
+        if (!updatedEventRange.isEmpty()) {
+          index.bulkEventUpdate(updatedEventRange);
+        }
+      });
     } finally {
       securityService.setOrganization(originalOrg);
       securityService.setUser(originalUser);
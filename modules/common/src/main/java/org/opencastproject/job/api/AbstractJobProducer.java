@@ -135,6 +135,11 @@ public abstract class AbstractJobProducer implements JobProducer {
   public void acceptJob(final Job job) throws ServiceRegistryException {
     final Job runningJob;
     try {
+      // The dispatcher does not record which of the hosts it tries finally accepts the job
+      String host = getServiceRegistry().getRegistryHostname();
+      if (host != null) {
+        job.setProcessingHost(host);
+      }
       job.setStatus(Job.Status.RUNNING);
       runningJob = getServiceRegistry().updateJob(job);
     } catch (NotFoundException e) {
@@ -34,9 +34,12 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * This class is a utility implementation that will wait for all given jobs to change their status to either one of:
@@ -45,6 +48,9 @@ import java.util.Map;
  * <li>{@link Job.Status#FAILED}</li>
  * <li>{@link Job.Status#DELETED}</li>
  * </ul>
+ * The barrier is woken up by the service registry as soon as one of the jobs has been reported as terminated, see
+ * {@link ServiceRegistry#waitForJobCompletion(java.util.Collection, long)}. Polling all jobs in the given interval
+ * remains as a fallback for jobs which are not reported.
  */
 public final class JobBarrier {
   /** The logging facility */
@@ -276,20 +282,35 @@ public final class JobBarrier {
     public void run() {
       final long endTime = workTime > 0 ? System.currentTimeMillis() + workTime : 0;
       final Map<Job, Job.Status> finishedJobs = new HashMap<Job, Job.Status>();
+      // Jobs reported as terminated which turned out to be still in the works, they are polled only
+      final Set<Long> polledOnly = new HashSet<>();
+      long lastPoll = System.currentTimeMillis();
       while (true) {
-        final long time = System.currentTimeMillis();
-        // Wait a little..
+        // Wait until one of the jobs is reported as terminated or until it is time to poll all of them
+        final long timeToWait = endTime > 0
+                ? Math.max(0, Math.min(pollingInterval, endTime - System.currentTimeMillis()))
+                : pollingInterval;
+        final List<Long> waitingFor = new ArrayList<>();
+        for (final Job job : jobs) {
+          if (!finishedJobs.containsKey(job) && !polledOnly.contains(job.getId())) {
+            waitingFor.add(job.getId());
+          }
+        }
+        final Set<Long> reported;
         try {
-          final long timeToSleep = Math.min(pollingInterval, Math.abs(endTime - time));
-          Thread.sleep(timeToSleep);
+          reported = waitForTermination(waitingFor, timeToWait);
         } catch (InterruptedException e) {
           logger.debug("Job polling thread was interrupted");
           return;
         }
-        // Look at all jobs and make sure all of them have reached the expected status
+        // Look at the reported jobs, or at all jobs if none has been reported for a while
+        final boolean pollAll = reported.isEmpty() || System.currentTimeMillis() - lastPoll >= pollingInterval;
+        if (pollAll) {
+          lastPoll = System.currentTimeMillis();
+        }
         for (final Job job : jobs) {
           // Don't ask if we already know
-          if (!finishedJobs.containsKey(job)) {
+          if (!finishedJobs.containsKey(job) && (pollAll || reported.contains(job.getId()))) {
             // Get the job status from the service registry
             try {
               final Job processedJob = serviceRegistry.getJob(job.getId());
@@ -303,6 +324,10 @@ public final class JobBarrier {
                   job.setStatus(jobStatus);
                   job.setPayload(processedJob.getPayload());
                   finishedJobs.put(job, jobStatus);
+                  if (processedJob.getDateCompleted() != null) {
+                    logger.debug("Noticed that {} has terminated after {} ms", job,
+                            System.currentTimeMillis() - processedJob.getDateCompleted().getTime());
+                  }
                   break;
                 case PAUSED:
                 case QUEUED:
@@ -319,6 +344,9 @@ public final class JobBarrier {
                   logger.error("Unhandled job status '{}' found", jobStatus);
                   break;
               }
+              if (!jobStatus.isTerminated() && reported.contains(job.getId())) {
+                polledOnly.add(job.getId());
+              }
             } catch (NotFoundException e) {
               logger.warn("Error polling job {}: Not found!", job);
               finishedJobs.put(job, Job.Status.DELETED);
@@ -338,18 +366,54 @@ public final class JobBarrier {
               return;
             }
           }
+        }
 
-          // Are we done already?
-          if (finishedJobs.size() == jobs.size()) {
-            updateAndNotify(finishedJobs);
-            return;
-          } else if (workTime > 0 && endTime >= time) {
-            pollingException = new InterruptedException("Timeout waiting for job processing");
-            updateAndNotify(finishedJobs);
-            return;
-          }
+        // Are we done already?
+        if (finishedJobs.size() == jobs.size()) {
+          updateAndNotify(finishedJobs);
+          return;
+        } else if (workTime > 0 && System.currentTimeMillis() >= endTime) {
+          pollingException = new InterruptedException("Timeout waiting for job processing");
+          updateAndNotify(finishedJobs);
+          return;
+        }
+      }
+    }
+
+    /**
+     * Waits until one of the jobs is reported as terminated by the service registry. If the service registry is unable
+     * to report terminated jobs, this simply waits for the given time.
+     *
+     * @param jobIds
+     *          the identifiers of the jobs to wait for
+     * @param timeout
+     *          the maximum time to wait in milliseconds
+     * @return the identifiers of the jobs reported as terminated, empty if the time to wait has elapsed
+     * @throws InterruptedException
+     *           if the thread has been interrupted while waiting
+     */
+    private Set<Long> waitForTermination(List<Long> jobIds, long timeout) throws InterruptedException {
+      final long start = System.currentTimeMillis();
+      Set<Long> reported = null;
+      if (!jobIds.isEmpty()) {
+        try {
+          reported = serviceRegistry.waitForJobCompletion(jobIds, timeout);
+        } catch (ServiceRegistryException | RuntimeException e) {
+          // Waiting is an optimization only, polling the jobs still works if the service registry cannot report them
+          logger.debug("Unable to wait for the service registry to report terminated jobs: {}", e.getMessage());
         }
       }
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+      if (reported != null && !reported.isEmpty()) {
+        return reported;
+      }
+      final long remaining = timeout - (System.currentTimeMillis() - start);
+      if (remaining > 0) {
+        Thread.sleep(remaining);
+      }
+      return Collections.emptySet();
     }
 
     /**
@@ -64,11 +64,13 @@ public final class MediaPackageElementParser {
     if (element == null)
       throw new IllegalArgumentException("Mediapackage element must not be null");
     StringWriter writer = new StringWriter();
-    Marshaller m = null;
     try {
-      m = MediaPackageImpl.context.createMarshaller();
-      m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, false);
-      m.marshal(element, writer);
+      Marshaller m = MediaPackageImpl.pool.borrowMarshaller();
+      try {
+        m.marshal(element, writer);
+      } finally {
+        MediaPackageImpl.pool.returnMarshaller(m);
+      }
       return writer.toString();
     } catch (JAXBException e) {
       throw new MediaPackageException(e.getLinkedException() != null ? e.getLinkedException() : e);
@@ -94,10 +96,13 @@ public final class MediaPackageElementParser {
    *         if de-serializing the element fails
    */
   public static MediaPackageElement getFromXml(String xml) throws MediaPackageException {
-    Unmarshaller m = null;
     try {
-      m = MediaPackageImpl.context.createUnmarshaller();
-      return (MediaPackageElement) m.unmarshal(XmlSafeParser.parse(toInputStream(xml)));
+      Unmarshaller m = MediaPackageImpl.pool.borrowUnmarshaller();
+      try {
+        return (MediaPackageElement) m.unmarshal(XmlSafeParser.parse(toInputStream(xml)));
+      } finally {
+        MediaPackageImpl.pool.returnUnmarshaller(m);
+      }
     } catch (JAXBException e) {
       throw new MediaPackageException(e.getLinkedException() != null ? e.getLinkedException() : e);
     } catch (IOException | SAXException e) {
@@ -31,8 +31,8 @@ import org.opencastproject.mediapackage.identifier.IdImpl;
 import org.opencastproject.util.DateTimeSupport;
 import org.opencastproject.util.IoSupport;
 import org.opencastproject.util.XmlSafeParser;
+import org.opencastproject.util.jaxb.JaxbPool;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,12 +41,12 @@ import org.w3c.dom.bootstrap.DOMImplementationRegistry;
 import org.w3c.dom.ls.DOMImplementationLS;
 import org.w3c.dom.ls.LSOutput;
 import org.w3c.dom.ls.LSSerializer;
-import org.xml.sax.SAXException;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -70,6 +70,8 @@ import javax.xml.bind.annotation.XmlElementWrapper;
 import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlType;
 import javax.xml.bind.annotation.adapters.XmlAdapter;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.stream.StreamSource;
 
 /**
@@ -94,6 +96,9 @@ public final class MediaPackageImpl implements MediaPackage {
   /** Context for serializing and deserializing */
   static final JAXBContext context;
 
+  /** Reusable marshallers and unmarshallers of the context */
+  static final JaxbPool pool;
+
   /** The media package element builder, may remain <code>null</code> */
   private MediaPackageElementBuilder mediaPackageElementBuilder = null;
 
@@ -151,6 +156,7 @@ public final class MediaPackageImpl implements MediaPackage {
   static {
     try {
       context = JAXBContext.newInstance("org.opencastproject.mediapackage", MediaPackageImpl.class.getClassLoader());
+      pool = new JaxbPool(context);
     } catch (JAXBException e) {
       throw new RuntimeException(e);
     }
@@ -1074,7 +1080,7 @@ public final class MediaPackageImpl implements MediaPackage {
    * @throws MediaPackageException
    */
   public static MediaPackageImpl valueOf(String xml) throws MediaPackageException {
-    return MediaPackageImpl.valueOf(IOUtils.toInputStream(xml, "UTF-8"));
+    return MediaPackageImpl.valueOf(new StringReader(xml));
   }
 
 
@@ -1147,17 +1153,54 @@ public final class MediaPackageImpl implements MediaPackage {
    */
   public static MediaPackageImpl valueOf(InputStream xml) throws MediaPackageException {
     try {
-      Unmarshaller unmarshaller = context.createUnmarshaller();
-      return unmarshaller.unmarshal(XmlSafeParser.parse(xml), MediaPackageImpl.class).getValue();
-    } catch (JAXBException e) {
-      throw new MediaPackageException(e.getLinkedException() != null ? e.getLinkedException() : e);
-    } catch (IOException | SAXException e) {
+      return valueOf(XmlSafeParser.stream(xml));
+    } catch (XMLStreamException e) {
+      throw new MediaPackageException(e);
+    } finally {
+      IoSupport.closeQuietly(xml);
+    }
+  }
+
+  /**
+   * Reads the media package from a character stream.
+   *
+   * @param xml
+   *          the reader
+   * @return the deserialized media package
+   */
+  public static MediaPackageImpl valueOf(Reader xml) throws MediaPackageException {
+    try {
+      return valueOf(XmlSafeParser.stream(xml));
+    } catch (XMLStreamException e) {
       throw new MediaPackageException(e);
     } finally {
       IoSupport.closeQuietly(xml);
     }
   }
 
+  /** Unmarshals the media package directly from a StAX reader without building a DOM first. */
+  private static MediaPackageImpl valueOf(XMLStreamReader xml) throws MediaPackageException {
+    try {
+      Unmarshaller unmarshaller = pool.borrowUnmarshaller();
+      try {
+        // CHECKSTYLE:OFF
+        // xml has been created by the XmlSafeParser and is therefore safe
+        return unmarshaller.unmarshal(xml, MediaPackageImpl.class).getValue();
+        // CHECKSTYLE:ON
+      } finally {
+        pool.returnUnmarshaller(unmarshaller);
+      }
+    } catch (JAXBException e) {
+      throw new MediaPackageException(e.getLinkedException() != null ? e.getLinkedException() : e);
+    } finally {
+      try {
+        xml.close();
+      } catch (XMLStreamException e) {
+        logger.debug("Unable to close media package reader", e);
+      }
+    }
+  }
+
   /**
    * Reads the media package from an xml node.
    *
@@ -1167,7 +1210,6 @@ public final class MediaPackageImpl implements MediaPackage {
    */
   public static MediaPackageImpl valueOf(Node xml) throws MediaPackageException {
     try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
-      Unmarshaller unmarshaller = context.createUnmarshaller();
       // Serialize the media package
       DOMImplementationRegistry reg = DOMImplementationRegistry.newInstance();
       DOMImplementationLS impl = (DOMImplementationLS) reg.getDOMImplementation("LS");
@@ -1180,11 +1222,14 @@ public final class MediaPackageImpl implements MediaPackage {
       // This is safe because the Node was already parsed
       serializer.write(xml, output);
 
+      Unmarshaller unmarshaller = pool.borrowUnmarshaller();
       try (InputStream in = new ByteArrayInputStream(out.toByteArray())) {
         // CHECKSTYLE:OFF
         // in was already parsed, therefore this is save
         return unmarshaller.unmarshal(new StreamSource(in), MediaPackageImpl.class).getValue();
         // CHECKSTYLE:ON
+      } finally {
+        pool.returnUnmarshaller(unmarshaller);
       }
     } catch (Exception e) {
       throw new MediaPackageException("Error deserializing media package node", e);
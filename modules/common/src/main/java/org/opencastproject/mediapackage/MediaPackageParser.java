@@ -70,11 +70,14 @@ public final class MediaPackageParser {
     if (mediaPackage == null)
       throw new IllegalArgumentException("Mediapackage must not be null");
     try {
-      Marshaller marshaller = MediaPackageImpl.context.createMarshaller();
-      marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, false);
-      StringWriter writer = new StringWriter();
-      marshaller.marshal(mediaPackage, writer);
-      return writer.toString();
+      Marshaller marshaller = MediaPackageImpl.pool.borrowMarshaller();
+      try {
+        StringWriter writer = new StringWriter();
+        marshaller.marshal(mediaPackage, writer);
+        return writer.toString();
+      } finally {
+        MediaPackageImpl.pool.returnMarshaller(marshaller);
+      }
     } catch (JAXBException e) {
       throw new IllegalStateException(e.getLinkedException() != null ? e.getLinkedException() : e);
     }
@@ -92,7 +95,7 @@ public final class MediaPackageParser {
       throw new IllegalArgumentException("Mediapackage must not be null");
     }
     try {
-      Marshaller marshaller = MediaPackageImpl.context.createMarshaller();
+      Marshaller marshaller = MediaPackageImpl.pool.borrowMarshaller();
 
       Configuration config = new Configuration();
       config.setSupressAtAttributes(true);
@@ -118,7 +121,11 @@ public final class MediaPackageParser {
         }
       };
 
-      marshaller.marshal(mediaPackage, xmlStreamWriter);
+      try {
+        marshaller.marshal(mediaPackage, xmlStreamWriter);
+      } finally {
+        MediaPackageImpl.pool.returnMarshaller(marshaller);
+      }
       return writer.toString();
     } catch (JAXBException e) {
       throw new IllegalStateException(e.getLinkedException() != null ? e.getLinkedException() : e);
@@ -128,9 +135,13 @@ public final class MediaPackageParser {
   /** Serializes a media package to a {@link Document} without any further processing. */
   public static Document getAsXmlDocument(MediaPackage mp) {
     try {
-      final Marshaller marshaller = MediaPackageImpl.context.createMarshaller();
       final Document doc = newDocument();
-      marshaller.marshal(mp, doc);
+      final Marshaller marshaller = MediaPackageImpl.pool.borrowMarshaller();
+      try {
+        marshaller.marshal(mp, doc);
+      } finally {
+        MediaPackageImpl.pool.returnMarshaller(marshaller);
+      }
       return doc;
     } catch (JAXBException e) {
       return chuck(e);
@@ -0,0 +1,235 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.serviceregistry.api;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Wakes up threads waiting for jobs as soon as one of the jobs is reported to be terminated, so that they do not need to
+ * poll the service registry for the job states.
+ * <p>
+ * The jobs terminated most recently are remembered, so that jobs which have been terminated right before a thread
+ * starts waiting for them are reported immediately. The time between a job being reported as terminated and the waiting
+ * thread waking up is recorded as the wakeup latency.
+ */
+public class JobCompletionNotifier {
+
+  /** The default number of recently terminated jobs to remember */
+  public static final int DEFAULT_REMEMBERED_JOBS = 10000;
+
+  /** The recently terminated jobs */
+  private final Map<Long, Boolean> terminatedJobs;
+
+  /** The waiters by the identifiers of the jobs they wait for */
+  private final Map<Long, List<Waiter>> waiters = new HashMap<>();
+
+  private final AtomicLong terminations = new AtomicLong();
+  private final AtomicLong wakeups = new AtomicLong();
+  private final AtomicLong totalWakeupLatency = new AtomicLong();
+  private final AtomicLong maxWakeupLatency = new AtomicLong();
+  private volatile long lastWakeupLatency = 0;
+
+  /**
+   * Creates a notifier remembering the {@link #DEFAULT_REMEMBERED_JOBS} jobs terminated most recently.
+   */
+  public JobCompletionNotifier() {
+    this(DEFAULT_REMEMBERED_JOBS);
+  }
+
+  /**
+   * Creates a notifier.
+   *
+   * @param rememberedJobs
+   *          the number of recently terminated jobs to remember
+   */
+  public JobCompletionNotifier(final int rememberedJobs) {
+    this.terminatedJobs = new LinkedHashMap<Long, Boolean>() {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+        return size() > rememberedJobs;
+      }
+    };
+  }
+
+  /**
+   * Reports a job as terminated and wakes up the threads waiting for it.
+   *
+   * @param jobId
+   *          the job identifier
+   */
+  public void jobTerminated(long jobId) {
+    final long now = System.nanoTime();
+    final List<Waiter> jobWaiters;
+    synchronized (this) {
+      terminatedJobs.put(jobId, Boolean.TRUE);
+      jobWaiters = waiters.remove(jobId);
+    }
+    terminations.incrementAndGet();
+    if (jobWaiters != null) {
+      for (Waiter waiter : jobWaiters) {
+        waiter.terminated(jobId, now);
+      }
+    }
+  }
+
+  /**
+   * Waits until at least one of the given jobs is reported as terminated or until the timeout has elapsed. If the
+   * waiting thread is interrupted, this method returns immediately with the interrupt status set.
+   *
+   * @param jobIds
+   *          the identifiers of the jobs to wait for
+   * @param timeout
+   *          the maximum time to wait in milliseconds
+   * @return the identifiers of the given jobs reported as terminated, empty if none has been reported within the
+   *         timeout
+   */
+  public Set<Long> await(Collection<Long> jobIds, long timeout) {
+    if (jobIds.isEmpty()) {
+      return Collections.emptySet();
+    }
+    final Waiter waiter = new Waiter();
+    synchronized (this) {
+      final Set<Long> terminated = new HashSet<>();
+      for (long jobId : jobIds) {
+        if (terminatedJobs.containsKey(jobId)) {
+          terminated.add(jobId);
+        }
+      }
+      if (!terminated.isEmpty()) {
+        return terminated;
+      }
+      for (long jobId : jobIds) {
+        waiters.computeIfAbsent(jobId, id -> new ArrayList<>()).add(waiter);
+      }
+    }
+    try {
+      if (waiter.latch.await(timeout, TimeUnit.MILLISECONDS)) {
+        recordWakeup(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - waiter.getSignalled()));
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      synchronized (this) {
+        for (long jobId : jobIds) {
+          final List<Waiter> jobWaiters = waiters.get(jobId);
+          if (jobWaiters != null) {
+            jobWaiters.remove(waiter);
+            if (jobWaiters.isEmpty()) {
+              waiters.remove(jobId);
+            }
+          }
+        }
+      }
+    }
+    return waiter.getTerminated();
+  }
+
+  private void recordWakeup(long latency) {
+    wakeups.incrementAndGet();
+    totalWakeupLatency.addAndGet(latency);
+    maxWakeupLatency.accumulateAndGet(latency, Math::max);
+    lastWakeupLatency = latency;
+  }
+
+  /**
+   * Returns the number of jobs reported as terminated.
+   *
+   * @return the number of terminated jobs
+   */
+  public long getTerminatedJobCount() {
+    return terminations.get();
+  }
+
+  /**
+   * Returns the number of times a waiting thread has been woken up by a terminated job.
+   *
+   * @return the number of wakeups
+   */
+  public long getWakeupCount() {
+    return wakeups.get();
+  }
+
+  /**
+   * Returns the average time between a job being reported as terminated and the waiting thread waking up.
+   *
+   * @return the average wakeup latency in microseconds
+   */
+  public long getAverageWakeupLatency() {
+    final long count = wakeups.get();
+    return count == 0 ? 0 : totalWakeupLatency.get() / count;
+  }
+
+  /**
+   * Returns the longest time between a job being reported as terminated and the waiting thread waking up.
+   *
+   * @return the maximum wakeup latency in microseconds
+   */
+  public long getMaxWakeupLatency() {
+    return maxWakeupLatency.get();
+  }
+
+  /**
+   * Returns the time between a job being reported as terminated and the waiting thread waking up, for the most recent
+   * wakeup.
+   *
+   * @return the last wakeup latency in microseconds
+   */
+  public long getLastWakeupLatency() {
+    return lastWakeupLatency;
+  }
+
+  /** A thread waiting for a set of jobs. */
+  private static final class Waiter {
+    private final CountDownLatch latch = new CountDownLatch(1);
+    private final Set<Long> terminated = new HashSet<>();
+    private long signalled = 0;
+
+    synchronized void terminated(long jobId, long time) {
+      terminated.add(jobId);
+      if (latch.getCount() > 0) {
+        signalled = time;
+        latch.countDown();
+      }
+    }
+
+    synchronized long getSignalled() {
+      return signalled;
+    }
+
+    synchronized Set<Long> getTerminated() {
+      return new HashSet<>(terminated);
+    }
+  }
+
+}
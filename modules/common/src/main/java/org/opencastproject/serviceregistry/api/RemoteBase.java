@@ -49,6 +49,7 @@ import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 /**
  * Base class serving as a convenience implementation for remote services.
@@ -57,6 +58,12 @@ public class RemoteBase {
 
   private static final int TIMEOUT = 10000;
 
+  /** The time in milliseconds the registrations of the remote services are reused */
+  private static final long SERVICE_DIRECTORY_MAX_AGE = 5000;
+
+  /** The time in milliseconds a host is tried last after a call to it failed */
+  private static final long SERVICE_FAILURE_BACKOFF = 30000;
+
   /** The logger */
   private static final Logger logger = LoggerFactory.getLogger(RemoteBase.class);
 
@@ -69,6 +76,9 @@ public class RemoteBase {
   /** The http client */
   protected ServiceRegistry remoteServiceManager = null;
 
+  /** The cached registrations of the remote services and the health of their hosts */
+  private final RemoteServiceDirectory serviceDirectory;
+
   /** A list of known http statuses */
   private static final List<Integer> knownHttpStatuses = Arrays.asList(HttpStatus.SC_SERVICE_UNAVAILABLE);
 
@@ -82,6 +92,8 @@ public class RemoteBase {
     if (type == null)
       throw new IllegalArgumentException("Service type must not be null");
     this.serviceType = type;
+    this.serviceDirectory = new RemoteServiceDirectory(type, SERVICE_DIRECTORY_MAX_AGE, SERVICE_FAILURE_BACKOFF,
+            new Random());
   }
 
   /**
@@ -102,6 +114,7 @@ public class RemoteBase {
   @Reference
   public void setRemoteServiceManager(ServiceRegistry remoteServiceManager) {
     this.remoteServiceManager = remoteServiceManager;
+    serviceDirectory.invalidate();
   }
 
   protected <A> Option<A> runRequest(HttpRequestBase req, Function<HttpResponse, A> f) {
@@ -173,7 +186,7 @@ public class RemoteBase {
       boolean warned = false;
       while (remoteServices == null || remoteServices.size() == 0) {
         try {
-          remoteServices = remoteServiceManager.getServiceRegistrationsByLoad(serviceType);
+          remoteServices = serviceDirectory.getServices(remoteServiceManager);
           if (remoteServices == null || remoteServices.size() == 0) {
             if (!warned) {
               logger.warn("No services of type '{}' found, waiting...", serviceType);
@@ -215,6 +228,7 @@ public class RemoteBase {
           URI uri = new URI(fullUrl);
           httpRequest.setURI(uri);
           response = client.execute(httpRequest);
+          serviceDirectory.succeeded(remoteService.getHost());
           StatusLine status = response.getStatusLine();
           if (Arrays.asList(expectedHttpStatus).contains(status.getStatusCode())) {
             if (servicesInWarningState.contains(fullUrl) || servicesInKnownState.contains(fullUrl)) {
@@ -236,10 +250,14 @@ public class RemoteBase {
         } catch (Exception e) {
           logger.error("Exception while trying to dispatch job to {}", fullUrl, e);
           servicesInWarningState.add(fullUrl);
+          serviceDirectory.failed(remoteService.getHost());
         }
         closeConnection(response);
       }
 
+      // None of the services accepted the request, so look for other ones next time
+      serviceDirectory.invalidate();
+
       if (servicesInKnownState.isEmpty()) {
         logger.warn("All services of type '{}' are in unknown state, abort remote call {}", serviceType, originalUri);
         return null;
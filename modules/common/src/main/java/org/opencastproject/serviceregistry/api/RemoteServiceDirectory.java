@@ -0,0 +1,199 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.serviceregistry.api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A short lived view of the registrations of a remote service type along with the health of their hosts, as seen by
+ * the remote calls sent to them.
+ * <p>
+ * The registrations are loaded from the service registry ordered by load and kept for a limited time. Within that time,
+ * each call is balanced using the power of two choices: the better of two randomly picked services is tried first,
+ * where services are ranked by their load at the time the registrations were loaded plus the number of calls they have
+ * been sent since. Hosts failing a call are tried last until their back off time has elapsed.
+ */
+class RemoteServiceDirectory {
+
+  /** The service type */
+  private final String serviceType;
+
+  /** The time in milliseconds the registrations are kept */
+  private final long maxAge;
+
+  /** The time in milliseconds hosts are tried last after they failed a call */
+  private final long failureBackoff;
+
+  /** Used to pick the services to choose from */
+  private final Random random;
+
+  /** The registrations currently in use */
+  private volatile Snapshot snapshot = null;
+
+  /** The time in milliseconds until which a host is tried last, by host */
+  private final Map<String, Long> failedHosts = new ConcurrentHashMap<>();
+
+  /**
+   * Creates a directory for a service type.
+   *
+   * @param serviceType
+   *          the service type
+   * @param maxAge
+   *          the time in milliseconds the registrations are kept
+   * @param failureBackoff
+   *          the time in milliseconds hosts are tried last after they failed a call
+   * @param random
+   *          the random generator used to pick services
+   */
+  RemoteServiceDirectory(String serviceType, long maxAge, long failureBackoff, Random random) {
+    this.serviceType = serviceType;
+    this.maxAge = maxAge;
+    this.failureBackoff = failureBackoff;
+    this.random = random;
+  }
+
+  /**
+   * Returns the services in the order they should be tried for the next call. Services on hosts which recently failed
+   * are moved to the end of the list.
+   *
+   * @param serviceRegistry
+   *          the service registry to load the registrations from if they are outdated
+   * @return the services to try, which may be empty if there are none
+   * @throws ServiceRegistryException
+   *           if the registrations cannot be loaded
+   */
+  List<ServiceRegistration> getServices(ServiceRegistry serviceRegistry) throws ServiceRegistryException {
+    final Snapshot current = getSnapshot(serviceRegistry);
+    final long now = System.currentTimeMillis();
+    final List<Integer> healthy = new ArrayList<>(current.services.size());
+    final List<ServiceRegistration> failing = new ArrayList<>();
+    for (int i = 0; i < current.services.size(); i++) {
+      final ServiceRegistration service = current.services.get(i);
+      final Long failedUntil = failedHosts.get(service.getHost());
+      if (failedUntil == null || failedUntil <= now) {
+        healthy.add(i);
+      } else {
+        failing.add(service);
+      }
+    }
+
+    final List<ServiceRegistration> result = new ArrayList<>(current.services.size());
+    if (!healthy.isEmpty()) {
+      final int first = choose(current, healthy);
+      current.dispatched[first].incrementAndGet();
+      result.add(current.services.get(first));
+      for (int i : healthy) {
+        if (i != first) {
+          result.add(current.services.get(i));
+        }
+      }
+    }
+    result.addAll(failing);
+    return result;
+  }
+
+  /**
+   * Chooses the better of two randomly picked services.
+   *
+   * @param current
+   *          the registrations in use
+   * @param candidates
+   *          the indexes of the services to choose from, in the order of their load
+   * @return the index of the chosen service
+   */
+  private int choose(Snapshot current, List<Integer> candidates) {
+    if (candidates.size() == 1) {
+      return candidates.get(0);
+    }
+    final int a = random.nextInt(candidates.size());
+    int b = random.nextInt(candidates.size() - 1);
+    if (b >= a) {
+      b++;
+    }
+    final int first = candidates.get(Math.min(a, b));
+    final int second = candidates.get(Math.max(a, b));
+    // The index is the rank of the service by load, so the first one wins a tie
+    return first + current.dispatched[first].get() <= second + current.dispatched[second].get() ? first : second;
+  }
+
+  /**
+   * Records a successful call to a host.
+   *
+   * @param host
+   *          the host
+   */
+  void succeeded(String host) {
+    failedHosts.remove(host);
+  }
+
+  /**
+   * Records a failed call to a host, which will be tried last for a while.
+   *
+   * @param host
+   *          the host
+   */
+  void failed(String host) {
+    failedHosts.put(host, System.currentTimeMillis() + failureBackoff);
+  }
+
+  /**
+   * Discards the loaded registrations, so that they are loaded from the service registry on the next call.
+   */
+  void invalidate() {
+    snapshot = null;
+  }
+
+  private Snapshot getSnapshot(ServiceRegistry serviceRegistry) throws ServiceRegistryException {
+    final Snapshot current = snapshot;
+    if (current != null && System.currentTimeMillis() - current.loaded < maxAge) {
+      return current;
+    }
+    final List<ServiceRegistration> services = serviceRegistry.getServiceRegistrationsByLoad(serviceType);
+    final Snapshot loaded = new Snapshot(services == null ? Collections.emptyList() : services);
+    // Do not keep an empty list, new services should be picked up immediately
+    snapshot = loaded.services.isEmpty() ? null : loaded;
+    return loaded;
+  }
+
+  /** The registrations loaded at a point in time along with the number of calls sent to each of them since. */
+  private static final class Snapshot {
+    private final List<ServiceRegistration> services;
+    private final AtomicInteger[] dispatched;
+    private final long loaded = System.currentTimeMillis();
+
+    Snapshot(List<ServiceRegistration> services) {
+      this.services = new ArrayList<>(services);
+      this.dispatched = new AtomicInteger[services.size()];
+      for (int i = 0; i < dispatched.length; i++) {
+        dispatched[i] = new AtomicInteger();
+      }
+    }
+  }
+
+}
@@ -26,7 +26,9 @@ import org.opencastproject.job.api.Job.Status;
 import org.opencastproject.serviceregistry.api.SystemLoad.NodeLoad;
 import org.opencastproject.util.NotFoundException;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 /** Manages clustered services and the {@link Job}s they may create to enable asynchronous job handling. */
 public interface ServiceRegistry {
@@ -444,6 +446,22 @@ public interface ServiceRegistry {
    */
   List<Job> getChildJobs(long id) throws ServiceRegistryException;
 
+  /**
+   * Waits until at least one of the given jobs has been terminated, see {@link Status#isTerminated()}, or until the
+   * timeout has elapsed. Waiters are woken up by the job updates the service registry learns about, so callers need to
+   * look at the state of the jobs every once in a while regardless of the outcome.
+   *
+   * @param jobIds
+   *          the identifiers of the jobs to wait for
+   * @param timeout
+   *          the maximum time to wait in milliseconds
+   * @return the identifiers of the given jobs which are known to be terminated, empty if none has been terminated
+   *         within the timeout
+   * @throws ServiceRegistryException
+   *           if there is a problem accessing the service registry
+   */
+  Set<Long> waitForJobCompletion(Collection<Long> jobIds, long timeout) throws ServiceRegistryException;
+
   /**
    * Return a facility to record job incidents.
    *
@@ -40,6 +40,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
@@ -88,6 +89,9 @@ public class ServiceRegistryInMemoryImpl implements ServiceRegistry {
   /** The job identifier */
   protected AtomicLong idCounter = new AtomicLong();
 
+  /** Wakes up threads waiting for jobs to terminate */
+  protected final JobCompletionNotifier jobCompletionNotifier = new JobCompletionNotifier();
+
   /** Holds the current running job */
   protected Job currentJob = null;
 
@@ -447,6 +451,7 @@ public class ServiceRegistryInMemoryImpl implements ServiceRegistry {
 
       jobs.remove(id);
     }
+    jobCompletionNotifier.jobTerminated(id);
   }
 
   @Override
@@ -542,6 +547,9 @@ public class ServiceRegistryInMemoryImpl implements ServiceRegistry {
         throw new IllegalStateException("Error serializing job", e);
       }
     }
+    if (updatedJob.getStatus() != null && updatedJob.getStatus().isTerminated()) {
+      jobCompletionNotifier.jobTerminated(updatedJob.getId());
+    }
     return updatedJob;
   }
 
@@ -653,6 +661,16 @@ public class ServiceRegistryInMemoryImpl implements ServiceRegistry {
     return result;
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * @see org.opencastproject.serviceregistry.api.ServiceRegistry#waitForJobCompletion(java.util.Collection, long)
+   */
+  @Override
+  public Set<Long> waitForJobCompletion(Collection<Long> jobIds, long timeout) throws ServiceRegistryException {
+    return jobCompletionNotifier.await(jobIds, timeout);
+  }
+
   /**
    * {@inheritDoc}
    *
@@ -36,9 +36,15 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
 
 /** Utility class, dealing with files. */
 public final class FileSupport {
@@ -55,6 +61,9 @@ public final class FileSupport {
   /** Work directory */
   private static File tmpDir = null;
 
+  /** Size of the buffer used to stream data into a file */
+  private static final int STREAM_BUFFER_SIZE = 1024 * 1024; // 1 MB
+
   /** Logging facility provided by log4j */
   private static final Logger logger = LoggerFactory.getLogger(FileSupport.class);
 
@@ -86,6 +95,56 @@ public final class FileSupport {
     return copy(sourceLocation, targetLocation, true);
   }
 
+  /**
+   * Writes the content of a stream to a file, replacing the file's content, and updates the given digests with the
+   * content in the same pass.
+   * <p>
+   * If no digests are given and the stream is a file stream, the content is transferred between the file channels
+   * without copying it through the heap. Otherwise the content is read once into a large buffer, which is used to
+   * update the digests and to write the file. The stream is not closed.
+   *
+   * @param in
+   *          the stream to read
+   * @param targetFile
+   *          the file to write
+   * @param digests
+   *          the digests to update with the content
+   * @return the number of bytes written
+   * @throws IOException
+   *           if reading the stream or writing the file fails
+   */
+  public static long copy(InputStream in, File targetFile, MessageDigest... digests) throws IOException {
+    try (FileChannel target = FileChannel.open(targetFile.toPath(), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      if (digests.length == 0 && in instanceof FileInputStream) {
+        FileChannel source = ((FileInputStream) in).getChannel();
+        long position = 0;
+        long transferred;
+        do {
+          transferred = target.transferFrom(source, position, Long.MAX_VALUE);
+          position += transferred;
+        } while (transferred > 0);
+        return position;
+      }
+
+      ReadableByteChannel source = in instanceof FileInputStream ? ((FileInputStream) in).getChannel()
+              : Channels.newChannel(in);
+      ByteBuffer buffer = ByteBuffer.allocate(STREAM_BUFFER_SIZE);
+      long size = 0;
+      while (source.read(buffer) >= 0) {
+        buffer.flip();
+        for (MessageDigest digest : digests) {
+          digest.update(buffer.array(), buffer.arrayOffset(), buffer.limit());
+        }
+        while (buffer.hasRemaining()) {
+          size += target.write(buffer);
+        }
+        buffer.clear();
+      }
+      return size;
+    }
+  }
+
   /**
    * Copies the specified <code>sourceLocation</code> to <code>targetLocation</code> and returns a reference to the
    * newly created file or directory.
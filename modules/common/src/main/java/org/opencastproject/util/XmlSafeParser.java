@@ -29,11 +29,14 @@ import org.xml.sax.SAXException;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Reader;
 
 import javax.xml.XMLConstants;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.TransformerFactory;
 
 
@@ -187,4 +190,52 @@ public final class XmlSafeParser {
     return db.get().parse(s);
   }
 
+  /**
+   * Creates a preconfigured StAX input factory, which is guarded against XXE and billion laugh attacks.
+   * @return the preconfigured input factory
+   */
+  // CHECKSTYLE:OFF
+  public static javax.xml.stream.XMLInputFactory newXMLInputFactory() {
+    javax.xml.stream.XMLInputFactory f = javax.xml.stream.XMLInputFactory.newFactory();
+    try {
+      f.setProperty(javax.xml.stream.XMLInputFactory.SUPPORT_DTD, false);
+      f.setProperty(javax.xml.stream.XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+    catch (Exception e) {
+      // this shouldn't occur
+      logger.error("Failed to configure safe XMLInputFactory to prevent XXE.");
+      throw new AssertionError("Failed to configure safe XMLInputFactory to prevent XXE.", e);
+    }
+
+    return f;
+  }
+
+  /**
+   * The StAX input factory for the stream methods.
+   * Implementations are not guaranteed to be thread-safe, therefore we create one for each Thread.
+   */
+  private static ThreadLocal<javax.xml.stream.XMLInputFactory> xif =
+          ThreadLocal.withInitial(XmlSafeParser::newXMLInputFactory);
+  // CHECKSTYLE:ON
+
+  /**
+   * Create a StAX reader for a XML Document, which is guarded against XXE and billion laugh attacks.
+   * Designed for streaming the document directly into the Unmarshaller without building a DOM first.
+   * @param in the document to parse
+   * @return the stream reader
+   */
+  public static XMLStreamReader stream(InputStream in) throws XMLStreamException {
+    return xif.get().createXMLStreamReader(in);
+  }
+
+  /**
+   * Create a StAX reader for a XML Document, which is guarded against XXE and billion laugh attacks.
+   * Designed for streaming the document directly into the Unmarshaller without building a DOM first.
+   * @param in the document to parse
+   * @return the stream reader
+   */
+  public static XMLStreamReader stream(Reader in) throws XMLStreamException {
+    return xif.get().createXMLStreamReader(in);
+  }
+
 }
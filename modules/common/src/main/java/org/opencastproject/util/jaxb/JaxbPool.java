@@ -0,0 +1,105 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.util.jaxb;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+
+/**
+ * Reuses the marshallers and unmarshallers of a {@link JAXBContext}.
+ * <p>
+ * Marshallers and unmarshallers are expensive to create but not thread safe, so each thread keeps one of each. A
+ * borrowed instance is owned by the caller until it is returned, which makes nested calls on the same thread safe as
+ * they just create a new instance. Callers must not change the properties of borrowed instances and should return them
+ * in a <code>finally</code> block, marshallers and unmarshallers can be reused after a failure.
+ *
+ * <pre>
+ * Marshaller marshaller = pool.borrowMarshaller();
+ * try {
+ *   marshaller.marshal(o, writer);
+ * } finally {
+ *   pool.returnMarshaller(marshaller);
+ * }
+ * </pre>
+ */
+public final class JaxbPool {
+
+  private final JAXBContext context;
+
+  private final ThreadLocal<Marshaller> marshallers = new ThreadLocal<>();
+
+  private final ThreadLocal<Unmarshaller> unmarshallers = new ThreadLocal<>();
+
+  /**
+   * Creates a pool for the marshallers and unmarshallers of a context.
+   *
+   * @param context
+   *          the JAXB context
+   */
+  public JaxbPool(JAXBContext context) {
+    this.context = context;
+  }
+
+  public JAXBContext getContext() {
+    return context;
+  }
+
+  /**
+   * Returns a marshaller which is exclusively owned by the caller until it is passed to
+   * {@link #returnMarshaller(Marshaller)}.
+   */
+  public Marshaller borrowMarshaller() throws JAXBException {
+    final Marshaller marshaller = marshallers.get();
+    if (marshaller == null) {
+      return context.createMarshaller();
+    }
+    marshallers.remove();
+    return marshaller;
+  }
+
+  /** Returns a marshaller obtained from {@link #borrowMarshaller()} for reuse by the current thread. */
+  public void returnMarshaller(Marshaller marshaller) {
+    marshallers.set(marshaller);
+  }
+
+  /**
+   * Returns an unmarshaller which is exclusively owned by the caller until it is passed to
+   * {@link #returnUnmarshaller(Unmarshaller)}.
+   */
+  public Unmarshaller borrowUnmarshaller() throws JAXBException {
+    final Unmarshaller unmarshaller = unmarshallers.get();
+    if (unmarshaller == null) {
+      return context.createUnmarshaller();
+    }
+    unmarshallers.remove();
+    return unmarshaller;
+  }
+
+  /** Returns an unmarshaller obtained from {@link #borrowUnmarshaller()} for reuse by the current thread. */
+  public void returnUnmarshaller(Unmarshaller unmarshaller) {
+    unmarshallers.set(unmarshaller);
+  }
+
+}
@@ -90,13 +90,16 @@ public class AbstractJobProducerTest extends EasyMockSupport {
 
   @Test
   public void testAcceptJob() throws Exception {
+    expect(serviceRegistry.getRegistryHostname()).andReturn("test").anyTimes();
     replayAll();
 
     Job job = new JobImpl();
     job.setStatus(Status.DISPATCHING);
+    job.setProcessingHost("other");
     assertEquals(Status.DISPATCHING, job.getStatus());
     jobProducer.acceptJob(job);
     assertEquals(Status.RUNNING, job.getStatus());
+    assertEquals("test", job.getProcessingHost());
   }
 
   @Test
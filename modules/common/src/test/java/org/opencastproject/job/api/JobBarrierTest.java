@@ -22,10 +22,12 @@
 package org.opencastproject.job.api;
 
 import static org.easymock.EasyMock.createNiceMock;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.opencastproject.util.data.Collections.toArray;
 import static org.opencastproject.util.data.Monadics.mlist;
 
+import org.opencastproject.serviceregistry.api.JobCompletionNotifier;
 import org.opencastproject.serviceregistry.api.ServiceRegistry;
 import org.opencastproject.util.data.Function;
 import org.opencastproject.util.data.Function2;
@@ -35,6 +37,7 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -56,6 +59,63 @@ public class JobBarrierTest {
     }
   }
 
+  @Test
+  public void testWakeupOnReportedTermination() throws Exception {
+    final JobImpl job = new JobImpl(1L);
+    job.setStatus(Job.Status.RUNNING);
+    final JobCompletionNotifier notifier = new JobCompletionNotifier();
+    final ServiceRegistry sr = createNiceMock(ServiceRegistry.class);
+    EasyMock.expect(sr.getJob(1L)).andAnswer(() -> job).anyTimes();
+    EasyMock.expect(sr.waitForJobCompletion(EasyMock.anyObject(), EasyMock.anyLong())).andAnswer(() -> {
+      @SuppressWarnings("unchecked")
+      final Collection<Long> jobIds = (Collection<Long>) EasyMock.getCurrentArguments()[0];
+      return notifier.await(jobIds, (Long) EasyMock.getCurrentArguments()[1]);
+    }).anyTimes();
+    EasyMock.replay(sr);
+
+    new Thread(() -> {
+      try {
+        Thread.sleep(200L);
+      } catch (InterruptedException e) {
+        return;
+      }
+      job.setStatus(Job.Status.FINISHED);
+      notifier.jobTerminated(1L);
+    }).start();
+
+    // The polling interval is way longer than the test would be willing to wait
+    final long start = System.currentTimeMillis();
+    final JobBarrier.Result result = new JobBarrier(null, sr, 60000L, job).waitForJobs(30000L);
+    assertTrue(result.isSuccess());
+    assertEquals(Job.Status.FINISHED, result.getStatus().get(job));
+    assertTrue(System.currentTimeMillis() - start < 30000L);
+    assertEquals(1L, notifier.getWakeupCount());
+  }
+
+  @Test
+  public void testPollingIfWaitingFails() throws Exception {
+    final JobImpl job = new JobImpl(1L);
+    job.setStatus(Job.Status.RUNNING);
+    final ServiceRegistry sr = createNiceMock(ServiceRegistry.class);
+    EasyMock.expect(sr.getJob(1L)).andAnswer(() -> job).anyTimes();
+    EasyMock.expect(sr.waitForJobCompletion(EasyMock.anyObject(), EasyMock.anyLong()))
+        .andThrow(new UnsupportedOperationException()).anyTimes();
+    EasyMock.replay(sr);
+
+    new Thread(() -> {
+      try {
+        Thread.sleep(200L);
+      } catch (InterruptedException e) {
+        return;
+      }
+      job.setStatus(Job.Status.FINISHED);
+    }).start();
+
+    final JobBarrier.Result result = new JobBarrier(null, sr, 100L, job).waitForJobs(30000L);
+    assertTrue(result.isSuccess());
+    assertEquals(Job.Status.FINISHED, result.getStatus().get(job));
+  }
+
   private void runWaitForJobsTest(Function<Long, TestJob> jobCreator) throws Exception {
     // create a bunch of jobs
     final Map<Long, TestJob> jobs = new HashMap<Long, TestJob>();
@@ -0,0 +1,138 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.mediapackage;
+
+import org.opencastproject.mediapackage.attachment.AttachmentImpl;
+import org.opencastproject.mediapackage.track.TrackImpl;
+import org.opencastproject.util.Checksum;
+import org.opencastproject.util.ChecksumType;
+import org.opencastproject.util.XmlSafeParser;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.util.UUID;
+
+import javax.xml.bind.Marshaller;
+
+/**
+ * Compares the marshalling and unmarshalling of media packages with a new JAXB marshaller and a DOM per call against
+ * the pooled marshallers and the streaming parser of {@link MediaPackageParser}, by throughput and by the bytes
+ * allocated per operation.
+ * <p>
+ * This is not run as part of the unit tests. Run it with the test classpath, optionally passing the number of elements
+ * of the large media package and the number of iterations, e.g. <code>MediaPackageParserBenchmark 500 500</code>.
+ */
+public final class MediaPackageParserBenchmark {
+
+  private static final Logger logger = LoggerFactory.getLogger(MediaPackageParserBenchmark.class);
+
+  private static final com.sun.management.ThreadMXBean threads
+          = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  /** A single marshalling or unmarshalling of the media package */
+  private interface Operation {
+    void run(MediaPackage mediaPackage, String xml) throws Exception;
+  }
+
+  private MediaPackageParserBenchmark() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    int elements = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+    int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+
+    for (int size : new int[] { 3, elements }) {
+      MediaPackage mediaPackage = createMediaPackage(size);
+      String xml = MediaPackageParser.getAsXml(mediaPackage);
+      run("marshal, new marshaller", mediaPackage, xml, iterations, (mp, s) -> {
+        Marshaller marshaller = MediaPackageImpl.context.createMarshaller();
+        StringWriter writer = new StringWriter();
+        marshaller.marshal(mp, writer);
+        writer.toString();
+      });
+      run("marshal, pooled", mediaPackage, xml, iterations, (mp, s) -> MediaPackageParser.getAsXml(mp));
+      run("unmarshal, dom", mediaPackage, xml, iterations, (mp, s) -> MediaPackageImpl.context.createUnmarshaller()
+              .unmarshal(XmlSafeParser.parse(IOUtils.toInputStream(s, "UTF-8")), MediaPackageImpl.class));
+      run("unmarshal, streaming", mediaPackage, xml, iterations, (mp, s) -> MediaPackageParser.getFromXml(s));
+    }
+  }
+
+  private static void run(String name, MediaPackage mediaPackage, String xml, int iterations, Operation operation)
+          throws Exception {
+    // warm up
+    for (int i = 0; i < Math.max(1, iterations / 10); i++) {
+      operation.run(mediaPackage, xml);
+    }
+    long thread = Thread.currentThread().getId();
+    long allocated = threads.getThreadAllocatedBytes(thread);
+    long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      operation.run(mediaPackage, xml);
+    }
+    long time = System.nanoTime() - start;
+    allocated = threads.getThreadAllocatedBytes(thread) - allocated;
+    logger.info(String.format("%-22s %5d elements: %10.1f ops/s, %12d bytes allocated/op", name,
+            mediaPackage.getElements().length, iterations / (time / 1e9), allocated / iterations));
+  }
+
+  /** Creates a media package with tracks, catalogs and attachments resembling a processed recording. */
+  private static MediaPackage createMediaPackage(int elements) throws Exception {
+    MediaPackage mediaPackage = MediaPackageBuilderFactory.newInstance().newMediaPackageBuilder().createNew();
+    mediaPackage.setTitle("Benchmark recording");
+    String base = "http://admin.example.org/files/mediapackage/" + mediaPackage.getIdentifier() + "/";
+    for (int i = 0; i < elements; i++) {
+      String id = UUID.randomUUID().toString();
+      URI uri = new URI(base + id + "/element-" + i);
+      Checksum checksum = Checksum.create(ChecksumType.DEFAULT_TYPE, id.replace("-", ""));
+      switch (i % 3) {
+        case 0:
+          TrackImpl track = TrackImpl.fromURI(uri);
+          track.setFlavor(MediaPackageElementFlavor.parseFlavor("presenter/delivery"));
+          track.setDuration(3600000L);
+          track.setChecksum(checksum);
+          track.addTag("engage-download");
+          mediaPackage.add(track);
+          break;
+        case 1:
+          Catalog catalog = CatalogImpl.fromURI(uri);
+          catalog.setFlavor(MediaPackageElementFlavor.parseFlavor("mpeg-7/segments"));
+          catalog.setChecksum(checksum);
+          mediaPackage.add(catalog);
+          break;
+        default:
+          Attachment attachment = AttachmentImpl.fromURI(uri);
+          attachment.setFlavor(MediaPackageElementFlavor.parseFlavor("presenter/segment+preview"));
+          attachment.setChecksum(checksum);
+          mediaPackage.add(attachment);
+          break;
+      }
+    }
+    return mediaPackage;
+  }
+
+}
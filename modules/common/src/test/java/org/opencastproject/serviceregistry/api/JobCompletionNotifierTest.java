@@ -0,0 +1,108 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.serviceregistry.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class JobCompletionNotifierTest {
+
+  @Test
+  public void testWaiterIsWokenUp() throws Exception {
+    final JobCompletionNotifier notifier = new JobCompletionNotifier();
+    final AtomicReference<Set<Long>> result = new AtomicReference<>();
+    final CountDownLatch done = new CountDownLatch(1);
+    final Thread waiter = new Thread(() -> {
+      result.set(notifier.await(Arrays.asList(1L, 2L), 60000L));
+      done.countDown();
+    });
+    waiter.start();
+
+    // Give the waiter a chance to start waiting, the test succeeds either way
+    Thread.sleep(100L);
+    notifier.jobTerminated(3L);
+    notifier.jobTerminated(2L);
+
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertEquals(Collections.singleton(2L), result.get());
+    assertEquals(2L, notifier.getTerminatedJobCount());
+  }
+
+  @Test
+  public void testRecentlyTerminatedJobIsReportedImmediately() {
+    final JobCompletionNotifier notifier = new JobCompletionNotifier();
+    notifier.jobTerminated(1L);
+
+    final long start = System.currentTimeMillis();
+    assertEquals(Collections.singleton(1L), notifier.await(Arrays.asList(1L, 2L), 60000L));
+    assertTrue(System.currentTimeMillis() - start < 10000L);
+  }
+
+  @Test
+  public void testTimeout() {
+    final JobCompletionNotifier notifier = new JobCompletionNotifier();
+    notifier.jobTerminated(2L);
+
+    assertTrue(notifier.await(Collections.singletonList(1L), 10L).isEmpty());
+    assertEquals(0L, notifier.getWakeupCount());
+  }
+
+  @Test
+  public void testOnlyMostRecentJobsAreRemembered() {
+    final JobCompletionNotifier notifier = new JobCompletionNotifier(1);
+    notifier.jobTerminated(1L);
+    notifier.jobTerminated(2L);
+
+    assertTrue(notifier.await(Collections.singletonList(1L), 10L).isEmpty());
+    assertEquals(Collections.singleton(2L), notifier.await(Collections.singletonList(2L), 10L));
+  }
+
+  @Test
+  public void testWakeupLatencyIsRecorded() throws Exception {
+    final JobCompletionNotifier notifier = new JobCompletionNotifier();
+    final CountDownLatch done = new CountDownLatch(1);
+    new Thread(() -> {
+      notifier.await(Collections.singletonList(1L), 60000L);
+      done.countDown();
+    }).start();
+
+    // Terminate the job until the waiter has been woken up, since it may not be waiting yet
+    while (!done.await(100, TimeUnit.MILLISECONDS)) {
+      notifier.jobTerminated(1L);
+    }
+
+    assertTrue(notifier.getWakeupCount() <= 1L);
+    assertTrue(notifier.getMaxWakeupLatency() >= notifier.getAverageWakeupLatency());
+    assertTrue(notifier.getLastWakeupLatency() >= 0L);
+  }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.serviceregistry.api;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class RemoteServiceDirectoryTest {
+
+  private static final String TYPE = "org.opencastproject.test";
+
+  private final ServiceRegistration a = new JaxbServiceRegistration(TYPE, "http://a", "/test");
+  private final ServiceRegistration b = new JaxbServiceRegistration(TYPE, "http://b", "/test");
+  private final ServiceRegistration c = new JaxbServiceRegistration(TYPE, "http://c", "/test");
+
+  private ServiceRegistry serviceRegistry;
+
+  @Before
+  public void setUp() throws Exception {
+    serviceRegistry = createMock(ServiceRegistry.class);
+  }
+
+  @Test
+  public void testRegistrationsAreReused() throws Exception {
+    expect(serviceRegistry.getServiceRegistrationsByLoad(TYPE)).andReturn(Arrays.asList(a, b, c)).once();
+    replay(serviceRegistry);
+
+    RemoteServiceDirectory directory = new RemoteServiceDirectory(TYPE, 60000, 60000, new Random(1));
+    for (int i = 0; i < 10; i++) {
+      assertEquals(3, directory.getServices(serviceRegistry).size());
+    }
+    verify(serviceRegistry);
+  }
+
+  @Test
+  public void testRegistrationsAreReloaded() throws Exception {
+    expect(serviceRegistry.getServiceRegistrationsByLoad(TYPE)).andReturn(Arrays.asList(a, b)).once();
+    expect(serviceRegistry.getServiceRegistrationsByLoad(TYPE)).andReturn(Arrays.asList(a, b, c)).once();
+    expect(serviceRegistry.getServiceRegistrationsByLoad(TYPE)).andReturn(Collections.emptyList()).times(2);
+    replay(serviceRegistry);
+
+    RemoteServiceDirectory directory = new RemoteServiceDirectory(TYPE, 60000, 60000, new Random(1));
+    assertEquals(2, directory.getServices(serviceRegistry).size());
+    directory.invalidate();
+    assertEquals(3, directory.getServices(serviceRegistry).size());
+    directory.invalidate();
+    // Missing services are looked up again
+    assertTrue(directory.getServices(serviceRegistry).isEmpty());
+    assertTrue(directory.getServices(serviceRegistry).isEmpty());
+    verify(serviceRegistry);
+  }
+
+  @Test
+  public void testCallsAreBalanced() throws Exception {
+    expect(serviceRegistry.getServiceRegistrationsByLoad(TYPE)).andReturn(Arrays.asList(a, b, c)).once();
+    replay(serviceRegistry);
+
+    RemoteServiceDirectory directory = new RemoteServiceDirectory(TYPE, 60000, 60000, new Random(1));
+    Map<String, Integer> calls = new HashMap<>();
+    for (int i = 0; i < 300; i++) {
+      List<ServiceRegistration> services = directory.getServices(serviceRegistry);
+      assertEquals(3, services.size());
+      calls.merge(services.get(0).getHost(), 1, Integer::sum);
+    }
+    // Every service gets its share, the least loaded one slightly more
+    assertEquals(3, calls.size());
+    for (int count : calls.values()) {
+      assertTrue(Math.abs(count - 100) <= 2);
+    }
+    assertTrue(calls.get(a.getHost()) >= calls.get(c.getHost()));
+  }
+
+  @Test
+  public void testFailedHostsAreTriedLast() throws Exception {
+    expect(serviceRegistry.getServiceRegistrationsByLoad(TYPE)).andReturn(Arrays.asList(a, b, c)).anyTimes();
+    replay(serviceRegistry);
+
+    RemoteServiceDirectory directory = new RemoteServiceDirectory(TYPE, 60000, 60000, new Random(1));
+    directory.failed(a.getHost());
+    directory.failed(b.getHost());
+    for (int i = 0; i < 10; i++) {
+      List<ServiceRegistration> services = directory.getServices(serviceRegistry);
+      assertEquals(Arrays.asList(c, a, b), services);
+    }
+    directory.succeeded(a.getHost());
+    assertEquals(b, directory.getServices(serviceRegistry).get(2));
+
+    // Failed hosts recover after the back off time
+    directory = new RemoteServiceDirectory(TYPE, 60000, 0, new Random(1));
+    directory.failed(a.getHost());
+    directory.failed(b.getHost());
+    Thread.sleep(1);
+    Map<String, Integer> calls = new HashMap<>();
+    for (int i = 0; i < 30; i++) {
+      calls.merge(directory.getServices(serviceRegistry).get(0).getHost(), 1, Integer::sum);
+    }
+    assertEquals(3, calls.size());
+  }
+
+}
@@ -36,6 +36,8 @@ import java.io.StringWriter;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
@@ -140,6 +142,36 @@ public class XmlSafeParserTest {
     tf.transform(new StreamSource(xmlInput), new StreamResult(new StringWriter()));
   }
 
+  @Test
+  public void streamTest() throws XMLStreamException {
+    InputStream xmlInput = XmlSafeParserTest.class.getResourceAsStream("/dublincore-safe.xml");
+
+    XMLStreamReader reader = XmlSafeParser.stream(xmlInput);
+    while (reader.hasNext()) {
+      reader.next();
+    }
+  }
+
+  @Test(expected = XMLStreamException.class)
+  public void streamUnsafeTest() throws XMLStreamException {
+    InputStream xmlInput = XmlSafeParserTest.class.getResourceAsStream("/dublincore-unsafe.xml");
+
+    XMLStreamReader reader = XmlSafeParser.stream(xmlInput);
+    while (reader.hasNext()) {
+      reader.next();
+    }
+  }
+
+  @Test(expected = XMLStreamException.class)
+  public void streamUnsafe2Test() throws XMLStreamException {
+    InputStream xmlInput = XmlSafeParserTest.class.getResourceAsStream("/dublincore-unsafe2.xml");
+
+    XMLStreamReader reader = XmlSafeParser.stream(xmlInput);
+    while (reader.hasNext()) {
+      reader.next();
+    }
+  }
+
   @Test
   public void configureTransformerFactoryTest() throws TransformerException, TransformerConfigurationException {
     InputStream xmlInput = XmlSafeParserTest.class.getResourceAsStream("/dublincore-safe.xml");
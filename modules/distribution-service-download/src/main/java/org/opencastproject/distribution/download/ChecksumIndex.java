@@ -0,0 +1,369 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package org.opencastproject.distribution.download;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import org.opencastproject.util.Checksum;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Persistent index of the distributed files by their checksums, maintained for each organization separately.
+ * <p>
+ * The index of an organization is an append-only file shared by all nodes distributing to the same directory. Each
+ * line maps a checksum to a distributed file together with the size and modification time the file had when it was
+ * added, so that files which have been removed or replaced since are recognized without reading their contents.
+ * Lines appended by other nodes are picked up on the next lookup and the file is compacted once most of its lines
+ * have become obsolete.
+ * <p>
+ * Reading, appending and compacting hold an exclusive lock on a separate lock file, so that no node appends to an index
+ * file while another one replaces it. Every compacted file starts with a new generation line, which tells the other
+ * nodes that they have to read the file from the start again.
+ */
+final class ChecksumIndex {
+
+  /** The logging facility */
+  private static final Logger logger = LoggerFactory.getLogger(ChecksumIndex.class);
+
+  /** The file extension of the index files */
+  static final String INDEX_FILE_EXTENSION = ".checksums";
+
+  /** The file extension of the files locked while accessing an index file */
+  static final String LOCK_FILE_EXTENSION = ".lock";
+
+  /** The prefix of the line starting an index file */
+  private static final String GENERATION_PREFIX = "#generation\t";
+
+  /** The number of obsolete lines tolerated in an index file before it gets compacted */
+  private static final int COMPACTION_THRESHOLD = 1000;
+
+  /** The size written to mark an entry as removed */
+  private static final long REMOVED = -1L;
+
+  /** The directory containing the index files */
+  private final File indexDirectory;
+
+  /** The directory the distributed files are stored in, paths in the index are relative to it */
+  private final Path baseDirectory;
+
+  /** The loaded indexes by organization */
+  private final Map<String, OrganizationIndex> indexes = new HashMap<>();
+
+  /**
+   * Creates an index.
+   *
+   * @param indexDirectory
+   *          the directory to store the index files in
+   * @param baseDirectory
+   *          the directory the distributed files are stored in
+   */
+  ChecksumIndex(File indexDirectory, File baseDirectory) {
+    this.indexDirectory = indexDirectory;
+    this.baseDirectory = baseDirectory.getAbsoluteFile().toPath();
+  }
+
+  /**
+   * Looks up a distributed file with the given checksum.
+   *
+   * @param orgId
+   *          the organization identifier
+   * @param checksum
+   *          the checksum of the file's contents
+   * @return the distributed file, if one is known and has not been changed since it was added to the index
+   */
+  Optional<File> find(String orgId, Checksum checksum) {
+    final OrganizationIndex index = getIndex(orgId);
+    synchronized (index) {
+      try {
+        index.withLock(index::refresh);
+      } catch (IOException e) {
+        logger.warn("Unable to read checksum index {}", index.file, e);
+      }
+      final Entry entry = index.entries.get(key(checksum));
+      if (entry == null) {
+        return Optional.empty();
+      }
+      final Path file = baseDirectory.resolve(entry.path);
+      try {
+        final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        if (attributes.isRegularFile() && attributes.size() == entry.size
+                && attributes.lastModifiedTime().toMillis() == entry.modified) {
+          return Optional.of(file.toFile());
+        }
+      } catch (IOException e) {
+        logger.trace("Indexed file {} is gone", file);
+      }
+      logger.debug("Dropping outdated checksum index entry for {}", file);
+      index.entries.remove(key(checksum));
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Adds a distributed file to the index, replacing any other file with the same checksum.
+   *
+   * @param orgId
+   *          the organization identifier
+   * @param checksum
+   *          the checksum of the file's contents
+   * @param file
+   *          the distributed file
+   * @throws IOException
+   *           if the file's attributes cannot be read or the index cannot be written
+   */
+  void add(String orgId, Checksum checksum, File file) throws IOException {
+    final BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+    final Entry entry = new Entry(relativize(file), attributes.size(), attributes.lastModifiedTime().toMillis());
+    final OrganizationIndex index = getIndex(orgId);
+    synchronized (index) {
+      index.withLock(() -> index.append(key(checksum), entry));
+      index.entries.put(key(checksum), entry);
+    }
+  }
+
+  /**
+   * Removes a distributed file from the index.
+   *
+   * @param orgId
+   *          the organization identifier
+   * @param checksum
+   *          the checksum of the file's contents
+   * @param file
+   *          the distributed file
+   * @throws IOException
+   *           if the index cannot be written
+   */
+  void remove(String orgId, Checksum checksum, File file) throws IOException {
+    final String path = relativize(file);
+    final OrganizationIndex index = getIndex(orgId);
+    synchronized (index) {
+      final Entry entry = index.entries.get(key(checksum));
+      if (entry != null && entry.path.equals(path)) {
+        index.withLock(() -> index.append(key(checksum), new Entry(path, REMOVED, 0L)));
+        index.entries.remove(key(checksum));
+      }
+    }
+  }
+
+  private synchronized OrganizationIndex getIndex(String orgId) {
+    return indexes.computeIfAbsent(orgId, id -> new OrganizationIndex(new File(indexDirectory, id
+            + INDEX_FILE_EXTENSION), new File(indexDirectory, id + INDEX_FILE_EXTENSION + LOCK_FILE_EXTENSION)));
+  }
+
+  private String relativize(File file) {
+    return baseDirectory.relativize(file.getAbsoluteFile().toPath()).toString();
+  }
+
+  private static String key(Checksum checksum) {
+    return checksum.getType() + ":" + checksum.getValue();
+  }
+
+  /** A distributed file as recorded in the index. */
+  private static final class Entry {
+    private final String path;
+    private final long size;
+    private final long modified;
+
+    Entry(String path, long size, long modified) {
+      this.path = path;
+      this.size = size;
+      this.modified = modified;
+    }
+  }
+
+  /** An access to an index file. */
+  @FunctionalInterface
+  private interface IndexFileAction {
+    void run() throws IOException;
+  }
+
+  /** The index of a single organization and the part of its index file which has been read so far. */
+  private static final class OrganizationIndex {
+    private final File file;
+    private final File lockFile;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private long readOffset = 0L;
+    private long lines = 0L;
+    /** The first line of the index file as read, identifying the generation of the file */
+    private String firstLine = null;
+
+    OrganizationIndex(File file, File lockFile) {
+      this.file = file;
+      this.lockFile = lockFile;
+    }
+
+    /** Runs the given action while holding the exclusive lock shared by all nodes using the index file. */
+    void withLock(IndexFileAction action) throws IOException {
+      Files.createDirectories(lockFile.getAbsoluteFile().getParentFile().toPath());
+      try (FileChannel channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE,
+              StandardOpenOption.WRITE); FileLock lock = channel.lock()) {
+        action.run();
+      }
+    }
+
+    /** Reads the lines appended to the index file since it has been read last. Requires the lock. */
+    void refresh() throws IOException {
+      if (!file.exists()) {
+        reset();
+        return;
+      }
+      try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+        final long length = in.length();
+        if (readOffset > 0 && (length < readOffset || !firstLine.equals(readFirstLine(in)))) {
+          // The file has been compacted by another node
+          reset();
+        }
+        if (length == readOffset) {
+          return;
+        }
+        in.seek(readOffset);
+        final byte[] data = new byte[(int) Math.min(Integer.MAX_VALUE, length - readOffset)];
+        in.readFully(data);
+        final ByteArrayOutputStream line = new ByteArrayOutputStream();
+        for (byte b : data) {
+          if (b == '\n') {
+            final String text = new String(line.toByteArray(), UTF_8);
+            if (readOffset == 0L) {
+              firstLine = text;
+            }
+            parse(text);
+            readOffset += line.size() + 1;
+            line.reset();
+          } else {
+            line.write(b);
+          }
+        }
+      }
+    }
+
+    private void reset() {
+      entries.clear();
+      readOffset = 0L;
+      lines = 0L;
+      firstLine = null;
+    }
+
+    private static String readFirstLine(RandomAccessFile in) throws IOException {
+      in.seek(0L);
+      final ByteArrayOutputStream line = new ByteArrayOutputStream();
+      int b;
+      while ((b = in.read()) != -1 && b != '\n') {
+        line.write(b);
+      }
+      return new String(line.toByteArray(), UTF_8);
+    }
+
+    private void parse(String line) {
+      if (line.startsWith(GENERATION_PREFIX)) {
+        return;
+      }
+      final String[] fields = StringUtils.split(line, '\t');
+      lines++;
+      if (fields.length != 4) {
+        return;
+      }
+      try {
+        final Entry entry = new Entry(fields[3], Long.parseLong(fields[1]), Long.parseLong(fields[2]));
+        if (entry.size == REMOVED) {
+          final Entry current = entries.get(fields[0]);
+          if (current != null && current.path.equals(entry.path)) {
+            entries.remove(fields[0]);
+          }
+        } else {
+          entries.put(fields[0], entry);
+        }
+      } catch (NumberFormatException e) {
+        logger.debug("Ignoring malformed line in checksum index {}: {}", file, line);
+      }
+    }
+
+    /**
+     * Appends an entry to the index file and compacts the file if most of its lines are obsolete. Requires the lock.
+     */
+    void append(String key, Entry entry) throws IOException {
+      refresh();
+      final StringBuilder content = new StringBuilder();
+      if (!file.exists() || file.length() == 0L) {
+        content.append(newGenerationLine());
+      }
+      content.append(key).append('\t').append(entry.size).append('\t').append(entry.modified).append('\t')
+              .append(entry.path).append('\n');
+      try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+              StandardOpenOption.APPEND)) {
+        final ByteBuffer data = ByteBuffer.wrap(content.toString().getBytes(UTF_8));
+        while (data.hasRemaining()) {
+          channel.write(data);
+        }
+      }
+      refresh();
+      if (lines > 2L * entries.size() + COMPACTION_THRESHOLD) {
+        compact();
+      }
+    }
+
+    /** Replaces the index file by one containing only the current entries. Requires the lock. */
+    private void compact() throws IOException {
+      logger.debug("Compacting checksum index {} from {} lines to {} entries", file, lines, entries.size());
+      final String generation = newGenerationLine();
+      final StringBuilder content = new StringBuilder(generation);
+      for (Map.Entry<String, Entry> e : entries.entrySet()) {
+        content.append(e.getKey()).append('\t').append(e.getValue().size).append('\t').append(e.getValue().modified)
+                .append('\t').append(e.getValue().path).append('\n');
+      }
+      final byte[] data = content.toString().getBytes(UTF_8);
+      final Path temp = Files.createTempFile(file.getAbsoluteFile().getParentFile().toPath(), file.getName(), ".tmp");
+      try {
+        Files.write(temp, data);
+        Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(temp);
+      }
+      firstLine = generation.substring(0, generation.length() - 1);
+      readOffset = data.length;
+      lines = entries.size();
+    }
+
+    private static String newGenerationLine() {
+      return GENERATION_PREFIX + UUID.randomUUID() + '\n';
+    }
+  }
+
+}
@@ -93,6 +93,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -148,6 +149,15 @@ public class DownloadDistributionServiceImpl extends AbstractDistributionService
   /** Interval time in millis for checking distributed file request */
   private static final long INTERVAL = 300L;
 
+  /** The property defining the directory to keep the checksum index of the distributed files in */
+  public static final String CHECKSUM_INDEX_DIRECTORY_PROPERTY = "org.opencastproject.download.checksum.directory";
+
+  /** The default name of the checksum index directory, located next to the distribution directory */
+  public static final String DEFAULT_CHECKSUM_INDEX_DIRECTORY = "download-checksums";
+
+  /** The index of the distributed files by their checksums, used to find duplicates */
+  private ChecksumIndex checksumIndex;
+
   private Gson gson = new Gson();
 
   private String systemUserName = null;
@@ -181,6 +191,13 @@ public class DownloadDistributionServiceImpl extends AbstractDistributionService
     }
     this.distributionDirectory = new File(ccDistributionDirectory);
     logger.info("Download distribution directory is {}", distributionDirectory);
+
+    String ccChecksumIndexDirectory = cc.getBundleContext().getProperty(CHECKSUM_INDEX_DIRECTORY_PROPERTY);
+    File checksumIndexDirectory = ccChecksumIndexDirectory != null
+            ? new File(ccChecksumIndexDirectory)
+            : new File(distributionDirectory.getAbsoluteFile().getParentFile(), DEFAULT_CHECKSUM_INDEX_DIRECTORY);
+    this.checksumIndex = new ChecksumIndex(checksumIndexDirectory, distributionDirectory);
+    logger.info("Download distribution checksum index directory is {}", checksumIndexDirectory);
     this.distributionChannel = OsgiUtil.getComponentContextProperty(cc, CONFIG_KEY_STORE_TYPE);
     systemUserName = cc.getBundleContext().getProperty(DIGEST_USER_PROPERTY);
   }
@@ -329,7 +346,7 @@ public class DownloadDistributionServiceImpl extends AbstractDistributionService
 
       // Try to find a duplicated element source
       try {
-        source = findDuplicatedElementSource(source, mediapackageId);
+        source = findDuplicatedElementSource(source, element, mediapackageId);
       } catch (IOException e) {
         logger.warn("Unable to find duplicated source {}: {}", source, ExceptionUtils.getMessage(e));
       }
@@ -351,6 +368,7 @@ public class DownloadDistributionServiceImpl extends AbstractDistributionService
           throw new DistributionException(format("Unable to copy %s to %s", source, destination), e);
         }
       }
+      addToChecksumIndex(element, destination);
       // Create a media package element representation of the distributed file
       MediaPackageElement distributedElement = (MediaPackageElement) element.clone();
       try {
@@ -453,7 +471,7 @@ public class DownloadDistributionServiceImpl extends AbstractDistributionService
 
     // Try to find a duplicated element source
     try {
-      source = findDuplicatedElementSource(source, mediapackageId);
+      source = findDuplicatedElementSource(source, element, mediapackageId);
     } catch (IOException e) {
       logger.warn("Unable to find duplicated source {}: {}", source, ExceptionUtils.getMessage(e));
     }
@@ -479,6 +497,7 @@ public class DownloadDistributionServiceImpl extends AbstractDistributionService
         throw new DistributionException(format("Unable to copy %s to %s", source, destination), e);
       }
     }
+    addToChecksumIndex(element, destination);
 
     MediaPackageElement distributeElement = (MediaPackageElement) element.clone();
     // Create a media package element representation of the distributed file
@@ -670,6 +689,14 @@ public class DownloadDistributionServiceImpl extends AbstractDistributionService
 
       logger.debug("Retracting element {} ({})", element, elementFile);
 
+      if (element.getChecksum() != null) {
+        try {
+          checksumIndex.remove(securityService.getOrganization().getId(), element.getChecksum(), elementFile);
+        } catch (IOException e) {
+          logger.warn("Unable to remove {} from the checksum index: {}", elementFile, ExceptionUtils.getMessage(e));
+        }
+      }
+
       // Try to remove the file and its parent folder representing the mediapackage element id
       if (!FileUtils.deleteQuietly(elementFile.getParentFile())) {
         // TODO Removing a folder containing deleted files may fail on NFS volumes. This needs a cleanup strategy.
@@ -757,18 +784,32 @@ public class DownloadDistributionServiceImpl extends AbstractDistributionService
   }
 
   /**
-   * Try to find the same file being already distributed in one of the other channels
+   * Try to find the same file being already distributed. Elements with a checksum are looked up in the checksum index
+   * of the organization without reading any file. Other elements are compared to the files of the same media package
+   * already distributed in one of the other channels.
    *
    * @param source
    *          the source file
+   * @param element
+   *          the element being distributed
    * @param mpId
    *          the element's mediapackage id
    * @return the found duplicated file or the given source if nothing has been found
    * @throws IOException
    *           if an I/O error occurs
    */
-  private File findDuplicatedElementSource(final File source, final String mpId) throws IOException {
+  private File findDuplicatedElementSource(final File source, final MediaPackageElement element, final String mpId)
+          throws IOException {
     String orgId = securityService.getOrganization().getId();
+    if (isIndexed(element, source)) {
+      Optional<File> duplicate = checksumIndex.find(orgId, element.getChecksum());
+      if (duplicate.isPresent()) {
+        logger.debug("Found {} distributed already as {}", source, duplicate.get());
+        return duplicate.get();
+      }
+      return source;
+    }
+
     final Path rootPath = Paths.get(distributionDirectory.getAbsolutePath(), orgId);
 
     if (!Files.exists(rootPath)) {
@@ -824,6 +865,33 @@ public class DownloadDistributionServiceImpl extends AbstractDistributionService
     return source;
   }
 
+  /**
+   * Adds a distributed file to the checksum index, so that it can be reused when distributing the same content again.
+   *
+   * @param element
+   *          the element which has been distributed
+   * @param file
+   *          the distributed file
+   */
+  private void addToChecksumIndex(MediaPackageElement element, File file) {
+    if (!isIndexed(element, file)) {
+      return;
+    }
+    try {
+      checksumIndex.add(securityService.getOrganization().getId(), element.getChecksum(), file);
+    } catch (IOException e) {
+      logger.warn("Unable to add {} to the checksum index: {}", file, ExceptionUtils.getMessage(e));
+    }
+  }
+
+  /**
+   * Whether the distributed file of an element can be found by the element's checksum. Playlists are rewritten during
+   * distribution, so their contents do not match the checksum.
+   */
+  private boolean isIndexed(MediaPackageElement element, File file) {
+    return element.getChecksum() != null && !AdaptivePlaylist.isPlaylist(file);
+  }
+
   /**
    * Gets the destination file to copy the contents of a mediapackage element.
    *
@@ -0,0 +1,169 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package org.opencastproject.distribution.download;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.opencastproject.util.Checksum;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.List;
+import java.util.Optional;
+
+public class ChecksumIndexTest {
+
+  private static final String ORG = "mh_default_org";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private File indexDirectory;
+  private File baseDirectory;
+  private Checksum checksum;
+
+  @Before
+  public void setUp() throws Exception {
+    indexDirectory = folder.newFolder("index");
+    baseDirectory = folder.newFolder("static");
+    checksum = Checksum.create("md5", "43b7d843b02c4a429b2f547a4f230d31");
+  }
+
+  private File distribute(String path, String content) throws Exception {
+    File file = new File(baseDirectory, path);
+    FileUtils.writeStringToFile(file, content, UTF_8);
+    return file;
+  }
+
+  @Test
+  public void testFind() throws Exception {
+    ChecksumIndex index = new ChecksumIndex(indexDirectory, baseDirectory);
+    File file = distribute(ORG + "/engage-player/mp/track-1/media.mov", "media");
+    assertFalse(index.find(ORG, checksum).isPresent());
+
+    index.add(ORG, checksum, file);
+    assertEquals(Optional.of(file.getAbsoluteFile()), index.find(ORG, checksum));
+    assertFalse(index.find("other_org", checksum).isPresent());
+    assertFalse(index.find(ORG, Checksum.create("md5", "2b8a52878c536e64e20e309b5d7c1070")).isPresent());
+  }
+
+  @Test
+  public void testChangedFileIsNotFound() throws Exception {
+    ChecksumIndex index = new ChecksumIndex(indexDirectory, baseDirectory);
+    File file = distribute(ORG + "/engage-player/mp/track-1/media.mov", "media");
+    index.add(ORG, checksum, file);
+
+    FileUtils.writeStringToFile(file, "modified media", UTF_8);
+    assertFalse(index.find(ORG, checksum).isPresent());
+  }
+
+  @Test
+  public void testDeletedFileIsNotFound() throws Exception {
+    ChecksumIndex index = new ChecksumIndex(indexDirectory, baseDirectory);
+    File file = distribute(ORG + "/engage-player/mp/track-1/media.mov", "media");
+    index.add(ORG, checksum, file);
+
+    FileUtils.forceDelete(file);
+    assertFalse(index.find(ORG, checksum).isPresent());
+  }
+
+  @Test
+  public void testRemove() throws Exception {
+    ChecksumIndex index = new ChecksumIndex(indexDirectory, baseDirectory);
+    File player = distribute(ORG + "/engage-player/mp/track-1/media.mov", "media");
+    File oaiPmh = distribute(ORG + "/oai-pmh/mp/track-1/media.mov", "media");
+    index.add(ORG, checksum, player);
+
+    // Removing a file which is not the indexed one keeps the entry
+    index.remove(ORG, checksum, oaiPmh);
+    assertEquals(Optional.of(player.getAbsoluteFile()), index.find(ORG, checksum));
+
+    index.remove(ORG, checksum, player);
+    assertFalse(index.find(ORG, checksum).isPresent());
+    assertFalse(new ChecksumIndex(indexDirectory, baseDirectory).find(ORG, checksum).isPresent());
+  }
+
+  @Test
+  public void testSharedIndexFile() throws Exception {
+    ChecksumIndex node1 = new ChecksumIndex(indexDirectory, baseDirectory);
+    ChecksumIndex node2 = new ChecksumIndex(indexDirectory, baseDirectory);
+    assertFalse(node2.find(ORG, checksum).isPresent());
+
+    File file = distribute(ORG + "/engage-player/mp/track-1/media.mov", "media");
+    node1.add(ORG, checksum, file);
+    assertEquals(Optional.of(file.getAbsoluteFile()), node2.find(ORG, checksum));
+
+    node2.remove(ORG, checksum, file);
+    assertFalse(node1.find(ORG, checksum).isPresent());
+  }
+
+  @Test
+  public void testCompaction() throws Exception {
+    ChecksumIndex index = new ChecksumIndex(indexDirectory, baseDirectory);
+    File file = distribute(ORG + "/engage-player/mp/track-1/media.mov", "media");
+    for (int i = 0; i < 1500; i++) {
+      index.add(ORG, checksum, file);
+    }
+    File indexFile = new File(indexDirectory, ORG + ChecksumIndex.INDEX_FILE_EXTENSION);
+    assertTrue(FileUtils.readLines(indexFile, UTF_8).size() < 1500);
+    assertEquals(Optional.of(file.getAbsoluteFile()), new ChecksumIndex(indexDirectory, baseDirectory)
+            .find(ORG, checksum));
+  }
+
+  @Test
+  public void testCompactionByOtherNode() throws Exception {
+    ChecksumIndex node1 = new ChecksumIndex(indexDirectory, baseDirectory);
+    ChecksumIndex node2 = new ChecksumIndex(indexDirectory, baseDirectory);
+    File file = distribute(ORG + "/engage-player/mp/track-1/media.mov", "media");
+    node1.add(ORG, checksum(0), file);
+    assertTrue(node2.find(ORG, checksum(0)).isPresent());
+
+    // The compacted file is longer than the part node 2 has read before
+    for (int i = 1; i <= 600; i++) {
+      node1.add(ORG, checksum(i), file);
+    }
+    for (int i = 0; i < 1700; i++) {
+      node1.add(ORG, checksum(1), file);
+    }
+    File indexFile = new File(indexDirectory, ORG + ChecksumIndex.INDEX_FILE_EXTENSION);
+    List<String> lines = FileUtils.readLines(indexFile, UTF_8);
+    assertTrue(lines.size() < 1000);
+    assertTrue(lines.get(0).startsWith("#generation"));
+
+    for (int i = 0; i <= 600; i++) {
+      assertEquals(Optional.of(file.getAbsoluteFile()), node2.find(ORG, checksum(i)));
+    }
+  }
+
+  private static Checksum checksum(int i) throws Exception {
+    return Checksum.create("md5", String.format("%032x", i));
+  }
+
+}
@@ -30,6 +30,7 @@ import org.opencastproject.mediapackage.MediaPackage;
 import org.opencastproject.mediapackage.MediaPackageElement;
 import org.opencastproject.mediapackage.MediaPackageElementParser;
 import org.opencastproject.mediapackage.MediaPackageParser;
+import org.opencastproject.mediapackage.identifier.IdImpl;
 import org.opencastproject.security.api.DefaultOrganization;
 import org.opencastproject.security.api.JaxbRole;
 import org.opencastproject.security.api.JaxbUser;
@@ -81,6 +82,9 @@ public class DownloadDistributionServiceImplTest {
   private DownloadDistributionServiceImpl service = null;
   private MediaPackage mp = null;
   private File distributionRoot = null;
+  private File checksumIndexRoot = null;
+  private File workspaceRoot = null;
+  private File workspaceCopyRoot = null;
   private ServiceRegistry serviceRegistry = null;
   private DefaultOrganization defaultOrganization;
 
@@ -90,6 +94,9 @@ public class DownloadDistributionServiceImplTest {
     mp = MediaPackageParser.getFromXml(IOUtils.toString(getClass().getResourceAsStream("/mediapackage.xml"), "UTF-8"));
 
     distributionRoot = new File(mediaPackageRoot, "static");
+    checksumIndexRoot = new File(mediaPackageRoot, "checksums");
+    workspaceRoot = mediaPackageRoot;
+    workspaceCopyRoot = new File(mediaPackageRoot, "workspace-copy");
     service = new DownloadDistributionServiceImpl();
 
     StatusLine statusLine = EasyMock.createNiceMock(StatusLine.class);
@@ -139,7 +146,7 @@ public class DownloadDistributionServiceImplTest {
         final URI uri = (URI) EasyMock.getCurrentArguments()[0];
         final String[] pathElems = uri.getPath().split("/");
         final String file = pathElems[pathElems.length - 1];
-        return new File(mediaPackageRoot, file);
+        return new File(workspaceRoot, file);
       }
     }).anyTimes();
     final Capture<String> myId1 = Capture.newInstance();
@@ -162,6 +169,8 @@ public class DownloadDistributionServiceImplTest {
     BundleContext bc = EasyMock.createNiceMock(BundleContext.class);
     EasyMock.expect(bc.getProperty("org.opencastproject.download.directory"))
         .andReturn(distributionRoot.toString()).anyTimes();
+    EasyMock.expect(bc.getProperty(DownloadDistributionServiceImpl.CHECKSUM_INDEX_DIRECTORY_PROPERTY))
+        .andReturn(checksumIndexRoot.toString()).anyTimes();
     EasyMock.expect(bc.getProperty("org.opencastproject.download.url"))
         .andReturn(UrlSupport.DEFAULT_BASE_URL).anyTimes();
     EasyMock.expect(bc.getProperty(DIGEST_USER_PROPERTY))
@@ -178,6 +187,8 @@ public class DownloadDistributionServiceImplTest {
   @After
   public void tearDown() throws Exception {
     FileUtils.deleteDirectory(distributionRoot);
+    FileUtils.deleteDirectory(checksumIndexRoot);
+    FileUtils.deleteDirectory(workspaceCopyRoot);
     ((ServiceRegistryInMemoryImpl) serviceRegistry).dispose();
   }
 
@@ -205,6 +216,29 @@ public class DownloadDistributionServiceImplTest {
     Assert.assertFalse(new File(attachmentsDir, "attachment.txt").exists());
   }
 
+  @Test
+  public void testRedistributionLinksIndexedFile() throws Exception {
+    Job job1 = service.distribute("engage-player", mp, "track-1");
+    new JobBarrier(null, serviceRegistry, 500, job1).waitForJobs();
+    File distributed = service.getDistributionFile("engage-player", mp, mp.getElementById("track-1"));
+    Assert.assertTrue(distributed.isFile());
+
+    // The same content is published again as part of another media package, taken from a different workspace file
+    File workspaceFile = new File(workspaceCopyRoot, "media.mov");
+    FileUtils.copyFile(new File(workspaceRoot, "media.mov"), workspaceFile);
+    workspaceRoot = workspaceCopyRoot;
+    MediaPackage other = (MediaPackage) mp.clone();
+    other.setIdentifier(new IdImpl("other-mediapackage"));
+
+    Job job2 = service.distribute("oai-pmh", other, "track-1");
+    new JobBarrier(null, serviceRegistry, 500, job2).waitForJobs();
+    File redistributed = service.getDistributionFile("oai-pmh", other, other.getElementById("track-1"));
+    Assert.assertTrue(redistributed.isFile());
+    // Only the checksum index knows about files of other media packages
+    Assert.assertTrue(Files.isSameFile(distributed.toPath(), redistributed.toPath()));
+    Assert.assertFalse(Files.isSameFile(workspaceFile.toPath(), redistributed.toPath()));
+  }
+
   @Test
   public void testRetractByOriginal() throws Exception {
     // Distribute the mediapackage and all of its elements
@@ -81,6 +81,27 @@ public interface SearchQuery {
    */
   int getOffset();
 
+  /**
+   * Switches to cursor based pagination. Instead of skipping <code>offset</code> results, the search continues right
+   * after the last result of the page the cursor was returned with, see {@link SearchResult#getNextCursor()}. This
+   * keeps the cost of a page constant, no matter how deep it is. An empty cursor requests the first page.
+   * <p>
+   * The offset is ignored for cursor based pagination.
+   *
+   * @param cursor
+   *          the cursor of the page to return, an empty string for the first page or <code>null</code> to use the
+   *          offset instead
+   * @return the search query
+   */
+  SearchQuery withCursor(String cursor);
+
+  /**
+   * Returns the cursor of the page to return or <code>null</code> if the results are paged by offset.
+   *
+   * @return the cursor
+   */
+  String getCursor();
+
   /**
    * Returns documents that contain the given text.
    *
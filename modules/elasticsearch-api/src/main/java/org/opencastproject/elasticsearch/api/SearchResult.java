@@ -93,4 +93,12 @@ public interface SearchResult<T> {
    */
   long getSearchTime();
 
+  /**
+   * Returns the cursor of the next page if the search used cursor based pagination, see
+   * {@link SearchQuery#withCursor(String)}.
+   *
+   * @return the cursor or <code>null</code> if there are no more results
+   */
+  String getNextCursor();
+
 }
@@ -59,6 +59,7 @@ import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.action.support.WriteRequest;
 import org.elasticsearch.action.support.master.AcknowledgedResponse;
+import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestClient;
 import org.elasticsearch.client.RestClientBuilder;
@@ -66,7 +67,14 @@ import org.elasticsearch.client.RestHighLevelClient;
 import org.elasticsearch.client.indices.CreateIndexRequest;
 import org.elasticsearch.client.indices.CreateIndexResponse;
 import org.elasticsearch.cluster.health.ClusterHealthStatus;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.document.DocumentField;
+import org.elasticsearch.common.xcontent.DeprecationHandler;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.rest.RestStatus;
@@ -91,10 +99,13 @@ import java.net.ConnectException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.function.Function;
 
 /**
@@ -108,6 +119,9 @@ public abstract class AbstractElasticsearchIndex implements SearchIndex {
   /** The Elasticsearch maximum results window size */
   private static final int ELASTICSEARCH_INDEX_MAX_RESULT_WINDOW = Integer.MAX_VALUE;
 
+  /** The unique field cursor based pagination sorts by last, so every document has a well-defined position */
+  private static final String CURSOR_TIEBREAKER_FIELD = "uid";
+
   /** The Elasticsearch term aggregation size */
   private static final int ELASTICSEARCH_TERM_AGGREGATION_SIZE = 10000;
 
@@ -308,6 +322,111 @@ public abstract class AbstractElasticsearchIndex implements SearchIndex {
     return indexResponse;
   }
 
+  /**
+   * Reads a document together with its sequence number and primary term, so it can later be updated with
+   * {@link #updateIfUnchanged(GetResponse, ElasticsearchDocument)}.
+   *
+   * @param maxRetryAttempts
+   *          How often to retry the request in case of ElasticsearchStatusException
+   * @param retryWaitingPeriod
+   *          How long to wait (in ms) between retries
+   * @param type
+   *          The document type
+   * @param uid
+   *          The document identifier
+   * @return the get response, which might state that the document does not exist
+   *
+   * @throws IOException
+   *         If reading from the index fails
+   * @throws InterruptedException
+   *         If waiting during retry is interrupted
+   */
+  protected GetResponse getVersioned(int maxRetryAttempts, int retryWaitingPeriod, String type, String uid)
+          throws IOException, InterruptedException {
+    final GetRequest getRequest = new GetRequest(getSubIndexIdentifier(type), uid).realtime(true);
+
+    GetResponse getResponse = null;
+    int retryAttempts = 0;
+    do {
+      try {
+        getResponse = client.get(getRequest, RequestOptions.DEFAULT);
+      } catch (ElasticsearchStatusException e) {
+        retryAttempts++;
+
+        if (retryAttempts <= maxRetryAttempts) {
+          logger.warn("Could not get document {} from index {}, retrying in {} ms.", uid, getIndexName(),
+                  retryWaitingPeriod, e);
+          if (retryWaitingPeriod > 0) {
+            Thread.sleep(retryWaitingPeriod);
+          }
+        } else {
+          logger.error("Could not get document {} from index {}, not retrying.", uid, getIndexName(), e);
+          throw e;
+        }
+      }
+    } while (getResponse == null);
+
+    return getResponse;
+  }
+
+  /**
+   * Writes a document unless it has been modified since it was read. Only the fields which differ from the version
+   * that has been read are sent to the index, and nothing is sent if no field changed.
+   *
+   * @param previous
+   *          The version of the document the update is based on, as returned by
+   *          {@link #getVersioned(int, int, String, String)}
+   * @param document
+   *          The new version of the document
+   * @return <code>false</code> if the document has been modified, created or removed in the meantime, in which case
+   *         the update needs to be based on the current version of the document
+   *
+   * @throws IOException
+   *         If updating the index fails
+   */
+  protected boolean updateIfUnchanged(GetResponse previous, ElasticsearchDocument document) throws IOException {
+    final String index = getSubIndexIdentifier(document.getType());
+    try {
+      if (!previous.isExists()) {
+        client.index(new IndexRequest(index).id(document.getUID()).source(document).create(true)
+                .setRefreshPolicy(WriteRequest.RefreshPolicy.IMMEDIATE), RequestOptions.DEFAULT);
+        return true;
+      }
+
+      // Compare the documents in the form the index returns them
+      final Map<String, Object> current = XContentHelper.convertToMap(
+              BytesReference.bytes(XContentFactory.jsonBuilder().map(document)), false, XContentType.JSON).v2();
+      final Map<String, Object> before = previous.getSourceAsMap();
+      final Map<String, Object> changes = new HashMap<>();
+      for (Entry<String, Object> field : current.entrySet()) {
+        if (!Objects.equals(field.getValue(), before.get(field.getKey()))) {
+          changes.put(field.getKey(), field.getValue());
+        }
+      }
+      for (Entry<String, Object> field : before.entrySet()) {
+        if (field.getValue() != null && !current.containsKey(field.getKey())) {
+          changes.put(field.getKey(), null);
+        }
+      }
+      if (changes.isEmpty()) {
+        logger.debug("Document {} in index {} is unchanged", document.getUID(), index);
+        return true;
+      }
+
+      logger.debug("Updating fields {} of document {} in index {}", changes.keySet(), document.getUID(), index);
+      client.update(new UpdateRequest(index, document.getUID()).doc(changes)
+              .setIfSeqNo(previous.getSeqNo()).setIfPrimaryTerm(previous.getPrimaryTerm())
+              .setRefreshPolicy(WriteRequest.RefreshPolicy.IMMEDIATE), RequestOptions.DEFAULT);
+      return true;
+    } catch (ElasticsearchStatusException e) {
+      if (e.status() == RestStatus.CONFLICT || e.status() == RestStatus.NOT_FOUND) {
+        logger.debug("Document {} in index {} has been modified concurrently", document.getUID(), index);
+        return false;
+      }
+      throw e;
+    }
+  }
+
   /**
    * Posts the input documents to the search index.
    *
@@ -639,13 +758,14 @@ public abstract class AbstractElasticsearchIndex implements SearchIndex {
     }
 
     // Pagination
-    if (query.getOffset() >= 0) {
+    final boolean cursorPagination = query.getCursor() != null;
+    if (query.getOffset() >= 0 && !cursorPagination) {
       searchSource.from(query.getOffset());
     }
 
     int limit = ELASTICSEARCH_INDEX_MAX_RESULT_WINDOW;
     if (query.getLimit() > 0) {
-      if (query.getOffset() > 0
+      if (query.getOffset() > 0 && !cursorPagination
               && (long) query.getOffset() + (long) query.getLimit() > ELASTICSEARCH_INDEX_MAX_RESULT_WINDOW) {
         limit = ELASTICSEARCH_INDEX_MAX_RESULT_WINDOW - query.getOffset();
       } else {
@@ -685,9 +805,60 @@ public abstract class AbstractElasticsearchIndex implements SearchIndex {
           break;
       }
     }
+
+    // Cursor based pagination continues after the sort values of the last document of the previous page
+    if (cursorPagination) {
+      searchSource.sort(SortBuilders.fieldSort(CURSOR_TIEBREAKER_FIELD).order(SortOrder.ASC).unmappedType("keyword"));
+      if (!query.getCursor().isEmpty()) {
+        searchSource.searchAfter(decodeCursor(query.getCursor()));
+      }
+    }
+
     return new SearchRequest(Arrays.stream(query.getTypes()).map(this::getSubIndexIdentifier).toArray(String[]::new))
             .searchType(SearchType.QUERY_THEN_FETCH).preference("_local").source(searchSource);
   }
+  /**
+   * Encodes the sort values of a document as cursor.
+   *
+   * @param sortValues
+   *          the sort values
+   * @return the cursor
+   */
+  private static String encodeCursor(Object[] sortValues) {
+    try {
+      final XContentBuilder builder = XContentFactory.jsonBuilder().startArray();
+      for (Object value : sortValues) {
+        builder.value(value);
+      }
+      builder.endArray();
+      return Base64.getUrlEncoder().withoutPadding().encodeToString(BytesReference.toBytes(
+              BytesReference.bytes(builder)));
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to encode cursor", e);
+    }
+  }
+
+  /**
+   * Decodes the sort values of a document from a cursor.
+   *
+   * @param cursor
+   *          the cursor
+   * @return the sort values
+   * @throws IllegalArgumentException
+   *           if the cursor is invalid
+   */
+  private static Object[] decodeCursor(String cursor) {
+    try {
+      final byte[] json = Base64.getUrlDecoder().decode(cursor);
+      try (XContentParser parser = XContentType.JSON.xContent().createParser(NamedXContentRegistry.EMPTY,
+              DeprecationHandler.THROW_UNSUPPORTED_OPERATION, json)) {
+        return parser.list().toArray();
+      }
+    } catch (IOException | RuntimeException e) {
+      throw new IllegalArgumentException("Invalid cursor " + cursor, e);
+    }
+  }
+
 
   /**
    * Returns the name of this index.
@@ -774,6 +945,12 @@ public abstract class AbstractElasticsearchIndex implements SearchIndex {
     SearchResultImpl<T> result = new SearchResultImpl<>(query, hits, size);
     result.setSearchTime(searchResponse.getTook().millis());
 
+    // Pass on where the next page starts, unless this has been the last one
+    final SearchHit[] searchHits = searchResponse.getHits().getHits();
+    if (query.getCursor() != null && searchHits.length > 0 && searchHits.length == request.source().size()) {
+      result.setNextCursor(encodeCursor(searchHits[searchHits.length - 1].getSortValues()));
+    }
+
     // Walk through response and create new items with title, creator, etc:
     for (SearchHit doc : searchResponse.getHits()) {
 
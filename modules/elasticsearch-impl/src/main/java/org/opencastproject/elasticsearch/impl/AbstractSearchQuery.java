@@ -66,6 +66,9 @@ public abstract class AbstractSearchQuery implements SearchQuery {
   /** The query limit */
   protected int limit = -1;
 
+  /** The cursor for cursor based pagination */
+  protected String cursor = null;
+
   /** The map with the sort orders */
   private final Map<String, Order> sortOrders = new LinkedHashMap<String, Order>();
 
@@ -147,6 +150,17 @@ public abstract class AbstractSearchQuery implements SearchQuery {
     return offset;
   }
 
+  @Override
+  public SearchQuery withCursor(String cursor) {
+    this.cursor = cursor;
+    return this;
+  }
+
+  @Override
+  public String getCursor() {
+    return cursor;
+  }
+
   @Override
   public SearchQuery withText(String text) {
     return withText(false, Any, text);
@@ -52,6 +52,9 @@ public class SearchResultImpl<T> implements SearchResult<T> {
   /** The time it took to do the search in ms */
   protected long time = 0;
 
+  /** The cursor of the next page */
+  protected String nextCursor = null;
+
   /** The search result */
   protected List<SearchResultItem<T>> result = null;
 
@@ -166,6 +169,25 @@ public class SearchResultImpl<T> implements SearchResult<T> {
     return time;
   }
 
+  /**
+   * Sets the cursor of the next page.
+   *
+   * @param nextCursor
+   *          the cursor
+   */
+  public void setNextCursor(String nextCursor) {
+    this.nextCursor = nextCursor;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @see SearchResult#getNextCursor()
+   */
+  public String getNextCursor() {
+    return nextCursor;
+  }
+
   /**
    * {@inheritDoc}
    * 
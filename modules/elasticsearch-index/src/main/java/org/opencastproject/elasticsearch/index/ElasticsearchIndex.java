@@ -29,7 +29,9 @@ import org.opencastproject.elasticsearch.api.SearchResult;
 import org.opencastproject.elasticsearch.impl.AbstractElasticsearchIndex;
 import org.opencastproject.elasticsearch.impl.ElasticsearchDocument;
 import org.opencastproject.elasticsearch.impl.SearchMetadataCollection;
+import org.opencastproject.elasticsearch.index.jmx.QueryCacheStatistics;
 import org.opencastproject.elasticsearch.index.objects.event.Event;
+import org.opencastproject.elasticsearch.index.objects.event.EventIndexSchema;
 import org.opencastproject.elasticsearch.index.objects.event.EventIndexUtils;
 import org.opencastproject.elasticsearch.index.objects.event.EventQueryBuilder;
 import org.opencastproject.elasticsearch.index.objects.event.EventSearchQuery;
@@ -41,14 +43,19 @@ import org.opencastproject.elasticsearch.index.objects.theme.IndexTheme;
 import org.opencastproject.elasticsearch.index.objects.theme.ThemeQueryBuilder;
 import org.opencastproject.elasticsearch.index.objects.theme.ThemeSearchQuery;
 import org.opencastproject.list.api.ListProvidersService;
+import org.opencastproject.security.api.Role;
 import org.opencastproject.security.api.User;
+import org.opencastproject.util.jmx.JmxUtil;
 
+import com.google.common.cache.CacheStats;
 import com.google.common.util.concurrent.Striped;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.math.NumberUtils;
 import org.elasticsearch.action.DocWriteResponse;
 import org.elasticsearch.action.delete.DeleteResponse;
+import org.elasticsearch.action.get.GetResponse;
 import org.elasticsearch.action.search.SearchRequest;
 import org.osgi.framework.BundleContext;
 import org.osgi.service.component.ComponentException;
@@ -61,6 +68,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -68,7 +76,9 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.locks.Lock;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
+import javax.management.ObjectInstance;
 import javax.xml.bind.Unmarshaller;
 
 /**
@@ -101,6 +111,30 @@ public class ElasticsearchIndex extends AbstractElasticsearchIndex {
   private static final String RETRY_WAITING_PERIOD_UPDATE_PROPERTY = "retry.waiting.period.update";
   private static final int DEFAULT_RETRY_WAITING_PERIOD_UPDATE = 1000;
 
+  /** Whether to update events with optimistic concurrency control instead of locking */
+  private boolean optimisticEventUpdates;
+  private static final String OPTIMISTIC_EVENT_UPDATES_PROPERTY = "optimistic.event.updates";
+  private static final boolean DEFAULT_OPTIMISTIC_EVENT_UPDATES = false;
+
+  /** How often to retry an optimistic update which conflicts with a concurrent modification */
+  private static final int MAX_CONFLICT_RETRY_ATTEMPTS = 10;
+
+  /** Query cache configuration */
+  private static final String QUERY_CACHE_SIZE_PROPERTY = "query.cache.size";
+  private static final int DEFAULT_QUERY_CACHE_SIZE = 0;
+
+  private static final String QUERY_CACHE_TTL_PROPERTY = "query.cache.ttl";
+  private static final int DEFAULT_QUERY_CACHE_TTL = 10;
+
+  /** Results of event and series queries */
+  private volatile SearchResultCache queryCache = new SearchResultCache(0, 0);
+
+  /** The JMX type of the query cache statistics */
+  private static final String JMX_QUERY_CACHE_STATISTICS_TYPE = "IndexQueryCacheStatistics";
+
+  /** The registered query cache statistics bean */
+  private ObjectInstance registeredMXBean;
+
   /** The required index version */
   private static final int INDEX_VERSION = 101;
 
@@ -153,6 +187,9 @@ public class ElasticsearchIndex extends AbstractElasticsearchIndex {
     episodeIdRole = BooleanUtils.toBoolean(Objects.toString(
         bundleContext.getProperty(CONFIG_EPISODE_ID_ROLE), "false"));
     logger.debug("Usage of episode ID roles is set to {}", episodeIdRole);
+
+    registeredMXBean = JmxUtil.registerMXBean(new QueryCacheStatistics(this::getQueryCacheStats,
+        () -> queryCache.size()), JMX_QUERY_CACHE_STATISTICS_TYPE);
   }
 
   /**
@@ -163,6 +200,10 @@ public class ElasticsearchIndex extends AbstractElasticsearchIndex {
    */
   @Deactivate
   public void deactivate() throws IOException {
+    if (registeredMXBean != null) {
+      JmxUtil.unregisterMXBean(registeredMXBean);
+      registeredMXBean = null;
+    }
     close();
   }
 
@@ -195,6 +236,20 @@ public class ElasticsearchIndex extends AbstractElasticsearchIndex {
       logger.warn("You have configured negative values for max attempts or retry periods. Is this intended? This is "
               + "equivalent to setting those values to 0.");
     }
+
+    optimisticEventUpdates = BooleanUtils.toBooleanDefaultIfNull(
+            BooleanUtils.toBooleanObject((String) properties.get(OPTIMISTIC_EVENT_UPDATES_PROPERTY)),
+            DEFAULT_OPTIMISTIC_EVENT_UPDATES);
+    logger.info("Optimistic event updates are {}.", optimisticEventUpdates ? "enabled" : "disabled");
+
+    final int queryCacheSize = NumberUtils.toInt((String) properties.get(QUERY_CACHE_SIZE_PROPERTY),
+            DEFAULT_QUERY_CACHE_SIZE);
+    final int queryCacheTtl = NumberUtils.toInt((String) properties.get(QUERY_CACHE_TTL_PROPERTY),
+            DEFAULT_QUERY_CACHE_TTL);
+    queryCache = new SearchResultCache(queryCacheSize, queryCacheTtl);
+    if (queryCache.isEnabled()) {
+      logger.info("Caching up to {} event and series query results for {} s.", queryCacheSize, queryCacheTtl);
+    }
   }
 
   /**
@@ -205,6 +260,22 @@ public class ElasticsearchIndex extends AbstractElasticsearchIndex {
     return DOCUMENT_TYPES;
   }
 
+  @Override
+  public void clear() throws IOException {
+    super.clear();
+    queryCache.invalidateAll();
+  }
+
+  /**
+   * Returns the statistics of the event and series query cache, which can be used to monitor its hit rate. They are
+   * also exposed via JMX.
+   *
+   * @return the query cache statistics
+   */
+  public CacheStats getQueryCacheStats() {
+    return queryCache.stats();
+  }
+
   /*
    * Get index objects
    */
@@ -252,7 +323,8 @@ public class ElasticsearchIndex extends AbstractElasticsearchIndex {
   private Optional<Event> getEvent(String mediaPackageId, String organization, User user, int maxRetryAttempts,
           int retryWaitingPeriod) throws SearchIndexException {
     EventSearchQuery query = new EventSearchQuery(organization, user).withoutActions().withIdentifier(mediaPackageId);
-    SearchResult<Event> searchResult = getByQuery(query, maxRetryAttempts, retryWaitingPeriod);
+    SearchResult<Event> searchResult = getByQuery(query, getSearchRequest(query, new EventQueryBuilder(query)),
+        maxRetryAttempts, retryWaitingPeriod);
     if (searchResult.getDocumentCount() == 0) {
       return Optional.empty();
     } else if (searchResult.getDocumentCount() == 1) {
@@ -307,7 +379,8 @@ public class ElasticsearchIndex extends AbstractElasticsearchIndex {
   private Optional<Series> getSeries(String seriesId, String organization, User user, int maxRetryAttempts,
           int retryWaitingPeriod) throws SearchIndexException {
     SeriesSearchQuery query = new SeriesSearchQuery(organization, user).withoutActions().withIdentifier(seriesId);
-    SearchResult<Series> searchResult = getByQuery(query, maxRetryAttempts, retryWaitingPeriod);
+    SearchResult<Series> searchResult = getByQuery(query, getSearchRequest(query, new SeriesQueryBuilder(query)),
+        maxRetryAttempts, retryWaitingPeriod);
     if (searchResult.getDocumentCount() == 0) {
       return Optional.empty();
     } else if (searchResult.getDocumentCount() == 1) {
@@ -378,6 +451,10 @@ public class ElasticsearchIndex extends AbstractElasticsearchIndex {
 
   /**
    * Adds or updates the event in the search index. Uses a locking mechanism to avoid issues like Lost Update.
+   * <p>
+   * If optimistic event updates are enabled, no lock is taken. Instead, only the changed fields are written, and only
+   * if the event has not been modified since it was read. Otherwise, the update function is applied again to the
+   * current version of the event, so it may be called more than once.
    *
    * @param id
    *          The id of the event to update
@@ -393,6 +470,10 @@ public class ElasticsearchIndex extends AbstractElasticsearchIndex {
    */
   public Optional<Event> addOrUpdateEvent(String id, Function<Optional<Event>, Optional<Event>> updateFunction,
           String orgId, User user) throws SearchIndexException {
+    if (optimisticEventUpdates) {
+      return addOrUpdateEventOptimistically(id, updateFunction, orgId);
+    }
+
     final Lock lock = this.locks.get(id);
     lock.lock();
     logger.debug("Locked event '{}'", id);
@@ -411,6 +492,72 @@ public class ElasticsearchIndex extends AbstractElasticsearchIndex {
     }
   }
 
+  /**
+   * Adds or updates the event using optimistic concurrency control.
+   *
+   * @param id
+   *          The id of the event to update
+   * @param updateFunction
+   *          The function that does the actual updating
+   * @param orgId
+   *          The organization the event belongs to
+   *
+   * @throws SearchIndexException
+   *          Thrown if unable to update the event.
+   */
+  private Optional<Event> addOrUpdateEventOptimistically(String id,
+          Function<Optional<Event>, Optional<Event>> updateFunction, String orgId) throws SearchIndexException {
+    try {
+      final Unmarshaller unmarshaller = Event.createUnmarshaller();
+      for (int attempt = 0; attempt <= MAX_CONFLICT_RETRY_ATTEMPTS; attempt++) {
+        final GetResponse current = getVersioned(maxRetryAttemptsUpdate, retryWaitingPeriodUpdate,
+                Event.DOCUMENT_TYPE, id.concat(orgId));
+        Optional<Event> eventOpt = Optional.empty();
+        if (current.isExists()) {
+          Object object = current.getSourceAsMap().get(EventIndexSchema.OBJECT);
+          if (object instanceof List) {
+            object = ((List<?>) object).get(0);
+          }
+          eventOpt = Optional.of(Event.valueOf(IOUtils.toInputStream((String) object, Charset.defaultCharset()),
+                  unmarshaller));
+        }
+
+        Optional<Event> updatedEventOpt = updateFunction.apply(eventOpt);
+        if (updatedEventOpt.isEmpty()) {
+          return updatedEventOpt;
+        }
+        final Event event = updatedEventOpt.get();
+        logger.debug("Updating event {} in search index", event.getIdentifier());
+        try {
+          if (updateIfUnchanged(current, toDocument(event))) {
+            return updatedEventOpt;
+          }
+        } finally {
+          queryCache.invalidate(event.getOrganization());
+        }
+        logger.debug("Event '{}' has been modified concurrently, retrying update", id);
+      }
+    } catch (Throwable t) {
+      throw new SearchIndexException("Cannot update event " + id + " in index", t);
+    }
+    throw new SearchIndexException("Cannot update event " + id + " in index, it is being modified concurrently");
+  }
+
+  /**
+   * Creates the search index document of an event.
+   *
+   * @param event
+   *          The event
+   * @return the document
+   */
+  private ElasticsearchDocument toDocument(Event event) {
+    SearchMetadataCollection inputDocument = EventIndexUtils.toSearchMetadata(event, listProvidersService,
+        episodeIdRole);
+    List<SearchMetadata<?>> resourceMetadata = inputDocument.getMetadata();
+    return new ElasticsearchDocument(inputDocument.getIdentifier(), inputDocument.getDocumentType(),
+        resourceMetadata);
+  }
+
   /**
    * Adds the recording event to the search index or updates it accordingly if it is there.
    *
@@ -424,16 +571,14 @@ public class ElasticsearchIndex extends AbstractElasticsearchIndex {
     logger.debug("Adding event {} to search index", event.getIdentifier());
 
     // Add the resource to the index
-    SearchMetadataCollection inputDocument = EventIndexUtils.toSearchMetadata(event, listProvidersService,
-        episodeIdRole);
-    List<SearchMetadata<?>> resourceMetadata = inputDocument.getMetadata();
-    ElasticsearchDocument doc = new ElasticsearchDocument(inputDocument.getIdentifier(),
-            inputDocument.getDocumentType(), resourceMetadata);
+    ElasticsearchDocument doc = toDocument(event);
 
     try {
       update(maxRetryAttemptsUpdate, retryWaitingPeriodUpdate, doc);
     } catch (Throwable t) {
       throw new SearchIndexException("Cannot write event " + event + " to index", t);
+    } finally {
+      queryCache.invalidate(event.getOrganization());
     }
   }
 
@@ -461,6 +606,8 @@ public class ElasticsearchIndex extends AbstractElasticsearchIndex {
       bulkUpdate(maxRetryAttemptsUpdate, retryWaitingPeriodUpdate, docs);
     } catch (Throwable t) {
       throw new SearchIndexException("Cannot write events " + eventList + " to index", t);
+    } finally {
+      queryCache.invalidateAll();
     }
   }
 
@@ -520,6 +667,8 @@ public class ElasticsearchIndex extends AbstractElasticsearchIndex {
       update(maxRetryAttemptsUpdate, retryWaitingPeriodUpdate, doc);
     } catch (Throwable t) {
       throw new SearchIndexException("Cannot write series " + series + " to index", t);
+    } finally {
+      queryCache.invalidate(series.getOrganization());
     }
   }
 
@@ -546,6 +695,8 @@ public class ElasticsearchIndex extends AbstractElasticsearchIndex {
       bulkUpdate(maxRetryAttemptsUpdate, retryWaitingPeriodUpdate, docs);
     } catch (Throwable t) {
       throw new SearchIndexException("Cannot write series " + seriesList + " to index", t);
+    } finally {
+      queryCache.invalidateAll();
     }
   }
 
@@ -605,6 +756,8 @@ public class ElasticsearchIndex extends AbstractElasticsearchIndex {
       update(maxRetryAttemptsUpdate, retryWaitingPeriodUpdate, doc);
     } catch (Throwable t) {
       throw new SearchIndexException("Cannot write theme " + theme + " to index", t);
+    } finally {
+      queryCache.invalidate(theme.getOrganization());
     }
   }
 
@@ -632,6 +785,8 @@ public class ElasticsearchIndex extends AbstractElasticsearchIndex {
       bulkUpdate(maxRetryAttemptsUpdate, retryWaitingPeriodUpdate, docs);
     } catch (Throwable t) {
       throw new SearchIndexException("Cannot write themes " + themeList + " to index", t);
+    } finally {
+      queryCache.invalidateAll();
     }
   }
 
@@ -718,6 +873,7 @@ public class ElasticsearchIndex extends AbstractElasticsearchIndex {
     } catch (Throwable e) {
       throw new SearchIndexException("Cannot remove " + type + " " + id + " from index", e);
     } finally {
+      queryCache.invalidate(orgId);
       lock.unlock();
       logger.debug("Released locked {} '{}'.", type, id);
     }
@@ -737,12 +893,16 @@ public class ElasticsearchIndex extends AbstractElasticsearchIndex {
    *          Thrown if there is an error getting the results.
    */
   public SearchResult<Event> getByQuery(EventSearchQuery query) throws SearchIndexException {
-    return getByQuery(query, maxRetryAttemptsGet, retryWaitingPeriodGet);
+    final SearchRequest searchRequest = getSearchRequest(query, new EventQueryBuilder(query));
+    return cachedQuery(query.getOrganization(), query.getUser(), searchRequest,
+        () -> getByQuery(query, searchRequest, maxRetryAttemptsGet, retryWaitingPeriodGet));
   }
 
   /**
    * @param query
    *          The query to use to retrieve the events that match the query
+   * @param searchRequest
+   *          The search request created from the query
    * @param maxRetryAttempts
    *          How often to retry query in case of ElasticsearchStatusException
    * @param retryWaitingPeriod
@@ -752,12 +912,9 @@ public class ElasticsearchIndex extends AbstractElasticsearchIndex {
    * @throws SearchIndexException
    *          Thrown if there is an error getting the results.
    */
-  private SearchResult<Event> getByQuery(EventSearchQuery query, int maxRetryAttempts, int retryWaitingPeriod)
-          throws SearchIndexException {
+  private SearchResult<Event> getByQuery(EventSearchQuery query, SearchRequest searchRequest, int maxRetryAttempts,
+          int retryWaitingPeriod) throws SearchIndexException {
     logger.debug("Searching index using event query '{}'", query);
-    // Create the request
-    final SearchRequest searchRequest = getSearchRequest(query, new EventQueryBuilder(query));
-
     try {
       final Unmarshaller unmarshaller = Event.createUnmarshaller();
       return executeQuery(query, searchRequest, metadata -> {
@@ -782,12 +939,16 @@ public class ElasticsearchIndex extends AbstractElasticsearchIndex {
    *          Thrown if there is an error getting the results.
    */
   public SearchResult<Series> getByQuery(SeriesSearchQuery query) throws SearchIndexException {
-    return getByQuery(query, maxRetryAttemptsGet, retryWaitingPeriodGet);
+    final SearchRequest searchRequest = getSearchRequest(query, new SeriesQueryBuilder(query));
+    return cachedQuery(query.getOrganization(), query.getUser(), searchRequest,
+        () -> getByQuery(query, searchRequest, maxRetryAttemptsGet, retryWaitingPeriodGet));
   }
 
   /**
    * @param query
    *          The query to use to retrieve the series that match the query
+   * @param searchRequest
+   *          The search request created from the query
    * @param maxRetryAttempts
    *          How often to retry query in case of ElasticsearchStatusException
    * @param retryWaitingPeriod
@@ -798,11 +959,9 @@ public class ElasticsearchIndex extends AbstractElasticsearchIndex {
    * @throws SearchIndexException
    *          Thrown if there is an error getting the results.
    */
-  private SearchResult<Series> getByQuery(SeriesSearchQuery query, int maxRetryAttempts, int retryWaitingPeriod)
-          throws SearchIndexException {
+  private SearchResult<Series> getByQuery(SeriesSearchQuery query, SearchRequest searchRequest,
+          int maxRetryAttempts, int retryWaitingPeriod) throws SearchIndexException {
     logger.debug("Searching index using series query '{}'", query);
-    // Create the request
-    final SearchRequest searchRequest = getSearchRequest(query, new SeriesQueryBuilder(query));
     try {
       final Unmarshaller unmarshaller = Series.createUnmarshaller();
       return executeQuery(query, searchRequest, metadata -> {
@@ -817,6 +976,37 @@ public class ElasticsearchIndex extends AbstractElasticsearchIndex {
     }
   }
 
+  /**
+   * Returns the cached result of a search request or executes it if there is none. The cache key consists of the
+   * normalized search request and the roles of the user.
+   *
+   * @param organization
+   *          The organization the search is run for
+   * @param user
+   *          The user running the search
+   * @param searchRequest
+   *          The search request
+   * @param search
+   *          Executes the search request
+   * @return the search result
+   *
+   * @throws SearchIndexException
+   *          Thrown if there is an error getting the results.
+   */
+  private <T> SearchResult<T> cachedQuery(String organization, User user, SearchRequest searchRequest,
+          SearchResultCache.Search<T> search) throws SearchIndexException {
+    final SearchResultCache cache = queryCache;
+    if (!cache.isEnabled()) {
+      return search.execute();
+    }
+    final String roles = user.getRoles().stream()
+        .map(Role::getName)
+        .sorted()
+        .collect(Collectors.joining(","));
+    final String key = String.join(",", searchRequest.indices()) + "\n" + roles + "\n" + searchRequest.source();
+    return cache.get(organization, key, search);
+  }
+
   /**
    * @param query
    *          The query to use to retrieve the themes that match the query
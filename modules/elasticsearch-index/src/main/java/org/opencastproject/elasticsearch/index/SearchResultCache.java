@@ -0,0 +1,200 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.elasticsearch.index;
+
+import org.opencastproject.elasticsearch.api.SearchIndexException;
+import org.opencastproject.elasticsearch.api.SearchResult;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches search results per organization. The cached results of an organization are dropped whenever a document of
+ * that organization is written to or removed from the index.
+ * <p>
+ * Only writes done by this node invalidate the cache. Results cached on other nodes of a cluster stay in their caches
+ * until they expire.
+ * <p>
+ * Cached results are shared between callers and must not be modified.
+ */
+class SearchResultCache {
+
+  /** The cached results, <code>null</code> if caching is disabled */
+  private final Cache<Key, SearchResult<?>> cache;
+
+  /** Incremented on every invalidation of an organization */
+  private final ConcurrentMap<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+  /**
+   * Executes search requests.
+   *
+   * @param <T>
+   *          the type of the search result items
+   */
+  @FunctionalInterface
+  interface Search<T> {
+    SearchResult<T> execute() throws SearchIndexException;
+  }
+
+  /**
+   * Creates a new cache.
+   *
+   * @param maximumSize
+   *          the maximum number of cached results, caching is disabled if this is not positive
+   * @param ttl
+   *          how long results are cached at most, in seconds
+   */
+  SearchResultCache(long maximumSize, long ttl) {
+    if (maximumSize > 0 && ttl > 0) {
+      cache = CacheBuilder.newBuilder()
+          .maximumSize(maximumSize)
+          .expireAfterWrite(ttl, TimeUnit.SECONDS)
+          .recordStats()
+          .build();
+    } else {
+      cache = null;
+    }
+  }
+
+  /**
+   * @return whether results are cached at all
+   */
+  boolean isEnabled() {
+    return cache != null;
+  }
+
+  /**
+   * Returns the cached result of a search or executes the search and caches its result.
+   *
+   * @param organization
+   *          the organization the search is run for
+   * @param key
+   *          the normalized search request, including everything the result depends on
+   * @param search
+   *          executes the search if there is no cached result
+   * @return the search result
+   * @throws SearchIndexException
+   *           if the search fails
+   */
+  @SuppressWarnings("unchecked")
+  <T> SearchResult<T> get(String organization, String key, Search<T> search) throws SearchIndexException {
+    if (cache == null) {
+      return search.execute();
+    }
+    final Key cacheKey = new Key(organization, key);
+    final SearchResult<T> cached = (SearchResult<T>) cache.getIfPresent(cacheKey);
+    if (cached != null) {
+      return cached;
+    }
+
+    final AtomicLong generation = generation(organization);
+    final long before = generation.get();
+    final SearchResult<T> result = search.execute();
+    if (generation.get() == before) {
+      cache.put(cacheKey, result);
+      // The index may have been updated while the result was stored, so it might already be outdated
+      if (generation.get() != before) {
+        cache.invalidate(cacheKey);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Drops all cached results of an organization.
+   *
+   * @param organization
+   *          the organization
+   */
+  void invalidate(String organization) {
+    if (cache == null) {
+      return;
+    }
+    generation(organization).incrementAndGet();
+    cache.asMap().keySet().removeIf(key -> key.organization.equals(organization));
+  }
+
+  /**
+   * Drops all cached results.
+   */
+  void invalidateAll() {
+    if (cache == null) {
+      return;
+    }
+    generations.values().forEach(AtomicLong::incrementAndGet);
+    cache.invalidateAll();
+  }
+
+  /**
+   * @return the cache statistics
+   */
+  CacheStats stats() {
+    return cache == null ? new CacheStats(0, 0, 0, 0, 0, 0) : cache.stats();
+  }
+
+  /**
+   * @return the number of cached results
+   */
+  long size() {
+    return cache == null ? 0 : cache.size();
+  }
+
+  private AtomicLong generation(String organization) {
+    return generations.computeIfAbsent(organization, org -> new AtomicLong());
+  }
+
+  /** The cache key of a search result */
+  private static final class Key {
+    private final String organization;
+    private final String request;
+
+    private Key(String organization, String request) {
+      this.organization = organization;
+      this.request = request;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return organization.equals(other.organization) && request.equals(other.request);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(organization, request);
+    }
+  }
+}
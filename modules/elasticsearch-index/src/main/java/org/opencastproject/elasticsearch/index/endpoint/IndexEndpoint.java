@@ -23,6 +23,7 @@ package org.opencastproject.elasticsearch.index.endpoint;
 
 import org.opencastproject.elasticsearch.index.ElasticsearchIndex;
 import org.opencastproject.elasticsearch.index.rebuild.IndexProducer;
+import org.opencastproject.elasticsearch.index.rebuild.IndexRebuildRunner;
 import org.opencastproject.elasticsearch.index.rebuild.IndexRebuildService;
 import org.opencastproject.elasticsearch.index.rebuild.IndexRebuildService.DataType;
 import org.opencastproject.elasticsearch.index.rebuild.IndexRebuildService.Service;
@@ -279,8 +280,9 @@ public class IndexEndpoint {
   @GET
   @Path("rebuild/states.json")
   @Produces(MediaType.APPLICATION_JSON)
-  @RestQuery(name = "getrebuildstates", description = "Returns the index rebuild service"
-          + "repopulation states", returnDescription = "The repopulation states of the index rebuild services",
+  @RestQuery(name = "getrebuildstates", description = "Returns the index rebuild service "
+          + "repopulation states, with the progress and throughput (items per second) of the last rebuild",
+          returnDescription = "The repopulation states of the index rebuild services",
           responses = {
           @RestResponse(description = "Returns the repopulation states of the index rebuild services",
           responseCode = HttpServletResponse.SC_OK),
@@ -293,6 +295,12 @@ public class IndexEndpoint {
       data.put("type", entry.getKey());
       data.put("state", entry.getValue());
       data.put("executionOrder", IndexRebuildService.Service.valueOf(entry.getKey()).ordinal());
+      IndexRebuildRunner progress = indexRebuildService.getRebuildProgress(Service.valueOf(entry.getKey()));
+      if (progress != null) {
+        data.put("processed", progress.getProcessed());
+        data.put("total", progress.getTotal());
+        data.put("throughput", progress.getThroughput());
+      }
       statesAsJson.add(data);
     }
     JSONObject service = new JSONObject();
@@ -0,0 +1,72 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package org.opencastproject.elasticsearch.index.jmx;
+
+import com.google.common.cache.CacheStats;
+
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+public class QueryCacheStatistics implements QueryCacheStatisticsMXBean {
+
+  private final Supplier<CacheStats> stats;
+  private final LongSupplier size;
+
+  /**
+   * Creates the statistics bean reading the values from the given sources whenever they are requested.
+   *
+   * @param stats
+   *          the source of the cache statistics
+   * @param size
+   *          the source of the number of cached results
+   */
+  public QueryCacheStatistics(Supplier<CacheStats> stats, LongSupplier size) {
+    this.stats = stats;
+    this.size = size;
+  }
+
+  @Override
+  public long getSize() {
+    return size.getAsLong();
+  }
+
+  @Override
+  public long getHitCount() {
+    return stats.get().hitCount();
+  }
+
+  @Override
+  public long getMissCount() {
+    return stats.get().missCount();
+  }
+
+  @Override
+  public double getHitRate() {
+    return stats.get().hitRate();
+  }
+
+  @Override
+  public long getEvictionCount() {
+    return stats.get().evictionCount();
+  }
+
+}
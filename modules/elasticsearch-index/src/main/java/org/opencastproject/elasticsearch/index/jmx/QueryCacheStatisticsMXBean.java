@@ -0,0 +1,64 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package org.opencastproject.elasticsearch.index.jmx;
+
+/**
+ * JMX Bean interface exposing statistics of the event and series query result cache.
+ */
+public interface QueryCacheStatisticsMXBean {
+
+  /**
+   * Gets the number of cached query results
+   *
+   * @return the number of cached results
+   */
+  long getSize();
+
+  /**
+   * Gets the number of queries answered from the cache
+   *
+   * @return the number of cache hits
+   */
+  long getHitCount();
+
+  /**
+   * Gets the number of queries which had to be sent to the index
+   *
+   * @return the number of cache misses
+   */
+  long getMissCount();
+
+  /**
+   * Gets the ratio of queries answered from the cache
+   *
+   * @return the hit rate between 0 and 1
+   */
+  double getHitRate();
+
+  /**
+   * Gets the number of results dropped because the cache was full or they expired
+   *
+   * @return the number of evicted results
+   */
+  long getEvictionCount();
+
+}
@@ -38,6 +38,19 @@ public interface IndexProducer {
    */
   void repopulate(DataType dataType) throws IndexRebuildException;
 
+  /**
+   * Re-add the data of this service to the index using the given runner, which indexes the data in parallel and
+   * records checkpoints to resume from. Services which don't support this ignore the runner.
+   *
+   * @param dataType
+   *          Limit the data added to the index. Use ALL to re-index all data.
+   * @param runner
+   *          The runner to use.
+   */
+  default void repopulate(DataType dataType, IndexRebuildRunner runner) throws IndexRebuildException {
+    repopulate(dataType);
+  }
+
   /**
    * Get the service that implements IndexProducer.
    *
@@ -0,0 +1,309 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.elasticsearch.index.rebuild;
+
+import org.opencastproject.elasticsearch.index.rebuild.IndexRebuildService.Service;
+import org.opencastproject.security.api.SecurityService;
+import org.opencastproject.security.util.SecurityContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Runs the index rebuild of a single service. The data is read page by page using keyset pagination, i.e. every page
+ * starts after the key of the last item of the previous page, and the pages are indexed by a pool of workers while the
+ * next pages are read.
+ * <p>
+ * The key of the last page up to which all pages have been indexed is stored as checkpoint, so an interrupted rebuild
+ * can continue after it.
+ */
+public class IndexRebuildRunner {
+
+  /** The default number of items indexed in one go */
+  public static final int DEFAULT_BATCH_SIZE = 100;
+
+  private static final Logger logger = LoggerFactory.getLogger(IndexRebuildRunner.class);
+
+  /**
+   * Reads the items to index.
+   *
+   * @param <T>
+   *          the item type
+   */
+  @FunctionalInterface
+  public interface PageSource<T> {
+    /**
+     * Returns the next page of items.
+     *
+     * @param afterKey
+     *          the key of the last item of the previous page, or <code>null</code> for the first page
+     * @param limit
+     *          the maximum number of items to return
+     * @return the items ordered by their key, or an empty list if there are no more items
+     */
+    List<T> next(String afterKey, int limit) throws Exception;
+  }
+
+  /**
+   * Adds items to the index.
+   *
+   * @param <T>
+   *          the item type
+   */
+  @FunctionalInterface
+  public interface BatchIndexer<T> {
+    /**
+     * Adds a page of items to the index. Items which cannot be indexed should be skipped, exceptions abort the rebuild.
+     *
+     * @param batch
+     *          the items
+     */
+    void index(List<T> batch) throws Exception;
+  }
+
+  private final Service service;
+  private final int threads;
+  private final int batchSize;
+  private final File checkpoint;
+
+  private volatile long total = 0;
+  private volatile long processed = 0;
+  private volatile long started = 0;
+  private volatile long finished = 0;
+
+  /** Pages indexed out of order, by sequence number */
+  private final Map<Long, String> completed = new HashMap<>();
+  /** Sequence number of the next page which has to be indexed before the checkpoint can move on */
+  private long nextCheckpoint = 0;
+  /** The last progress reported, in percent */
+  private long reported = -1;
+
+  /**
+   * Creates a runner indexing one page at a time without checkpoints.
+   *
+   * @param service
+   *          the service whose data is indexed
+   */
+  public IndexRebuildRunner(Service service) {
+    this(service, 1, DEFAULT_BATCH_SIZE, null);
+  }
+
+  /**
+   * Creates a runner.
+   *
+   * @param service
+   *          the service whose data is indexed
+   * @param threads
+   *          the number of pages indexed concurrently
+   * @param batchSize
+   *          the number of items per page
+   * @param checkpoint
+   *          the file to store the checkpoint in, or <code>null</code> to not store checkpoints
+   */
+  public IndexRebuildRunner(Service service, int threads, int batchSize, File checkpoint) {
+    if (threads < 1 || batchSize < 1) {
+      throw new IllegalArgumentException("Threads and batch size must be positive");
+    }
+    this.service = service;
+    this.threads = threads;
+    this.batchSize = batchSize;
+    this.checkpoint = checkpoint;
+  }
+
+  /**
+   * Indexes all items after the checkpoint, if there is one.
+   *
+   * @param total
+   *          the expected number of items, used for progress reporting only
+   * @param securityService
+   *          the security service to run the workers in the security context of the caller, may be <code>null</code>
+   * @param source
+   *          reads the pages
+   * @param key
+   *          returns the key of an item
+   * @param indexer
+   *          indexes a page
+   * @throws IndexRebuildException
+   *          if reading or indexing a page failed
+   */
+  public <T> void run(long total, SecurityService securityService, PageSource<T> source, Function<T, String> key,
+          BatchIndexer<T> indexer) throws IndexRebuildException {
+    this.total = total;
+    this.started = System.currentTimeMillis();
+    final SecurityContext securityContext = securityService == null ? null
+            : new SecurityContext(securityService, securityService.getOrganization(), securityService.getUser());
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+    // Workers plus one page each waiting for them, so reading the next pages never gets far ahead of the index
+    final Semaphore permits = new Semaphore(threads * 2);
+    final ExecutorService workers = Executors.newFixedThreadPool(threads);
+
+    String after = getCheckpoint();
+    if (after != null) {
+      logger.info("Resuming {} index rebuild after {}", service, after);
+    }
+    try {
+      for (long sequence = 0; failure.get() == null; sequence++) {
+        List<T> page = source.next(after, batchSize);
+        if (page.isEmpty()) {
+          break;
+        }
+        after = key.apply(page.get(page.size() - 1));
+        final long pageSequence = sequence;
+        final String pageKey = after;
+        permits.acquire();
+        workers.execute(() -> {
+          try {
+            Runnable task = () -> {
+              try {
+                indexer.index(page);
+                completed(pageSequence, pageKey, page.size());
+              } catch (Throwable t) {
+                failure.compareAndSet(null, t);
+              }
+            };
+            if (securityContext == null) {
+              task.run();
+            } else {
+              securityContext.runInContext(task);
+            }
+          } finally {
+            permits.release();
+          }
+        });
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      failure.compareAndSet(null, e);
+    } catch (Exception e) {
+      failure.compareAndSet(null, e);
+    } finally {
+      workers.shutdown();
+      try {
+        while (!workers.awaitTermination(1, TimeUnit.MINUTES)) {
+          logger.debug("Waiting for the {} index rebuild workers to finish", service);
+        }
+      } catch (InterruptedException e) {
+        workers.shutdownNow();
+        Thread.currentThread().interrupt();
+        failure.compareAndSet(null, e);
+      }
+    }
+    finished = System.currentTimeMillis();
+
+    if (failure.get() != null) {
+      throw new IndexRebuildException(service, failure.get());
+    }
+    if (checkpoint != null && checkpoint.exists() && !checkpoint.delete()) {
+      logger.warn("Unable to delete index rebuild checkpoint {}", checkpoint);
+    }
+    logger.info("{} index rebuild: {} finished in {} s, {} per second", service, processed,
+            (finished - started) / 1000, String.format("%.1f", getThroughput()));
+  }
+
+  /**
+   * Records that a page has been indexed and moves the checkpoint on if all pages before it have been indexed, too.
+   */
+  private synchronized void completed(long sequence, String key, int size) throws IOException {
+    processed += size;
+    completed.put(sequence, key);
+    String last = null;
+    while (completed.containsKey(nextCheckpoint)) {
+      last = completed.remove(nextCheckpoint++);
+    }
+    if (last != null && checkpoint != null) {
+      File tmp = new File(checkpoint.getPath() + ".tmp");
+      Files.write(tmp.toPath(), last.getBytes(StandardCharsets.UTF_8));
+      Files.move(tmp.toPath(), checkpoint.toPath(), StandardCopyOption.REPLACE_EXISTING,
+              StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    long progress = total > 0 ? Math.min(100, processed * 100 / total) : 100;
+    if (progress != reported) {
+      reported = progress;
+      logger.info("{} index rebuild: {}/{} finished, {}% complete, {} per second.", service, processed, total,
+              progress, String.format("%.1f", getThroughput()));
+    }
+  }
+
+  /**
+   * Returns the key of the last item up to which all items have been indexed by an earlier, interrupted run.
+   *
+   * @return the key or <code>null</code> if there is no checkpoint
+   */
+  public String getCheckpoint() {
+    if (checkpoint == null || !checkpoint.isFile()) {
+      return null;
+    }
+    try {
+      return new String(Files.readAllBytes(checkpoint.toPath()), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      logger.warn("Unable to read index rebuild checkpoint {}, starting from the beginning", checkpoint, e);
+      return null;
+    }
+  }
+
+  /**
+   * @return the service whose data is indexed
+   */
+  public Service getService() {
+    return service;
+  }
+
+  /**
+   * @return the expected number of items
+   */
+  public long getTotal() {
+    return total;
+  }
+
+  /**
+   * @return the number of items indexed by this run
+   */
+  public long getProcessed() {
+    return processed;
+  }
+
+  /**
+   * @return the number of items indexed per second
+   */
+  public double getThroughput() {
+    long end = finished > 0 ? finished : System.currentTimeMillis();
+    return end > started ? processed * 1000.0 / (end - started) : 0;
+  }
+
+}
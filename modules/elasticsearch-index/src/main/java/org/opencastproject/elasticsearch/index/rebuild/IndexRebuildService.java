@@ -25,6 +25,7 @@ import static java.lang.String.format;
 
 import org.opencastproject.elasticsearch.index.ElasticsearchIndex;
 
+import org.apache.commons.lang3.math.NumberUtils;
 import org.osgi.framework.BundleActivator;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceEvent;
@@ -34,6 +35,7 @@ import org.osgi.framework.ServiceRegistration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
@@ -76,10 +78,24 @@ public class IndexRebuildService implements BundleActivator {
     PENDING, RUNNING, OK, ERROR
   }
 
+  /** Configuration key for the number of pages indexed concurrently */
+  public static final String THREADS_KEY = "org.opencastproject.index.rebuild.threads";
+
+  /** Configuration key for the number of items indexed in one go */
+  public static final String BATCH_SIZE_KEY = "org.opencastproject.index.rebuild.batch.size";
+
+  /** Configuration key for the storage directory, the checkpoints are stored below */
+  private static final String STORAGE_DIR_KEY = "org.opencastproject.storage.dir";
+
   private static final Logger logger = LoggerFactory.getLogger(IndexRebuildService.class);
   private final Map<IndexRebuildService.Service, IndexProducer> indexProducers = new ConcurrentHashMap<>();
+  private final Map<IndexRebuildService.Service, IndexRebuildRunner> runners = new ConcurrentHashMap<>();
   private ServiceRegistration<?> serviceRegistration = null;
 
+  private int threads = 1;
+  private int batchSize = IndexRebuildRunner.DEFAULT_BATCH_SIZE;
+  private File checkpointDir = null;
+
   /**
    * Called by OSGI when this bundle is started.
    *
@@ -90,6 +106,14 @@ public class IndexRebuildService implements BundleActivator {
    */
   @Override
   public void start(BundleContext bundleContext) throws Exception {
+    threads = Math.max(1, NumberUtils.toInt(bundleContext.getProperty(THREADS_KEY), threads));
+    batchSize = Math.max(1, NumberUtils.toInt(bundleContext.getProperty(BATCH_SIZE_KEY), batchSize));
+    String storageDir = bundleContext.getProperty(STORAGE_DIR_KEY);
+    if (storageDir != null) {
+      checkpointDir = new File(storageDir, "index-rebuild");
+    }
+    logger.info("Index rebuild uses {} thread(s) with batches of {}", threads, batchSize);
+
     // check if there are already IndexProducers available
     ServiceReference<?>[] serviceReferences = bundleContext.getAllServiceReferences(IndexProducer.class.getName(),
             null);
@@ -155,7 +179,7 @@ public class IndexRebuildService implements BundleActivator {
     logger.info("Index cleared, starting complete rebuild.");
     setAllRebuildStates(IndexRebuildService.State.PENDING);
     for (IndexRebuildService.Service service: IndexRebuildService.Service.values()) {
-      rebuildIndexInternal(getIndexProducer(service), DataType.ALL);
+      rebuildIndexInternal(getIndexProducer(service), DataType.ALL, false);
     }
   }
 
@@ -175,12 +199,12 @@ public class IndexRebuildService implements BundleActivator {
           throws IllegalArgumentException, IndexRebuildException {
     logger.info("Starting partial rebuild of the {} index.", indexProducer.getService());
     setRebuildState(indexProducer.getService(), IndexRebuildService.State.PENDING);
-    rebuildIndexInternal(indexProducer, dataType);
+    rebuildIndexInternal(indexProducer, dataType, false);
   }
 
   /**
    * Start Index Rebuild from the specified service and then do all that follow. Can be used to resume a complete index
-   * rebuild that was interrupted.
+   * rebuild that was interrupted. The specified service continues after its last checkpoint, if it has one.
    *
    * @param startingService
    *           The {@link Service} to start with.
@@ -196,12 +220,12 @@ public class IndexRebuildService implements BundleActivator {
     setSubsetOfRebuildStates(startingService, IndexRebuildService.State.PENDING);
     Service[] services = IndexRebuildService.Service.values();
     for (int i = startingService.ordinal(); i < services.length; i++) {
-      rebuildIndexInternal(getIndexProducer(services[i]), DataType.ALL);
+      rebuildIndexInternal(getIndexProducer(services[i]), DataType.ALL, i == startingService.ordinal());
     }
   }
 
-  private void rebuildIndexInternal(IndexProducer indexProducer, DataType dataType) throws IndexRebuildException,
-          IllegalArgumentException {
+  private void rebuildIndexInternal(IndexProducer indexProducer, DataType dataType, boolean resume)
+          throws IndexRebuildException, IllegalArgumentException {
     if (!indexProducer.dataTypeSupported(dataType)) {
       throw new IllegalArgumentException("Service " + indexProducer.getService() + "doesn't support data type "
               + dataType + " for index rebuild.");
@@ -209,8 +233,17 @@ public class IndexRebuildService implements BundleActivator {
     Service service = indexProducer.getService();
     logger.info("Starting to rebuild the {} index", service);
     setRebuildState(service, IndexRebuildService.State.RUNNING);
+    File checkpoint = null;
+    if (checkpointDir != null && (checkpointDir.isDirectory() || checkpointDir.mkdirs())) {
+      checkpoint = new File(checkpointDir, service + "-" + dataType + ".checkpoint");
+      if (!resume && checkpoint.exists() && !checkpoint.delete()) {
+        logger.warn("Unable to delete index rebuild checkpoint {}", checkpoint);
+      }
+    }
+    IndexRebuildRunner runner = new IndexRebuildRunner(service, threads, batchSize, checkpoint);
+    runners.put(service, runner);
     try {
-      indexProducer.repopulate(dataType);
+      indexProducer.repopulate(dataType, runner);
       setRebuildState(service, IndexRebuildService.State.OK);
     } catch (IndexRebuildException e) {
       setRebuildState(service, IndexRebuildService.State.ERROR);
@@ -328,6 +361,17 @@ public class IndexRebuildService implements BundleActivator {
     return statesAsString;
   }
 
+  /**
+   * Get the progress of the last rebuild of a service.
+   *
+   * @param service
+   *           the service
+   * @return the runner of the last rebuild, or <code>null</code> if the index of the service has not been rebuilt
+   */
+  public IndexRebuildRunner getRebuildProgress(Service service) {
+    return runners.get(service);
+  }
+
   /**
    * Set all rebuild States.
    *
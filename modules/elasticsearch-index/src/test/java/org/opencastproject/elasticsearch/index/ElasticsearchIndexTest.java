@@ -0,0 +1,514 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package org.opencastproject.elasticsearch.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.opencastproject.elasticsearch.api.SearchIndexException;
+import org.opencastproject.elasticsearch.api.SearchResult;
+import org.opencastproject.elasticsearch.api.SearchResultItem;
+import org.opencastproject.elasticsearch.impl.AbstractElasticsearchIndex;
+import org.opencastproject.elasticsearch.index.objects.event.Event;
+import org.opencastproject.elasticsearch.index.objects.event.EventIndexSchema;
+import org.opencastproject.elasticsearch.index.objects.event.EventSearchQuery;
+import org.opencastproject.list.api.ListProvidersService;
+import org.opencastproject.security.api.DefaultOrganization;
+import org.opencastproject.security.api.JaxbRole;
+import org.opencastproject.security.api.JaxbUser;
+import org.opencastproject.security.api.SecurityConstants;
+import org.opencastproject.security.api.User;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.apache.commons.io.IOUtils;
+import org.easymock.EasyMock;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.osgi.framework.BundleContext;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests the optimistic event updates of the index against a stub Elasticsearch server, which keeps documents in memory
+ * and implements create-only writes and updates conditioned on the sequence number and primary term.
+ */
+public class ElasticsearchIndexTest {
+
+  private static final String ORGANIZATION = "mh_default_org";
+  private static final String EVENT_ID = "event-1";
+  private static final String EVENT_PATH = "/opencast_event/";
+  private static final String EVENT_UID = EVENT_ID + ORGANIZATION;
+
+  @Rule
+  public TemporaryFolder testFolder = new TemporaryFolder();
+
+  private HttpServer server;
+  private ElasticsearchIndex index;
+
+  /** Documents by index name and identifier */
+  private final Map<String, StoredDocument> documents = new HashMap<>();
+
+  /** The event write requests received, as method and path */
+  private final List<String> eventWrites = Collections.synchronizedList(new ArrayList<>());
+
+  /** The body of the last search request received */
+  private JSONObject lastSearch;
+
+  /** The sequence number of the next write */
+  private long nextSeqNo = 0;
+
+  @Before
+  public void setUp() throws Exception {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/", exchange -> {
+      try {
+        handle(exchange);
+      } catch (Exception e) {
+        respond(exchange, 500, error("exception", e.toString(), 500));
+      } finally {
+        exchange.close();
+      }
+    });
+    server.start();
+
+    BundleContext bundleContext = EasyMock.createNiceMock(BundleContext.class);
+    EasyMock.expect(bundleContext.getProperty("karaf.etc")).andReturn(testFolder.getRoot().getAbsolutePath())
+        .anyTimes();
+    EasyMock.expect(bundleContext.getProperty(AbstractElasticsearchIndex.ELASTICSEARCH_SERVER_HOSTNAME_KEY))
+        .andReturn(server.getAddress().getHostString()).anyTimes();
+    EasyMock.expect(bundleContext.getProperty(AbstractElasticsearchIndex.ELASTICSEARCH_SERVER_PORT_KEY))
+        .andReturn(Integer.toString(server.getAddress().getPort())).anyTimes();
+    EasyMock.replay(bundleContext);
+
+    Map<String, Object> properties = new HashMap<>();
+    properties.put("optimistic.event.updates", "true");
+
+    index = new ElasticsearchIndex();
+    index.setListProvidersService(EasyMock.createNiceMock(ListProvidersService.class));
+    index.activate(bundleContext, properties);
+    eventWrites.clear();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    index.deactivate();
+    server.stop(0);
+  }
+
+  @Test
+  public void testCreateNewEvent() throws Exception {
+    AtomicInteger calls = new AtomicInteger();
+    Optional<Event> result = index.addOrUpdateEvent(EVENT_ID, eventOpt -> {
+      calls.incrementAndGet();
+      assertFalse(eventOpt.isPresent());
+      return Optional.of(newEvent("Created"));
+    }, ORGANIZATION, null);
+
+    assertEquals("Created", result.get().getTitle());
+    assertEquals(1, calls.get());
+    assertEquals(List.of("PUT " + EVENT_PATH + "_create/" + EVENT_UID), eventWrites);
+    assertEquals("Created", readTitle());
+  }
+
+  @Test
+  public void testConcurrentCreateIsRetriedAsUpdate() throws Exception {
+    List<Optional<Event>> seen = new ArrayList<>();
+    index.addOrUpdateEvent(EVENT_ID, eventOpt -> {
+      seen.add(eventOpt);
+      if (seen.size() == 1) {
+        // Another node creates the event after it has been read
+        storeEvent(newEvent("Concurrent"));
+      }
+      Event event = eventOpt.orElseGet(() -> newEvent(null));
+      event.setPresenters(List.of("Presenter"));
+      return Optional.of(event);
+    }, ORGANIZATION, null);
+
+    assertEquals(2, seen.size());
+    assertFalse(seen.get(0).isPresent());
+    assertEquals("Concurrent", seen.get(1).get().getTitle());
+    assertEquals(List.of("PUT " + EVENT_PATH + "_create/" + EVENT_UID, "POST " + EVENT_PATH + "_update/" + EVENT_UID),
+        eventWrites);
+    assertEquals("Concurrent", readTitle());
+  }
+
+  @Test
+  public void testConflictingUpdateIsRetried() throws Exception {
+    storeEvent(newEvent("Initial"));
+    AtomicInteger calls = new AtomicInteger();
+    index.addOrUpdateEvent(EVENT_ID, eventOpt -> {
+      if (calls.incrementAndGet() == 1) {
+        // Another node modifies the event after it has been read
+        touch(EVENT_UID);
+      }
+      Event event = eventOpt.get();
+      event.setTitle("Updated");
+      return Optional.of(event);
+    }, ORGANIZATION, null);
+
+    assertEquals(2, calls.get());
+    assertEquals(List.of("POST " + EVENT_PATH + "_update/" + EVENT_UID, "POST " + EVENT_PATH + "_update/" + EVENT_UID),
+        eventWrites);
+    assertEquals("Updated", readTitle());
+  }
+
+  @Test
+  public void testUnchangedEventIsNotWritten() throws Exception {
+    storeEvent(newEvent("Initial"));
+    index.addOrUpdateEvent(EVENT_ID, eventOpt -> eventOpt, ORGANIZATION, null);
+    assertTrue(eventWrites.isEmpty());
+  }
+
+  @Test
+  public void testGiveUpAfterTenRetries() throws Exception {
+    storeEvent(newEvent("Initial"));
+    AtomicInteger calls = new AtomicInteger();
+    try {
+      index.addOrUpdateEvent(EVENT_ID, eventOpt -> {
+        calls.incrementAndGet();
+        touch(EVENT_UID);
+        Event event = eventOpt.get();
+        event.setTitle("Updated " + calls.get());
+        return Optional.of(event);
+      }, ORGANIZATION, null);
+      fail("The update should fail after ten retries");
+    } catch (SearchIndexException e) {
+      // expected
+    }
+    assertEquals(11, calls.get());
+    assertEquals(11, eventWrites.size());
+    assertEquals("Initial", readTitle());
+  }
+
+  @Test
+  public void testCursorPagination() throws Exception {
+    storeEvent(newEvent("event-c", "C"));
+    storeEvent(newEvent("event-a", "A"));
+    storeEvent(newEvent("event-b", "B"));
+    User admin = new JaxbUser("admin", "test", new DefaultOrganization(),
+        new JaxbRole(SecurityConstants.GLOBAL_ADMIN_ROLE, new DefaultOrganization()));
+
+    EventSearchQuery query = new EventSearchQuery(ORGANIZATION, admin);
+    query.withLimit(2).withCursor("");
+    SearchResult<Event> page = index.getByQuery(query);
+    assertEquals(List.of("event-a", "event-b"), identifiers(page));
+    assertNotNull(page.getNextCursor());
+    // Pages are sorted by the unique identifier last, and the first page starts at the beginning
+    List<?> sort = (List<?>) lastSearch.get("sort");
+    assertEquals(Set.of("uid"), ((JSONObject) sort.get(sort.size() - 1)).keySet());
+    assertFalse(lastSearch.containsKey("search_after"));
+    assertFalse(lastSearch.containsKey("from"));
+
+    query = new EventSearchQuery(ORGANIZATION, admin);
+    query.withLimit(2).withCursor(page.getNextCursor());
+    page = index.getByQuery(query);
+    // The cursor carries the sort values of the last event of the previous page
+    assertEquals(List.of("event-b"), lastSearch.get("search_after"));
+    assertEquals(List.of("event-c"), identifiers(page));
+    assertNull(page.getNextCursor());
+  }
+
+  @Test
+  public void testCursorOfFullLastPage() throws Exception {
+    storeEvent(newEvent("event-a", "A"));
+    User admin = new JaxbUser("admin", "test", new DefaultOrganization(),
+        new JaxbRole(SecurityConstants.GLOBAL_ADMIN_ROLE, new DefaultOrganization()));
+
+    EventSearchQuery query = new EventSearchQuery(ORGANIZATION, admin);
+    query.withLimit(1).withCursor("");
+    SearchResult<Event> page = index.getByQuery(query);
+    assertEquals(List.of("event-a"), identifiers(page));
+
+    // Whether a full page has been the last one is known only when asking for the next
+    query = new EventSearchQuery(ORGANIZATION, admin);
+    query.withLimit(1).withCursor(page.getNextCursor());
+    page = index.getByQuery(query);
+    assertEquals(0, page.getItems().length);
+    assertNull(page.getNextCursor());
+  }
+
+  @Test
+  public void testMalformedCursor() throws Exception {
+    User admin = new JaxbUser("admin", "test", new DefaultOrganization(),
+        new JaxbRole(SecurityConstants.GLOBAL_ADMIN_ROLE, new DefaultOrganization()));
+    for (String cursor : new String[] { "not a cursor", "e30" }) {
+      EventSearchQuery query = new EventSearchQuery(ORGANIZATION, admin);
+      query.withLimit(1).withCursor(cursor);
+      try {
+        index.getByQuery(query);
+        fail("The cursor " + cursor + " should be rejected");
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public void testOffsetPaginationWithoutCursor() throws Exception {
+    User admin = new JaxbUser("admin", "test", new DefaultOrganization(),
+        new JaxbRole(SecurityConstants.GLOBAL_ADMIN_ROLE, new DefaultOrganization()));
+    EventSearchQuery query = new EventSearchQuery(ORGANIZATION, admin);
+    query.withLimit(1).withOffset(1);
+    SearchResult<Event> page = index.getByQuery(query);
+    assertNull(page.getNextCursor());
+    assertEquals(1L, lastSearch.get("from"));
+    assertFalse(lastSearch.containsKey("search_after"));
+  }
+
+  private static List<String> identifiers(SearchResult<Event> result) {
+    List<String> identifiers = new ArrayList<>();
+    for (SearchResultItem<Event> item : result.getItems()) {
+      identifiers.add(item.getSource().getIdentifier());
+    }
+    return identifiers;
+  }
+
+  private static Event newEvent(String title) {
+    return newEvent(EVENT_ID, title);
+  }
+
+  private static Event newEvent(String id, String title) {
+    Event event = new Event(id, ORGANIZATION);
+    event.setTitle(title);
+    return event;
+  }
+
+  /** Writes an event as another node would, and forgets about the write requests this caused */
+  private void storeEvent(Event event) {
+    try {
+      index.addOrUpdateEvent(event.getIdentifier(), eventOpt -> Optional.of(event), ORGANIZATION, null);
+    } catch (SearchIndexException e) {
+      throw new IllegalStateException(e);
+    }
+    eventWrites.clear();
+  }
+
+  /** Simulates a concurrent modification of a document by increasing its sequence number */
+  private synchronized void touch(String uid) {
+    documents.get(EVENT_PATH + uid).seqNo = nextSeqNo++;
+  }
+
+  private synchronized String readTitle() throws Exception {
+    Object object = documents.get(EVENT_PATH + EVENT_UID).source.get(EventIndexSchema.OBJECT);
+    if (object instanceof List) {
+      object = ((List<?>) object).get(0);
+    }
+    return Event.valueOf(IOUtils.toInputStream((String) object, StandardCharsets.UTF_8), Event.createUnmarshaller())
+        .getTitle();
+  }
+
+  /** A document of the stub server */
+  private static final class StoredDocument {
+    private final JSONObject source;
+    private long seqNo;
+
+    private StoredDocument(JSONObject source, long seqNo) {
+      this.source = source;
+      this.seqNo = seqNo;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private synchronized void handle(HttpExchange exchange) throws Exception {
+    final String method = exchange.getRequestMethod();
+    final String path = exchange.getRequestURI().getPath();
+    final String query = Optional.ofNullable(exchange.getRequestURI().getQuery()).orElse("");
+    final String body = IOUtils.toString(exchange.getRequestBody(), StandardCharsets.UTF_8);
+    final String[] segments = path.substring(1).split("/");
+
+    if (path.startsWith("/_cluster/health")) {
+      JSONObject health = new JSONObject();
+      health.put("cluster_name", "opencast");
+      health.put("status", "green");
+      health.put("timed_out", false);
+      for (String field : new String[] { "number_of_nodes", "number_of_data_nodes", "active_primary_shards",
+          "active_shards", "relocating_shards", "initializing_shards", "unassigned_shards",
+          "delayed_unassigned_shards", "number_of_pending_tasks", "number_of_in_flight_fetch",
+          "task_max_waiting_in_queue_millis" }) {
+        health.put(field, 1);
+      }
+      health.put("active_shards_percent_as_number", 100.0);
+      respond(exchange, 200, health);
+      return;
+    }
+    if (segments.length == 2 && "_search".equals(segments[1])) {
+      lastSearch = (JSONObject) new JSONParser().parse(body);
+      respond(exchange, 200, search("/" + segments[0] + "/", lastSearch));
+      return;
+    }
+    if (segments.length == 1) {
+      respond(exchange, 400, error("resource_already_exists_exception", "index exists", 400));
+      return;
+    }
+
+    final String indexName = segments[0];
+    final String endpoint = segments[1];
+    final String id = segments[2];
+    final String key = "/" + indexName + "/" + id;
+    final StoredDocument document = documents.get(key);
+    if (("/" + indexName + "/").equals(EVENT_PATH) && !"GET".equals(method)) {
+      eventWrites.add(method + " " + path);
+    }
+
+    if ("GET".equals(method)) {
+      JSONObject response = result(indexName, id, document == null ? 0 : document.seqNo);
+      response.put("found", document != null);
+      if (document != null) {
+        response.put("_source", document.source);
+      }
+      respond(exchange, document == null ? 404 : 200, response);
+    } else if ("_update".equals(endpoint)) {
+      // The client sends the sequence number with the partial document
+      JSONObject update = (JSONObject) new JSONParser().parse(body);
+      if (document == null) {
+        respond(exchange, 404, error("document_missing_exception", "document missing", 404));
+      } else if (!Long.valueOf(document.seqNo).equals(update.get("if_seq_no"))) {
+        respond(exchange, 409, error("version_conflict_engine_exception", "version conflict", 409));
+      } else {
+        document.source.putAll((JSONObject) update.get("doc"));
+        document.seqNo = nextSeqNo++;
+        JSONObject response = result(indexName, id, document.seqNo);
+        response.put("result", "updated");
+        respond(exchange, 200, response);
+      }
+    } else if (document != null && ("_create".equals(endpoint) || query.contains("op_type=create"))) {
+      respond(exchange, 409, error("version_conflict_engine_exception", "document already exists", 409));
+    } else {
+      documents.put(key, new StoredDocument((JSONObject) new JSONParser().parse(body), nextSeqNo));
+      JSONObject response = result(indexName, id, nextSeqNo++);
+      response.put("result", document == null ? "created" : "updated");
+      respond(exchange, document == null ? 201 : 200, response);
+    }
+  }
+
+  /** Answers a search with all documents of an index, sorted by identifier and continuing after the cursor */
+  @SuppressWarnings("unchecked")
+  private JSONObject search(String indexPath, JSONObject request) {
+    final List<?> searchAfter = (List<?>) request.get("search_after");
+    final long size = request.containsKey("size") ? (Long) request.get("size") : 10;
+    final TreeMap<String, StoredDocument> sorted = new TreeMap<>();
+    for (Map.Entry<String, StoredDocument> entry : documents.entrySet()) {
+      Object uid = entry.getValue().source.get("uid");
+      if (entry.getKey().startsWith(indexPath) && uid != null) {
+        sorted.put((String) (uid instanceof List ? ((List<?>) uid).get(0) : uid), entry.getValue());
+      }
+    }
+    JSONArray hits = new JSONArray();
+    for (Map.Entry<String, StoredDocument> entry : (searchAfter == null ? sorted
+        : sorted.tailMap((String) searchAfter.get(0), false)).entrySet()) {
+      if (hits.size() == size) {
+        break;
+      }
+      JSONObject fields = new JSONObject();
+      for (Object field : entry.getValue().source.entrySet()) {
+        Map.Entry<String, Object> value = (Map.Entry<String, Object>) field;
+        fields.put(value.getKey(), value.getValue() instanceof List ? value.getValue()
+            : List.of(value.getValue()));
+      }
+      JSONObject hit = new JSONObject();
+      hit.put("_index", indexPath.substring(1, indexPath.length() - 1));
+      hit.put("_type", "_doc");
+      hit.put("_id", entry.getKey() + ORGANIZATION);
+      hit.put("_score", null);
+      hit.put("fields", fields);
+      hit.put("sort", List.of(entry.getKey()));
+      hits.add(hit);
+    }
+    JSONObject total = new JSONObject();
+    total.put("value", sorted.size());
+    total.put("relation", "eq");
+    JSONObject searchHits = new JSONObject();
+    searchHits.put("total", total);
+    searchHits.put("max_score", null);
+    searchHits.put("hits", hits);
+    JSONObject shards = new JSONObject();
+    shards.put("total", 1);
+    shards.put("successful", 1);
+    shards.put("skipped", 0);
+    shards.put("failed", 0);
+    JSONObject response = new JSONObject();
+    response.put("took", 1);
+    response.put("timed_out", false);
+    response.put("_shards", shards);
+    response.put("hits", searchHits);
+    return response;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static JSONObject result(String indexName, String id, long seqNo) {
+    JSONObject shards = new JSONObject();
+    shards.put("total", 1);
+    shards.put("successful", 1);
+    shards.put("failed", 0);
+    JSONObject result = new JSONObject();
+    result.put("_index", indexName);
+    result.put("_type", "_doc");
+    result.put("_id", id);
+    result.put("_version", seqNo + 1);
+    result.put("_seq_no", seqNo);
+    result.put("_primary_term", 1);
+    result.put("_shards", shards);
+    return result;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static JSONObject error(String type, String reason, int status) {
+    JSONObject cause = new JSONObject();
+    cause.put("type", type);
+    cause.put("reason", reason);
+    JSONObject error = new JSONObject();
+    error.put("error", cause);
+    error.put("status", status);
+    return error;
+  }
+
+  private static void respond(HttpExchange exchange, int status, JSONObject response) throws IOException {
+    byte[] bytes = response.toJSONString().getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
+    exchange.sendResponseHeaders(status, bytes.length);
+    exchange.getResponseBody().write(bytes);
+  }
+}
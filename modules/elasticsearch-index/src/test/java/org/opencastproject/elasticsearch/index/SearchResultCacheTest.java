@@ -0,0 +1,96 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.elasticsearch.index;
+
+import org.opencastproject.elasticsearch.api.SearchResult;
+
+import org.easymock.EasyMock;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SearchResultCacheTest {
+
+  private final AtomicInteger executed = new AtomicInteger();
+
+  @SuppressWarnings("unchecked")
+  private SearchResult<String> search() {
+    executed.incrementAndGet();
+    return EasyMock.createNiceMock(SearchResult.class);
+  }
+
+  @Test
+  public void testCachedPerOrganizationAndKey() throws Exception {
+    SearchResultCache cache = new SearchResultCache(10, 60);
+    SearchResult<String> result = cache.get("org1", "query", this::search);
+    Assert.assertSame(result, cache.get("org1", "query", this::search));
+    Assert.assertEquals(1, executed.get());
+
+    Assert.assertNotSame(result, cache.get("org2", "query", this::search));
+    Assert.assertNotSame(result, cache.get("org1", "other query", this::search));
+    Assert.assertEquals(3, executed.get());
+
+    Assert.assertEquals(1, cache.stats().hitCount());
+    Assert.assertEquals(3, cache.stats().missCount());
+    Assert.assertEquals(3, cache.size());
+  }
+
+  @Test
+  public void testInvalidateOrganization() throws Exception {
+    SearchResultCache cache = new SearchResultCache(10, 60);
+    cache.get("org1", "query", this::search);
+    cache.get("org2", "query", this::search);
+    cache.invalidate("org1");
+    Assert.assertEquals(1, cache.size());
+    cache.get("org1", "query", this::search);
+    cache.get("org2", "query", this::search);
+    Assert.assertEquals(3, executed.get());
+
+    cache.invalidateAll();
+    cache.get("org2", "query", this::search);
+    Assert.assertEquals(4, executed.get());
+  }
+
+  @Test
+  public void testResultOfConcurrentUpdateIsNotCached() throws Exception {
+    SearchResultCache cache = new SearchResultCache(10, 60);
+    cache.get("org1", "query", () -> {
+      // The index is updated while the search is running
+      cache.invalidate("org1");
+      return search();
+    });
+    cache.get("org1", "query", this::search);
+    Assert.assertEquals(2, executed.get());
+  }
+
+  @Test
+  public void testDisabled() throws Exception {
+    SearchResultCache cache = new SearchResultCache(0, 60);
+    Assert.assertFalse(cache.isEnabled());
+    cache.get("org1", "query", this::search);
+    cache.get("org1", "query", this::search);
+    Assert.assertEquals(2, executed.get());
+    Assert.assertEquals(0, cache.size());
+  }
+}
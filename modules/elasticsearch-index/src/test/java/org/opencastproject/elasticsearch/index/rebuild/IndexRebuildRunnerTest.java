@@ -0,0 +1,100 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.elasticsearch.index.rebuild;
+
+import org.opencastproject.elasticsearch.index.rebuild.IndexRebuildService.Service;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+public class IndexRebuildRunnerTest {
+
+  @Rule
+  public TemporaryFolder testFolder = new TemporaryFolder();
+
+  private final List<String> keys = new ArrayList<>();
+
+  public IndexRebuildRunnerTest() {
+    for (int i = 0; i < 1000; i++) {
+      keys.add(String.format("mp-%04d", i));
+    }
+  }
+
+  /** Returns the keys after the given one, like a database query ordered by key. */
+  private List<String> page(String after, int limit) {
+    List<String> page = new ArrayList<>();
+    for (String key : keys) {
+      if ((after == null || key.compareTo(after) > 0) && page.size() < limit) {
+        page.add(key);
+      }
+    }
+    return page;
+  }
+
+  @Test
+  public void testIndexesAllItems() throws Exception {
+    Set<String> indexed = ConcurrentHashMap.newKeySet();
+    File checkpoint = new File(testFolder.getRoot(), "checkpoint");
+    IndexRebuildRunner runner = new IndexRebuildRunner(Service.Search, 4, 30, checkpoint);
+
+    runner.run(keys.size(), null, this::page, Function.identity(), indexed::addAll);
+
+    Assert.assertEquals(keys.size(), indexed.size());
+    Assert.assertEquals(keys.size(), runner.getProcessed());
+    // a completed rebuild has no checkpoint to resume from
+    Assert.assertFalse(checkpoint.exists());
+  }
+
+  @Test
+  public void testResumesAfterCheckpoint() throws Exception {
+    File checkpoint = new File(testFolder.getRoot(), "checkpoint");
+    IndexRebuildRunner runner = new IndexRebuildRunner(Service.Search, 1, 100, checkpoint);
+    try {
+      runner.run(keys.size(), null, this::page, Function.identity(), batch -> {
+        if (batch.contains("mp-0500")) {
+          throw new IllegalStateException("Index not available");
+        }
+      });
+      Assert.fail("Rebuild should have failed");
+    } catch (IndexRebuildException e) {
+      // expected
+    }
+    Assert.assertEquals("mp-0499", runner.getCheckpoint());
+
+    List<String> indexed = Collections.synchronizedList(new ArrayList<>());
+    runner = new IndexRebuildRunner(Service.Search, 1, 100, checkpoint);
+    runner.run(keys.size(), null, this::page, Function.identity(), indexed::addAll);
+    Assert.assertEquals(keys.subList(500, keys.size()), indexed);
+  }
+
+}
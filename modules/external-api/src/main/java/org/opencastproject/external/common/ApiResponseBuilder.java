@@ -38,6 +38,9 @@ public final class ApiResponseBuilder {
 
   private static final String APPLICATION_PREFIX = "application/";
 
+  /** The response header with the cursor of the next page of a list */
+  public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
   private ApiResponseBuilder() {
 
   }
@@ -50,6 +53,22 @@ public final class ApiResponseBuilder {
     return Response.serverError().entity(format(message, args)).type(MediaType.TEXT_PLAIN_TYPE).build();
   }
 
+  /**
+   * Adds the cursor of the next page to a list response.
+   *
+   * @param response
+   *          The list response
+   * @param nextCursor
+   *          The cursor of the next page or <code>null</code> if there is none
+   * @return The response including the cursor
+   */
+  public static Response withNextCursor(Response response, String nextCursor) {
+    if (nextCursor == null) {
+      return response;
+    }
+    return Response.fromResponse(response).header(NEXT_CURSOR_HEADER, nextCursor).build();
+  }
+
   /**
    * Class that handles Json responses for the external API.
    */
@@ -771,19 +771,26 @@ public class EventsEndpoint implements ManagedService {
           @RestParameter(name = "filter", isRequired = false, description = "Usage [Filter Name]:[Value to Filter With]. Multiple filters can be used by combining them with commas \",\". Available Filters: presenters, contributors, location, textFilter, series, subject. If API ver > 1.1.0 also: identifier, title, description, series_name, language, created, license, rightsholder, is_part_of, source, status, agent_id, start, technical_start.", type = STRING),
           @RestParameter(name = "sort", description = "Sort the results based upon a list of comma seperated sorting criteria. In the comma seperated list each type of sorting is specified as a pair such as: <Sort Name>:ASC or <Sort Name>:DESC. Adding the suffix ASC or DESC sets the order as ascending or descending order and is mandatory.", isRequired = false, type = STRING),
           @RestParameter(name = "limit", description = "The maximum number of results to return for a single request.", isRequired = false, type = RestParameter.Type.INTEGER),
-          @RestParameter(name = "offset", description = "The index of the first result to return.", isRequired = false, type = RestParameter.Type.INTEGER) }, responses = {
+          @RestParameter(name = "offset", description = "The index of the first result to return.", isRequired = false, type = RestParameter.Type.INTEGER),
+          @RestParameter(name = "cursor", description = "Page through the results with a cursor instead of an offset. Pass an empty cursor for the first page and the value of the " + ApiResponseBuilder.NEXT_CURSOR_HEADER + " response header for the following pages. The header is missing on the last page. This is much faster than an offset for large lists. Before API version 1.5.0, a cursor cannot be combined with more than one filter parameter.", isRequired = false, type = STRING) }, responses = {
                   @RestResponse(description = "A (potentially empty) list of events is returned.", responseCode = HttpServletResponse.SC_OK) })
   public Response getEvents(@HeaderParam("Accept") String acceptHeader, @QueryParam("id") String id,
           @QueryParam("commentReason") String reasonFilter, @QueryParam("commentResolution") String resolutionFilter,
           @QueryParam("filter") List<String> filter, @QueryParam("sort") String sort, @QueryParam("offset") Integer offset,
           @QueryParam("limit") Integer limit, @QueryParam("sign") boolean sign, @QueryParam("withacl") Boolean withAcl,
           @QueryParam("withmetadata") Boolean withMetadata, @QueryParam("withscheduling") Boolean withScheduling,
-          @QueryParam("onlyWithWriteAccess") Boolean onlyWithWriteAccess, @QueryParam("withpublications") Boolean withPublications, @QueryParam("includeInternalPublication") Boolean includeInternalPublication) {
+          @QueryParam("onlyWithWriteAccess") Boolean onlyWithWriteAccess, @QueryParam("withpublications") Boolean withPublications, @QueryParam("includeInternalPublication") Boolean includeInternalPublication,
+          @QueryParam("cursor") String cursor) {
     final ApiVersion requestedVersion = ApiMediaType.parse(acceptHeader).getVersion();
     if (requestedVersion.isSmallerThan(VERSION_1_1_0)) {
       // withscheduling was added for version 1.1.0 and should be ignored for smaller versions.
       withScheduling = false;
     }
+    if (cursor != null && filter != null && filter.size() > 1
+        && requestedVersion.isSmallerThan(ApiVersion.VERSION_1_5_0)) {
+      // Each filter is a query of its own, a single cursor cannot continue all of them
+      return RestUtil.R.badRequest("A cursor cannot be used with more than one filter parameter");
+    }
 
     Option<Integer> optLimit = Option.option(limit);
     Option<Integer> optOffset = Option.option(offset);
@@ -797,6 +804,7 @@ public class EventsEndpoint implements ManagedService {
 
     //List of all events from the filters
     List<IndexObject> allEvents = new ArrayList<>();
+    String nextCursor = null;
 
     if (!isNullOrEmpty(filter)) {
       // API version 1.5.0: Additive filter
@@ -947,11 +955,14 @@ public class EventsEndpoint implements ManagedService {
           query.withLimit(optLimit.get());
         if (optOffset.isSome())
           query.withOffset(offset);
+        query.withCursor(cursor);
         // TODO: Add other filters to the query
 
         SearchResult<Event> results = null;
         try {
           results = elasticsearchIndex.getByQuery(query);
+        } catch (IllegalArgumentException e) {
+          return RestUtil.R.badRequest(e.getMessage());
         } catch (SearchIndexException e) {
           logger.error("The External Search Index was not able to get the events list", e);
           throw new WebApplicationException(Status.INTERNAL_SERVER_ERROR);
@@ -966,6 +977,7 @@ public class EventsEndpoint implements ManagedService {
         }
         //Append  filtered results to the list
         allEvents.addAll(events);
+        nextCursor = results.getNextCursor();
       }
     } else {
       if (optSort.isSome()) {
@@ -1026,6 +1038,7 @@ public class EventsEndpoint implements ManagedService {
         query.withLimit(optLimit.get());
       if (optOffset.isSome())
         query.withOffset(offset);
+      query.withCursor(cursor);
 
       if (onlyWithWriteAccess != null && onlyWithWriteAccess) {
         query.withoutActions();
@@ -1036,6 +1049,8 @@ public class EventsEndpoint implements ManagedService {
       SearchResult<Event> results = null;
       try {
         results = elasticsearchIndex.getByQuery(query);
+      } catch (IllegalArgumentException e) {
+        return RestUtil.R.badRequest(e.getMessage());
       } catch (SearchIndexException e) {
         logger.error("The External Search Index was not able to get the events list", e);
         throw new WebApplicationException(Status.INTERNAL_SERVER_ERROR);
@@ -1050,10 +1065,12 @@ public class EventsEndpoint implements ManagedService {
       }
       //Append  filtered results to the list
       allEvents.addAll(events);
+      nextCursor = results.getNextCursor();
     }
     try {
-      return getJsonEvents(
-          acceptHeader, allEvents, withAcl, withMetadata, withScheduling, withPublications, includeInternalPublication, sign, requestedVersion);
+      return ApiResponseBuilder.withNextCursor(getJsonEvents(
+          acceptHeader, allEvents, withAcl, withMetadata, withScheduling, withPublications, includeInternalPublication, sign, requestedVersion),
+          nextCursor);
     } catch (Exception e) {
       logger.error("Unable to get events", e);
       throw new WebApplicationException(Status.INTERNAL_SERVER_ERROR);
@@ -211,13 +211,14 @@ public class SeriesEndpoint {
           @RestParameter(name = "sort", description = "Sort the results based upon a list of comma seperated sorting criteria. In the comma seperated list each type of sorting is specified as a pair such as: <Sort Name>:ASC or <Sort Name>:DESC. Adding the suffix ASC or DESC sets the order as ascending or descending order and is mandatory.", isRequired = false, type = STRING),
           @RestParameter(name = "limit", description = "The maximum number of results to return for a single request.", isRequired = false, type = RestParameter.Type.INTEGER),
           @RestParameter(name = "offset", description = "The index of the first result to return.", isRequired = false, type = RestParameter.Type.INTEGER),
+          @RestParameter(name = "cursor", description = "Page through the results with a cursor instead of an offset. Pass an empty cursor for the first page and the value of the " + ApiResponseBuilder.NEXT_CURSOR_HEADER + " response header for the following pages. The header is missing on the last page. This is much faster than an offset for large lists.", isRequired = false, type = STRING),
           @RestParameter(name = "withacl", isRequired = false, description = "Whether the acl should be included in the response.", type = RestParameter.Type.BOOLEAN)
         }, responses = {
           @RestResponse(description = "A (potentially empty) list of series is returned.", responseCode = HttpServletResponse.SC_OK) })
   public Response getSeriesList(@HeaderParam("Accept") String acceptHeader, @QueryParam("filter") String filter,
           @QueryParam("sort") String sort, @QueryParam("order") String order, @QueryParam("offset") int offset,
           @QueryParam("limit") int limit, @QueryParam("onlyWithWriteAccess") Boolean onlyWithWriteAccess,
-          @QueryParam("withacl") Boolean withAcl) throws UnauthorizedException {
+          @QueryParam("withacl") Boolean withAcl, @QueryParam("cursor") String cursor) throws UnauthorizedException {
     final ApiVersion requestedVersion = ApiMediaType.parse(acceptHeader).getVersion();
     if (requestedVersion.isSmallerThan(VERSION_1_5_0)) {
       // withAcl was added for version 1.5.0 and should be ignored for smaller versions.
@@ -231,6 +232,7 @@ public class SeriesEndpoint {
       if (offset > 0) {
         query.withOffset(offset);
       }
+      query.withCursor(cursor);
 
       // If limit is 0, we set the default limit
       query.withLimit(limit < 1 ? DEFAULT_LIMIT : limit);
@@ -339,8 +341,11 @@ public class SeriesEndpoint {
 
       SearchResult<Series> result = elasticsearchIndex.getByQuery(query);
       final boolean includeAcl = (withAcl != null && withAcl);
-      return queryResultToJson(result, includeAcl, requestedVersion);
+      return ApiResponseBuilder.withNextCursor(queryResultToJson(result, includeAcl, requestedVersion),
+          result.getNextCursor());
 
+    } catch (IllegalArgumentException e) {
+      return RestUtil.R.badRequest(e.getMessage());
     } catch (Exception e) {
       logger.warn("Could not perform search query", e);
       throw new WebApplicationException(Response.Status.INTERNAL_SERVER_ERROR);
@@ -22,6 +22,7 @@ package org.opencastproject.external.endpoint;
 
 import static io.restassured.RestAssured.given;
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static javax.servlet.http.HttpServletResponse.SC_BAD_REQUEST;
 import static javax.servlet.http.HttpServletResponse.SC_NO_CONTENT;
 import static javax.servlet.http.HttpServletResponse.SC_OK;
 import static org.junit.Assert.assertEquals;
@@ -199,4 +200,11 @@ public class EventsEndpointTest {
     assertEquals(capturedMediaPackage.getTracks().length, 1);
   }
 
+  @Test
+  public void testCursorWithMultipleFilters() {
+    // Before API version 1.5.0, every filter parameter is a query of its own
+    given().accept("application/v1.4.0+json").queryParam("filter", "title:one").queryParam("filter", "title:two")
+        .queryParam("cursor", "").expect().statusCode(SC_BAD_REQUEST).when().get(env.host("/"));
+  }
+
 }
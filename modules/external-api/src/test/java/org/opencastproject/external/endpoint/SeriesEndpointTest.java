@@ -30,10 +30,12 @@ import static org.apache.http.HttpStatus.SC_NOT_ACCEPTABLE;
 import static org.apache.http.HttpStatus.SC_NOT_FOUND;
 import static org.apache.http.HttpStatus.SC_NO_CONTENT;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.opencastproject.test.rest.RestServiceTestEnv.testEnvForClasses;
 
+import org.opencastproject.external.common.ApiResponseBuilder;
 import org.opencastproject.test.rest.RestServiceTestEnv;
 
 import org.apache.commons.io.IOUtils;
@@ -69,7 +71,7 @@ public class SeriesEndpointTest {
     env.tearDownServer();
   }
 
-  /** Unit test for {@link SeriesEndpoint#getSeriesList(String, String, String, String, int, int, Boolean, Boolean)} */
+  /** Unit test for {@link SeriesEndpoint#getSeriesList(String, String, String, String, int, int, Boolean, Boolean, String)} */
   @Test
   public void testGetSeriesListJson() throws Exception {
     final String response = given().log().all().expect().statusCode(SC_OK).when().get(env.host("/")).asString();
@@ -88,6 +90,23 @@ public class SeriesEndpointTest {
     assertEquals("Topic", subjects.get(0));
   }
 
+  @Test
+  public void testGetSeriesListWithCursor() throws Exception {
+    final String nextCursor = given().queryParam("cursor", "").log().all().expect().statusCode(SC_OK)
+            .when().get(env.host("/")).getHeader(ApiResponseBuilder.NEXT_CURSOR_HEADER);
+    assertEquals(TestSeriesEndpoint.NEXT_CURSOR, nextCursor);
+
+    // Without a cursor, there is no cursor of the next page either
+    assertNull(given().log().all().expect().statusCode(SC_OK).when().get(env.host("/"))
+            .getHeader(ApiResponseBuilder.NEXT_CURSOR_HEADER));
+  }
+
+  @Test
+  public void testGetSeriesListWithMalformedCursor() throws Exception {
+    given().queryParam("cursor", "malformed").log().all().expect().statusCode(SC_BAD_REQUEST).when()
+            .get(env.host("/"));
+  }
+
   /** Unit test for {@link SeriesEndpoint#getSeries(String, String, Boolean)} */
   @Test
   public void testGetSeriesJson() throws Exception {
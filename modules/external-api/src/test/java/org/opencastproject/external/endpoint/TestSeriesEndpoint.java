@@ -68,6 +68,9 @@ import javax.ws.rs.Path;
 @Ignore
 public class TestSeriesEndpoint extends SeriesEndpoint {
 
+  /** The cursor of the second page of series */
+  static final String NEXT_CURSOR = "WyJzZXJpZXMtMSJd";
+
   @SuppressWarnings("unchecked")
   public TestSeriesEndpoint() throws Exception {
 
@@ -126,8 +129,21 @@ public class TestSeriesEndpoint extends SeriesEndpoint {
     expect(searchResult.getItems()).andStubReturn(searchResultItems);
     replay(searchResult);
 
+    SearchResult<Series> firstPageResult = createNiceMock(SearchResult.class);
+    expect(firstPageResult.getItems()).andStubReturn(searchResultItems);
+    expect(firstPageResult.getNextCursor()).andStubReturn(NEXT_CURSOR);
+    replay(firstPageResult);
+
     ElasticsearchIndex elasticsearchIndex = createMock(ElasticsearchIndex.class);
-    expect(elasticsearchIndex.getByQuery(anyObject(SeriesSearchQuery.class))).andStubReturn(searchResult);
+    expect(elasticsearchIndex.getByQuery(anyObject(SeriesSearchQuery.class))).andStubAnswer(() -> {
+      SeriesSearchQuery query = (SeriesSearchQuery) EasyMock.getCurrentArguments()[0];
+      if (query.getCursor() == null) {
+        return searchResult;
+      } else if (query.getCursor().isEmpty()) {
+        return firstPageResult;
+      }
+      throw new IllegalArgumentException("Invalid cursor " + query.getCursor());
+    });
     expect(elasticsearchIndex.getSeries("4fd0ef66-aea5-4b7a-a62a-a4ada0eafd6f", org.getId(), user)).andStubReturn(
             Optional.of(series1));
     expect(elasticsearchIndex.getSeries("unknown-series-id", org.getId(), user)).andStubReturn(Optional.empty());
@@ -61,6 +61,26 @@ public interface FileUploadService {
   FileUploadJob createJob(String filename, long fileSize, int chunkSize, MediaPackage mp,
           MediaPackageElementFlavor flavor) throws FileUploadException;
 
+  /**
+   * Creates a new upload job with the given metadata. The chunks of a parallel upload job may be uploaded concurrently
+   * and in any order, which requires the size of the file and of the chunks to be known.
+   *
+   * @param filename
+   *          name of the file to be uploaded
+   * @param fileSize
+   *          size of the file
+   * @param chunkSize
+   *          size of the file parts that will be uploaded
+   * @param mp
+   *          the mediapackage this file should belong to
+   * @param parallel
+   *          whether the chunks may be uploaded concurrently and in any order
+   * @return FileUploadJob the job object
+   * @throws FileUploadException
+   */
+  FileUploadJob createJob(String filename, long fileSize, int chunkSize, MediaPackage mp,
+          MediaPackageElementFlavor flavor, boolean parallel) throws FileUploadException;
+
   /**
    * Returns the upload job with the given ID, throws <code>FileUploadException</code> if the job can not be found.
    *
@@ -86,7 +106,8 @@ public interface FileUploadService {
   void deleteJob(String id) throws FileUploadException;
 
   /**
-   * Appends the next part to the payload and updates the upload job accordingly.
+   * Appends the next part to the payload and updates the upload job accordingly. The parts of a parallel upload job
+   * are written to their position in the payload instead, regardless of the order they are received in.
    *
    * @param job
    *          the job object for the upload
@@ -24,6 +24,7 @@ package org.opencastproject.fileupload.api.job;
 import org.opencastproject.mediapackage.MediaPackage;
 import org.opencastproject.mediapackage.MediaPackageElementFlavor;
 
+import java.util.BitSet;
 import java.util.UUID;
 
 import javax.xml.bind.annotation.XmlAccessType;
@@ -65,6 +66,10 @@ public class FileUploadJob {
   private long chunksTotal = 1; // total number of chunks the upload consists of
   @XmlElement(name = "current-chunk")
   private Chunk currentChunk = new Chunk(); // information about the current chunk
+  @XmlElement(name = "parallel")
+  private boolean parallel = false; // whether chunks may be uploaded concurrently and in any order
+  @XmlElement(name = "chunks-received")
+  private byte[] chunksReceived = null; // bitmap of the chunks received so far, only used by parallel uploads
 
   public FileUploadJob() {
     this.id = UUID.randomUUID().toString();
@@ -79,6 +84,18 @@ public class FileUploadJob {
       MediaPackage mp,
       MediaPackageElementFlavor flavor
   ) {
+    this(filename, filesize, chunksize, mp, flavor, false);
+  }
+
+  public FileUploadJob(
+      String filename,
+      long filesize,
+      int chunksize,
+      MediaPackage mp,
+      MediaPackageElementFlavor flavor,
+      boolean parallel
+  ) {
+    this.parallel = parallel;
     this.id = UUID.randomUUID().toString();
     this.modified = System.currentTimeMillis();
     this.chunksize = chunksize;
@@ -135,6 +152,19 @@ public class FileUploadJob {
     this.currentChunk = currentChunk;
   }
 
+  public boolean isParallel() {
+    return parallel;
+  }
+
+  public BitSet getChunksReceived() {
+    return chunksReceived == null ? new BitSet() : BitSet.valueOf(chunksReceived);
+  }
+
+  public void setChunksReceived(BitSet chunksReceived) {
+    setLastModified(System.currentTimeMillis());
+    this.chunksReceived = chunksReceived.toByteArray();
+  }
+
   @Override
   public String toString() {
     StringBuilder sb = new StringBuilder().append("FileUploadJob(id=").append(this.id).append(", filename=")
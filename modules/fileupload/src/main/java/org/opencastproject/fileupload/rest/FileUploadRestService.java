@@ -99,6 +99,7 @@ public class FileUploadRestService {
   static final String REQUESTFIELD_CHUNKNUM = "chunknumber";
   static final String REQUESTFIELD_MEDIAPACKAGE = "mediapackage";
   static final String REQUESTFIELD_FLAVOR = "flavor";
+  static final String REQUESTFIELD_PARALLEL = "parallel";
   private static final Logger log = LoggerFactory.getLogger(FileUploadRestService.class);
   private FileUploadService uploadService;
   private MediaPackageBuilderFactory factory = null;
@@ -166,6 +167,14 @@ public class FileUploadRestService {
               isRequired = false,
               type = RestParameter.Type.TEXT
           ),
+          @RestParameter(
+              name = REQUESTFIELD_PARALLEL,
+              description = "Whether the chunks may be uploaded concurrently and in any order. Requires the file "
+                  + "size and the chunk size to be set.",
+              isRequired = false,
+              type = RestParameter.Type.BOOLEAN,
+              defaultValue = "false"
+          ),
       },
       responses = {
           @RestResponse(
@@ -184,7 +193,8 @@ public class FileUploadRestService {
           @FormParam(REQUESTFIELD_FILESIZE) long filesize,
           @FormParam(REQUESTFIELD_CHUNKSIZE) int chunksize,
           @FormParam(REQUESTFIELD_MEDIAPACKAGE) String mediapackage,
-          @FormParam(REQUESTFIELD_FLAVOR) String flav) {
+          @FormParam(REQUESTFIELD_FLAVOR) String flav,
+          @FormParam(REQUESTFIELD_PARALLEL) boolean parallel) {
     try {
       if (StringUtils.isBlank(filename)) {
         filename = "john.doe";
@@ -205,7 +215,7 @@ public class FileUploadRestService {
         flavor = new MediaPackageElementFlavor(flav.split("/")[0], flav.split("/")[1]);
       }
 
-      FileUploadJob job = uploadService.createJob(filename, filesize, chunksize, mp, flavor);
+      FileUploadJob job = uploadService.createJob(filename, filesize, chunksize, mp, flavor, parallel);
       return Response.ok(job.getId()).build();
     } catch (FileUploadException e) {
       log.error(e.getMessage(), e);
@@ -270,7 +280,8 @@ public class FileUploadRestService {
   @Path("job/{jobID}")
   @RestQuery(
       name = "newjob",
-      description = "Appends the next chunk of data to the file on the server.",
+      description = "Appends the next chunk of data to the file on the server. The chunks of parallel upload jobs "
+          + "are written to their position in the file instead and may be sent concurrently and in any order.",
       pathParameters = {
           @RestParameter(
               name = "jobID",
@@ -330,7 +341,8 @@ public class FileUploadRestService {
             }
           } else if (REQUESTFIELD_DATA.equalsIgnoreCase(item.getFieldName())) {
             uploadService.acceptChunk(job, chunkNum, item.openStream());
-            return Response.ok(job).build();
+            // chunks of parallel jobs are applied to the shared job, so the one loaded above may be outdated
+            return Response.ok(uploadService.getJob(jobId)).build();
           }
         }
         throw new FileUploadException("No payload!");
@@ -62,16 +62,22 @@ import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Calendar;
 import java.util.Dictionary;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.xml.bind.JAXBContext;
-import javax.xml.bind.Marshaller;
-import javax.xml.bind.Unmarshaller;
 
 /** A service for big file uploads via HTTP. */
 @Component(
@@ -92,15 +98,17 @@ public class FileUploadServiceImpl implements FileUploadService, ManagedService
   static final String FILEEXT_DATAFILE = ".payload";
   static final String FILENAME_CHUNKFILE = "chunk.part";
   static final String FILENAME_JOBFILE = "job.xml";
+  static final String FILEEXT_TEMPFILE = ".tmp";
   static final int READ_BUFFER_LENGTH = 512;
+  static final int WRITE_BUFFER_LENGTH = 65536;
   static final int DEFAULT_CLEANER_MAXTTL = 6;
 
   private File workRoot = null;
   private IngestService ingestService;
   private Workspace workspace;
-  private Marshaller jobMarshaller;
-  private Unmarshaller jobUnmarshaller;
-  private HashMap<String, FileUploadJob> jobCache = new HashMap<String, FileUploadJob>();
+  private JAXBContext jobContext;
+  private Map<String, FileUploadJob> jobCache = new ConcurrentHashMap<String, FileUploadJob>();
+  private final Map<String, ParallelUpload> parallelUploads = new ConcurrentHashMap<String, ParallelUpload>();
   private FileUploadServiceCleaner cleaner;
   private int jobMaxTTL = DEFAULT_CLEANER_MAXTTL;
 
@@ -119,9 +127,7 @@ public class FileUploadServiceImpl implements FileUploadService, ManagedService
 
     // set up de-/serialization
     ClassLoader cl = FileUploadJob.class.getClassLoader();
-    JAXBContext jctx = JAXBContext.newInstance("org.opencastproject.fileupload.api.job", cl);
-    jobMarshaller = jctx.createMarshaller();
-    jobUnmarshaller = jctx.createUnmarshaller();
+    jobContext = JAXBContext.newInstance("org.opencastproject.fileupload.api.job", cl);
 
     cleaner = new FileUploadServiceCleaner(this);
     cleaner.schedule();
@@ -133,6 +139,9 @@ public class FileUploadServiceImpl implements FileUploadService, ManagedService
   protected void deactivate(ComponentContext cc) {
     logger.info("File Upload Service deactivated");
     cleaner.shutdown();
+    for (String id : parallelUploads.keySet()) {
+      closeParallelUpload(id);
+    }
   }
 
   @Override
@@ -174,7 +183,25 @@ public class FileUploadServiceImpl implements FileUploadService, ManagedService
   @Override
   public FileUploadJob createJob(String filename, long filesize, int chunksize, MediaPackage mp,
           MediaPackageElementFlavor flavor) throws FileUploadException {
-    FileUploadJob job = new FileUploadJob(filename, filesize, chunksize, mp, flavor);
+    return createJob(filename, filesize, chunksize, mp, flavor, false);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @see org.opencastproject.fileupload.api.FileUploadService#createJob(String, long, int,
+   *      org.opencastproject.mediapackage.MediaPackage, org.opencastproject.mediapackage.MediaPackageElementFlavor,
+   *      boolean)
+   */
+  @Override
+  public FileUploadJob createJob(String filename, long filesize, int chunksize, MediaPackage mp,
+          MediaPackageElementFlavor flavor, boolean parallel) throws FileUploadException {
+    if (parallel && (filesize < 1 || chunksize < 1 || filesize / chunksize >= Integer.MAX_VALUE)) {
+      throw fileUploadException(Severity.warn,
+              format("Parallel uploads require a known file and chunk size. File size: %d, chunk size: %d.", filesize,
+                      chunksize));
+    }
+    FileUploadJob job = new FileUploadJob(filename, filesize, chunksize, mp, flavor, parallel);
     logger.info("Creating new upload job: {}", job);
 
     try {
@@ -201,7 +228,7 @@ public class FileUploadServiceImpl implements FileUploadService, ManagedService
   @Override
   public boolean hasJob(String id) {
     try {
-      if (jobCache.containsKey(id)) {
+      if (jobCache.containsKey(id) || parallelUploads.containsKey(id)) {
         return true;
       } else {
         File jobFile = getJobFile(id);
@@ -220,19 +247,20 @@ public class FileUploadServiceImpl implements FileUploadService, ManagedService
    */
   @Override
   public FileUploadJob getJob(String id) throws FileUploadException {
-    if (jobCache.containsKey(id)) { // job already cached?
+    ParallelUpload upload = parallelUploads.get(id);
+    if (upload != null) { // parallel upload in progress?
+      return upload.job;
+    } else if (jobCache.containsKey(id)) { // job already cached?
       return jobCache.get(id);
     } else { // job not in cache?
-      try { // try to load job from filesystem
-        synchronized (this) {
-          File jobFile = getJobFile(id);
-          FileUploadJob job = null;
-          try (FileInputStream jobFileStream = new FileInputStream(jobFile)) {
-            job = (FileUploadJob) jobUnmarshaller.unmarshal(XmlSafeParser.parse(jobFileStream));
-          }
-          job.setLastModified(jobFile.lastModified()); // get last modified time from job file
-          return job;
-        } // if loading from fs also fails
+      try { // try to load job from filesystem, job files are replaced atomically so no locking is required
+        File jobFile = getJobFile(id);
+        FileUploadJob job = null;
+        try (FileInputStream jobFileStream = new FileInputStream(jobFile)) {
+          job = (FileUploadJob) jobContext.createUnmarshaller().unmarshal(XmlSafeParser.parse(jobFileStream));
+        }
+        job.setLastModified(jobFile.lastModified()); // get last modified time from job file
+        return job; // if loading from fs also fails
       } catch (Exception e) { // we could not find the job and throw an Exception
         throw fileUploadException(Severity.warn, "Failed to load job " + id + " from file.", e);
       }
@@ -260,6 +288,7 @@ public class FileUploadServiceImpl implements FileUploadService, ManagedService
             Calendar cal = Calendar.getInstance();
             cal.add(Calendar.HOUR, -jobMaxTTL);
             if (job.lastModified() < cal.getTimeInMillis()) {
+              closeParallelUpload(id);
               FileUtils.forceDelete(dir);
               jobCache.remove(id);
               logger.info("Deleted outdated job {}", id);
@@ -274,13 +303,20 @@ public class FileUploadServiceImpl implements FileUploadService, ManagedService
   }
 
   private void storeJob(FileUploadJob job) throws FileUploadException {
+    Path tempFile = null;
     try {
-      synchronized (this) {
-        logger.debug("Attempting to store job {}", job.getId());
-        File jobFile = ensureExists(getJobFile(job.getId()));
-        jobMarshaller.marshal(job, jobFile);
+      logger.debug("Attempting to store job {}", job.getId());
+      File jobFile = getJobFile(job.getId());
+      // every write gets a temporary file of its own, so that concurrent writes cannot mix up their contents
+      tempFile = Files.createTempFile(jobFile.getParentFile().toPath(), FILENAME_JOBFILE, FILEEXT_TEMPFILE);
+      synchronized (job) {
+        jobContext.createMarshaller().marshal(job, tempFile.toFile());
       }
+      Files.move(tempFile, jobFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
     } catch (Exception e) {
+      if (tempFile != null) {
+        FileUtils.deleteQuietly(tempFile.toFile());
+      }
       throw fileUploadException(Severity.error, "Failed to write job file.", e);
     }
   }
@@ -297,6 +333,7 @@ public class FileUploadServiceImpl implements FileUploadService, ManagedService
       if (isLocked(id)) {
         jobCache.remove(id);
       }
+      closeParallelUpload(id);
       File jobDir = getJobDir(id);
       FileUtils.forceDelete(jobDir);
     } catch (Exception e) {
@@ -312,6 +349,11 @@ public class FileUploadServiceImpl implements FileUploadService, ManagedService
       throw fileUploadException(Severity.warn, "Job is already complete.");
     }
 
+    if (job.isParallel()) {
+      acceptParallelChunk(job, chunkNumber, content);
+      return;
+    }
+
     // job ready to receive data?
     if (isLocked(job.getId())) {
       throw fileUploadException(Severity.error,
@@ -367,15 +409,7 @@ public class FileUploadServiceImpl implements FileUploadService, ManagedService
 
     // check if chunk has right size
     long actualSize = chunkFile.length();
-    long supposedSize;
-    if (chunkNumber == job.getChunksTotal() - 1) {
-      supposedSize = job.getPayload().getTotalSize() % job.getChunksize();
-      supposedSize = supposedSize == 0 ? job.getChunksize() : supposedSize; // a not so nice workaround for the rare
-      // case that file size is a multiple of the
-      // chunk size
-    } else {
-      supposedSize = job.getChunksize();
-    }
+    long supposedSize = getChunkSize(job, chunkNumber);
     if (actualSize == supposedSize || (job.getChunksTotal() == 1 && job.getChunksize() == -1)) {
 
       // append chunk to payload file
@@ -415,6 +449,179 @@ public class FileUploadServiceImpl implements FileUploadService, ManagedService
     removeFromCache(job);
   }
 
+  /**
+   * Writes a chunk of a parallel upload job straight to its position in the payload file. Chunks may be received
+   * concurrently and in any order, the job is finalized as soon as all of them have been received.
+   *
+   * @param offeredJob
+   *          the job the chunk belongs to
+   * @param chunkNumber
+   *          the number of the chunk
+   * @param content
+   *          the data of the chunk
+   * @throws FileUploadException
+   *           if the chunk is not accepted or cannot be written
+   */
+  private void acceptParallelChunk(FileUploadJob offeredJob, long chunkNumber, InputStream content)
+          throws FileUploadException {
+    try {
+      final ParallelUpload upload = getParallelUpload(offeredJob);
+      final FileUploadJob job = upload.job;
+
+      // right chunk offered?
+      if (chunkNumber < 0 || chunkNumber >= job.getChunksTotal()) {
+        throw fileUploadException(Severity.error, format("Wrong chunk number. Awaiting #0 to #%d but #%d was offered.",
+                job.getChunksTotal() - 1, chunkNumber));
+      }
+      final int chunk = (int) chunkNumber;
+      synchronized (upload) {
+        if (upload.finalizing) {
+          throw fileUploadException(Severity.warn, "Job is already complete.");
+        } else if (upload.received.get(chunk)) {
+          logger.debug("Ignoring chunk #{} of job {} which has already been received", chunk, job);
+          return;
+        } else if (upload.writing.get(chunk)) {
+          throw fileUploadException(Severity.error,
+                  format("Chunk #%d is already being uploaded to job %s.", chunk, job.getId()));
+        }
+        upload.writing.set(chunk);
+      }
+      logger.debug("Receiving chunk #{} of parallel job {}", chunk, job);
+
+      // write chunk to its position in the payload file
+      final long supposedSize = getChunkSize(job, chunkNumber);
+      final long actualSize;
+      try {
+        actualSize = writeChunk(upload.payload, content, chunkNumber * job.getChunksize(), supposedSize);
+      } catch (IOException e) {
+        upload.writeFailed(chunk);
+        throw fileUploadException(Severity.error, "Failed to store chunk data", e);
+      }
+      if (actualSize != supposedSize) {
+        upload.writeFailed(chunk);
+        throw fileUploadException(Severity.warn,
+                format("Chunk has wrong size. Awaited: %d bytes, received: %d bytes.", supposedSize, actualSize));
+      }
+
+      // update job, only the thread receiving the last missing chunk gets to finalize it
+      final boolean complete;
+      synchronized (upload) {
+        upload.writing.clear(chunk);
+        upload.received.set(chunk);
+        job.getCurrentChunk().setNumber(chunk);
+        job.getCurrentChunk().setReceived(actualSize);
+        job.getPayload().setCurrentSize(job.getPayload().getCurrentSize() + actualSize);
+        job.setChunksReceived(upload.received);
+        complete = upload.received.cardinality() == job.getChunksTotal();
+        upload.finalizing = complete;
+        if (!complete) {
+          storeJob(job);
+        }
+      }
+      if (complete) {
+        try {
+          try {
+            upload.payload.force(false);
+            upload.payload.close();
+          } catch (IOException e) {
+            throw fileUploadException(Severity.error, "Failed to store chunk data", e);
+          }
+          // If finalizing fails, the job file still lacks the last chunk, so that sending it again retries
+          finalizeJob(job);
+          logger.info("Upload job completed: {}", job);
+          storeJob(job);
+        } finally {
+          parallelUploads.remove(job.getId());
+        }
+      }
+    } finally {
+      IOUtils.closeQuietly(content);
+    }
+  }
+
+  /**
+   * Returns the state of a parallel upload job, starting the upload if it has not been started yet.
+   *
+   * @param job
+   *          the parallel upload job
+   * @return the state shared by all requests uploading to the job
+   * @throws FileUploadException
+   *           if the payload file cannot be opened
+   */
+  private ParallelUpload getParallelUpload(FileUploadJob job) throws FileUploadException {
+    ParallelUpload upload = parallelUploads.get(job.getId());
+    if (upload != null) {
+      return upload;
+    }
+    synchronized (parallelUploads) {
+      upload = parallelUploads.get(job.getId());
+      if (upload == null) {
+        try {
+          FileChannel payload = FileChannel.open(getPayloadFile(job.getId()).toPath(), StandardOpenOption.WRITE);
+          upload = new ParallelUpload(job, payload);
+        } catch (IOException e) {
+          throw fileUploadException(Severity.error, "Failed to open payload file of job " + job.getId(), e);
+        }
+        job.setState(FileUploadJob.JobState.INPROGRESS);
+        parallelUploads.put(job.getId(), upload);
+      }
+      return upload;
+    }
+  }
+
+  /**
+   * Releases the payload file of a parallel upload job, if the upload has been started.
+   *
+   * @param id
+   *          ID of the upload job
+   */
+  private void closeParallelUpload(String id) {
+    ParallelUpload upload = parallelUploads.remove(id);
+    if (upload != null) {
+      IOUtils.closeQuietly(upload.payload);
+    }
+  }
+
+  /**
+   * Writes the given data to the given position of a file without exceeding the given length.
+   *
+   * @return the number of bytes read, including those exceeding the given length
+   */
+  private long writeChunk(FileChannel channel, InputStream content, long position, long maxLength)
+          throws IOException {
+    final byte[] buffer = new byte[WRITE_BUFFER_LENGTH];
+    long bytesReadTotal = 0L;
+    int bytesRead;
+    while ((bytesRead = content.read(buffer)) != -1) {
+      final int length = (int) Math.max(0, Math.min(bytesRead, maxLength - bytesReadTotal));
+      final ByteBuffer data = ByteBuffer.wrap(buffer, 0, length);
+      long filePosition = position + bytesReadTotal;
+      while (data.hasRemaining()) {
+        filePosition += channel.write(data, filePosition);
+      }
+      bytesReadTotal += bytesRead;
+    }
+    return bytesReadTotal;
+  }
+
+  /**
+   * Returns the size a chunk of an upload job is supposed to have.
+   *
+   * @param job
+   *          the upload job
+   * @param chunkNumber
+   *          the number of the chunk
+   * @return the size of the chunk in bytes
+   */
+  private long getChunkSize(FileUploadJob job, long chunkNumber) {
+    if (chunkNumber == job.getChunksTotal() - 1) {
+      long size = job.getPayload().getTotalSize() % job.getChunksize();
+      return size == 0 ? job.getChunksize() : size; // a not so nice workaround for the rare case that file size is a
+      // multiple of the chunk size
+    }
+    return job.getChunksize();
+  }
+
   @Override
   public InputStream getPayload(FileUploadJob job) throws FileUploadException {
     // job not locked?
@@ -450,7 +657,10 @@ public class FileUploadServiceImpl implements FileUploadService, ManagedService
    * @return true if job is locked, false otherwise
    */
   private boolean isLocked(String id) {
-    if (jobCache.containsKey(id)) {
+    ParallelUpload upload = parallelUploads.get(id);
+    if (upload != null) {
+      return upload.isBusy();
+    } else if (jobCache.containsKey(id)) {
       FileUploadJob job = jobCache.get(id);
       return job.getState().equals(FileUploadJob.JobState.INPROGRESS)
               || job.getState().equals(FileUploadJob.JobState.FINALIZING);
@@ -647,6 +857,29 @@ public class FileUploadServiceImpl implements FileUploadService, ManagedService
     return new File(sb.toString());
   }
 
+  /** State of a parallel upload job, shared by all requests uploading chunks to the job. */
+  private static final class ParallelUpload {
+    private final FileUploadJob job;
+    private final FileChannel payload;
+    private final BitSet received;
+    private final BitSet writing = new BitSet();
+    private boolean finalizing = false;
+
+    ParallelUpload(FileUploadJob job, FileChannel payload) {
+      this.job = job;
+      this.payload = payload;
+      this.received = job.getChunksReceived();
+    }
+
+    synchronized void writeFailed(int chunk) {
+      writing.clear(chunk);
+    }
+
+    synchronized boolean isBusy() {
+      return finalizing || !writing.isEmpty();
+    }
+  }
+
   private enum Severity {
     warn, error
   }
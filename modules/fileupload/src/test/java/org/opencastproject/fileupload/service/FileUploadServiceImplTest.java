@@ -0,0 +1,253 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package org.opencastproject.fileupload.service;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.opencastproject.fileupload.api.exception.FileUploadException;
+import org.opencastproject.fileupload.api.job.FileUploadJob;
+import org.opencastproject.workspace.api.Workspace;
+
+import org.apache.commons.io.IOUtils;
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.osgi.framework.BundleContext;
+import org.osgi.service.component.ComponentContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class FileUploadServiceImplTest {
+
+  private static final int CHUNK_SIZE = 1024;
+
+  @Rule
+  public TemporaryFolder testFolder = new TemporaryFolder();
+
+  private File dataDir;
+  private ComponentContext cc;
+  private FileUploadServiceImpl service;
+
+  /** The payload stored in the upload collection */
+  private final AtomicReference<byte[]> stored = new AtomicReference<>();
+
+  /** The number of payloads stored in the upload collection */
+  private final AtomicInteger storeCount = new AtomicInteger();
+
+  @Before
+  public void setUp() throws Exception {
+    dataDir = testFolder.newFolder();
+    BundleContext bc = EasyMock.createNiceMock(BundleContext.class);
+    EasyMock.expect(bc.getProperty(FileUploadServiceImpl.PROPKEY_KARAF_DATA))
+        .andReturn(dataDir.getAbsolutePath()).anyTimes();
+    cc = EasyMock.createNiceMock(ComponentContext.class);
+    EasyMock.expect(cc.getBundleContext()).andReturn(bc).anyTimes();
+    EasyMock.replay(bc, cc);
+    service = startService();
+  }
+
+  @After
+  public void tearDown() {
+    service.deactivate(cc);
+  }
+
+  private FileUploadServiceImpl startService() throws Exception {
+    Workspace workspace = EasyMock.createNiceMock(Workspace.class);
+    EasyMock.expect(workspace.putInCollection(EasyMock.eq(FileUploadServiceImpl.UPLOAD_COLLECTION),
+        EasyMock.anyString(), EasyMock.anyObject(InputStream.class))).andAnswer(() -> {
+          stored.set(IOUtils.toByteArray((InputStream) EasyMock.getCurrentArguments()[2]));
+          storeCount.incrementAndGet();
+          return URI.create("http://localhost/files/collection/uploaded/"
+              + EasyMock.getCurrentArguments()[1]);
+        }).anyTimes();
+    EasyMock.replay(workspace);
+
+    FileUploadServiceImpl uploadService = new FileUploadServiceImpl();
+    uploadService.setWorkspace(workspace);
+    uploadService.activate(cc);
+    // Stop the cleaner right away, it deletes job directories which do not contain a job file yet
+    uploadService.deactivate(cc);
+    return uploadService;
+  }
+
+  private static byte[] createData(int size) {
+    byte[] data = new byte[size];
+    new Random(size).nextBytes(data);
+    return data;
+  }
+
+  private static InputStream chunk(byte[] data, int number) {
+    int offset = number * CHUNK_SIZE;
+    return new ByteArrayInputStream(data, offset, Math.min(CHUNK_SIZE, data.length - offset));
+  }
+
+  private FileUploadJob createParallelJob(byte[] data) throws FileUploadException {
+    return service.createJob("test.mp4", data.length, CHUNK_SIZE, null, null, true);
+  }
+
+  @Test
+  public void testChunksInReverseOrder() throws Exception {
+    byte[] data = createData(3 * CHUNK_SIZE + 100);
+    FileUploadJob job = createParallelJob(data);
+    assertEquals(4, job.getChunksTotal());
+
+    for (int i = 3; i > 0; i--) {
+      service.acceptChunk(job, i, chunk(data, i));
+      assertEquals(FileUploadJob.JobState.INPROGRESS, service.getJob(job.getId()).getState());
+      assertNull(stored.get());
+    }
+
+    // The first chunk is the last one missing, so it finalizes the job
+    service.acceptChunk(job, 0, chunk(data, 0));
+    FileUploadJob completed = service.getJob(job.getId());
+    assertEquals(FileUploadJob.JobState.COMPLETE, completed.getState());
+    assertEquals(data.length, completed.getPayload().getCurrentSize());
+    assertEquals(1, storeCount.get());
+    assertArrayEquals(data, stored.get());
+  }
+
+  @Test
+  public void testConcurrentChunks() throws Exception {
+    byte[] data = createData(64 * CHUNK_SIZE + 100);
+    FileUploadJob job = createParallelJob(data);
+
+    List<Integer> chunks = new ArrayList<>();
+    for (int i = 0; i < job.getChunksTotal(); i++) {
+      chunks.add(i);
+    }
+    Collections.shuffle(chunks, new Random(42));
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> uploads = new ArrayList<>();
+      for (int i : chunks) {
+        uploads.add(executor.submit(() -> {
+          service.acceptChunk(job, i, chunk(data, i));
+          return null;
+        }));
+      }
+      for (Future<?> upload : uploads) {
+        upload.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    assertEquals(FileUploadJob.JobState.COMPLETE, service.getJob(job.getId()).getState());
+    assertEquals(1, storeCount.get());
+    assertArrayEquals(data, stored.get());
+    // Every job file has been written to a temporary file of its own, none of which is left behind
+    File jobDir = new File(new File(dataDir, FileUploadServiceImpl.DEFAULT_UPLOAD_WORKDIR), job.getId());
+    assertArrayEquals(new String[] { FileUploadServiceImpl.FILENAME_JOBFILE }, jobDir.list());
+  }
+
+  @Test
+  public void testDuplicateChunkIsIgnored() throws Exception {
+    byte[] data = createData(2 * CHUNK_SIZE);
+    FileUploadJob job = createParallelJob(data);
+
+    service.acceptChunk(job, 1, chunk(data, 1));
+    service.acceptChunk(job, 1, new ByteArrayInputStream(new byte[CHUNK_SIZE]));
+    assertEquals(CHUNK_SIZE, service.getJob(job.getId()).getPayload().getCurrentSize());
+
+    service.acceptChunk(job, 0, chunk(data, 0));
+    assertEquals(FileUploadJob.JobState.COMPLETE, service.getJob(job.getId()).getState());
+    assertArrayEquals(data, stored.get());
+  }
+
+  @Test
+  public void testChunkOfWrongSizeIsRejected() throws Exception {
+    byte[] data = createData(2 * CHUNK_SIZE);
+    FileUploadJob job = createParallelJob(data);
+
+    try {
+      service.acceptChunk(job, 0, new ByteArrayInputStream(data, 0, CHUNK_SIZE - 1));
+      fail("A chunk which is too short must be rejected");
+    } catch (FileUploadException e) {
+      // expected
+    }
+    try {
+      service.acceptChunk(job, 1, new ByteArrayInputStream(createData(CHUNK_SIZE + 1)));
+      fail("A chunk which is too long must be rejected");
+    } catch (FileUploadException e) {
+      // expected
+    }
+    assertTrue(service.getJob(job.getId()).getChunksReceived().isEmpty());
+    assertEquals(0, service.getJob(job.getId()).getPayload().getCurrentSize());
+
+    // Sending the chunks again is accepted
+    service.acceptChunk(job, 0, chunk(data, 0));
+    service.acceptChunk(job, 1, chunk(data, 1));
+    assertEquals(FileUploadJob.JobState.COMPLETE, service.getJob(job.getId()).getState());
+    assertArrayEquals(data, stored.get());
+  }
+
+  @Test
+  public void testResumeFromPersistedChunks() throws Exception {
+    byte[] data = createData(3 * CHUNK_SIZE);
+    FileUploadJob job = createParallelJob(data);
+    service.acceptChunk(job, 0, chunk(data, 0));
+    service.acceptChunk(job, 2, chunk(data, 2));
+
+    // Restart the service, so that the job has to be loaded from its file
+    service.deactivate(cc);
+    service = startService();
+    assertTrue(service.hasJob(job.getId()));
+    FileUploadJob resumed = service.getJob(job.getId());
+    BitSet received = resumed.getChunksReceived();
+    assertEquals(2, received.cardinality());
+    assertTrue(received.get(0));
+    assertFalse(received.get(1));
+    assertTrue(received.get(2));
+    assertEquals(2 * CHUNK_SIZE, resumed.getPayload().getCurrentSize());
+
+    // Chunks received before the restart are still ignored
+    service.acceptChunk(resumed, 2, new ByteArrayInputStream(new byte[CHUNK_SIZE]));
+    assertNull(stored.get());
+
+    service.acceptChunk(resumed, 1, chunk(data, 1));
+    assertEquals(FileUploadJob.JobState.COMPLETE, service.getJob(job.getId()).getState());
+    assertArrayEquals(data, stored.get());
+  }
+
+}
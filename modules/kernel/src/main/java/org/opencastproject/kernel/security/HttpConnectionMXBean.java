@@ -22,9 +22,27 @@
 package org.opencastproject.kernel.security;
 
 /**
- * An MxBean that exposes the number of open http connections to a JXM agent
+ * An MxBean that exposes the number of open http connections and the state of the connection pool to a JXM agent
  */
 public interface HttpConnectionMXBean {
   /** Gets the number of open http connections */
   int getOpenConnections();
+
+  /** Gets the number of pooled connections currently in use */
+  int getLeasedConnections();
+
+  /** Gets the number of idle pooled connections ready to be reused */
+  int getAvailableConnections();
+
+  /** Gets the number of requests waiting for a pooled connection */
+  int getPendingConnections();
+
+  /** Gets the maximum number of pooled connections */
+  int getMaxConnections();
+
+  /** Gets the number of requests authenticated with a cached digest nonce */
+  long getNonceCacheHits();
+
+  /** Gets the number of digest nonces requested from other servers */
+  long getNonceCacheMisses();
 }
@@ -41,6 +41,8 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.http.Header;
 import org.apache.http.HeaderElement;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHost;
 import org.apache.http.HttpResponse;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
@@ -48,14 +50,20 @@ import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.CredentialsProvider;
 import org.apache.http.client.config.AuthSchemes;
 import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpHead;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
 import org.apache.http.impl.auth.DigestScheme;
 import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.IdleConnectionEvictor;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
 import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
@@ -71,6 +79,8 @@ import java.lang.management.ManagementFactory;
 import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.management.MBeanServer;
 import javax.management.ObjectName;
@@ -118,6 +128,24 @@ public class TrustedHttpClientImpl implements TrustedHttpClient, HttpConnectionM
   public static final String NONCE_TIMEOUT_RETRY_MAXIMUM_VARIABLE_TIME_KEY =
     "org.opencastproject.security.digest.nonce.variable.time";
 
+  /**
+   * The configuration property specifying the time in seconds a digest nonce is reused for further requests to the same
+   * host before a new one is requested.
+   */
+  public static final String NONCE_CACHE_TIME_KEY = "org.opencastproject.security.digest.nonce.cache.time";
+
+  /** The configuration property specifying the maximum number of pooled connections */
+  public static final String HTTP_POOL_MAX_TOTAL_KEY = "org.opencastproject.security.http.pool.max.total";
+
+  /** The configuration property specifying the maximum number of pooled connections to a single host */
+  public static final String HTTP_POOL_MAX_PER_ROUTE_KEY = "org.opencastproject.security.http.pool.max.per.route";
+
+  /** The configuration property specifying the time in seconds after which idle pooled connections are closed */
+  public static final String HTTP_POOL_IDLE_TIMEOUT_KEY = "org.opencastproject.security.http.pool.idle.timeout";
+
+  /** The configuration property specifying the time in seconds to wait for a pooled connection to become available */
+  public static final String HTTP_POOL_REQUEST_TIMEOUT_KEY = "org.opencastproject.security.http.pool.request.timeout";
+
   /** The default time until a connection attempt fails */
   public static final int DEFAULT_CONNECTION_TIMEOUT = 60 * 1000;
 
@@ -130,6 +158,21 @@ public class TrustedHttpClientImpl implements TrustedHttpClient, HttpConnectionM
   /** The number of milliseconds in a single second. */
   private static final int MILLISECONDS_IN_SECONDS = 1000;
 
+  /** The default time in seconds a digest nonce is reused. Needs to be shorter than the nonce validity of the server. */
+  public static final int DEFAULT_NONCE_CACHE_TIME = 60;
+
+  /** The default maximum number of pooled connections */
+  public static final int DEFAULT_HTTP_POOL_MAX_TOTAL = 200;
+
+  /** The default maximum number of pooled connections to a single host */
+  public static final int DEFAULT_HTTP_POOL_MAX_PER_ROUTE = 100;
+
+  /** The default time in seconds after which idle pooled connections are closed */
+  public static final int DEFAULT_HTTP_POOL_IDLE_TIMEOUT = 60;
+
+  /** The default time in seconds to wait for a pooled connection to become available */
+  public static final int DEFAULT_HTTP_POOL_REQUEST_TIMEOUT = 30;
+
   /** The default amount of time to wait after a nonce timeout. */
   public static final int DEFAULT_RETRY_BASE_TIME = 300;
 
@@ -154,6 +197,30 @@ public class TrustedHttpClientImpl implements TrustedHttpClient, HttpConnectionM
   /** The map of open responses to their http clients, which need to be closed after we are finished with the response */
   protected Map<HttpResponse, CloseableHttpClient> responseMap = new ConcurrentHashMap<>();
 
+  /** The pooled responses by the responses handed out, which need to be closed to release their connection */
+  private final Map<HttpResponse, CloseableHttpResponse> pooledResponses = new ConcurrentHashMap<>();
+
+  /** The connection pool shared by all http clients */
+  private final PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+
+  /** Closes expired and idle connections of the pool */
+  private IdleConnectionEvictor connectionEvictor = null;
+
+  /** The digest realm and nonce last received from a host */
+  private final Map<HttpHost, CachedNonce> nonces = new ConcurrentHashMap<>();
+
+  /** The time in seconds a digest nonce is reused. */
+  private int nonceCacheTime = DEFAULT_NONCE_CACHE_TIME;
+
+  /** The time in milliseconds to wait for a pooled connection to become available */
+  private int poolRequestTimeout = DEFAULT_HTTP_POOL_REQUEST_TIMEOUT * 1000;
+
+  /** The number of requests authenticated with a cached nonce */
+  private final AtomicLong nonceCacheHits = new AtomicLong();
+
+  /** The number of nonces requested from a server */
+  private final AtomicLong nonceCacheMisses = new AtomicLong();
+
   /** Used to add a random amount of time up to retryMaximumVariableTime to retry a request after a nonce timeout. */
   private final Random generator = new Random();
 
@@ -186,6 +253,8 @@ public class TrustedHttpClientImpl implements TrustedHttpClient, HttpConnectionM
     getRetryNumber(cc);
     getRetryBaseTime(cc);
     getRetryMaximumVariableTime(cc);
+    nonceCacheTime = getIntFromComponentContext(cc, NONCE_CACHE_TIME_KEY, DEFAULT_NONCE_CACHE_TIME);
+    configureConnectionPool(cc);
 
     // register with jmx
     try {
@@ -287,6 +356,35 @@ public class TrustedHttpClientImpl implements TrustedHttpClient, HttpConnectionM
                                                           DEFAULT_RETRY_MAXIMUM_VARIABLE_TIME);
   }
 
+  /**
+   * Applies the configured limits to the connection pool and starts closing idle connections.
+   *
+   * @param cc
+   *         The ComponentContent to extract the pool configuration from.
+   */
+  private void configureConnectionPool(ComponentContext cc) {
+    final int maxTotal = getIntFromComponentContext(cc, HTTP_POOL_MAX_TOTAL_KEY, DEFAULT_HTTP_POOL_MAX_TOTAL);
+    final int maxPerRoute = getIntFromComponentContext(cc, HTTP_POOL_MAX_PER_ROUTE_KEY,
+            DEFAULT_HTTP_POOL_MAX_PER_ROUTE);
+    final int idleTimeout = getIntFromComponentContext(cc, HTTP_POOL_IDLE_TIMEOUT_KEY, DEFAULT_HTTP_POOL_IDLE_TIMEOUT);
+    final int requestTimeout = getIntFromComponentContext(cc, HTTP_POOL_REQUEST_TIMEOUT_KEY,
+            DEFAULT_HTTP_POOL_REQUEST_TIMEOUT);
+    poolRequestTimeout = Math.max(1, requestTimeout) * 1000;
+    connectionManager.setMaxTotal(Math.max(1, maxTotal));
+    connectionManager.setDefaultMaxPerRoute(Math.max(1, Math.min(maxPerRoute, maxTotal)));
+    if (connectionEvictor != null) {
+      connectionEvictor.shutdown();
+      connectionEvictor = null;
+    }
+    if (idleTimeout > 0) {
+      connectionEvictor = new IdleConnectionEvictor(connectionManager, idleTimeout, TimeUnit.SECONDS);
+      connectionEvictor.start();
+    }
+    logger.debug("Pooling up to {} connections ({} per host), waiting up to {} ms for one, closing them after {} "
+            + "seconds of inactivity", connectionManager.getMaxTotal(), connectionManager.getDefaultMaxPerRoute(),
+            poolRequestTimeout, idleTimeout);
+  }
+
   /**
    * Gets a property from the ComponentContext that is the base type int.
    *
@@ -320,6 +418,12 @@ public class TrustedHttpClientImpl implements TrustedHttpClient, HttpConnectionM
   @Deactivate
   public void deactivate() {
     logger.debug("deactivate");
+    if (connectionEvictor != null) {
+      connectionEvictor.shutdown();
+      connectionEvictor = null;
+    }
+    connectionManager.shutdown();
+    nonces.clear();
   }
 
   public TrustedHttpClientImpl() {
@@ -330,12 +434,23 @@ public class TrustedHttpClientImpl implements TrustedHttpClient, HttpConnectionM
     this.pass = pass;
   }
 
-  /** Creates a new HttpClientBuilder to use for making requests. */
+  /**
+   * Creates a new HttpClientBuilder to use for making requests. The clients share the connection pool of this trusted
+   * client, so closing them does not close the pooled connections.
+   * <p>
+   * A pooled connection stays leased until its response is passed to {@link #close(HttpResponse)}, so callers have to
+   * close every response they get. If the pool is exhausted, a request waits for a connection at most the configured
+   * pool request timeout and then fails.
+   */
   public HttpClientBuilder makeHttpClientBuilder(int connectionTimeout, int socketTimeout) {
     RequestConfig config = RequestConfig.custom()
-        .setConnectionRequestTimeout(connectionTimeout)
+        .setConnectionRequestTimeout(poolRequestTimeout)
+        .setConnectTimeout(connectionTimeout)
         .setSocketTimeout(socketTimeout).build();
-    return HttpClientBuilder.create().setDefaultRequestConfig(config);
+    return HttpClientBuilder.create()
+        .setDefaultRequestConfig(config)
+        .setConnectionManager(connectionManager)
+        .setConnectionManagerShared(true);
   }
 
   /**
@@ -380,7 +495,7 @@ public class TrustedHttpClientImpl implements TrustedHttpClient, HttpConnectionM
       // Run the request (the http client handles the multiple back-and-forth requests)
       try {
         httpUriRequest = getSignedUrl(httpUriRequest);
-        HttpResponse response = new HttpResponseWrapper(httpClient.execute(httpUriRequest));
+        HttpResponse response = executePooled(httpClient, httpUriRequest);
         responseMap.put(response, httpClient);
         return response;
       } catch (IOException e) {
@@ -395,20 +510,30 @@ public class TrustedHttpClientImpl implements TrustedHttpClient, HttpConnectionM
       final CloseableHttpClient httpClient = clientBuilder.build();
       // HttpClient doesn't handle the request dynamics for other verbs (especially when sending a streamed multipart
       // request), so we need to handle the details of the digest auth back-and-forth manually
-      manuallyHandleDigestAuthentication(httpUriRequest, httpClient);
+      final boolean cachedNonce = manuallyHandleDigestAuthentication(httpUriRequest, httpClient, true);
       HttpResponse response = null;
       try {
-        response = new HttpResponseWrapper(httpClient.execute(httpUriRequest));
+        response = executePooled(httpClient, httpUriRequest);
+        if (cachedNonce && hadNonceTimeoutResponse(response)) {
+          // The server no longer accepts the cached nonce, so get a fresh one and try again right away
+          logger.debug("Cached nonce for {} has expired, requesting a new one", httpUriRequest.getURI());
+          releaseQuietly(response);
+          httpUriRequest.removeHeaders(AUTHORIZATION_HEADER_NAME);
+          manuallyHandleDigestAuthentication(httpUriRequest, httpClient, false);
+          response = executePooled(httpClient, httpUriRequest);
+        }
         if (nonceTimeoutRetries > 0 && hadNonceTimeoutResponse(response)) {
+          releaseQuietly(response);
           httpClient.close();
           response = retryAuthAndRequestAfterNonceTimeout(httpUriRequest, response);
         }
         responseMap.put(response, httpClient);
         return response;
       } catch (Exception e) {
-        // if we have a response, remove it from the map
+        // if we have a response, remove it from the map and release its connection
         if (response != null) {
           responseMap.remove(response);
+          releaseQuietly(response);
         }
         // close the http connection(s)
         try {
@@ -421,6 +546,55 @@ public class TrustedHttpClientImpl implements TrustedHttpClient, HttpConnectionM
     }
   }
 
+  /**
+   * Executes a request and remembers the pooled response, so that its connection can be released once the response is
+   * closed.
+   *
+   * @param httpClient
+   *         The client to send the request through.
+   * @param httpUriRequest
+   *         The request to execute.
+   * @return The response wrapped for the use in hash based data structures.
+   * @throws IOException
+   *         Thrown if the request fails.
+   */
+  private HttpResponse executePooled(CloseableHttpClient httpClient, HttpUriRequest httpUriRequest)
+          throws IOException {
+    final CloseableHttpResponse pooledResponse;
+    try {
+      pooledResponse = httpClient.execute(httpUriRequest);
+    } catch (ConnectionPoolTimeoutException e) {
+      // Usually caused by responses which are never closed and keep their connections leased
+      logger.warn("No pooled connection available for {} within {} ms: {} of {} connections leased, {} requests "
+              + "pending", httpUriRequest.getURI(), poolRequestTimeout, getLeasedConnections(), getMaxConnections(),
+              getPendingConnections());
+      throw e;
+    }
+    final HttpResponse response = new HttpResponseWrapper(pooledResponse);
+    if (pooledResponse != null) {
+      pooledResponses.put(response, pooledResponse);
+    }
+    return response;
+  }
+
+  /**
+   * Releases the connection of a response that is not handed out. Closing a response whose content has not been fully
+   * read closes its connection instead of returning it to the pool.
+   *
+   * @param response
+   *         The response to release.
+   */
+  private void releaseQuietly(HttpResponse response) {
+    final CloseableHttpResponse pooledResponse = pooledResponses.remove(response);
+    if (pooledResponse != null) {
+      try {
+        pooledResponse.close();
+      } catch (IOException e) {
+        logger.debug("Unable to release connection of response {}", response.getStatusLine(), e);
+      }
+    }
+  }
+
   /**
    * If the request is a GET, sign the URL and return a new {@link HttpUriRequest} that is signed.
    *
@@ -492,12 +666,16 @@ public class TrustedHttpClientImpl implements TrustedHttpClient, HttpConnectionM
           logger.error("Suffered InteruptedException while trying to sleep until next retry.", e);
         }
       }
-      manuallyHandleDigestAuthentication(httpUriRequest, httpClient);
-      response = new HttpResponseWrapper(httpClient.execute(httpUriRequest));
+      manuallyHandleDigestAuthentication(httpUriRequest, httpClient, false);
+      response = executePooled(httpClient, httpUriRequest);
       if (!hadNonceTimeoutResponse(response)) {
         responseMap.put(response, httpClient);
         break;
       }
+      // The response of the last attempt is handed out to the caller
+      if (i < nonceTimeoutRetries - 1) {
+        releaseQuietly(response);
+      }
       httpClient.close();
     }
     return response;
@@ -522,20 +700,42 @@ public class TrustedHttpClientImpl implements TrustedHttpClient, HttpConnectionM
    *         The request location to get the digest authentication for.
    * @param httpClient
    *         The client to send the request through.
+   * @param useCache
+   *         Whether a cached nonce of the host may be used instead of requesting a new one.
+   * @return true if the request has been authenticated with a cached nonce
    * @throws TrustedHttpClientException
    *         Thrown if the client cannot be shutdown.
    */
-  private void manuallyHandleDigestAuthentication(HttpUriRequest httpUriRequest, CloseableHttpClient httpClient)
-          throws TrustedHttpClientException {
-    HttpRequestBase digestRequest;
-    try {
-      digestRequest = (HttpRequestBase) httpUriRequest.getClass().newInstance();
-    } catch (Exception e) {
-      throw new IllegalStateException("Can not create a new " + httpUriRequest.getClass().getName());
+  private boolean manuallyHandleDigestAuthentication(HttpUriRequest httpUriRequest, CloseableHttpClient httpClient,
+          boolean useCache) throws TrustedHttpClientException {
+    final HttpHost host = URIUtils.extractHost(httpUriRequest.getURI());
+    String[] realmAndNonce = null;
+    if (useCache && host != null && isRepeatable(httpUriRequest)) {
+      realmAndNonce = getCachedRealmAndNonce(host);
+    }
+    final boolean cached = realmAndNonce != null;
+    if (cached) {
+      nonceCacheHits.incrementAndGet();
+    } else {
+      HttpRequestBase digestRequest;
+      try {
+        digestRequest = (HttpRequestBase) httpUriRequest.getClass().newInstance();
+      } catch (Exception e) {
+        throw new IllegalStateException("Can not create a new " + httpUriRequest.getClass().getName());
+      }
+      digestRequest.setURI(httpUriRequest.getURI());
+      digestRequest.setHeader(REQUESTED_AUTH_HEADER, DIGEST_AUTH);
+      nonceCacheMisses.incrementAndGet();
+      realmAndNonce = getRealmAndNonce(digestRequest);
+      if (host != null) {
+        if (realmAndNonce != null && realmAndNonce[1] != null && nonceCacheTime > 0) {
+          nonces.put(host, new CachedNonce(realmAndNonce,
+                  System.currentTimeMillis() + (long) nonceCacheTime * MILLISECONDS_IN_SECONDS));
+        } else {
+          nonces.remove(host);
+        }
+      }
     }
-    digestRequest.setURI(httpUriRequest.getURI());
-    digestRequest.setHeader(REQUESTED_AUTH_HEADER, DIGEST_AUTH);
-    String[] realmAndNonce = getRealmAndNonce(digestRequest);
 
     if (realmAndNonce != null) {
       // Set the user/pass
@@ -559,6 +759,42 @@ public class TrustedHttpClientImpl implements TrustedHttpClient, HttpConnectionM
         throw new TrustedHttpClientException(e);
       }
     }
+    return cached;
+  }
+
+  /**
+   * Returns the cached realm and nonce of a host if they have not yet expired.
+   *
+   * @param host
+   *         The host the nonce has been issued by.
+   * @return A String[] containing the {realm, nonce} or null if there is no valid cached nonce
+   */
+  private String[] getCachedRealmAndNonce(HttpHost host) {
+    final CachedNonce cachedNonce = nonces.get(host);
+    if (cachedNonce == null) {
+      return null;
+    }
+    if (cachedNonce.expires < System.currentTimeMillis()) {
+      nonces.remove(host, cachedNonce);
+      return null;
+    }
+    return cachedNonce.realmAndNonce;
+  }
+
+  /**
+   * Determines if a request can be sent again after the server rejected its nonce. Requests streaming their content
+   * can be sent only once, so they always need a fresh nonce.
+   *
+   * @param httpUriRequest
+   *         The request to test.
+   * @return true if the request has no content or its content can be sent again
+   */
+  private static boolean isRepeatable(HttpUriRequest httpUriRequest) {
+    if (httpUriRequest instanceof HttpEntityEnclosingRequest) {
+      final HttpEntityEnclosingRequest request = (HttpEntityEnclosingRequest) httpUriRequest;
+      return request.getEntity() == null || request.getEntity().isRepeatable();
+    }
+    return true;
   }
 
   /**
@@ -569,6 +805,10 @@ public class TrustedHttpClientImpl implements TrustedHttpClient, HttpConnectionM
   @Override
   public void close(HttpResponse response) throws IOException {
     if (response != null) {
+      final CloseableHttpResponse pooledResponse = pooledResponses.remove(response);
+      if (pooledResponse != null) {
+        pooledResponse.close();
+      }
       CloseableHttpClient httpClient = responseMap.remove(response);
       if (httpClient != null) {
         httpClient.close();
@@ -587,10 +827,10 @@ public class TrustedHttpClientImpl implements TrustedHttpClient, HttpConnectionM
    */
   protected String[] getRealmAndNonce(HttpRequestBase request) throws TrustedHttpClientException {
     CloseableHttpClient httpClient = makeHttpClientBuilder(DEFAULT_CONNECTION_TIMEOUT, DEFAULT_SOCKET_TIMEOUT).build();
-    HttpResponse response;
+    CloseableHttpResponse response = null;
     try {
       try {
-        response = new HttpResponseWrapper(httpClient.execute(request));
+        response = httpClient.execute(request);
         Header[] headers = response.getHeaders("WWW-Authenticate");
         if (headers == null || headers.length == 0) {
           logger.warn("URI {} does not support digest authentication", request.getURI());
@@ -608,6 +848,11 @@ public class TrustedHttpClientImpl implements TrustedHttpClient, HttpConnectionM
         }
         return new String[]{realm, nonce};
       } finally {
+        // Read the remaining challenge, so that the connection can be reused
+        if (response != null) {
+          EntityUtils.consumeQuietly(response.getEntity());
+          response.close();
+        }
         httpClient.close();
       }
     } catch (IOException e) {
@@ -620,6 +865,36 @@ public class TrustedHttpClientImpl implements TrustedHttpClient, HttpConnectionM
     return responseMap.size();
   }
 
+  @Override
+  public int getLeasedConnections() {
+    return connectionManager.getTotalStats().getLeased();
+  }
+
+  @Override
+  public int getAvailableConnections() {
+    return connectionManager.getTotalStats().getAvailable();
+  }
+
+  @Override
+  public int getPendingConnections() {
+    return connectionManager.getTotalStats().getPending();
+  }
+
+  @Override
+  public int getMaxConnections() {
+    return connectionManager.getTotalStats().getMax();
+  }
+
+  @Override
+  public long getNonceCacheHits() {
+    return nonceCacheHits.get();
+  }
+
+  @Override
+  public long getNonceCacheMisses() {
+    return nonceCacheMisses.get();
+  }
+
   /**
    * @return Returns the number of times the TrustedHttpClient will retry a request if nonce timeouts are occuring.
    */
@@ -641,4 +916,15 @@ public class TrustedHttpClientImpl implements TrustedHttpClient, HttpConnectionM
     return retryMaximumVariableTime;
   }
 
+  /** A digest realm and nonce along with the time they are used until. */
+  private static final class CachedNonce {
+    private final String[] realmAndNonce;
+    private final long expires;
+
+    CachedNonce(String[] realmAndNonce, long expires) {
+      this.realmAndNonce = realmAndNonce;
+      this.expires = expires;
+    }
+  }
+
 }
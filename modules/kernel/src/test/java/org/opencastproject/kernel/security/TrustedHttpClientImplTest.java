@@ -39,6 +39,8 @@ import org.opencastproject.security.urlsigning.exception.UrlSigningException;
 import org.opencastproject.security.urlsigning.service.UrlSigningService;
 import org.opencastproject.serviceregistry.api.ServiceRegistry;
 
+import com.sun.net.httpserver.HttpServer;
+
 import org.apache.http.Header;
 import org.apache.http.HttpResponse;
 import org.apache.http.ProtocolVersion;
@@ -48,6 +50,7 @@ import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpHead;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.message.BasicHttpResponse;
@@ -61,6 +64,10 @@ import org.osgi.framework.BundleContext;
 import org.osgi.service.component.ComponentContext;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
 
 public class TrustedHttpClientImplTest {
 
@@ -131,6 +138,12 @@ public class TrustedHttpClientImplTest {
         .andReturn(new BasicStatusLine(new ProtocolVersion("Http", 1, 1), 401, "Nonce has expired/timed out"))
         .anyTimes();
     expect(nonceResponse.getHeaders("WWW-Authenticate")).andReturn(new Header[] {}).anyTimes();
+    // Responses are closed to return their connection to the pool
+    for (CloseableHttpResponse response : new CloseableHttpResponse[] { okResponse, digestResponse, nonceResponse }) {
+      expect(response.getEntity()).andReturn(null).anyTimes();
+      response.close();
+      EasyMock.expectLastCall().anyTimes();
+    }
     replay(okResponse, digestResponse, nonceResponse);
   }
 
@@ -534,6 +547,166 @@ public class TrustedHttpClientImplTest {
     Assert.assertEquals(200, response.getStatusLine().getStatusCode());
   }
 
+  @Test
+  public void nonceIsReusedForFollowingRequests() throws ClientProtocolException, IOException {
+    bundleContextMock = createNiceMock(BundleContext.class);
+    expect(bundleContextMock.getProperty(TrustedHttpClientImpl.DIGEST_AUTH_USER_KEY)).andReturn("u");
+    expect(bundleContextMock.getProperty(TrustedHttpClientImpl.DIGEST_AUTH_PASS_KEY)).andReturn("p");
+    replay(bundleContextMock);
+    componentContextMock = createNiceMock(ComponentContext.class);
+    expect(componentContextMock.getBundleContext()).andReturn(bundleContextMock).anyTimes();
+    replay(componentContextMock);
+
+    CloseableHttpClient httpClient = createMock(CloseableHttpClient.class);
+    // Digest handshake
+    expect(httpClient.execute(isA(HttpUriRequest.class))).andReturn(digestResponse);
+    // Both requests use the same nonce
+    expect(httpClient.execute(isA(HttpUriRequest.class))).andReturn(okResponse).times(2);
+    // Digest handshake for another host
+    expect(httpClient.execute(isA(HttpUriRequest.class))).andReturn(digestResponse);
+    expect(httpClient.execute(isA(HttpUriRequest.class))).andReturn(okResponse);
+    httpClient.close();
+    EasyMock.expectLastCall().anyTimes();
+    HttpClientBuilder httpClientBuilder = createNiceMock(HttpClientBuilder.class);
+    expect(httpClientBuilder.build()).andReturn(httpClient).anyTimes();
+    replay(httpClientBuilder, httpClient);
+    client = new TrustedHttpClientImpl("u", "p") {
+      @Override
+      public HttpClientBuilder makeHttpClientBuilder(int connectionTimeout, int socketTimeout) {
+        return httpClientBuilder;
+      }
+    };
+    client.setServiceRegistry(serviceRegistry);
+    client.setSecurityService(securityService);
+    client.activate(componentContextMock);
+
+    HttpPost first = new HttpPost("http://localhost:8080/fake");
+    HttpPost second = new HttpPost("http://localhost:8080/other");
+    HttpPost otherHost = new HttpPost("http://otherhost:8080/fake");
+    assertEquals(200, client.execute(first).getStatusLine().getStatusCode());
+    assertEquals(200, client.execute(second).getStatusLine().getStatusCode());
+    assertEquals(200, client.execute(otherHost).getStatusLine().getStatusCode());
+    assertTrue(second.getFirstHeader("Authorization").getValue().contains("nonce=\"dcd98b7102dd2f0e8b11d0f600bfb0c093\""));
+    assertEquals(1, client.getNonceCacheHits());
+    assertEquals(2, client.getNonceCacheMisses());
+    verify(httpClient);
+  }
+
+  @Test
+  public void expiredCachedNonceIsReplacedWithoutDelay() throws ClientProtocolException, IOException {
+    bundleContextMock = createNiceMock(BundleContext.class);
+    expect(bundleContextMock.getProperty(TrustedHttpClientImpl.DIGEST_AUTH_USER_KEY)).andReturn("u");
+    expect(bundleContextMock.getProperty(TrustedHttpClientImpl.DIGEST_AUTH_PASS_KEY)).andReturn("p");
+    replay(bundleContextMock);
+    componentContextMock = createNiceMock(ComponentContext.class);
+    expect(componentContextMock.getBundleContext()).andReturn(bundleContextMock).anyTimes();
+    replay(componentContextMock);
+
+    CloseableHttpClient httpClient = createMock(CloseableHttpClient.class);
+    // Digest handshake and first request
+    expect(httpClient.execute(isA(HttpUriRequest.class))).andReturn(digestResponse);
+    expect(httpClient.execute(isA(HttpUriRequest.class))).andReturn(okResponse);
+    // The cached nonce has expired on the server
+    expect(httpClient.execute(isA(HttpUriRequest.class))).andReturn(nonceResponse);
+    // New digest handshake and successful request
+    expect(httpClient.execute(isA(HttpUriRequest.class))).andReturn(digestResponse);
+    expect(httpClient.execute(isA(HttpUriRequest.class))).andReturn(okResponse);
+    httpClient.close();
+    EasyMock.expectLastCall().anyTimes();
+    HttpClientBuilder httpClientBuilder = createNiceMock(HttpClientBuilder.class);
+    expect(httpClientBuilder.build()).andReturn(httpClient).anyTimes();
+    replay(httpClientBuilder, httpClient);
+    client = new TrustedHttpClientImpl("u", "p") {
+      @Override
+      public HttpClientBuilder makeHttpClientBuilder(int connectionTimeout, int socketTimeout) {
+        return httpClientBuilder;
+      }
+    };
+    client.setServiceRegistry(serviceRegistry);
+    client.setSecurityService(securityService);
+    client.activate(componentContextMock);
+
+    assertEquals(200, client.execute(new HttpPost("http://localhost:8080/fake")).getStatusLine().getStatusCode());
+    assertEquals(200, client.execute(new HttpPost("http://localhost:8080/fake")).getStatusLine().getStatusCode());
+    verify(httpClient);
+  }
+
+  @Test
+  public void connectionPoolPropertiesSetOkay() {
+    bundleContextMock = createNiceMock(BundleContext.class);
+    expect(bundleContextMock.getProperty(TrustedHttpClientImpl.DIGEST_AUTH_USER_KEY)).andReturn("u");
+    expect(bundleContextMock.getProperty(TrustedHttpClientImpl.DIGEST_AUTH_PASS_KEY)).andReturn("p");
+    expect(bundleContextMock.getProperty(TrustedHttpClientImpl.HTTP_POOL_MAX_TOTAL_KEY)).andReturn("42").anyTimes();
+    replay(bundleContextMock);
+    componentContextMock = createNiceMock(ComponentContext.class);
+    expect(componentContextMock.getBundleContext()).andReturn(bundleContextMock).anyTimes();
+    replay(componentContextMock);
+
+    client = new TrustedHttpClientImpl("u", "p");
+    client.activate(componentContextMock);
+    try {
+      assertEquals(42, client.getMaxConnections());
+      assertEquals(0, client.getLeasedConnections());
+      assertEquals(0, client.getPendingConnections());
+    } finally {
+      client.deactivate();
+    }
+  }
+
+  @Test
+  public void exhaustedConnectionPoolFailsAfterRequestTimeout() throws Exception {
+    final HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/", exchange -> {
+      final byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    });
+    server.start();
+
+    bundleContextMock = createNiceMock(BundleContext.class);
+    expect(bundleContextMock.getProperty(TrustedHttpClientImpl.DIGEST_AUTH_USER_KEY)).andReturn("u");
+    expect(bundleContextMock.getProperty(TrustedHttpClientImpl.DIGEST_AUTH_PASS_KEY)).andReturn("p");
+    expect(bundleContextMock.getProperty(TrustedHttpClientImpl.HTTP_POOL_MAX_PER_ROUTE_KEY)).andReturn("1").anyTimes();
+    expect(bundleContextMock.getProperty(TrustedHttpClientImpl.HTTP_POOL_REQUEST_TIMEOUT_KEY)).andReturn("1")
+        .anyTimes();
+    replay(bundleContextMock);
+    componentContextMock = createNiceMock(ComponentContext.class);
+    expect(componentContextMock.getBundleContext()).andReturn(bundleContextMock).anyTimes();
+    replay(componentContextMock);
+
+    client = new TrustedHttpClientImpl("u", "p");
+    client.setServiceRegistry(serviceRegistry);
+    client.setSecurityService(securityService);
+    final UrlSigningService urlSigningService = createNiceMock(UrlSigningService.class);
+    replay(urlSigningService);
+    client.setUrlSigningService(urlSigningService);
+    client.activate(componentContextMock);
+    final String url = "http://localhost:" + server.getAddress().getPort() + "/";
+    try {
+      // The response is not closed, so its connection stays leased
+      final HttpResponse leased = client.execute(new HttpGet(url));
+      assertEquals(200, leased.getStatusLine().getStatusCode());
+      assertEquals(1, client.getLeasedConnections());
+      try {
+        client.execute(new HttpGet(url));
+        Assert.fail();
+      } catch (TrustedHttpClientException e) {
+        assertTrue(e.getCause() instanceof ConnectionPoolTimeoutException);
+      }
+
+      client.close(leased);
+      assertEquals(0, client.getLeasedConnections());
+      final HttpResponse response = client.execute(new HttpGet(url));
+      assertEquals(200, response.getStatusLine().getStatusCode());
+      client.close(response);
+    } finally {
+      client.deactivate();
+      server.stop(0);
+    }
+  }
+
   @Test
   public void testNotAcceptsUrlSigningService() throws IOException {
     bundleContextMock = createNiceMock(BundleContext.class);
@@ -560,8 +560,7 @@ public class SchedulerRestService {
       // If the etag matches the if-not-modified header,return a 304
       if (StringUtils.isNotBlank(captureAgentId)) {
         lastModified = service.getScheduleLastModified(captureAgentId);
-        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
-        if (StringUtils.isNotBlank(ifNoneMatch) && ifNoneMatch.equals(lastModified)) {
+        if (matchesEtag(request.getHeader(HttpHeaders.IF_NONE_MATCH), lastModified)) {
           return Response.notModified(lastModified).expires(null).build();
         }
       }
@@ -615,8 +614,7 @@ public class SchedulerRestService {
       // If the `etag` matches the if-not-modified header,return a 304
       if (agent.isSome()) {
         lastModified = service.getScheduleLastModified(agent.get());
-        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
-        if (StringUtils.isNotBlank(ifNoneMatch) && ifNoneMatch.equals(lastModified)) {
+        if (matchesEtag(request.getHeader(HttpHeaders.IF_NONE_MATCH), lastModified)) {
           return Response.notModified(lastModified).expires(null).build();
         }
       }
@@ -643,6 +641,29 @@ public class SchedulerRestService {
   }
 
 
+  /**
+   * Check whether an If-None-Match header matches the schedule last modified tag. Agents send the tag back as they got
+   * it, but the header may also contain a quoted or weak entity tag or a list of them, as sent by HTTP caches.
+   *
+   * @param ifNoneMatch
+   *          the If-None-Match header, may be null
+   * @param etag
+   *          the schedule last modified tag
+   * @return whether the calendar has not been modified
+   */
+  static boolean matchesEtag(String ifNoneMatch, String etag) {
+    if (StringUtils.isBlank(ifNoneMatch) || StringUtils.isBlank(etag)) {
+      return false;
+    }
+    for (String value : ifNoneMatch.split(",")) {
+      final String tag = StringUtils.removeStart(value.trim(), "W/");
+      if ("*".equals(tag) || etag.equals(StringUtils.unwrap(tag, '"'))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   @GET
   @Produces(MediaType.TEXT_PLAIN)
   @Path("{id}/lastmodified")
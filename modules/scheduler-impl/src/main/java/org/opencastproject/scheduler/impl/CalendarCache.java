@@ -0,0 +1,289 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.scheduler.impl;
+
+import com.entwinemedia.fn.data.Opt;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import net.fortuna.ical4j.model.Calendar;
+import net.fortuna.ical4j.model.component.VEvent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Cache of the iCalendar feeds polled by capture agents.
+ * <p>
+ * The schedule of a capture agent is cached together with the last modified tag it was generated for. As long as the
+ * tag does not change, a calendar is served from memory without querying the database or the asset manager. Once it
+ * changes, the schedule is loaded again, but the entries of events which did not change since are reused instead of
+ * being generated from their episode and series catalogs again.
+ * <p>
+ * Schedules and entries of an event are additionally dropped on every scheduler update of that event, so a node does
+ * not have to wait for the last modified tag of a capture agent to change.
+ */
+final class CalendarCache {
+
+  /** Number of calendar entries to keep per cached capture agent */
+  private static final long ENTRIES_PER_AGENT = 100;
+
+  /** Schedules by organization, capture agent and roles of the user requesting them */
+  private final Cache<String, Schedule> schedules;
+
+  /** Calendar entries by organization and media package */
+  private final Cache<String, Entry> entries;
+
+  /**
+   * Create a new calendar cache.
+   *
+   * @param size
+   *          the maximum number of capture agents to cache the schedule of
+   * @param expireSeconds
+   *          number of seconds after which schedules and entries are generated again, which picks up changes not
+   *          reflected in the last modified tag, like updated series metadata
+   */
+  CalendarCache(int size, long expireSeconds) {
+    schedules = CacheBuilder.newBuilder()
+        .maximumSize(size)
+        .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
+        .build();
+    entries = CacheBuilder.newBuilder()
+        .maximumSize(ENTRIES_PER_AGENT * size)
+        .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
+        .build();
+  }
+
+  /**
+   * Get the cached schedule of a capture agent.
+   *
+   * @param orgId
+   *          the organization
+   * @param agentId
+   *          the capture agent
+   * @param roles
+   *          the roles of the current user, since the schedule only contains events visible to them
+   * @param lastModified
+   *          the current last modified tag of the capture agent
+   * @return the schedule or null if it is not cached or was generated for a different last modified tag
+   */
+  Schedule getSchedule(String orgId, String agentId, Collection<String> roles, String lastModified) {
+    final Schedule schedule = schedules.getIfPresent(scheduleKey(orgId, agentId, roles));
+    return schedule != null && schedule.lastModified.equals(lastModified) ? schedule : null;
+  }
+
+  void putSchedule(String orgId, String agentId, Collection<String> roles, Schedule schedule) {
+    schedules.put(scheduleKey(orgId, agentId, roles), schedule);
+  }
+
+  /**
+   * Get the cached calendar entry of an event, or generate and cache a new one if it is missing or has changed.
+   *
+   * @param orgId
+   *          the organization
+   * @param mediaPackageId
+   *          the event
+   * @param fingerprint
+   *          identifies the state of the event the entry was generated from
+   * @param generate
+   *          generates the entry, may return null if the event cannot be part of the calendar
+   * @return the entry or null
+   */
+  Entry getEntry(String orgId, String mediaPackageId, String fingerprint, Supplier<Entry> generate) {
+    final String key = key(orgId, mediaPackageId);
+    Entry entry = entries.getIfPresent(key);
+    if (entry != null && entry.fingerprint.equals(fingerprint)) {
+      return entry;
+    }
+    entry = generate.get();
+    if (entry != null) {
+      entries.put(key, entry);
+    } else {
+      entries.invalidate(key);
+    }
+    return entry;
+  }
+
+  /**
+   * Drop the calendar entry of an event and the schedules containing it.
+   *
+   * @param orgId
+   *          the organization
+   * @param mediaPackageId
+   *          the event
+   */
+  void invalidateEvent(String orgId, String mediaPackageId) {
+    entries.invalidate(key(orgId, mediaPackageId));
+    final String prefix = orgId + "/";
+    schedules.asMap().entrySet().removeIf(e -> e.getKey().startsWith(prefix)
+        && e.getValue().mediaPackageIds.contains(mediaPackageId));
+  }
+
+  /**
+   * Drop the schedule of a capture agent.
+   *
+   * @param orgId
+   *          the organization
+   * @param agentId
+   *          the capture agent
+   */
+  void invalidateAgent(String orgId, String agentId) {
+    final String prefix = key(orgId, agentId) + "/";
+    schedules.asMap().keySet().removeIf(k -> k.startsWith(prefix));
+  }
+
+  void invalidateAll() {
+    schedules.invalidateAll();
+    entries.invalidateAll();
+  }
+
+  private static String key(String orgId, String id) {
+    return orgId + "/" + id;
+  }
+
+  private static String scheduleKey(String orgId, String agentId, Collection<String> roles) {
+    return key(orgId, agentId) + "/" + roles.stream().sorted().collect(Collectors.joining(","));
+  }
+
+  /** The generated calendar entry of a scheduled event. */
+  static final class Entry {
+    private final String mediaPackageId;
+    private final String seriesId;
+    private final long start;
+    private final long end;
+    private final String fingerprint;
+    private final VEvent event;
+
+    Entry(String mediaPackageId, String seriesId, Date start, Date end, String fingerprint, VEvent event) {
+      this.mediaPackageId = mediaPackageId;
+      this.seriesId = seriesId;
+      this.start = start.getTime();
+      this.end = end.getTime();
+      this.fingerprint = fingerprint;
+      this.event = event;
+    }
+
+    String getMediaPackageId() {
+      return mediaPackageId;
+    }
+  }
+
+  /** The upcoming scheduled events of a capture agent. */
+  static final class Schedule {
+    /** Time after the end of an event until it is no longer part of the calendar */
+    private static final long PASSED_EVENT_MARGIN = TimeUnit.HOURS.toMillis(1);
+
+    private final String lastModified;
+    private final List<Entry> entries;
+    private final Set<String> mediaPackageIds;
+    private final Supplier<Calendar> newCalendar;
+
+    /** The last rendered calendar and the entries it contains */
+    private volatile Rendered rendered;
+
+    /**
+     * Create a schedule.
+     *
+     * @param lastModified
+     *          the last modified tag of the capture agent the schedule was loaded for
+     * @param entries
+     *          the calendar entries
+     * @param newCalendar
+     *          creates an empty calendar to render the entries into
+     */
+    Schedule(String lastModified, List<Entry> entries, Supplier<Calendar> newCalendar) {
+      this.lastModified = lastModified;
+      this.entries = new ArrayList<>(entries);
+      this.entries.sort(Comparator.comparingLong(e -> e.start));
+      this.mediaPackageIds = entries.stream().map(Entry::getMediaPackageId)
+          .collect(Collectors.toCollection(HashSet::new));
+      this.newCalendar = newCalendar;
+    }
+
+    /**
+     * Render the calendar for the given filter. Since the calendar only changes if an event is added to or removed
+     * from the schedule or passes, the last rendered calendar is returned as long as it contains the same entries.
+     *
+     * @param seriesId
+     *          only include events of this series
+     * @param cutoff
+     *          only include events starting before this date
+     * @param now
+     *          the current time
+     * @return the iCalendar
+     * @throws Exception
+     *           if the calendar does not validate
+     */
+    String render(Opt<String> seriesId, Opt<Date> cutoff, long now) throws Exception {
+      final long startsBefore = cutoff.isSome() ? cutoff.get().getTime() : Long.MAX_VALUE;
+      final List<Entry> included = new ArrayList<>();
+      for (Entry entry : entries) {
+        if (entry.start >= startsBefore) {
+          break;
+        }
+        if (entry.end + PASSED_EVENT_MARGIN >= now
+            && (seriesId.isNone() || Objects.equals(seriesId.get(), entry.seriesId))) {
+          included.add(entry);
+        }
+      }
+
+      final Rendered last = rendered;
+      if (last != null && last.entries.equals(included)) {
+        return last.calendar;
+      }
+
+      final Calendar calendar = newCalendar.get();
+      for (Entry entry : included) {
+        calendar.getComponents().add(entry.event);
+      }
+      // Only validate calendars with events. Without any events, the iCalendar won't validate
+      if (!included.isEmpty()) {
+        calendar.validate();
+      }
+      final String result = calendar.toString();
+      rendered = new Rendered(Collections.unmodifiableList(included), result);
+      return result;
+    }
+  }
+
+  private static final class Rendered {
+    private final List<Entry> entries;
+    private final String calendar;
+
+    Rendered(List<Entry> entries, String calendar) {
+      this.entries = entries;
+      this.calendar = calendar;
+    }
+  }
+
+}
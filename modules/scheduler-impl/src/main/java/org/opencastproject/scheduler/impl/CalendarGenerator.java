@@ -123,6 +123,35 @@ public class CalendarGenerator {
    */
   public boolean addEvent(MediaPackage mp, DublinCoreCatalog catalog, String agentId, Date start, Date end,
           Date lastModified, String captureAgentMetadata) {
+    VEvent event = createEvent(mp, catalog, agentId, start, end, lastModified, captureAgentMetadata);
+    if (event == null) {
+      return false;
+    }
+
+    cal.getComponents().add(event);
+
+    logger.debug("new VEvent = {} ", event.toString());
+    return true;
+  }
+
+  /**
+   * Creates the iCalendar entry of a scheduled event without adding it to this iCalendar.
+   *
+   * @param mp
+   *          {@link MediaPackage} of event
+   * @param agentId
+   *          the agent identifier
+   * @param start
+   *          the start date
+   * @param end
+   *          the end date
+   * @param captureAgentMetadata
+   *          properties for capture agent metadata
+   *
+   * @return the entry or null if the event has already passed or the entry could not be created
+   */
+  public VEvent createEvent(MediaPackage mp, DublinCoreCatalog catalog, String agentId, Date start, Date end,
+          Date lastModified, String captureAgentMetadata) {
     String eventId = mp.getIdentifier().toString();
 
     logger.debug("Creating iCalendar VEvent from scheduled event '{}'", eventId);
@@ -132,7 +161,7 @@ public class CalendarGenerator {
     Date marginEndDate = new org.joda.time.DateTime(endDate.getTime()).plusHours(1).toDate();
     if (marginEndDate.before(new Date())) {
       logger.debug("Event has already passed more than an hour, skipping!");
-      return false;
+      return null;
     }
     startDate.setUtc(true);
     endDate.setUtc(true);
@@ -187,13 +216,10 @@ public class CalendarGenerator {
 
     } catch (Exception e) {
       logger.error("Unable to add event '{}' to recording calendar", eventId, e);
-      return false;
+      return null;
     }
 
-    cal.getComponents().add(event);
-
-    logger.debug("new VEvent = {} ", event.toString());
-    return true;
+    return event;
   }
 
   /**
@@ -0,0 +1,154 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.scheduler.impl;
+
+import org.opencastproject.scheduler.impl.persistence.ExtendedEventDto;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory index over the existing bookings of a set of capture agents, used to check many candidate periods for
+ * conflicts after loading the bookings with a single database query.
+ * <p>
+ * Bookings are kept sorted by start date per capture agent together with the running maximum of their end dates. A
+ * lookup binary searches for the last booking starting before the end of the checked interval and walks backwards
+ * only as long as an earlier booking could still reach into the interval. Checking a period therefore costs
+ * {@code O(log n + k)} for {@code k} conflicts, even with long bookings spanning many shorter ones.
+ * <p>
+ * A booking conflicts with an interval under the same rule as
+ * {@link SchedulerServiceDatabase#getEvents(String, Date, Date, int)}: it has to start before the end and end after
+ * the start of the interval, both extended by the minimum separation between events.
+ */
+final class ConflictIndex {
+
+  /** The bookings per capture agent */
+  private final Map<String, Bookings> bookings;
+
+  /** Number of milliseconds to prepend and append to a checked interval */
+  private final long separationMillis;
+
+  private ConflictIndex(Map<String, Bookings> bookings, long separationMillis) {
+    this.bookings = bookings;
+    this.separationMillis = separationMillis;
+  }
+
+  /**
+   * Build an index over the given bookings.
+   *
+   * @param events
+   *          the existing bookings, in any order and of any number of capture agents
+   * @param separationMillis
+   *          the minimum separation between two events in milliseconds
+   * @return the index
+   */
+  static ConflictIndex of(Collection<ExtendedEventDto> events, long separationMillis) {
+    final Map<String, Bookings> bookings = events.stream()
+        .filter(e -> e.getCaptureAgentId() != null && e.getStartDate() != null && e.getEndDate() != null)
+        .collect(Collectors.groupingBy(ExtendedEventDto::getCaptureAgentId, HashMap::new,
+            Collectors.collectingAndThen(Collectors.toList(), Bookings::new)));
+    return new ConflictIndex(bookings, separationMillis);
+  }
+
+  /**
+   * Find the bookings of a capture agent conflicting with the given interval.
+   *
+   * @param captureAgentId
+   *          the capture agent to check
+   * @param start
+   *          the start of the interval
+   * @param end
+   *          the end of the interval
+   * @return the media package identifiers of the conflicting bookings, ordered by start date
+   */
+  List<String> findConflicts(String captureAgentId, Date start, Date end) {
+    final Bookings agentBookings = bookings.get(captureAgentId);
+    if (agentBookings == null) {
+      return new ArrayList<>();
+    }
+    return agentBookings.overlapping(start.getTime() - separationMillis, end.getTime() + separationMillis);
+  }
+
+  /** @return the number of indexed bookings */
+  int size() {
+    return bookings.values().stream().mapToInt(b -> b.ids.length).sum();
+  }
+
+  /** The bookings of a single capture agent, sorted by start date. */
+  private static final class Bookings {
+    private final String[] ids;
+    private final long[] starts;
+    private final long[] ends;
+    /** Running maximum of {@link #ends} */
+    private final long[] maxEnds;
+
+    Bookings(List<ExtendedEventDto> events) {
+      events.sort(Comparator.comparing(ExtendedEventDto::getStartDate));
+      final int size = events.size();
+      ids = new String[size];
+      starts = new long[size];
+      ends = new long[size];
+      maxEnds = new long[size];
+      long maxEnd = Long.MIN_VALUE;
+      for (int i = 0; i < size; i++) {
+        final ExtendedEventDto event = events.get(i);
+        ids[i] = event.getMediaPackageId();
+        starts[i] = event.getStartDate().getTime();
+        ends[i] = event.getEndDate().getTime();
+        maxEnd = Math.max(maxEnd, ends[i]);
+        maxEnds[i] = maxEnd;
+      }
+    }
+
+    /** Return the bookings with {@code booking.start < end && booking.end > start}, ordered by start date. */
+    List<String> overlapping(long start, long end) {
+      // Index of the first booking starting at or after the end of the interval
+      int low = 0;
+      int high = starts.length;
+      while (low < high) {
+        final int mid = (low + high) >>> 1;
+        if (starts[mid] < end) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      final List<String> result = new ArrayList<>();
+      for (int i = low - 1; i >= 0 && maxEnds[i] > start; i--) {
+        if (ends[i] > start) {
+          result.add(ids[i]);
+        }
+      }
+      Collections.reverse(result);
+      return result;
+    }
+  }
+
+}
@@ -26,6 +26,7 @@ import org.opencastproject.util.NotFoundException;
 
 import com.entwinemedia.fn.data.Opt;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -135,6 +136,26 @@ public interface SchedulerServiceDatabase {
    */
   List<String> getEvents(String captureAgentId, Date start, Date end, int separationMillis) throws SchedulerServiceDatabaseException;
 
+  /**
+   * Get all events scheduled on any of the given capture agents between the given start/end time. This is the bulk
+   * variant of {@link #getEvents(String, Date, Date, int)} meant for checking many periods or capture agents against
+   * the existing bookings with a single round trip. The results are ordered by start date ascending.
+   *
+   * @param captureAgentIds
+   *          the IDs of the capture agents to check
+   * @param start
+   *          the start date of the interval to check
+   * @param end
+   *          the end date of the interval to check
+   * @param separationMillis
+   *          number of milliseconds to prepend and append to given interval
+   * @return The events between start and end scheduled on any of the given capture agents.
+   * @throws SchedulerServiceDatabaseException
+   *           If the database cannot be queried.
+   */
+  List<ExtendedEventDto> getEvents(Collection<String> captureAgentIds, Date start, Date end, int separationMillis)
+          throws SchedulerServiceDatabaseException;
+
   /**
    * Retrieve all events matching given filter ordered by start time ascending.
    *
@@ -88,6 +88,7 @@ import org.opencastproject.security.api.AccessControlUtil;
 import org.opencastproject.security.api.AuthorizationService;
 import org.opencastproject.security.api.Organization;
 import org.opencastproject.security.api.OrganizationDirectoryService;
+import org.opencastproject.security.api.Role;
 import org.opencastproject.security.api.SecurityService;
 import org.opencastproject.security.api.UnauthorizedException;
 import org.opencastproject.security.api.User;
@@ -114,6 +115,7 @@ import com.google.gson.reflect.TypeToken;
 import net.fortuna.ical4j.model.Period;
 import net.fortuna.ical4j.model.TimeZoneRegistry;
 import net.fortuna.ical4j.model.TimeZoneRegistryFactory;
+import net.fortuna.ical4j.model.component.VEvent;
 import net.fortuna.ical4j.model.property.RRule;
 
 import org.apache.commons.io.IOUtils;
@@ -144,6 +146,7 @@ import java.util.Date;
 import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -182,6 +185,18 @@ public class SchedulerServiceImpl extends AbstractIndexProducer implements Sched
   /** The default cache expire time in seconds */
   private static final int DEFAULT_CACHE_EXPIRE = 60;
 
+  /** The calendar cache size configuration key */
+  private static final String CFG_KEY_CALENDAR_CACHE_SIZE = "calendar_cache_size";
+
+  /** The calendar cache expire configuration key */
+  private static final String CFG_KEY_CALENDAR_CACHE_EXPIRE = "calendar_cache_expire";
+
+  /** The default number of capture agents to cache the calendar of */
+  private static final int DEFAULT_CALENDAR_CACHE_SIZE = 1000;
+
+  /** The default time in seconds after which cached calendars are generated again */
+  private static final int DEFAULT_CALENDAR_CACHE_EXPIRE = 3600;
+
   /** The Etag for an empty calendar */
   private static final String EMPTY_CALENDAR_ETAG = "mod0";
 
@@ -205,6 +220,10 @@ public class SchedulerServiceImpl extends AbstractIndexProducer implements Sched
   protected Cache<String, String> lastModifiedCache = CacheBuilder.newBuilder()
           .expireAfterWrite(DEFAULT_CACHE_EXPIRE, TimeUnit.SECONDS).build();
 
+  /** The calendar cache, or null if calendars are not cached */
+  private volatile CalendarCache calendarCache = new CalendarCache(DEFAULT_CALENDAR_CACHE_SIZE,
+          DEFAULT_CALENDAR_CACHE_EXPIRE);
+
   /** Persistent storage for events */
   private SchedulerServiceDatabase persistence;
 
@@ -329,6 +348,7 @@ public class SchedulerServiceImpl extends AbstractIndexProducer implements Sched
       } catch (InterruptedException e) { /* swallow this, nothing to do */ }
     }
     String mpid = list.getId();
+    invalidateCalendars(mpid, list);
     for (SchedulerItem item : list.getItems()) {
       for (SchedulerUpdateHandler handler : this.schedulerUpdateHandlers) {
         handler.execute(mpid, item);
@@ -336,6 +356,41 @@ public class SchedulerServiceImpl extends AbstractIndexProducer implements Sched
     }
   }
 
+  /**
+   * Drop the cached calendars affected by the given scheduler changes.
+   *
+   * @param mpid
+   *          the media package the changes belong to
+   * @param list
+   *          the scheduler changes
+   */
+  private void invalidateCalendars(String mpid, SchedulerItemList list) {
+    final CalendarCache cache = calendarCache;
+    if (cache == null) {
+      return;
+    }
+    final Organization organization = securityService.getOrganization();
+    if (organization == null) {
+      cache.invalidateAll();
+      return;
+    }
+    final String orgId = organization.getId();
+    for (SchedulerItem item : list.getItems()) {
+      switch (item.getType()) {
+        case UpdateRecordingStatus:
+        case DeleteRecordingStatus:
+          // The recording state is not part of the calendar
+          break;
+        case UpdateAgentId:
+          cache.invalidateAgent(orgId, item.getAgentId());
+          cache.invalidateEvent(orgId, mpid);
+          break;
+        default:
+          cache.invalidateEvent(orgId, mpid);
+      }
+    }
+  }
+
   /**
    * OSGi callback to set the organization directory service.
    *
@@ -398,6 +453,18 @@ public class SchedulerServiceImpl extends AbstractIndexProducer implements Sched
       } else {
         logger.info("Set last modified cache to default {}", DateTimeSupport.humanReadableTime(DEFAULT_CACHE_EXPIRE));
       }
+      final int calendarCacheSize = OsgiUtil.getOptCfg(properties, CFG_KEY_CALENDAR_CACHE_SIZE).bind(Strings.toInt)
+              .getOrElse(DEFAULT_CALENDAR_CACHE_SIZE);
+      final int calendarCacheExpire = OsgiUtil.getOptCfg(properties, CFG_KEY_CALENDAR_CACHE_EXPIRE)
+              .bind(Strings.toInt).getOrElse(DEFAULT_CALENDAR_CACHE_EXPIRE);
+      if (calendarCacheSize > 0) {
+        calendarCache = new CalendarCache(calendarCacheSize, calendarCacheExpire);
+        logger.info("Caching the calendars of up to {} capture agents for {}", calendarCacheSize,
+                DateTimeSupport.humanReadableTime(calendarCacheExpire));
+      } else {
+        calendarCache = null;
+        logger.info("Calendar cache is disabled");
+      }
       final Option<Boolean> maintenance = OsgiUtil.getOptCfgAsBoolean(properties, CFG_KEY_MAINTENANCE);
       if (maintenance.getOrElse(false)) {
         final String name = SchedulerServiceImpl.class.getName();
@@ -1108,8 +1175,8 @@ public class SchedulerServiceImpl extends AbstractIndexProducer implements Sched
   private boolean checkPeriodOverlap(final List<Period> periods) {
     final List<Period> sortedPeriods = new ArrayList<>(periods);
     sortedPeriods.sort(Comparator.comparing(Period::getStart));
-    Period prior = periods.get(0);
-    for (Period current : periods.subList(1, periods.size())) {
+    Period prior = sortedPeriods.get(0);
+    for (Period current : sortedPeriods.subList(1, sortedPeriods.size())) {
       if (current.getStart().compareTo(prior.getEnd()) < 0) {
         return true;
       }
@@ -1133,18 +1200,76 @@ public class SchedulerServiceImpl extends AbstractIndexProducer implements Sched
 
     try {
       TimeZoneRegistry registry = TimeZoneRegistryFactory.getInstance().createRegistry();
-
-      Set<MediaPackage> events = new HashSet<>();
-
       for (Period event : periods) {
         event.setTimeZone(registry.getTimeZone(tz.getID()));
-        final Date startDate = event.getStart();
-        final Date endDate = event.getEnd();
+      }
+    } catch (Exception e) {
+      throw new SchedulerException(e);
+    }
 
-        events.addAll(findConflictingEvents(captureAgentId, startDate, endDate));
+    return findConflictingEvents(Collections.singletonMap(captureAgentId, periods))
+        .getOrDefault(captureAgentId, Collections.emptyList());
+  }
+
+  /**
+   * Find the existing events conflicting with the given periods of one or more capture agents. Instead of querying the
+   * database once per period, the bookings of all capture agents over the whole span of the periods are loaded with a
+   * single query and every period is checked against them in memory.
+   *
+   * @param periodsByAgent
+   *          the periods to check per capture agent
+   * @return the conflicting events per capture agent, only containing capture agents with conflicts
+   * @throws SchedulerException
+   *           if the bookings cannot be loaded
+   */
+  private Map<String, List<MediaPackage>> findConflictingEvents(Map<String, List<Period>> periodsByAgent)
+          throws SchedulerException {
+    long spanStart = Long.MAX_VALUE;
+    long spanEnd = Long.MIN_VALUE;
+    for (List<Period> periods : periodsByAgent.values()) {
+      for (Period period : periods) {
+        spanStart = Math.min(spanStart, period.getStart().getTime());
+        spanEnd = Math.max(spanEnd, period.getEnd().getTime());
       }
+    }
+    if (spanStart > spanEnd) {
+      return Collections.emptyMap();
+    }
+    final Date from = new Date(spanStart);
+    final Date to = new Date(spanEnd);
+
+    try {
+      final Organization organization = securityService.getOrganization();
+      final User user = SecurityUtil.createSystemUser(systemUserName, organization);
+      final Map<String, List<MediaPackage>> conflicts = new HashMap<>();
+
+      SecurityUtil.runAs(securityService, organization, user, () -> {
+        final ConflictIndex index;
+        try {
+          index = ConflictIndex.of(
+              persistence.getEvents(periodsByAgent.keySet(), from, to, Util.EVENT_MINIMUM_SEPARATION_MILLISECONDS),
+              Util.EVENT_MINIMUM_SEPARATION_MILLISECONDS);
+        } catch (SchedulerServiceDatabaseException e) {
+          Misc.chuck(e);
+          return;
+        }
+
+        // Resolve every conflicting event only once, even if it conflicts with several periods
+        final Map<String, MediaPackage> mediaPackages = new HashMap<>();
+        periodsByAgent.forEach((agentId, periods) -> {
+          final Set<String> ids = new LinkedHashSet<>();
+          for (Period period : periods) {
+            ids.addAll(index.findConflicts(agentId, period.getStart(), period.getEnd()));
+          }
+          if (!ids.isEmpty()) {
+            conflicts.put(agentId, ids.stream()
+                .map(id -> mediaPackages.computeIfAbsent(id, mpId -> getEventMediaPackage(mpId, false)))
+                .collect(Collectors.toList()));
+          }
+        });
+      });
 
-      return new ArrayList<>(events);
+      return conflicts;
     } catch (Exception e) {
       throw new SchedulerException(e);
     }
@@ -1153,16 +1278,75 @@ public class SchedulerServiceImpl extends AbstractIndexProducer implements Sched
   @Override
   public String getCalendar(Opt<String> captureAgentId, Opt<String> seriesId, Opt<Date> cutoff)
           throws SchedulerException {
+    final CalendarCache cache = calendarCache;
+    if (captureAgentId.isNone() || cache == null) {
+      return generateCalendar(captureAgentId, seriesId, cutoff);
+    }
+
+    try {
+      final String orgId = securityService.getOrganization().getId();
+      final String agentId = captureAgentId.get();
+      final List<String> roles = securityService.getUser().getRoles().stream()
+          .map(Role::getName)
+          .collect(Collectors.toList());
+      // Get the tag before loading the schedule, so that changes made while loading it are not missed
+      final String lastModified = getScheduleLastModified(agentId);
+      CalendarCache.Schedule schedule = cache.getSchedule(orgId, agentId, roles, lastModified);
+      if (schedule == null) {
+        schedule = loadSchedule(cache, orgId, agentId, lastModified);
+        cache.putSchedule(orgId, agentId, roles, schedule);
+      }
+      return schedule.render(seriesId, cutoff, System.currentTimeMillis());
+    } catch (Exception e) {
+      throw new SchedulerException(e);
+    }
+  }
+
+  /**
+   * Load the upcoming events of a capture agent for the calendar cache. Calendar entries of events which have not
+   * changed since they were last loaded are taken from the cache instead of being generated again.
+   */
+  private CalendarCache.Schedule loadSchedule(CalendarCache cache, String orgId, String agentId, String lastModified)
+          throws Exception {
+    final Map<String, ExtendedEventDto> searchResult = persistence.search(Opt.some(agentId), Opt.none(), Opt.none(),
+        Opt.some(DateTime.now().minusHours(1).toDate()), Opt.none(), Opt.none()).stream()
+        .collect(Collectors.toMap(ExtendedEventDto::getMediaPackageId, Function.identity()));
+    final AResult result = selectCalendarSnapshots(searchResult.keySet());
+
+    final CalendarGenerator generator = new CalendarGenerator(seriesService);
+    final List<CalendarCache.Entry> entries = new ArrayList<>();
+    for (final ARecord record : result.getRecords()) {
+      if (record.getSnapshot().isEmpty()) {
+        logger.warn("Mediapackage for event '{}' can't be found, event is not recorded", record.getMediaPackageId());
+        continue;
+      }
+      final Snapshot snapshot = record.getSnapshot().get();
+      final ExtendedEventDto event = searchResult.get(record.getMediaPackageId());
+      final String fingerprint = snapshot.getVersion() + "|" + event.getCaptureAgentId() + "|"
+          + event.getStartDate().getTime() + "|" + event.getEndDate().getTime() + "|"
+          + event.getCaptureAgentProperties();
+      final CalendarCache.Entry entry = cache.getEntry(orgId, record.getMediaPackageId(), fingerprint, () -> {
+        final VEvent vEvent = createCalendarEvent(generator, snapshot, event);
+        return vEvent == null
+            ? null
+            : new CalendarCache.Entry(record.getMediaPackageId(), snapshot.getMediaPackage().getSeries(),
+                event.getStartDate(), event.getEndDate(), fingerprint, vEvent);
+      });
+      if (entry != null) {
+        entries.add(entry);
+      }
+    }
+    return new CalendarCache.Schedule(lastModified, entries, () -> new CalendarGenerator(seriesService).getCalendar());
+  }
+
+  private String generateCalendar(Opt<String> captureAgentId, Opt<String> seriesId, Opt<Date> cutoff)
+          throws SchedulerException {
 
     try {
       final Map<String, ExtendedEventDto> searchResult = persistence.search(captureAgentId, Opt.none(), cutoff,
           Opt.some(DateTime.now().minusHours(1).toDate()), Opt.none(), Opt.none()).stream()
           .collect(Collectors.toMap(ExtendedEventDto::getMediaPackageId, Function.identity()));
-      final AQueryBuilder query = assetManager.createQuery();
-      final AResult result = query.select(query.snapshot())
-          .where(withOrganization(query).and(query.mediaPackageIds(searchResult.keySet().toArray(new String[0])))
-              .and(withOwner(query)).and(query.version().isLatest()))
-          .run();
+      final AResult result = selectCalendarSnapshots(searchResult.keySet());
 
       final CalendarGenerator cal = new CalendarGenerator(seriesService);
       for (final ARecord record : result.getRecords()) {
@@ -1180,30 +1364,10 @@ public class SchedulerServiceImpl extends AbstractIndexProducer implements Sched
           continue;
         }
 
-        Opt<DublinCoreCatalog> catalogOpt = loadEpisodeDublinCoreFromAsset(record.getSnapshot().get());
-        if (catalogOpt.isNone()) {
-          logger.warn("No episode catalog available, skipping!");
-          continue;
-        }
-
-        final Map<String, String> caMetadata = deserializeExtendedEventProperties(searchResult.get(record.getMediaPackageId()).getCaptureAgentProperties());
-
-        // If the even properties are empty, skip the event
-        if (caMetadata.isEmpty()) {
-          logger.warn("Properties for event '{}' can't be found, event is not recorded", record.getMediaPackageId());
-          continue;
-        }
-
-        final String agentId = searchResult.get(record.getMediaPackageId()).getCaptureAgentId();
-        final Date start = searchResult.get(record.getMediaPackageId()).getStartDate();
-        final Date end = searchResult.get(record.getMediaPackageId()).getEndDate();
-        final Date lastModified = record.getSnapshot().get().getArchivalDate();
-
-        // Add the entry to the calendar, skip it with a warning if adding fails
-        try {
-          cal.addEvent(optMp.get(), catalogOpt.get(), agentId, start, end, lastModified, toPropertyString(caMetadata));
-        } catch (Exception e) {
-          logger.warn("Error adding event '{}' to calendar, event is not recorded", record.getMediaPackageId(), e);
+        final VEvent event = createCalendarEvent(cal, record.getSnapshot().get(),
+            searchResult.get(record.getMediaPackageId()));
+        if (event != null) {
+          cal.getCalendar().getComponents().add(event);
         }
       }
 
@@ -1219,6 +1383,46 @@ public class SchedulerServiceImpl extends AbstractIndexProducer implements Sched
     }
   }
 
+  /** Select the latest scheduler snapshots of the given events. */
+  private AResult selectCalendarSnapshots(Set<String> mediaPackageIds) {
+    final AQueryBuilder query = assetManager.createQuery();
+    return query.select(query.snapshot())
+        .where(withOrganization(query).and(query.mediaPackageIds(mediaPackageIds.toArray(new String[0])))
+            .and(withOwner(query)).and(query.version().isLatest()))
+        .run();
+  }
+
+  /**
+   * Create the calendar entry of a scheduled event.
+   *
+   * @return the calendar entry or null if the event cannot be recorded
+   */
+  private VEvent createCalendarEvent(CalendarGenerator cal, Snapshot snapshot, ExtendedEventDto event) {
+    final String mediaPackageId = event.getMediaPackageId();
+    Opt<DublinCoreCatalog> catalogOpt = loadEpisodeDublinCoreFromAsset(snapshot);
+    if (catalogOpt.isNone()) {
+      logger.warn("No episode catalog available, skipping!");
+      return null;
+    }
+
+    final Map<String, String> caMetadata = deserializeExtendedEventProperties(event.getCaptureAgentProperties());
+
+    // If the even properties are empty, skip the event
+    if (caMetadata.isEmpty()) {
+      logger.warn("Properties for event '{}' can't be found, event is not recorded", mediaPackageId);
+      return null;
+    }
+
+    // Create the entry, skip it with a warning if that fails
+    try {
+      return cal.createEvent(snapshot.getMediaPackage(), catalogOpt.get(), event.getCaptureAgentId(),
+          event.getStartDate(), event.getEndDate(), snapshot.getArchivalDate(), toPropertyString(caMetadata));
+    } catch (Exception e) {
+      logger.warn("Error adding event '{}' to calendar, event is not recorded", mediaPackageId, e);
+      return null;
+    }
+  }
+
   @Override
   public String getScheduleLastModified(String captureAgentId) throws SchedulerException {
     notEmpty(captureAgentId, "captureAgentId");
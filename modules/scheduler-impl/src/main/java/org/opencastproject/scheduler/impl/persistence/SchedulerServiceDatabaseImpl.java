@@ -31,6 +31,7 @@ import org.opencastproject.security.api.SecurityService;
 import org.opencastproject.util.NotFoundException;
 
 import com.entwinemedia.fn.data.Opt;
+import com.google.common.collect.Lists;
 import com.google.gson.Gson;
 
 import org.apache.commons.lang3.tuple.Pair;
@@ -42,6 +43,9 @@ import org.osgi.service.component.annotations.Reference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -68,6 +72,9 @@ public class SchedulerServiceDatabaseImpl implements SchedulerServiceDatabase {
   /** Logging utilities */
   private static final Logger logger = LoggerFactory.getLogger(SchedulerServiceDatabaseImpl.class);
 
+  /** Maximum number of capture agents to look up within a single IN clause */
+  private static final int MAX_AGENTS_PER_QUERY = 500;
+
   /** Factory used to create {@link EntityManager}s for transactions */
   private EntityManagerFactory emf;
 
@@ -233,6 +240,34 @@ public class SchedulerServiceDatabaseImpl implements SchedulerServiceDatabase {
     }
   }
 
+  @Override
+  public List<ExtendedEventDto> getEvents(Collection<String> captureAgentIds, Date start, Date end,
+      int separationMillis) throws SchedulerServiceDatabaseException {
+    if (captureAgentIds.isEmpty()) {
+      return Collections.emptyList();
+    }
+    final Date extendedStart = Date.from(start.toInstant().minusMillis(separationMillis));
+    final Date extendedEnd = Date.from(end.toInstant().plusMillis(separationMillis));
+    final String orgId = securityService.getOrganization().getId();
+    try {
+      // Keep the IN clause within the limits of all supported databases
+      final List<ExtendedEventDto> events = new ArrayList<>();
+      for (List<String> agents : Lists.partition(new ArrayList<>(captureAgentIds), MAX_AGENTS_PER_QUERY)) {
+        events.addAll(db.exec(namedQuery.findAll(
+            "ExtendedEvent.findEventsOfAgents",
+            ExtendedEventDto.class,
+            Pair.of("org", orgId),
+            Pair.of("cas", agents),
+            Pair.of("start", extendedStart),
+            Pair.of("end", extendedEnd)
+        )));
+      }
+      return events;
+    } catch (Exception e) {
+      throw new SchedulerServiceDatabaseException(e);
+    }
+  }
+
   @Override
   public List<ExtendedEventDto> search(
       Opt<String> captureAgentId,
@@ -0,0 +1,180 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.scheduler.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.entwinemedia.fn.data.Opt;
+
+import net.fortuna.ical4j.model.Calendar;
+import net.fortuna.ical4j.model.DateTime;
+import net.fortuna.ical4j.model.component.VEvent;
+import net.fortuna.ical4j.model.property.ProdId;
+import net.fortuna.ical4j.model.property.Uid;
+import net.fortuna.ical4j.model.property.Version;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CalendarCacheTest {
+
+  private static final String ORG = "org";
+  private static final String AGENT = "agent";
+  private static final List<String> ROLES = Collections.singletonList("ROLE_CAPTURE_AGENT");
+  private static final long HOUR = 3600_000L;
+
+  private CalendarCache cache;
+  private long now;
+
+  @Before
+  public void setUp() {
+    cache = new CalendarCache(10, 3600);
+    now = System.currentTimeMillis();
+  }
+
+  private static CalendarCache.Entry entry(String id, String seriesId, long start, long end, String fingerprint) {
+    DateTime startDate = new DateTime(start);
+    startDate.setUtc(true);
+    DateTime endDate = new DateTime(end);
+    endDate.setUtc(true);
+    VEvent event = new VEvent(startDate, endDate, id);
+    event.getProperties().add(new Uid(id));
+    return new CalendarCache.Entry(id, seriesId, new Date(start), new Date(end), fingerprint, event);
+  }
+
+  private CalendarCache.Schedule schedule(String lastModified, CalendarCache.Entry... entries) {
+    return new CalendarCache.Schedule(lastModified, Arrays.asList(entries), () -> {
+      Calendar calendar = new Calendar();
+      calendar.getProperties().add(new ProdId("test"));
+      calendar.getProperties().add(Version.VERSION_2_0);
+      return calendar;
+    });
+  }
+
+  @Test
+  public void testScheduleIsKeyedOnLastModified() {
+    CalendarCache.Schedule schedule = schedule("mod1");
+    cache.putSchedule(ORG, AGENT, ROLES, schedule);
+
+    assertSame(schedule, cache.getSchedule(ORG, AGENT, ROLES, "mod1"));
+    assertNull(cache.getSchedule(ORG, AGENT, ROLES, "mod2"));
+    assertNull(cache.getSchedule(ORG, AGENT, Collections.singletonList("ROLE_ADMIN"), "mod1"));
+    assertNull(cache.getSchedule("other", AGENT, ROLES, "mod1"));
+  }
+
+  @Test
+  public void testRender() throws Exception {
+    CalendarCache.Schedule schedule = schedule("mod1",
+        entry("passed", "series1", now - 4 * HOUR, now - 2 * HOUR, "1"),
+        entry("later", "series2", now + 48 * HOUR, now + 49 * HOUR, "1"),
+        entry("running", "series1", now - HOUR, now + HOUR, "1"));
+
+    String calendar = schedule.render(Opt.none(), Opt.none(), now);
+    assertFalse(calendar.contains("UID:passed"));
+    assertTrue(calendar.contains("UID:running"));
+    assertTrue(calendar.contains("UID:later"));
+    assertTrue(calendar.indexOf("UID:running") < calendar.indexOf("UID:later"));
+
+    calendar = schedule.render(Opt.none(), Opt.some(new Date(now + 24 * HOUR)), now);
+    assertTrue(calendar.contains("UID:running"));
+    assertFalse(calendar.contains("UID:later"));
+
+    calendar = schedule.render(Opt.some("series2"), Opt.none(), now);
+    assertFalse(calendar.contains("UID:running"));
+    assertTrue(calendar.contains("UID:later"));
+
+    // Without events, the calendar is still rendered
+    calendar = schedule.render(Opt.some("series3"), Opt.none(), now);
+    assertTrue(calendar.startsWith("BEGIN:VCALENDAR"));
+    assertFalse(calendar.contains("BEGIN:VEVENT"));
+  }
+
+  @Test
+  public void testRenderReusesCalendarWithSameEvents() throws Exception {
+    CalendarCache.Schedule schedule = schedule("mod1", entry("a", null, now + HOUR, now + 2 * HOUR, "1"));
+
+    String first = schedule.render(Opt.none(), Opt.some(new Date(now + 24 * HOUR)), now);
+    // Agents move the cutoff with every poll
+    assertSame(first, schedule.render(Opt.none(), Opt.some(new Date(now + 25 * HOUR)), now + HOUR));
+    // Once the event passed, the calendar changes
+    String passed = schedule.render(Opt.none(), Opt.some(new Date(now + 26 * HOUR)), now + 4 * HOUR);
+    assertFalse(passed.contains("UID:a"));
+  }
+
+  @Test
+  public void testEntriesAreGeneratedOncePerFingerprint() {
+    AtomicInteger generated = new AtomicInteger();
+    CalendarCache.Entry first = cache.getEntry(ORG, "a", "v1", () -> {
+      generated.incrementAndGet();
+      return entry("a", null, now, now + HOUR, "v1");
+    });
+    CalendarCache.Entry second = cache.getEntry(ORG, "a", "v1", () -> {
+      generated.incrementAndGet();
+      return entry("a", null, now, now + HOUR, "v1");
+    });
+    assertSame(first, second);
+    assertEquals(1, generated.get());
+
+    CalendarCache.Entry changed = cache.getEntry(ORG, "a", "v2", () -> {
+      generated.incrementAndGet();
+      return entry("a", null, now, now + 2 * HOUR, "v2");
+    });
+    assertNotNull(changed);
+    assertEquals(2, generated.get());
+
+    assertNull(cache.getEntry(ORG, "b", "v1", () -> null));
+  }
+
+  @Test
+  public void testInvalidateEvent() {
+    CalendarCache.Entry a = entry("a", null, now, now + HOUR, "v1");
+    cache.getEntry(ORG, "a", "v1", () -> a);
+    cache.putSchedule(ORG, AGENT, ROLES, schedule("mod1", a));
+    cache.putSchedule(ORG, "other", ROLES, schedule("mod1"));
+
+    cache.invalidateEvent(ORG, "a");
+    assertNull(cache.getSchedule(ORG, AGENT, ROLES, "mod1"));
+    assertNotNull(cache.getSchedule(ORG, "other", ROLES, "mod1"));
+    AtomicInteger generated = new AtomicInteger();
+    cache.getEntry(ORG, "a", "v1", () -> {
+      generated.incrementAndGet();
+      return a;
+    });
+    assertEquals(1, generated.get());
+
+    cache.invalidateAgent(ORG, "other");
+    assertNull(cache.getSchedule(ORG, "other", ROLES, "mod1"));
+  }
+
+}
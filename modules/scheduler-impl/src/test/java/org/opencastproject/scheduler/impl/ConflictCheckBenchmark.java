@@ -0,0 +1,221 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.scheduler.impl;
+
+import static org.opencastproject.db.DBTestEnv.getDbSessionFactory;
+import static org.opencastproject.db.DBTestEnv.newEntityManagerFactory;
+
+import org.opencastproject.scheduler.api.Util;
+import org.opencastproject.scheduler.impl.persistence.ExtendedEventDto;
+import org.opencastproject.scheduler.impl.persistence.SchedulerServiceDatabaseImpl;
+import org.opencastproject.security.api.DefaultOrganization;
+import org.opencastproject.security.api.SecurityService;
+
+import org.easymock.EasyMock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Measures conflict detection for recurring events on a campus calendar against an embedded database, checking every
+ * period with its own query and checking all periods against bookings loaded once into a {@link ConflictIndex}.
+ * <p>
+ * Every room has a semester of weekly lectures booked. The benchmark then checks another weekly lecture series for
+ * every room, half of which overlap with existing bookings.
+ * <p>
+ * This is not run as part of the unit tests. Run it with the test classpath, optionally passing the number of rooms,
+ * weeks and lectures per room and week, e.g. <code>ConflictCheckBenchmark 1000 15 4</code>.
+ */
+public final class ConflictCheckBenchmark {
+
+  private static final Logger logger = LoggerFactory.getLogger(ConflictCheckBenchmark.class);
+
+  private static final long HOUR = 3600_000L;
+  private static final long DAY = 24 * HOUR;
+  private static final long WEEK = 7 * DAY;
+
+  /** Semester start, 2025-10-06T00:00:00Z */
+  private static final long SEMESTER_START = 1759708800000L;
+
+  private ConflictCheckBenchmark() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    int rooms = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+    int weeks = args.length > 1 ? Integer.parseInt(args[1]) : 15;
+    int lectures = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+
+    EntityManagerFactory emf = newEntityManagerFactory(SchedulerServiceDatabaseImpl.PERSISTENCE_UNIT);
+    SchedulerServiceDatabaseImpl persistence = createPersistence(emf);
+    book(emf, rooms, weeks, lectures);
+
+    // The series to check: one more lecture per week, starting half an hour into an existing lecture in every other
+    // room and right after the last one in all other rooms
+    Map<String, List<Date[]>> periodsByRoom = new HashMap<>();
+    for (int room = 0; room < rooms; room++) {
+      long offset = room % 2 == 0 ? HOUR / 2 : lectures * 2 * HOUR;
+      List<Date[]> periods = new ArrayList<>();
+      for (int week = 0; week < weeks; week++) {
+        long start = SEMESTER_START + week * WEEK + 8 * HOUR + offset;
+        periods.add(new Date[] { new Date(start), new Date(start + 90 * 60_000L) });
+      }
+      periodsByRoom.put("room" + room, periods);
+    }
+
+    // The query per period is dominated by the database, so it is measured only once
+    perPeriod(persistence, periodsByRoom);
+    for (int i = 0; i < 2; i++) {
+      perRoom(persistence, periodsByRoom);
+      allRooms(persistence, periodsByRoom);
+    }
+    emf.close();
+  }
+
+  /** Check every period with its own query. */
+  private static void perPeriod(SchedulerServiceDatabaseImpl persistence, Map<String, List<Date[]>> periodsByRoom)
+          throws Exception {
+    long start = System.nanoTime();
+    int queries = 0;
+    int conflicts = 0;
+    for (Map.Entry<String, List<Date[]>> entry : periodsByRoom.entrySet()) {
+      Set<String> ids = new LinkedHashSet<>();
+      for (Date[] period : entry.getValue()) {
+        ids.addAll(persistence.getEvents(entry.getKey(), period[0], period[1],
+            Util.EVENT_MINIMUM_SEPARATION_MILLISECONDS));
+        queries++;
+      }
+      conflicts += ids.size();
+    }
+    report("per period", start, periodsByRoom, queries, conflicts);
+  }
+
+  /** Load the bookings of each room once, as {@code addMultipleEvents} does for its capture agent. */
+  private static void perRoom(SchedulerServiceDatabaseImpl persistence, Map<String, List<Date[]>> periodsByRoom)
+          throws Exception {
+    long start = System.nanoTime();
+    int queries = 0;
+    int conflicts = 0;
+    for (Map.Entry<String, List<Date[]>> entry : periodsByRoom.entrySet()) {
+      Map<String, List<Date[]>> single = new HashMap<>();
+      single.put(entry.getKey(), entry.getValue());
+      conflicts += check(persistence, single);
+      queries++;
+    }
+    report("per room", start, periodsByRoom, queries, conflicts);
+  }
+
+  /** Load the bookings of all rooms at once. */
+  private static void allRooms(SchedulerServiceDatabaseImpl persistence, Map<String, List<Date[]>> periodsByRoom)
+          throws Exception {
+    long start = System.nanoTime();
+    int conflicts = check(persistence, periodsByRoom);
+    report("all rooms", start, periodsByRoom, 1, conflicts);
+  }
+
+  private static int check(SchedulerServiceDatabaseImpl persistence, Map<String, List<Date[]>> periodsByRoom)
+          throws Exception {
+    long spanStart = Long.MAX_VALUE;
+    long spanEnd = Long.MIN_VALUE;
+    for (List<Date[]> periods : periodsByRoom.values()) {
+      for (Date[] period : periods) {
+        spanStart = Math.min(spanStart, period[0].getTime());
+        spanEnd = Math.max(spanEnd, period[1].getTime());
+      }
+    }
+    ConflictIndex index = ConflictIndex.of(persistence.getEvents(periodsByRoom.keySet(), new Date(spanStart),
+        new Date(spanEnd), Util.EVENT_MINIMUM_SEPARATION_MILLISECONDS), Util.EVENT_MINIMUM_SEPARATION_MILLISECONDS);
+    int conflicts = 0;
+    for (Map.Entry<String, List<Date[]>> entry : periodsByRoom.entrySet()) {
+      Set<String> ids = new LinkedHashSet<>();
+      for (Date[] period : entry.getValue()) {
+        ids.addAll(index.findConflicts(entry.getKey(), period[0], period[1]));
+      }
+      conflicts += ids.size();
+    }
+    return conflicts;
+  }
+
+  private static void report(String name, long start, Map<String, List<Date[]>> periodsByRoom, int queries,
+          int conflicts) {
+    double millis = (System.nanoTime() - start) / 1e6;
+    int periods = periodsByRoom.values().stream().mapToInt(List::size).sum();
+    logger.info(String.format("%-10s %d rooms, %d periods: %.0f ms, %d queries, %d conflicts", name,
+        periodsByRoom.size(), periods, millis, queries, conflicts));
+  }
+
+  /** Book {@code lectures} back to back two hour lectures per week into every room. */
+  private static void book(EntityManagerFactory emf, int rooms, int weeks, int lectures) {
+    String orgId = new DefaultOrganization().getId();
+    EntityManager em = emf.createEntityManager();
+    try {
+      em.getTransaction().begin();
+      int count = 0;
+      for (int room = 0; room < rooms; room++) {
+        for (int week = 0; week < weeks; week++) {
+          for (int lecture = 0; lecture < lectures; lecture++) {
+            long start = SEMESTER_START + week * WEEK + 8 * HOUR + lecture * 2 * HOUR;
+            ExtendedEventDto event = new ExtendedEventDto();
+            event.setMediaPackageId("room" + room + "-" + week + "-" + lecture);
+            event.setOrganization(orgId);
+            event.setCaptureAgentId("room" + room);
+            event.setStartDate(new Date(start));
+            event.setEndDate(new Date(start + 2 * HOUR));
+            em.persist(event);
+            if (++count % 1000 == 0) {
+              em.flush();
+              em.clear();
+            }
+          }
+        }
+      }
+      em.getTransaction().commit();
+      logger.info("Booked {} lectures in {} rooms", count, rooms);
+    } finally {
+      em.close();
+    }
+  }
+
+  private static SchedulerServiceDatabaseImpl createPersistence(EntityManagerFactory emf) throws Exception {
+    SecurityService securityService = EasyMock.createNiceMock(SecurityService.class);
+    EasyMock.expect(securityService.getOrganization()).andReturn(new DefaultOrganization()).anyTimes();
+    EasyMock.replay(securityService);
+
+    SchedulerServiceDatabaseImpl persistence = new SchedulerServiceDatabaseImpl();
+    persistence.setEntityManagerFactory(emf);
+    persistence.setDBSessionFactory(getDbSessionFactory());
+    persistence.setSecurityService(securityService);
+    persistence.activate(null);
+    return persistence;
+  }
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.scheduler.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.opencastproject.scheduler.impl.persistence.ExtendedEventDto;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+public class ConflictIndexTest {
+
+  private static final long HOUR = 3600_000L;
+
+  private static ExtendedEventDto booking(String id, String agentId, long start, long end) {
+    ExtendedEventDto event = new ExtendedEventDto();
+    event.setMediaPackageId(id);
+    event.setCaptureAgentId(agentId);
+    event.setStartDate(new Date(start));
+    event.setEndDate(new Date(end));
+    return event;
+  }
+
+  @Test
+  public void testFindConflicts() {
+    // [a: 0-2][b: 2-4]   [c: 6-8]  on agent1, [d: 0-8] on agent2
+    ConflictIndex index = ConflictIndex.of(Arrays.asList(
+        booking("c", "agent1", 6 * HOUR, 8 * HOUR),
+        booking("a", "agent1", 0, 2 * HOUR),
+        booking("b", "agent1", 2 * HOUR, 4 * HOUR),
+        booking("d", "agent2", 0, 8 * HOUR)), 0);
+
+    assertEquals(4, index.size());
+    assertEquals(Arrays.asList("a", "b"), index.findConflicts("agent1", new Date(HOUR), new Date(3 * HOUR)));
+    // Touching intervals do not conflict
+    assertTrue(index.findConflicts("agent1", new Date(4 * HOUR), new Date(6 * HOUR)).isEmpty());
+    assertEquals(Collections.singletonList("c"), index.findConflicts("agent1", new Date(5 * HOUR),
+        new Date(10 * HOUR)));
+    assertEquals(Collections.singletonList("d"), index.findConflicts("agent2", new Date(5 * HOUR),
+        new Date(6 * HOUR)));
+    assertTrue(index.findConflicts("agent3", new Date(0), new Date(8 * HOUR)).isEmpty());
+  }
+
+  @Test
+  public void testSeparation() {
+    ConflictIndex index = ConflictIndex.of(Collections.singletonList(booking("a", "agent1", 0, 2 * HOUR)), 60_000);
+    assertEquals(Collections.singletonList("a"), index.findConflicts("agent1", new Date(2 * HOUR),
+        new Date(3 * HOUR)));
+    assertTrue(index.findConflicts("agent1", new Date(2 * HOUR + 60_000), new Date(3 * HOUR)).isEmpty());
+  }
+
+  @Test
+  public void testLongBookingSpanningShortOnes() {
+    List<ExtendedEventDto> bookings = new ArrayList<>();
+    bookings.add(booking("long", "agent1", 0, 100 * HOUR));
+    for (int i = 0; i < 50; i++) {
+      bookings.add(booking("short" + i, "agent1", i * 2 * HOUR, i * 2 * HOUR + HOUR));
+    }
+    ConflictIndex index = ConflictIndex.of(bookings, 0);
+    assertEquals(Collections.singletonList("long"), index.findConflicts("agent1", new Date(99 * HOUR + 1),
+        new Date(99 * HOUR + 2)));
+  }
+
+  @Test
+  public void testMatchesLinearScan() {
+    Random random = new Random(42);
+    List<ExtendedEventDto> bookings = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      long start = random.nextInt(1000) * 60_000L;
+      bookings.add(booking("mp" + i, "agent" + random.nextInt(3), start, start + (1 + random.nextInt(120)) * 60_000L));
+    }
+    long separation = 60_000;
+    ConflictIndex index = ConflictIndex.of(new ArrayList<>(bookings), separation);
+
+    for (int i = 0; i < 1000; i++) {
+      String agentId = "agent" + random.nextInt(3);
+      long start = random.nextInt(1000) * 60_000L;
+      long end = start + (1 + random.nextInt(120)) * 60_000L;
+      List<String> expected = new ArrayList<>();
+      bookings.stream()
+          .filter(b -> b.getCaptureAgentId().equals(agentId))
+          .filter(b -> b.getStartDate().getTime() < end + separation && b.getEndDate().getTime() > start - separation)
+          .forEach(b -> expected.add(b.getMediaPackageId()));
+      List<String> actual = index.findConflicts(agentId, new Date(start), new Date(end));
+      Collections.sort(expected);
+      Collections.sort(actual);
+      assertEquals(expected, actual);
+    }
+  }
+
+}
@@ -629,6 +629,13 @@ public class SchedulerServiceImplTest {
     assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.getStatus());
     Assert.assertNull(response.getEntity());
 
+    // Quoted and weak entity tags, as sent by HTTP caches, match as well
+    EasyMock.reset(request);
+    EasyMock.expect(request.getHeader("If-None-Match")).andReturn("\"other\", W/\"" + etag + "\"").anyTimes();
+    EasyMock.replay(request);
+    response = restService.getCalendar(device, null, null, request);
+    assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.getStatus());
+
     // Update the event and clear to cache to make sure it's reloaded
     schedSvc.updateEvent(mediaPackage.getIdentifier().toString(), Opt.<Date> none(), Opt.<Date> none(),
             Opt.<String> none(), Opt.<Set<String>> none(), Opt.<MediaPackage> none(), Opt.some(wfPropertiesUpdated),
@@ -264,6 +264,44 @@ public class SchedulerServiceDatabaseImplTest {
     Assert.assertTrue(eventIds.contains(mpId + 3));
   }
 
+  @Test
+  public void testGetEventsOfAgents() throws Exception {
+    final long oneHourMillis = 3600_000;
+    final long nowMillis = new Date().getTime();
+    final String orgId = new DefaultOrganization().getId();
+    final String[] agentIds = {"agent1", "agent2", "agent3"};
+    for (int i = 0; i < agentIds.length; i++) {
+      for (int j = 0; j < 3; j++) {
+        final Date start = new Date(nowMillis + j * 4 * oneHourMillis);
+        schedulerDatabase.storeEvent(
+            agentIds[i] + "-" + j,
+            orgId,
+            Opt.some(agentIds[i]),
+            Opt.some(start),
+            Opt.some(new Date(start.getTime() + 2 * oneHourMillis)),
+            Opt.none(),
+            Opt.none(),
+            Opt.none(),
+            Opt.none(),
+            Opt.none(),
+            Opt.none(),
+            Opt.none(),
+            Opt.none()
+        );
+      }
+    }
+
+    final List<ExtendedEventDto> events = schedulerDatabase.getEvents(Arrays.asList("agent1", "agent3"),
+        new Date(nowMillis + oneHourMillis), new Date(nowMillis + 5 * oneHourMillis), 0);
+    Assert.assertEquals(4, events.size());
+    for (ExtendedEventDto event : events) {
+      Assert.assertNotEquals("agent2", event.getCaptureAgentId());
+      Assert.assertFalse(event.getMediaPackageId().endsWith("-2"));
+    }
+    Assert.assertTrue(schedulerDatabase.getEvents(Collections.emptyList(), new Date(nowMillis),
+        new Date(nowMillis + oneHourMillis), 0).isEmpty());
+  }
+
   @Test
   public void testSearch() throws Exception {
     // We create 4 events, each with a duration of 2 hours:
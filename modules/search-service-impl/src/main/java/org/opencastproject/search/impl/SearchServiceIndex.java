@@ -28,12 +28,15 @@ import org.opencastproject.elasticsearch.index.ElasticsearchIndex;
 import org.opencastproject.elasticsearch.index.rebuild.AbstractIndexProducer;
 import org.opencastproject.elasticsearch.index.rebuild.IndexProducer;
 import org.opencastproject.elasticsearch.index.rebuild.IndexRebuildException;
+import org.opencastproject.elasticsearch.index.rebuild.IndexRebuildRunner;
 import org.opencastproject.elasticsearch.index.rebuild.IndexRebuildService;
 import org.opencastproject.list.api.ListProviderException;
 import org.opencastproject.list.api.ListProvidersService;
 import org.opencastproject.list.api.ResourceListQuery;
 import org.opencastproject.list.impl.ResourceListQueryImpl;
+import org.opencastproject.mediapackage.Catalog;
 import org.opencastproject.mediapackage.MediaPackage;
+import org.opencastproject.mediapackage.MediaPackageElements;
 import org.opencastproject.metadata.dublincore.DublinCore;
 import org.opencastproject.metadata.dublincore.DublinCoreCatalog;
 import org.opencastproject.metadata.dublincore.DublinCoreUtil;
@@ -42,6 +45,7 @@ import org.opencastproject.metadata.dublincore.DublinCores;
 import org.opencastproject.search.api.SearchException;
 import org.opencastproject.search.api.SearchResult;
 import org.opencastproject.search.api.SearchService;
+import org.opencastproject.search.impl.jmx.SearchIndexStatistics;
 import org.opencastproject.search.impl.persistence.SearchServiceDatabase;
 import org.opencastproject.search.impl.persistence.SearchServiceDatabaseException;
 import org.opencastproject.security.api.AccessControlEntry;
@@ -59,8 +63,13 @@ import org.opencastproject.series.api.SeriesException;
 import org.opencastproject.series.api.SeriesService;
 import org.opencastproject.util.NotFoundException;
 import org.opencastproject.util.data.Tuple;
+import org.opencastproject.util.jmx.JmxUtil;
 import org.opencastproject.workspace.api.Workspace;
 
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.google.gson.Gson;
 import com.google.gson.JsonElement;
 
@@ -68,6 +77,9 @@ import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.BooleanUtils;
 import org.elasticsearch.ElasticsearchStatusException;
 import org.elasticsearch.action.DocWriteResponse;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
@@ -81,6 +93,7 @@ import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -95,13 +108,17 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
+import javax.management.ObjectInstance;
+
 /**
  * A Elasticsearch-based {@link SearchService} implementation.
  */
@@ -154,6 +171,19 @@ public final class SearchServiceIndex extends AbstractIndexProducer implements I
 
   private String systemUserName = null;
 
+  /** Episode catalogs by URI and checksum */
+  private final Cache<String, DublinCoreCatalog> episodeCatalogs = CacheBuilder.newBuilder()
+      .maximumSize(1000)
+      .build();
+
+  /** The JMX type of the search index statistics */
+  private static final String JMX_SEARCH_INDEX_STATISTICS_TYPE = "SearchIndexStatistics";
+
+  /** Statistics of the bulk requests sent to the search index */
+  private final SearchIndexStatistics statistics = new SearchIndexStatistics();
+
+  /** The registered search index statistics bean */
+  private ObjectInstance registeredMXBean;
 
   /**
    * Creates a new instance of the search service index.
@@ -175,6 +205,25 @@ public final class SearchServiceIndex extends AbstractIndexProducer implements I
 
     createIndex();
     systemUserName = cc.getBundleContext().getProperty(DIGEST_USER_PROPERTY);
+    registeredMXBean = JmxUtil.registerMXBean(statistics, JMX_SEARCH_INDEX_STATISTICS_TYPE);
+  }
+
+  /**
+   * Service deactivator, called via declarative services configuration.
+   */
+  @Deactivate
+  public void deactivate() {
+    if (registeredMXBean != null) {
+      JmxUtil.unregisterMXBean(registeredMXBean);
+      registeredMXBean = null;
+    }
+  }
+
+  /**
+   * @return the statistics of the bulk requests sent to the search index
+   */
+  SearchIndexStatistics getStatistics() {
+    return statistics;
   }
 
   private void createIndex() {
@@ -273,88 +322,226 @@ public final class SearchServiceIndex extends AbstractIndexProducer implements I
   private void indexMediaPackage(MediaPackage mediaPackage, AccessControlList acl, Date modDate, Date delDate,
       String orgId)
           throws SearchException, UnauthorizedException, SearchServiceDatabaseException {
-    String mediaPackageId = mediaPackage.getIdentifier().toString();
-    //If the entry has been deleted then there's *probably* no dc file to load.
-    DublinCoreCatalog dc = null == delDate
-        ? DublinCoreUtil.loadEpisodeDublinCore(workspace, mediaPackage).orElse(DublinCores.mkSimple())
-        : DublinCores.mkSimple();
-
-    List<DublinCoreCatalog> seriesList = Collections.emptyList();
-    if (dc.hasValue(DublinCore.PROPERTY_IS_PART_OF)) {
-      //Find the series (if any), filter for those which exist to prevent linking non-existent series
-      seriesList = dc.get(DublinCore.PROPERTY_IS_PART_OF).stream().map(DublinCoreValue::getValue).map(s -> {
-        try {
-          return seriesService.getSeries(s);
-        } catch (NotFoundException e) {
-          logger.warn("Series {} not found during index of event {}, omitting the link from the indexed data", s,
-              mediaPackageId);
-        } catch (UnauthorizedException e) {
-          logger.warn("Not authorized for series {} during index of event {}, omitting the link from the indexed data",
-              s, mediaPackageId);
-        } catch (SeriesException e) {
-          throw new SearchException(e);
-        }
-        return null;
-      }).filter(Objects::nonNull).collect(Collectors.toList());
+    IndexBatch batch = newBatch();
+    batch.add(mediaPackage, acl, modDate, delDate, orgId);
+    Set<String> failed = batch.flush();
+    if (!failed.isEmpty()) {
+      throw new SearchException("Could not index " + failed + " related to episode " + mediaPackage.getIdentifier());
     }
+  }
 
-    // Add custom roles to the ACL
-    // This allows users with a role of the form ROLE_EPISODE_<ID>_<ACTION> to access the event through the index
-    if (episodeIdRole) {
-      Set<AccessControlEntry> customEntries = new HashSet<>();
-      customEntries.add(new AccessControlEntry(getEpisodeRoleId(mediaPackageId, "READ"), "read", true));
-      customEntries.add(new AccessControlEntry(getEpisodeRoleId(mediaPackageId, "WRITE"), "write", true));
+  /**
+   * Creates a new batch for writing episodes and their series to the search index with a single bulk request.
+   *
+   * @return the empty batch
+   */
+  public IndexBatch newBatch() {
+    return new IndexBatch();
+  }
 
-      ResourceListQuery query = new ResourceListQueryImpl();
-      if (listProvidersService.hasProvider("ACL.ACTIONS")) {
-        Map<String, String> actions = new HashMap<>();
-        try {
-          actions = listProvidersService.getList("ACL.ACTIONS", query, true);
-        } catch (ListProviderException e) {
-          throw new SearchException("Listproviders not loaded. " + e);
+  /**
+   * Loads the episode catalog of a media package. Catalogs carrying a checksum are cached, so re-indexing an unchanged
+   * media package does not need to read the catalog from the workspace again.
+   */
+  private DublinCoreCatalog loadEpisodeDublinCore(MediaPackage mediaPackage) throws SearchException {
+    Catalog[] catalogs = mediaPackage.getCatalogs(MediaPackageElements.EPISODE);
+    if (catalogs.length == 0) {
+      return DublinCores.mkSimple();
+    }
+    final Catalog catalog = catalogs[0];
+    if (catalog.getURI() == null || catalog.getChecksum() == null) {
+      return DublinCoreUtil.loadDublinCore(workspace, catalog);
+    }
+    try {
+      return episodeCatalogs.get(catalog.getURI() + "#" + catalog.getChecksum(),
+          () -> DublinCoreUtil.loadDublinCore(workspace, catalog));
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      Throwables.throwIfUnchecked(e.getCause());
+      throw new SearchException(e.getCause());
+    }
+  }
+
+  /**
+   * Looks up a series the given episode is part of.
+   *
+   * @return the series catalog or <code>null</code> if the series does not exist or is not accessible
+   */
+  private DublinCoreCatalog getSeries(String seriesId, String mediaPackageId) throws SearchException {
+    try {
+      return seriesService.getSeries(seriesId);
+    } catch (NotFoundException e) {
+      logger.warn("Series {} not found during index of event {}, omitting the link from the indexed data", seriesId,
+          mediaPackageId);
+    } catch (UnauthorizedException e) {
+      logger.warn("Not authorized for series {} during index of event {}, omitting the link from the indexed data",
+          seriesId, mediaPackageId);
+    } catch (SeriesException e) {
+      throw new SearchException(e);
+    }
+    return null;
+  }
+
+  /**
+   * A batch of episodes written to the search index with a single bulk request. The series the episodes are part of
+   * are looked up and indexed only once per batch, with the access control lists of all their episodes merged.
+   * <p>
+   * A batch is not thread-safe and can be flushed only once.
+   */
+  public final class IndexBatch {
+
+    private final BulkRequest request = new BulkRequest(INDEX_NAME);
+
+    /** Series catalogs looked up for this batch, <code>null</code> for series which do not exist */
+    private final Map<String, DublinCoreCatalog> seriesCatalogs = new HashMap<>();
+
+    /** Series documents to write, by series identifier */
+    private final Map<String, SeriesUpdate> seriesUpdates = new LinkedHashMap<>();
+
+    private IndexBatch() {
+    }
+
+    /**
+     * Adds an episode and schedules updates for the series it is part of.
+     *
+     * @param mediaPackage
+     *          the media package
+     * @param acl
+     *          the access control list of the media package
+     * @param modDate
+     *          the modification date or <code>null</code> to use the current time
+     * @param delDate
+     *          the deletion date or <code>null</code> if the media package has not been deleted
+     * @param orgId
+     *          the organization of the media package
+     * @throws SearchException
+     *           if the episode cannot be prepared for the index
+     */
+    public void add(MediaPackage mediaPackage, AccessControlList acl, Date modDate, Date delDate, String orgId)
+            throws SearchException {
+      String mediaPackageId = mediaPackage.getIdentifier().toString();
+      //If the entry has been deleted then there's *probably* no dc file to load.
+      DublinCoreCatalog dc = null == delDate ? loadEpisodeDublinCore(mediaPackage) : DublinCores.mkSimple();
+
+      //Find the series (if any), filter for those which exist to prevent linking non-existent series
+      List<DublinCoreCatalog> seriesList = new ArrayList<>();
+      if (dc.hasValue(DublinCore.PROPERTY_IS_PART_OF)) {
+        for (DublinCoreValue value : dc.get(DublinCore.PROPERTY_IS_PART_OF)) {
+          String seriesId = value.getValue();
+          if (!seriesCatalogs.containsKey(seriesId)) {
+            seriesCatalogs.put(seriesId, getSeries(seriesId, mediaPackageId));
+          }
+          if (seriesCatalogs.get(seriesId) != null) {
+            seriesList.add(seriesCatalogs.get(seriesId));
+          }
         }
-        for (String action : actions.keySet()) {
-          customEntries.add(
-              new AccessControlEntry(getEpisodeRoleId(mediaPackageId, action), action, true));
+      }
+
+      // Add custom roles to the ACL
+      // This allows users with a role of the form ROLE_EPISODE_<ID>_<ACTION> to access the event through the index
+      if (episodeIdRole) {
+        Set<AccessControlEntry> customEntries = new HashSet<>();
+        customEntries.add(new AccessControlEntry(getEpisodeRoleId(mediaPackageId, "READ"), "read", true));
+        customEntries.add(new AccessControlEntry(getEpisodeRoleId(mediaPackageId, "WRITE"), "write", true));
+
+        ResourceListQuery query = new ResourceListQueryImpl();
+        if (listProvidersService.hasProvider("ACL.ACTIONS")) {
+          Map<String, String> actions = new HashMap<>();
+          try {
+            actions = listProvidersService.getList("ACL.ACTIONS", query, true);
+          } catch (ListProviderException e) {
+            throw new SearchException("Listproviders not loaded. " + e);
+          }
+          for (String action : actions.keySet()) {
+            customEntries.add(
+                new AccessControlEntry(getEpisodeRoleId(mediaPackageId, action), action, true));
+          }
         }
+
+        AccessControlList customRoles = new AccessControlList(new ArrayList<>(customEntries));
+        acl = customRoles.merge(acl);
       }
 
-      AccessControlList customRoles = new AccessControlList(new ArrayList<>(customEntries));
-      acl = customRoles.merge(acl);
+      SearchResult item = new SearchResult(SearchService.IndexEntryType.Episode, dc, acl, orgId, mediaPackage,
+          null != modDate ? modDate.toInstant() : Instant.now(),
+          null != delDate ? delDate.toInstant() : null);
+      request.add(new IndexRequest().id(mediaPackageId).source(item.dehydrateForIndex()));
+
+      for (DublinCoreCatalog seriesDc : seriesList) {
+        String seriesId = seriesDc.getFirst(DublinCore.PROPERTY_IDENTIFIER);
+        seriesUpdates.computeIfAbsent(seriesId, id -> new SeriesUpdate(seriesDc, orgId)).add(mediaPackageId, acl);
+      }
     }
 
-    SearchResult item = new SearchResult(SearchService.IndexEntryType.Episode, dc, acl, orgId, mediaPackage,
-        null != modDate ? modDate.toInstant() : Instant.now(),
-        null != delDate ? delDate.toInstant() : null);
-    Map<String, Object> metadata = item.dehydrateForIndex();
-    try {
-      var request = new IndexRequest(INDEX_NAME);
-      request.id(mediaPackageId);
-      request.source(metadata);
-      esIndex.getClient().index(request, RequestOptions.DEFAULT);
-      logger.debug("Indexed episode {}", mediaPackageId);
-    } catch (IOException e) {
-      throw new SearchException(e);
+    /**
+     * @return the number of episodes in this batch
+     */
+    public int size() {
+      return request.numberOfActions();
     }
 
-    // Elasticsearch series
-    for (DublinCoreCatalog seriesDc : seriesList) {
-      String seriesId = seriesDc.getFirst(DublinCore.PROPERTY_IDENTIFIER);
-      AccessControlList seriesAcl = persistence.getAccessControlLists(seriesId, mediaPackageId).stream()
-          .reduce(new AccessControlList(acl.getEntries()), AccessControlList::mergeActions);
-      item = new SearchResult(SearchService.IndexEntryType.Series, seriesDc, seriesAcl, orgId,
-          null, Instant.now(), null);
+    /**
+     * Writes the episodes and their series to the search index.
+     *
+     * @return the identifiers of the documents which could not be indexed
+     * @throws SearchException
+     *           if the bulk request cannot be sent
+     * @throws SearchServiceDatabaseException
+     *           if the access control lists of a series cannot be loaded
+     */
+    public Set<String> flush() throws SearchException, SearchServiceDatabaseException {
+      if (request.numberOfActions() == 0) {
+        return Collections.emptySet();
+      }
+      for (Map.Entry<String, SeriesUpdate> entry : seriesUpdates.entrySet()) {
+        SeriesUpdate update = entry.getValue();
+        AccessControlList seriesAcl = persistence.getAccessControlLists(entry.getKey(),
+                update.episodes.toArray(new String[0])).stream()
+            .reduce(update.acl, AccessControlList::mergeActions);
+        SearchResult item = new SearchResult(SearchService.IndexEntryType.Series, update.catalog, seriesAcl,
+            update.orgId, null, Instant.now(), null);
+        request.add(new IndexRequest().id(entry.getKey()).source(item.dehydrateForIndex()));
+      }
 
-      Map<String, Object> seriesData = item.dehydrateForIndex();
+      BulkResponse response;
+      long start = System.nanoTime();
       try {
-        var request = new IndexRequest(INDEX_NAME);
-        request.id(seriesId);
-        request.source(seriesData);
-        esIndex.getClient().index(request, RequestOptions.DEFAULT);
-        logger.debug("Indexed series {} related to episode {}", seriesId, mediaPackageId);
+        response = esIndex.getClient().bulk(request, RequestOptions.DEFAULT);
       } catch (IOException e) {
         throw new SearchException(e);
       }
+      long nanos = System.nanoTime() - start;
+      statistics.recordFlush(request.numberOfActions(), nanos);
+      logger.debug("Indexed {} episodes and {} series in {} ms", request.numberOfActions() - seriesUpdates.size(),
+          seriesUpdates.size(), nanos / 1000000);
+
+      Set<String> failed = new LinkedHashSet<>();
+      for (BulkItemResponse itemResponse : response) {
+        if (itemResponse.isFailed()) {
+          logger.warn("Could not index {}: {}", itemResponse.getId(), itemResponse.getFailureMessage());
+          failed.add(itemResponse.getId());
+        }
+      }
+      return failed;
+    }
+  }
+
+  /** A series document collecting the episodes of a batch which are part of the series */
+  private static final class SeriesUpdate {
+    private final DublinCoreCatalog catalog;
+    private final String orgId;
+    private final List<String> episodes = new ArrayList<>();
+    private AccessControlList acl = null;
+
+    private SeriesUpdate(DublinCoreCatalog catalog, String orgId) {
+      this.catalog = catalog;
+      this.orgId = orgId;
+    }
+
+    private void add(String mediaPackageId, AccessControlList episodeAcl) {
+      episodes.add(mediaPackageId);
+      acl = acl == null
+          ? new AccessControlList(episodeAcl.getEntries())
+          : acl.mergeActions(episodeAcl);
     }
   }
 
@@ -497,48 +684,71 @@ public final class SearchServiceIndex extends AbstractIndexProducer implements I
 
   @Override
   public void repopulate(IndexRebuildService.DataType type) throws IndexRebuildException {
+    repopulate(type, new IndexRebuildRunner(getService()));
+  }
+
+  @Override
+  public void repopulate(IndexRebuildService.DataType type, IndexRebuildRunner runner) throws IndexRebuildException {
+    final int total;
     try {
-      int total = persistence.countMediaPackages();
-      int pageSize = 50;
-      int pageOffset = 0;
-      AtomicInteger current = new AtomicInteger(1);
-      logIndexRebuildBegin(logger, total, "search");
-      List<Tuple<MediaPackage, String>> page = null;
-
-      do {
-        page = persistence.getAllMediaPackages(pageSize, pageOffset).collect(Collectors.toList());
-        page.forEach(tuple -> {
-          try {
-            MediaPackage mediaPackage = tuple.getA();
-            String mediaPackageId = mediaPackage.getIdentifier().toString();
-
-            AccessControlList acl = persistence.getAccessControlList(mediaPackageId);
-            Date modificationDate = persistence.getModificationDate(mediaPackageId);
-            Date deletionDate = persistence.getDeletionDate(mediaPackageId);
-
-            AccessControlList seriesAcl = persistence.getAccessControlLists(mediaPackage.getSeries(), mediaPackageId)
-                .stream().reduce(new AccessControlList(acl.getEntries()), AccessControlList::mergeActions);
-            logger.debug("Updating series ACL with merged access control list: {}", seriesAcl);
-
-            current.getAndIncrement();
-            indexMediaPackage(mediaPackage, acl, modificationDate, deletionDate, tuple.getB());
-          } catch (SearchServiceDatabaseException | UnauthorizedException e) {
-            logIndexRebuildError(logger, total, current.get(), e);
-            //NB: Runtime exception thrown to escape the functional interfacing
-            throw new RuntimeException("Internal Index Rebuild Failure", e);
-          } catch (RuntimeException | NotFoundException e) {
-            logSkippingElement(logger, "event", tuple.getA().getIdentifier().toString(), e);
-          }
-        });
-        //Current is the *page* index, so we remove one since each page only has pageSize entries
-        logIndexRebuildProgress(logger, total, current.get() - 1, pageSize);
-        pageOffset += 1;
-      } while (pageOffset * pageSize <= total);
-      //NB: Catching RuntimeException since it can be thrown inside the functional forEach here
-    } catch (SearchServiceDatabaseException | RuntimeException e) {
+      total = persistence.countMediaPackages();
+    } catch (SearchServiceDatabaseException e) {
       logIndexRebuildError(logger, e);
       throw new IndexRebuildException("Index Rebuild Failure", e);
     }
+    logIndexRebuildBegin(logger, total, "search");
+    try {
+      runner.run(total, securityService,
+          (after, limit) -> persistence.getMediaPackagesAfter(after == null ? "" : after, limit)
+              .collect(Collectors.toList()),
+          tuple -> tuple.getA().getIdentifier().toString(),
+          page -> {
+            IndexBatch batch = newBatch();
+            for (Tuple<MediaPackage, String> tuple : page) {
+              addToRebuildBatch(batch, tuple);
+            }
+            Set<String> failed = batch.flush();
+            if (failed.isEmpty()) {
+              return;
+            }
+
+            // Retry the failed episodes and the episodes of the failed series once, skip what still fails
+            logger.info("Retrying {} documents which could not be re-indexed", failed.size());
+            IndexBatch retry = newBatch();
+            for (Tuple<MediaPackage, String> tuple : page) {
+              MediaPackage mediaPackage = tuple.getA();
+              if (failed.contains(mediaPackage.getIdentifier().toString())
+                  || mediaPackage.getSeries() != null && failed.contains(mediaPackage.getSeries())) {
+                addToRebuildBatch(retry, tuple);
+              }
+            }
+            for (String id : retry.flush()) {
+              logSkippingElement(logger, "document", id, new SearchException("Bulk request failed for " + id));
+            }
+          });
+    } catch (IndexRebuildException e) {
+      logIndexRebuildError(logger, e.getCause());
+      throw e;
+    }
+  }
+
+  /**
+   * Adds an episode read from the database to a batch rebuilding the index, skipping it if it cannot be prepared.
+   */
+  private void addToRebuildBatch(IndexBatch batch, Tuple<MediaPackage, String> tuple)
+          throws SearchServiceDatabaseException {
+    try {
+      MediaPackage mediaPackage = tuple.getA();
+      String mediaPackageId = mediaPackage.getIdentifier().toString();
+
+      AccessControlList acl = persistence.getAccessControlList(mediaPackageId);
+      Date modificationDate = persistence.getModificationDate(mediaPackageId);
+      Date deletionDate = persistence.getDeletionDate(mediaPackageId);
+
+      batch.add(mediaPackage, acl, modificationDate, deletionDate, tuple.getB());
+    } catch (RuntimeException | NotFoundException e) {
+      logSkippingElement(logger, "event", tuple.getA().getIdentifier().toString(), e);
+    }
   }
 
   @Reference
@@ -0,0 +1,70 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package org.opencastproject.search.impl.jmx;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class SearchIndexStatistics implements SearchIndexStatisticsMXBean {
+
+  private final LongAdder flushes = new LongAdder();
+  private final LongAdder flushedDocuments = new LongAdder();
+  private final LongAdder flushNanos = new LongAdder();
+  private final AtomicLong maxFlushNanos = new AtomicLong();
+
+  /**
+   * Records a bulk request sent to the search index.
+   *
+   * @param documents
+   *          the number of documents in the bulk request
+   * @param nanos
+   *          the time it took to send the bulk request in nanoseconds
+   */
+  public void recordFlush(int documents, long nanos) {
+    flushes.increment();
+    flushedDocuments.add(documents);
+    flushNanos.add(nanos);
+    maxFlushNanos.accumulateAndGet(nanos, Math::max);
+  }
+
+  @Override
+  public long getFlushCount() {
+    return flushes.sum();
+  }
+
+  @Override
+  public long getFlushedDocuments() {
+    return flushedDocuments.sum();
+  }
+
+  @Override
+  public double getAverageFlushLatency() {
+    long count = flushes.sum();
+    return count == 0 ? 0 : flushNanos.sum() / 1e6 / count;
+  }
+
+  @Override
+  public double getMaxFlushLatency() {
+    return maxFlushNanos.get() / 1e6;
+  }
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package org.opencastproject.search.impl.jmx;
+
+/**
+ * JMX Bean interface exposing statistics of the bulk requests written to the search index.
+ */
+public interface SearchIndexStatisticsMXBean {
+
+  /**
+   * Gets the number of bulk requests sent to the search index
+   *
+   * @return the number of bulk requests
+   */
+  long getFlushCount();
+
+  /**
+   * Gets the number of documents written to the search index by bulk requests
+   *
+   * @return the number of documents
+   */
+  long getFlushedDocuments();
+
+  /**
+   * Gets the average latency of a bulk request
+   *
+   * @return the average latency in milliseconds
+   */
+  double getAverageFlushLatency();
+
+  /**
+   * Gets the maximum latency of a bulk request
+   *
+   * @return the maximum latency in milliseconds
+   */
+  double getMaxFlushLatency();
+
+}
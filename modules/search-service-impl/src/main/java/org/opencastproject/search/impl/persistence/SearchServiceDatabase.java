@@ -54,6 +54,20 @@ public interface SearchServiceDatabase {
   Stream<Tuple<MediaPackage, String>> getAllMediaPackages(int pagesize, int offset)
           throws SearchServiceDatabaseException;
 
+  /**
+   * Returns the search entries following the given media package in persistent storage, ordered by media package id.
+   *
+   * @param afterMediaPackageId
+   *          only return media packages with a greater id, use an empty string to start from the beginning
+   * @param limit
+   *          the number of results to get from the database at once
+   * @return {@link Tuple} array of mediapackage-orgid pairs representing stored media packages
+   * @throws SearchServiceDatabaseException
+   *           if exception occurs
+   */
+  Stream<Tuple<MediaPackage, String>> getMediaPackagesAfter(String afterMediaPackageId, int limit)
+          throws SearchServiceDatabaseException;
+
   /**
    * Returns the organization id of the selected media package
    *
@@ -234,7 +234,30 @@ public class SearchServiceDatabaseImpl implements SearchServiceDatabase {
       logger.error("Could not retrieve all episodes: {}", e.getMessage());
       throw new SearchServiceDatabaseException(e);
     }
+    return toMediaPackages(searchEntities);
+  }
 
+  /**
+   * {@inheritDoc}
+   *
+   * @see org.opencastproject.search.impl.persistence.SearchServiceDatabase#getMediaPackagesAfter(String, int)
+   */
+  @Override
+  public Stream<Tuple<MediaPackage, String>> getMediaPackagesAfter(String afterMediaPackageId, int limit)
+          throws SearchServiceDatabaseException {
+    List<SearchEntity> searchEntities;
+    try {
+      searchEntities = db.exec(namedQuery.findSome("Search.findAllAfter", 0, limit, SearchEntity.class,
+          Pair.of("mediaPackageId", afterMediaPackageId)));
+    } catch (Exception e) {
+      logger.error("Could not retrieve episodes after {}: {}", afterMediaPackageId, e.getMessage());
+      throw new SearchServiceDatabaseException(e);
+    }
+    return toMediaPackages(searchEntities);
+  }
+
+  private Stream<Tuple<MediaPackage, String>> toMediaPackages(List<SearchEntity> searchEntities)
+          throws SearchServiceDatabaseException {
     try {
       return searchEntities.stream()
             .map(entity -> {
@@ -0,0 +1,298 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package org.opencastproject.search.impl;
+
+import static org.easymock.EasyMock.anyInt;
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.anyString;
+import static org.easymock.EasyMock.eq;
+import static org.opencastproject.util.data.Tuple.tuple;
+
+import org.opencastproject.elasticsearch.index.ElasticsearchIndex;
+import org.opencastproject.elasticsearch.index.rebuild.IndexRebuildService;
+import org.opencastproject.mediapackage.MediaPackage;
+import org.opencastproject.mediapackage.MediaPackageBuilderFactory;
+import org.opencastproject.mediapackage.MediaPackageElement;
+import org.opencastproject.mediapackage.MediaPackageElements;
+import org.opencastproject.mediapackage.identifier.IdImpl;
+import org.opencastproject.metadata.dublincore.DublinCores;
+import org.opencastproject.search.impl.persistence.SearchServiceDatabase;
+import org.opencastproject.security.api.AccessControlList;
+import org.opencastproject.series.api.SeriesService;
+import org.opencastproject.workspace.api.Workspace;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpServer;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.HttpHost;
+import org.easymock.EasyMock;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Tests writing episodes and their series to the search index in bulk, against a stub Elasticsearch server which
+ * records the bulk requests and fails the documents it is told to fail.
+ */
+public class SearchServiceIndexTest {
+
+  private static final String ORGANIZATION = "mh_default_org";
+  private static final String SERIES_ID = "foobar-series";
+
+  private HttpServer server;
+  private RestHighLevelClient client;
+  private SearchServiceIndex index;
+  private SearchServiceDatabase persistence;
+  private SeriesService seriesService;
+
+  /** The document identifiers of each bulk request received by the stub server */
+  private final List<List<String>> bulkRequests = Collections.synchronizedList(new ArrayList<>());
+
+  /** The number of times the stub server still fails a document, by document identifier */
+  private final Map<String, Integer> failures = Collections.synchronizedMap(new HashMap<>());
+
+  @Before
+  public void setUp() throws Exception {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/", exchange -> {
+      String body = IOUtils.toString(exchange.getRequestBody(), StandardCharsets.UTF_8);
+      List<String> ids = new ArrayList<>();
+      JsonArray items = new JsonArray();
+      boolean errors = false;
+      // Every index action line is followed by its source line
+      String[] lines = body.split("\n");
+      for (int i = 0; i < lines.length; i += 2) {
+        String id = JsonParser.parseString(lines[i]).getAsJsonObject().getAsJsonObject("index").get("_id")
+            .getAsString();
+        ids.add(id);
+        JsonObject result = new JsonObject();
+        result.addProperty("_index", SearchServiceIndex.INDEX_NAME);
+        result.addProperty("_type", "_doc");
+        result.addProperty("_id", id);
+        if (failures.getOrDefault(id, 0) > 0) {
+          failures.merge(id, -1, Integer::sum);
+          errors = true;
+          JsonObject error = new JsonObject();
+          error.addProperty("type", "es_rejected_execution_exception");
+          error.addProperty("reason", "rejected");
+          result.addProperty("status", 429);
+          result.add("error", error);
+        } else {
+          JsonObject shards = new JsonObject();
+          shards.addProperty("total", 1);
+          shards.addProperty("successful", 1);
+          shards.addProperty("failed", 0);
+          result.addProperty("_version", 1);
+          result.addProperty("result", "created");
+          result.add("_shards", shards);
+          result.addProperty("_seq_no", i / 2);
+          result.addProperty("_primary_term", 1);
+          result.addProperty("status", 201);
+        }
+        JsonObject item = new JsonObject();
+        item.add("index", result);
+        items.add(item);
+      }
+      bulkRequests.add(ids);
+
+      JsonObject response = new JsonObject();
+      response.addProperty("took", 1);
+      response.addProperty("errors", errors);
+      response.add("items", items);
+      byte[] bytes = response.toString().getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
+      exchange.sendResponseHeaders(200, bytes.length);
+      exchange.getResponseBody().write(bytes);
+      exchange.close();
+    });
+    server.start();
+    client = new RestHighLevelClient(RestClient.builder(
+        new HttpHost(server.getAddress().getHostString(), server.getAddress().getPort())));
+
+    ElasticsearchIndex esIndex = EasyMock.createNiceMock(ElasticsearchIndex.class);
+    EasyMock.expect(esIndex.getClient()).andReturn(client).anyTimes();
+
+    Workspace workspace = EasyMock.createNiceMock(Workspace.class);
+    EasyMock.expect(workspace.read(anyObject(URI.class))).andAnswer(
+        () -> getClass().getResourceAsStream("/" + EasyMock.getCurrentArgument(0))).anyTimes();
+
+    seriesService = EasyMock.createMock(SeriesService.class);
+
+    persistence = EasyMock.createNiceMock(SearchServiceDatabase.class);
+    // The access control lists of the other episodes of the series, excluding up to three episodes of a batch
+    EasyMock.expect(persistence.getAccessControlLists(eq(SERIES_ID), anyString()))
+        .andReturn(Collections.emptyList()).anyTimes();
+    EasyMock.expect(persistence.getAccessControlLists(eq(SERIES_ID), anyString(), anyString()))
+        .andReturn(Collections.emptyList()).anyTimes();
+    EasyMock.expect(persistence.getAccessControlLists(eq(SERIES_ID), anyString(), anyString(), anyString()))
+        .andReturn(Collections.emptyList()).anyTimes();
+    EasyMock.expect(persistence.getAccessControlList(anyString())).andReturn(new AccessControlList()).anyTimes();
+    EasyMock.expect(persistence.getModificationDate(anyString())).andReturn(new Date()).anyTimes();
+
+    EasyMock.replay(esIndex, workspace);
+
+    index = new SearchServiceIndex();
+    index.setEsIndex(esIndex);
+    index.setWorkspace(workspace);
+    index.setSeriesService(seriesService);
+    index.setPersistence(persistence);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    client.close();
+    server.stop(0);
+  }
+
+  /** Expects the series to be looked up the given number of times, and the database calls to be done */
+  private void replay(int seriesLookups) throws Exception {
+    try (InputStream in = getClass().getResourceAsStream("/series-dublincore.xml")) {
+      EasyMock.expect(seriesService.getSeries("foobar-serie")).andReturn(DublinCores.read(in)).times(seriesLookups);
+    }
+    EasyMock.replay(seriesService, persistence);
+  }
+
+  /** Creates a media package whose episode catalog is part of the series */
+  private static MediaPackage newMediaPackage(String id) throws Exception {
+    MediaPackage mediaPackage = MediaPackageBuilderFactory.newInstance().newMediaPackageBuilder()
+        .createNew(new IdImpl(id));
+    mediaPackage.add(new URI("dublincore-part-of-series.xml"), MediaPackageElement.Type.Catalog,
+        MediaPackageElements.EPISODE);
+    mediaPackage.setSeries(SERIES_ID);
+    return mediaPackage;
+  }
+
+  @Test
+  public void testSeriesIndexedOncePerBatch() throws Exception {
+    replay(1);
+
+    SearchServiceIndex.IndexBatch batch = index.newBatch();
+    batch.add(newMediaPackage("mp-1"), new AccessControlList(), null, null, ORGANIZATION);
+    batch.add(newMediaPackage("mp-2"), new AccessControlList(), null, null, ORGANIZATION);
+    Assert.assertEquals(2, batch.size());
+
+    Assert.assertTrue(batch.flush().isEmpty());
+    Assert.assertEquals(Collections.singletonList(Arrays.asList("mp-1", "mp-2", SERIES_ID)), bulkRequests);
+    // The series has been looked up once for both episodes
+    EasyMock.verify(seriesService);
+
+    // The bulk request has been recorded in the statistics
+    Assert.assertEquals(1, index.getStatistics().getFlushCount());
+    Assert.assertEquals(3, index.getStatistics().getFlushedDocuments());
+    Assert.assertTrue(index.getStatistics().getMaxFlushLatency() > 0);
+    Assert.assertEquals(index.getStatistics().getMaxFlushLatency(),
+        index.getStatistics().getAverageFlushLatency(), 1e-9);
+  }
+
+  @Test
+  public void testFlushReturnsFailedDocuments() throws Exception {
+    replay(1);
+    failures.put("mp-2", 1);
+    failures.put(SERIES_ID, 1);
+
+    SearchServiceIndex.IndexBatch batch = index.newBatch();
+    batch.add(newMediaPackage("mp-1"), new AccessControlList(), null, null, ORGANIZATION);
+    batch.add(newMediaPackage("mp-2"), new AccessControlList(), null, null, ORGANIZATION);
+    batch.add(newMediaPackage("mp-3"), new AccessControlList(), null, null, ORGANIZATION);
+
+    Set<String> failed = batch.flush();
+    Assert.assertEquals(Set.of("mp-2", SERIES_ID), failed);
+    Assert.assertEquals(1, bulkRequests.size());
+    Assert.assertEquals(Arrays.asList("mp-1", "mp-2", "mp-3", SERIES_ID), bulkRequests.get(0));
+  }
+
+  @Test
+  public void testRebuildRetriesFailedDocuments() throws Exception {
+    expectMediaPackages("mp-1", "mp-2", "mp-3");
+    // The series is looked up once for the page and once for the retry
+    replay(2);
+    failures.put("mp-2", 1);
+
+    index.repopulate(IndexRebuildService.DataType.ALL);
+
+    Assert.assertEquals(2, bulkRequests.size());
+    Assert.assertEquals(Arrays.asList("mp-1", "mp-2", "mp-3", SERIES_ID), bulkRequests.get(0));
+    Assert.assertEquals(Arrays.asList("mp-2", SERIES_ID), bulkRequests.get(1));
+    EasyMock.verify(seriesService);
+  }
+
+  @Test
+  public void testRebuildRetriesEpisodesOfFailedSeries() throws Exception {
+    expectMediaPackages("mp-1", "mp-2");
+    replay(2);
+    failures.put(SERIES_ID, 1);
+
+    index.repopulate(IndexRebuildService.DataType.ALL);
+
+    Assert.assertEquals(2, bulkRequests.size());
+    Assert.assertEquals(Arrays.asList("mp-1", "mp-2", SERIES_ID), bulkRequests.get(1));
+  }
+
+  @Test
+  public void testRebuildSkipsDocumentsFailingAgain() throws Exception {
+    expectMediaPackages("mp-1", "mp-2");
+    replay(2);
+    failures.put("mp-2", Integer.MAX_VALUE);
+
+    // The rebuild does not fail, the document is skipped after one retry
+    index.repopulate(IndexRebuildService.DataType.ALL);
+
+    Assert.assertEquals(2, bulkRequests.size());
+    Assert.assertEquals(Arrays.asList("mp-2", SERIES_ID), bulkRequests.get(1));
+  }
+
+  /** Lets the database return a single page with the given media packages */
+  private void expectMediaPackages(String... ids) throws Exception {
+    List<MediaPackage> mediaPackages = new ArrayList<>();
+    for (String id : ids) {
+      mediaPackages.add(newMediaPackage(id));
+    }
+    EasyMock.expect(persistence.countMediaPackages()).andReturn(ids.length).anyTimes();
+    EasyMock.expect(persistence.getMediaPackagesAfter(anyString(), anyInt())).andAnswer(() -> {
+      String after = EasyMock.getCurrentArgument(0);
+      return after.isEmpty()
+          ? mediaPackages.stream().map(mediaPackage -> tuple(mediaPackage, ORGANIZATION))
+          : Stream.empty();
+    }).anyTimes();
+  }
+}
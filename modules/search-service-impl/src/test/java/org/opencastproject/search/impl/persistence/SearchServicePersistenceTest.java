@@ -47,9 +47,12 @@ import org.junit.Test;
 import org.osgi.framework.BundleContext;
 import org.osgi.service.component.ComponentContext;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import javax.persistence.EntityManager;
@@ -104,6 +107,27 @@ public class SearchServicePersistenceTest {
     acl.add(new AccessControlEntry("admin", Permissions.Action.WRITE.toString(), true));
   }
 
+  @Test
+  public void testGetMediaPackagesAfter() throws Exception {
+    List<String> ids = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      MediaPackage mp = MediaPackageBuilderFactory.newInstance().newMediaPackageBuilder().createNew();
+      searchDatabase.storeMediaPackage(mp, accessControlList, new Date());
+      ids.add(mp.getIdentifier().toString());
+    }
+    Collections.sort(ids);
+
+    List<String> page = searchDatabase.getMediaPackagesAfter("", 2)
+        .map(tuple -> tuple.getA().getIdentifier().toString())
+        .collect(Collectors.toList());
+    Assert.assertEquals(ids.subList(0, 2), page);
+
+    page = searchDatabase.getMediaPackagesAfter(page.get(1), 2)
+        .map(tuple -> tuple.getA().getIdentifier().toString())
+        .collect(Collectors.toList());
+    Assert.assertEquals(ids.subList(2, 3), page);
+  }
+
   @Test
   public void testAdding() throws Exception {
     int mpCount = searchDatabase.countMediaPackages();
@@ -0,0 +1,157 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.serviceregistry.impl;
+
+import org.opencastproject.serviceregistry.api.SystemLoad;
+import org.opencastproject.serviceregistry.api.SystemLoad.NodeLoad;
+
+import java.util.Map;
+
+/**
+ * In-memory model of the load on all hosts of the cluster.
+ * <p>
+ * The model is initialized from the database and then kept up to date incrementally with the load changes that are
+ * known to this node, i.e. jobs which are dispatched from here and job status transitions which are processed by this
+ * service registry. Load changes done by other nodes are picked up the next time the model is refreshed from the
+ * database, which makes the database the authority whenever both differ.
+ * <p>
+ * The model does not lock: a refresh atomically replaces the loads read from the database together with the ledger of
+ * incremental changes, carrying over the changes the read may have missed, and job status updates only touch the
+ * lock-free ledger.
+ */
+class HostLoadModel {
+
+  /** The current state of the model */
+  private volatile Snapshot snapshot = new Snapshot(new SystemLoad(), 0);
+
+  /**
+   * Replaces the model with the given loads as read from the database.
+   * <p>
+   * Job loads recorded since the database read started are kept, as the read may not reflect them yet. Keeping a job
+   * which the read did reflect overestimates the host's load only until the next refresh.
+   *
+   * @param systemLoad
+   *          the current loads of all hosts
+   * @param readStarted
+   *          the time the loads have started to be read, as returned by {@link System#nanoTime()}
+   */
+  void refresh(SystemLoad systemLoad, long readStarted) {
+    SystemLoad loads = new SystemLoad();
+    for (NodeLoad nodeLoad : systemLoad.getNodeLoads()) {
+      loads.addNodeLoad(copy(nodeLoad));
+    }
+    Snapshot previous = snapshot;
+    Snapshot current = new Snapshot(loads, System.currentTimeMillis());
+    snapshot = current;
+    // Jobs may still be recorded in the previous ledger while the snapshot is replaced, recording them is idempotent
+    current.ledger.addJobLoadsSince(previous.ledger, readStarted);
+  }
+
+  /**
+   * Returns whether the model needs to be refreshed from the database.
+   *
+   * @param maxAge
+   *          the maximum age of the model in milliseconds
+   * @return <code>true</code> if the model has never been refreshed or if it is older than the given age
+   */
+  boolean isStale(long maxAge) {
+    long refreshed = snapshot.refreshed;
+    return refreshed == 0 || System.currentTimeMillis() - refreshed > maxAge;
+  }
+
+  /**
+   * Marks the model as outdated so that it is refreshed from the database before it is used next, e.g. because hosts
+   * have been registered or unregistered.
+   */
+  void invalidate() {
+    Snapshot current = snapshot;
+    snapshot = new Snapshot(current.loads, 0, current.ledger);
+  }
+
+  /**
+   * Returns a copy of the current loads that can be modified by the caller, e.g. to track the load of jobs dispatched
+   * within one batch.
+   *
+   * @return the current loads of all hosts
+   */
+  SystemLoad getSystemLoad() {
+    Snapshot current = snapshot;
+    Map<String, Float> jobLoads = current.ledger.getLoads();
+    SystemLoad systemLoad = new SystemLoad();
+    for (NodeLoad nodeLoad : current.loads.getNodeLoads()) {
+      NodeLoad load = copy(nodeLoad);
+      load.modifyLoad(jobLoads.getOrDefault(load.getHost(), 0.0f));
+      systemLoad.addNodeLoad(load);
+    }
+    return systemLoad;
+  }
+
+  /**
+   * Adds the load of a job to the given host unless the job's load has already been added.
+   *
+   * @param jobId
+   *          the job identifier
+   * @param host
+   *          the host processing the job
+   * @param load
+   *          the job load
+   */
+  void addJobLoad(long jobId, String host, float load) {
+    Snapshot current = snapshot;
+    if (current.loads.containsHost(host)) {
+      current.ledger.addJobLoad(jobId, host, load);
+    }
+  }
+
+  /**
+   * Removes the load of a job which has been added to the model before.
+   *
+   * @param jobId
+   *          the job identifier
+   */
+  void removeJobLoad(long jobId) {
+    snapshot.ledger.removeJobLoad(jobId);
+  }
+
+  private static NodeLoad copy(NodeLoad nodeLoad) {
+    return new NodeLoad(nodeLoad.getHost(), nodeLoad.getCurrentLoad(), nodeLoad.getMaxLoad());
+  }
+
+  /** Loads read from the database together with the changes applied since */
+  private static final class Snapshot {
+    private final SystemLoad loads;
+    private final long refreshed;
+    private final LoadLedger ledger;
+
+    private Snapshot(SystemLoad loads, long refreshed) {
+      this(loads, refreshed, new LoadLedger());
+    }
+
+    private Snapshot(SystemLoad loads, long refreshed, LoadLedger ledger) {
+      this.loads = loads;
+      this.refreshed = refreshed;
+      this.ledger = ledger;
+    }
+  }
+
+}
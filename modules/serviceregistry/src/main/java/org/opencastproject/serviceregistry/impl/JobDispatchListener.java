@@ -0,0 +1,51 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.serviceregistry.impl;
+
+/**
+ * Callback used by the {@link ServiceRegistryJpaImpl} to inform the {@link JobDispatcher} about job transitions that
+ * are relevant for dispatching, so that jobs can be dispatched right away instead of waiting for the next round of
+ * polling.
+ * <p>
+ * Listeners are invoked synchronously on the thread that changed the job and must therefore return quickly.
+ */
+interface JobDispatchListener {
+
+  /**
+   * Called after a dispatchable job has been created or has been put back into a dispatchable state.
+   *
+   * @param jobId
+   *          the identifier of the job that is ready to be dispatched
+   */
+  void jobReady(long jobId);
+
+  /**
+   * Called after a job stopped contributing to the load of a host, which means that jobs which have previously been
+   * refused may now be accepted.
+   *
+   * @param host
+   *          the host on which capacity has been released
+   */
+  void capacityReleased(String host);
+
+}
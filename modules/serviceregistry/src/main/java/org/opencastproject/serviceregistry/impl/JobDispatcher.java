@@ -41,11 +41,14 @@ import org.opencastproject.serviceregistry.api.HostRegistration;
 import org.opencastproject.serviceregistry.api.ServiceRegistration;
 import org.opencastproject.serviceregistry.api.ServiceRegistryException;
 import org.opencastproject.serviceregistry.api.SystemLoad;
+import org.opencastproject.serviceregistry.impl.jmx.DispatcherStatistics;
 import org.opencastproject.serviceregistry.impl.jpa.ServiceRegistrationJpaImpl;
 import org.opencastproject.util.NotFoundException;
 import org.opencastproject.util.UrlSupport;
+import org.opencastproject.util.jmx.JmxUtil;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.http.HttpResponse;
@@ -57,6 +60,7 @@ import org.osgi.service.cm.ConfigurationException;
 import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Modified;
 import org.osgi.service.component.annotations.Reference;
 import org.slf4j.Logger;
@@ -69,22 +73,43 @@ import java.util.Comparator;
 import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import javax.management.ObjectInstance;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 
 /**
  * This dispatcher implementation will check for jobs in the QUEUED {@link Job.Status}. If
  * new jobs are found, the dispatcher will attempt to dispatch each job to the least loaded service.
+ * <p>
+ * If event driven dispatching is enabled, the service registry signals jobs as soon as they become ready for
+ * dispatching and the dispatcher reacts to these signals immediately. Scanning the database for dispatchable jobs is
+ * then only done at the (longer) recovery interval to pick up jobs that have been created by other nodes or that
+ * have been missed otherwise.
  */
 @Component(
     property = {
@@ -110,6 +135,42 @@ public class JobDispatcher {
   /** Multiplicative factor to transform dispatch interval captured in seconds to milliseconds */
   static final long DISPATCH_INTERVAL_MS_FACTOR = 1000;
 
+  /** Configuration key for enabling event driven dispatching */
+  protected static final String OPT_DISPATCH_EVENT_DRIVEN = "dispatch.event.driven";
+
+  /** Configuration key for the interval of the recovery scans if dispatching is event driven, in seconds */
+  protected static final String OPT_DISPATCH_RECOVERY_INTERVAL = "dispatch.recovery.interval";
+
+  /** Default setting for event driven dispatching */
+  static final boolean DEFAULT_DISPATCH_EVENT_DRIVEN = false;
+
+  /** Default delay between recovery scans if dispatching is event driven, in seconds */
+  static final float DEFAULT_DISPATCH_RECOVERY_INTERVAL = 30.0F;
+
+  /** Configuration key for the number of threads posting jobs to the services concurrently */
+  protected static final String OPT_DISPATCH_THREADS = "dispatch.threads";
+
+  /** Configuration key for the maximum number of concurrent dispatch requests to a single host */
+  protected static final String OPT_DISPATCH_MAX_INFLIGHT_PER_HOST = "dispatch.host.max.inflight";
+
+  /** Configuration key for the timeout of a single dispatch request, in seconds */
+  protected static final String OPT_DISPATCH_TIMEOUT = "dispatch.timeout";
+
+  /** Default number of dispatch threads, a single thread dispatches all jobs one after another */
+  static final int DEFAULT_DISPATCH_THREADS = 1;
+
+  /** Default maximum number of concurrent dispatch requests to a single host */
+  static final int DEFAULT_DISPATCH_MAX_INFLIGHT_PER_HOST = 2;
+
+  /** Default timeout of a single dispatch request, 0 uses the timeouts of the http client */
+  static final int DEFAULT_DISPATCH_TIMEOUT = 0;
+
+  /** Dispatcher statistics JMX type */
+  private static final String JMX_DISPATCHER_STATISTICS_TYPE = "DispatcherStatistics";
+
+  /** Marks the dispatching thread so that jobs re-queued by the dispatcher itself are not signalled back to it */
+  private static final ThreadLocal<Boolean> dispatching = ThreadLocal.withInitial(() -> false);
+
   private static final Logger logger = LoggerFactory.getLogger(JobDispatcher.class);
 
   private ServiceRegistryJpaImpl serviceRegistry;
@@ -137,7 +198,81 @@ public class JobDispatcher {
   private List<String> undispatchableJobTypes = null;
 
   /** The dispatcher priority list */
-  protected final Map<Long, String> dispatchPriorityList = new HashMap<>();
+  protected final Map<Long, String> dispatchPriorityList = new ConcurrentHashMap<>();
+
+  /** The thread pool posting jobs to the services, <code>null</code> if jobs are posted one after another */
+  private ExecutorService dispatchExecutor = null;
+
+  /** Held by each batch of dispatching while it uses the dispatch thread pool, needed to replace the pool */
+  private final ReadWriteLock dispatchExecutorLock = new ReentrantReadWriteLock();
+
+  /** Limits the number of concurrent dispatch requests, by host */
+  protected final Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+
+  /** Maximum number of concurrent dispatch requests to a single host */
+  private int maxInFlightPerHost = DEFAULT_DISPATCH_MAX_INFLIGHT_PER_HOST;
+
+  /** Timeout of a single dispatch request in milliseconds, 0 to use the timeouts of the http client */
+  private int dispatchTimeoutMs = DEFAULT_DISPATCH_TIMEOUT;
+
+  /** Maximum age of the host loads used for dispatching before they are re-read from the database, in milliseconds */
+  private long hostLoadsMaxAge = 0;
+
+  /** Whether jobs are dispatched as soon as they are signalled by the service registry */
+  private boolean eventDriven = DEFAULT_DISPATCH_EVENT_DRIVEN;
+
+  /** Jobs signalled as ready for dispatching, mapped to the time (in milliseconds) they were signalled */
+  protected final Map<Long, Long> readyJobs = new ConcurrentHashMap<>();
+
+  /** Identifiers of the ready jobs in the order in which they need to be dispatched */
+  private final Queue<Long> readyQueue = new ConcurrentLinkedQueue<>();
+
+  /** Ready jobs that could not be dispatched and wait for capacity to be released */
+  protected final Set<Long> parkedJobs = ConcurrentHashMap.newKeySet();
+
+  /** Whether dispatching the ready jobs has already been scheduled */
+  private final AtomicBoolean readyDispatchScheduled = new AtomicBoolean(false);
+
+  /** Changed whenever dispatching is reconfigured or stopped, rounds started before stop sending jobs */
+  private final AtomicLong dispatchGeneration = new AtomicLong();
+
+  /** The JMX business object for dispatcher statistics */
+  private final DispatcherStatistics dispatcherStatistics = new DispatcherStatistics();
+
+  /** The registered dispatcher statistics JMX bean */
+  private ObjectInstance dispatcherStatisticsBean = null;
+
+  /** Receives the job transitions signalled by the service registry */
+  private final JobDispatchListener dispatchListener = new JobDispatchListener() {
+    @Override
+    public void jobReady(long jobId) {
+      // Jobs put back into the queue by the dispatcher itself stay parked until capacity is released
+      if (dispatching.get()) {
+        return;
+      }
+      if (readyJobs.putIfAbsent(jobId, System.currentTimeMillis()) == null) {
+        dispatcherStatistics.jobSignalled();
+        readyQueue.add(jobId);
+      } else if (parkedJobs.remove(jobId)) {
+        readyQueue.add(jobId);
+      }
+      scheduleReadyJobsDispatch();
+    }
+
+    @Override
+    public void capacityReleased(String host) {
+      if (parkedJobs.isEmpty()) {
+        return;
+      }
+      logger.trace("Capacity released on {}, retrying {} parked jobs", host, parkedJobs.size());
+      for (Iterator<Long> i = parkedJobs.iterator(); i.hasNext();) {
+        Long jobId = i.next();
+        i.remove();
+        readyQueue.add(jobId);
+      }
+      scheduleReadyJobsDispatch();
+    }
+  };
 
   /** OSGi DI */
   @Reference(target = "(osgi.unit.name=org.opencastproject.common)")
@@ -183,10 +318,31 @@ public class JobDispatcher {
     db = dbSessionFactory.createSession(emf);
     scheduledExecutor = (ScheduledThreadPoolExecutor) Executors.newScheduledThreadPool(1);
     scheduledExecutor.setRemoveOnCancelPolicy(true);
+    dispatcherStatisticsBean = JmxUtil.registerMXBean(dispatcherStatistics, JMX_DISPATCHER_STATISTICS_TYPE);
     logger.info("Activated");
     updated(cc.getProperties());
   }
 
+  @Deactivate
+  public void deactivate() {
+    logger.info("Deactivate job dispatcher");
+    serviceRegistry.setDispatchListener(null);
+    // Let a running round complete the bookkeeping of the jobs it has sent already instead of interrupting it
+    dispatchGeneration.incrementAndGet();
+    if (jdfuture != null) {
+      jdfuture.cancel(false);
+    }
+    if (scheduledExecutor != null) {
+      scheduledExecutor.shutdown();
+    }
+    if (dispatchExecutor != null) {
+      dispatchExecutor.shutdown();
+    }
+    if (dispatcherStatisticsBean != null) {
+      JmxUtil.unregisterMXBean(dispatcherStatisticsBean);
+    }
+  }
+
 
   @Modified
   public void modified(ComponentContext cc) throws ConfigurationException {
@@ -223,16 +379,72 @@ public class JobDispatcher {
       }
     }
 
-    // Stop the current dispatch thread so we can configure a new one
+    eventDriven = BooleanUtils.toBoolean(StringUtils.trimToNull((String) properties.get(OPT_DISPATCH_EVENT_DRIVEN)));
+
+    float recoveryInterval = DEFAULT_DISPATCH_RECOVERY_INTERVAL;
+    String recoveryIntervalString = StringUtils.trimToNull((String) properties.get(OPT_DISPATCH_RECOVERY_INTERVAL));
+    if (StringUtils.isNotBlank(recoveryIntervalString)) {
+      try {
+        recoveryInterval = Float.parseFloat(recoveryIntervalString);
+      } catch (Exception e) {
+        logger.warn("Dispatch recovery interval '{}' is malformed, setting to {}", recoveryIntervalString,
+            DEFAULT_DISPATCH_RECOVERY_INTERVAL);
+        recoveryInterval = DEFAULT_DISPATCH_RECOVERY_INTERVAL;
+      }
+    }
+
+    int dispatchThreads = parseInt(properties, OPT_DISPATCH_THREADS, DEFAULT_DISPATCH_THREADS);
+    maxInFlightPerHost = parseInt(properties, OPT_DISPATCH_MAX_INFLIGHT_PER_HOST,
+        DEFAULT_DISPATCH_MAX_INFLIGHT_PER_HOST);
+    long dispatchTimeout = parseInt(properties, OPT_DISPATCH_TIMEOUT, DEFAULT_DISPATCH_TIMEOUT)
+        * DISPATCH_INTERVAL_MS_FACTOR;
+    if (dispatchTimeout > Integer.MAX_VALUE) {
+      logger.warn("Dispatch timeout of {} seconds is too high, setting to {}",
+          dispatchTimeout / DISPATCH_INTERVAL_MS_FACTOR, DEFAULT_DISPATCH_TIMEOUT);
+      dispatchTimeout = DEFAULT_DISPATCH_TIMEOUT;
+    }
+    dispatchTimeoutMs = (int) dispatchTimeout;
+
+    // Stop the current dispatch thread so we can configure a new one. A running round finishes the dispatch requests
+    // it has sent already, interrupting it would lose track of jobs accepted by a host.
+    dispatchGeneration.incrementAndGet();
     if (jdfuture != null) {
-      jdfuture.cancel(true);
+      jdfuture.cancel(false);
     }
+    dispatchExecutorLock.writeLock().lock();
+    try {
+      if (dispatchExecutor != null) {
+        dispatchExecutor.shutdown();
+        dispatchExecutor = null;
+      }
+      if (dispatchInterval > 0 && dispatchThreads > 1) {
+        dispatchExecutor = Executors.newFixedThreadPool(dispatchThreads);
+      }
+    } finally {
+      dispatchExecutorLock.writeLock().unlock();
+    }
+    hostPermits.clear();
+    serviceRegistry.setDispatchListener(null);
+    readyQueue.clear();
+    readyJobs.clear();
+    parkedJobs.clear();
 
     // Schedule the job dispatching.
     if (dispatchInterval > 0) {
       long dispatchIntervalMs = Math.round(dispatchInterval * DISPATCH_INTERVAL_MS_FACTOR);
+      hostLoadsMaxAge = dispatchIntervalMs;
       logger.info("Job dispatching is enabled");
-      logger.debug("Starting job dispatching at a custom interval of {}s", dispatchInterval);
+      if (eventDriven) {
+        // Jobs are dispatched as they are signalled, scanning the database is only needed for recovery
+        dispatchIntervalMs = Math.max(dispatchIntervalMs, Math.round(recoveryInterval * DISPATCH_INTERVAL_MS_FACTOR));
+        serviceRegistry.setDispatchListener(dispatchListener);
+        logger.info("Event driven job dispatching is enabled, recovery scans every {}ms", dispatchIntervalMs);
+      }
+      if (dispatchThreads > 1) {
+        logger.info("Posting jobs with {} threads and at most {} concurrent requests per host", dispatchThreads,
+            maxInFlightPerHost);
+      }
+      logger.debug("Starting job dispatching at a custom interval of {}ms", dispatchIntervalMs);
       jdfuture = scheduledExecutor.scheduleWithFixedDelay(getJobDispatcherRunnable(), dispatchIntervalMs, dispatchIntervalMs,
           TimeUnit.MILLISECONDS);
     } else {
@@ -240,12 +452,79 @@ public class JobDispatcher {
     }
   }
 
+  /**
+   * Reads a positive integer from the configuration.
+   *
+   * @param properties the configuration
+   * @param key the configuration key
+   * @param defaultValue the value to use if the key is not set or invalid
+   * @return the configured value
+   */
+  @SuppressWarnings("rawtypes")
+  private static int parseInt(Dictionary properties, String key, int defaultValue) {
+    String value = StringUtils.trimToNull((String) properties.get(key));
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      int result = Integer.parseInt(value);
+      if (result >= 0) {
+        return result;
+      }
+    } catch (NumberFormatException e) {
+      // Handled below
+    }
+    logger.warn("Configuration value {}='{}' is invalid, setting to {}", key, value, defaultValue);
+    return defaultValue;
+  }
+
+  /**
+   * Schedules the dispatching of the ready jobs unless it is already scheduled. Dispatching is done on the same thread
+   * as the regular dispatching so that both never run concurrently.
+   */
+  private void scheduleReadyJobsDispatch() {
+    if (readyDispatchScheduled.compareAndSet(false, true)) {
+      try {
+        scheduledExecutor.execute(() -> new JobDispatcherRunner().dispatchReadyJobs());
+      } catch (RejectedExecutionException e) {
+        readyDispatchScheduled.set(false);
+        logger.debug("Unable to schedule dispatching of ready jobs", e);
+      }
+    }
+  }
+
+  /**
+   * Takes the next batch of ready jobs from the ready queue.
+   *
+   * @return the identifiers of the next ready jobs, an empty collection if there are none
+   */
+  private Set<Long> pollReadyJobs() {
+    Set<Long> batch = new LinkedHashSet<>();
+    Long jobId;
+    while (batch.size() < ServiceRegistryJpaImpl.DEFAULT_DISPATCH_JOBS_LIMIT && (jobId = readyQueue.poll()) != null) {
+      batch.add(jobId);
+    }
+    return batch;
+  }
+
   Runnable getJobDispatcherRunnable() {
     return new JobDispatcherRunner();
   }
 
   public class JobDispatcherRunner implements Runnable {
 
+    /** The configuration of dispatching this runner has been created for */
+    private final long generation = dispatchGeneration.get();
+
+    /**
+     * Returns whether dispatching has been reconfigured or stopped since this runner has been created.
+     *
+     * @return <code>true</code> if this runner must not dispatch any further jobs
+     */
+    private boolean isStopped() {
+      return generation != dispatchGeneration.get();
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -255,8 +534,14 @@ public class JobDispatcher {
     public void run() {
       logger.debug("Starting job dispatch");
 
+      final long scanStarted = System.currentTimeMillis();
+      final Set<Long> scannedJobs = new HashSet<>();
+      dispatching.set(true);
       undispatchableJobTypes = new ArrayList<>();
       try {
+        // Host loads are kept in memory while dispatching, only re-read them once per round
+        serviceRegistry.refreshHostLoads();
+
         //GDLGDL: move collectJobStats to the JD config, then this is reasonable
         // FIXME: the stats are not currently used and the queries are very expensive in database time.
         if (serviceRegistry.collectJobstats) {
@@ -286,6 +571,7 @@ public class JobDispatcher {
           ));
           jobsOffset += ServiceRegistryJpaImpl.DEFAULT_DISPATCH_JOBS_LIMIT;
           jobsFound = !dispatchableJobs.isEmpty();
+          dispatchableJobs.forEach(job -> scannedJobs.add(job.getId()));
 
           // skip all jobs of type workflow, we will handle them next
           for (JpaJob job : dispatchableJobs) {
@@ -298,7 +584,7 @@ public class JobDispatcher {
           }
 
           dispatchDispatchableJobs(dispatchableJobs);
-        } while (jobsFound);
+        } while (jobsFound && !isStopped());
 
         jobsOffset = 0;
         do {
@@ -308,6 +594,7 @@ public class JobDispatcher {
           ));
           jobsOffset += ServiceRegistryJpaImpl.DEFAULT_DISPATCH_JOBS_LIMIT;
           jobsFound = !dispatchableJobs.isEmpty();
+          dispatchableJobs.forEach(job -> scannedJobs.add(job.getId()));
 
           // skip all jobs of type workflow, we will handle them next
           for (JpaJob job : dispatchableJobs) {
@@ -320,7 +607,7 @@ public class JobDispatcher {
           }
 
           dispatchDispatchableJobs(dispatchableJobs);
-        } while (jobsFound);
+        } while (jobsFound && !isStopped());
 
         if (!workflowJobs.isEmpty()) {
           dispatchDispatchableJobs(workflowJobs);
@@ -329,23 +616,114 @@ public class JobDispatcher {
         logger.warn("Error dispatching jobs", t);
       } finally {
         undispatchableJobTypes = null;
+        dispatching.set(false);
       }
 
+      // Forget about signalled jobs that are no longer waiting for dispatch, e.g. because they have been deleted
+      readyJobs.entrySet().removeIf(e -> e.getValue() < scanStarted && !scannedJobs.contains(e.getKey()));
+      parkedJobs.retainAll(readyJobs.keySet());
+      dispatcherStatistics.updateQueueSizes(readyQueue.size(), parkedJobs.size());
+
       logger.debug("Finished job dispatch");
     }
 
+    /**
+     * Dispatch the jobs that have been signalled as ready by the service registry. Jobs that cannot be dispatched are
+     * parked until capacity is released or until they are picked up by the next recovery scan.
+     */
+    public void dispatchReadyJobs() {
+      readyDispatchScheduled.set(false);
+      logger.debug("Starting dispatch of ready jobs");
+
+      dispatching.set(true);
+      undispatchableJobTypes = new ArrayList<>();
+      try {
+        for (Set<Long> jobIds = pollReadyJobs(); !jobIds.isEmpty(); jobIds = pollReadyJobs()) {
+          List<JpaJob> jobs = db.exec(serviceRegistry.getDispatchableJobsWithIdsQuery(jobIds, Job.Status.RESTART,
+              Job.Status.QUEUED));
+
+          // Jobs which are not returned have already been dispatched or are gone
+          Set<Long> foundJobIds = jobs.stream().map(JpaJob::getId).collect(Collectors.toSet());
+          for (Long jobId : jobIds) {
+            if (!foundJobIds.contains(jobId)) {
+              readyJobs.remove(jobId);
+            }
+          }
+
+          // Like in a regular round of dispatching, workflow jobs are dispatched last
+          Map<Boolean, List<JpaJob>> partitioned = jobs.stream().collect(Collectors.partitioningBy(
+              job -> ServiceRegistryJpaImpl.TYPE_WORKFLOW.equals(job.getJobType())));
+          dispatchDispatchableJobs(partitioned.get(false));
+          dispatchDispatchableJobs(partitioned.get(true));
+
+          for (JpaJob job : jobs) {
+            if (!readyJobs.containsKey(job.getId())) {
+              continue;
+            }
+            if (Job.Status.QUEUED.equals(job.getStatus()) || Job.Status.RESTART.equals(job.getStatus())) {
+              parkedJobs.add(job.getId());
+            } else {
+              readyJobs.remove(job.getId());
+            }
+          }
+        }
+      } catch (Throwable t) {
+        logger.warn("Error dispatching ready jobs", t);
+      } finally {
+        undispatchableJobTypes = null;
+        dispatching.set(false);
+        dispatcherStatistics.updateQueueSizes(readyQueue.size(), parkedJobs.size());
+      }
+
+      logger.debug("Finished dispatch of ready jobs");
+    }
+
     /**
      * Dispatch the given jobs.
      *
      * @param jobsToDispatch list with dispatchable jobs to dispatch
      */
     private void dispatchDispatchableJobs(List<JpaJob> jobsToDispatch) {
-      // Get the current system load
-      SystemLoad systemLoad = db.exec(serviceRegistry.getHostLoadsQuery());
+      if (jobsToDispatch.isEmpty()) {
+        return;
+      }
+
+      // Keep the dispatch thread pool from being replaced until all requests of the batch have been completed
+      dispatchExecutorLock.readLock().lock();
+      try {
+        dispatchDispatchableJobs(jobsToDispatch, dispatchExecutor);
+      } finally {
+        dispatchExecutorLock.readLock().unlock();
+      }
+    }
+
+    /**
+     * Dispatch the given jobs.
+     *
+     * @param jobsToDispatch list with dispatchable jobs to dispatch
+     * @param executor the thread pool to post the jobs with, <code>null</code> to post them one after another
+     */
+    private void dispatchDispatchableJobs(List<JpaJob> jobsToDispatch, ExecutorService executor) {
+      // Get the current system load and registrations once, all jobs of the batch are dispatched against them
+      List<ServiceRegistration> services = db.exec(serviceRegistry.getServiceRegistrationsQuery());
+      List<HostRegistration> allHosts = db.exec(serviceRegistry.getHostRegistrationsQuery());
+      SystemLoad systemLoad = serviceRegistry.getHostLoads(hostLoadsMaxAge, allHosts);
+
+      // Whether the children of a parent job may only be dispatched to services with capacity, by parent job
+      Map<Long, Boolean> capacityOnlyByParent = new HashMap<>();
+
+      // Dispatch requests which have been sent to the services concurrently
+      List<PendingDispatch> pendingDispatches = new ArrayList<>();
 
       for (JpaJob job : jobsToDispatch) {
-        // Remember the job type
+        if (isStopped()) {
+          logger.debug("Dispatching has been reconfigured or stopped, not dispatching any further jobs");
+          break;
+        }
+
+        // Remember the job type and status
         String jobType = job.getJobType();
+        Job.Status jobStatus = job.getStatus();
 
         // Skip jobs that we already know can't be dispatched except of jobs in the priority list
         String jobSignature = jobType + '@' + job.getOperation();
@@ -378,8 +756,7 @@ public class JobDispatcher {
 
         // Start dispatching
         try {
-          List<ServiceRegistration> services = db.exec(serviceRegistry.getServiceRegistrationsQuery());
-          List<HostRegistration> hosts = db.exec(serviceRegistry.getHostRegistrationsQuery()).stream()
+          List<HostRegistration> hosts = allHosts.stream()
                                            .filter(host -> !dispatchPriorityList.containsValue(host.getBaseUrl())
                                                || host.getBaseUrl().equals(dispatchPriorityList.get(job.getId())))
                                            .collect(Collectors.toList());
@@ -388,30 +765,18 @@ public class JobDispatcher {
           // Depending on whether this running job is trying to reach out to other services or whether this is an
           // attempt to execute the next operation in a workflow, choose either from a limited or from the full list
           // of services
-          Job parentJob = null;
-          try {
-            if (job.getParentJob() != null) {
-              parentJob = serviceRegistry.getJob(job.getParentJob().getId());
-            }
-          } catch (NotFoundException e) {
-            // That's ok
-          }
-
-          // When a job A starts a series of child jobs, then those child jobs should only be dispatched at the
-          // same time if there is processing capacity available.
-          boolean parentHasRunningChildren = false;
-          if (parentJob != null) {
-            for (Job child : serviceRegistry.getChildJobs(parentJob.getId())) {
-              if (Job.Status.RUNNING.equals(child.getStatus())) {
-                parentHasRunningChildren = true;
-                break;
-              }
+          boolean capacityOnly = true;
+          if (job.getParentJob() != null) {
+            Long parentJobId = job.getParentJob().getId();
+            if (!capacityOnlyByParent.containsKey(parentJobId)) {
+              capacityOnlyByParent.put(parentJobId, isCapacityRequiredForChildren(parentJobId));
             }
+            capacityOnly = capacityOnlyByParent.get(parentJobId);
           }
 
           // If this is a root job (a new workflow or a new workflow operation), then only dispatch if there is
           // capacity, i. e. the workflow service is ok dispatching the next workflow or the next workflow operation.
-          if (parentJob == null || ServiceRegistryJpaImpl.TYPE_WORKFLOW.equals(jobType) || parentHasRunningChildren) {
+          if (capacityOnly || ServiceRegistryJpaImpl.TYPE_WORKFLOW.equals(jobType)) {
             logger.trace("Using available capacity only for dispatching of {} to a service of type '{}'", job, jobType);
             candidateServices = serviceRegistry.getServiceRegistrationsWithCapacity(jobType, services, hosts, systemLoad);
           } else {
@@ -420,29 +785,26 @@ public class JobDispatcher {
           }
 
           // Try to dispatch the job
-          String hostAcceptingJob;
-          try {
-            hostAcceptingJob = dispatchJob(job, candidateServices);
-            try {
-              systemLoad.updateNodeLoad(hostAcceptingJob, job.getJobLoad());
-            } catch (NotFoundException e) {
-              logger.info("Host {} not found in load list, cannot dispatch {} to it", hostAcceptingJob, job);
-            }
-
-            dispatchPriorityList.remove(job.getId());
-          } catch (ServiceUnavailableException e) {
-            logger.debug("Jobs of type {} currently cannot be dispatched", job.getOperation());
-            // Don't mark workflow jobs as undispatchable to not impact worklfow operations
-            if (!ServiceRegistryJpaImpl.TYPE_WORKFLOW.equals(jobType)) {
-              undispatchableJobTypes.add(jobSignature);
+          if (executor == null) {
+            completeDispatch(new PendingDispatch(job, jobStatus, jobSignature, null,
+                dispatchJobNow(job, candidateServices)), systemLoad);
+          } else {
+            // Assume the job is going to be accepted by the least loaded service until we know better, so that the
+            // next jobs are dispatched to other services
+            String reservedHost = candidateServices.isEmpty() ? null : candidateServices.get(0).getHost();
+            modifyLoad(systemLoad, reservedHost, job.getJobLoad());
+            pendingDispatches.add(new PendingDispatch(job, jobStatus, jobSignature, reservedHost,
+                dispatchJobConcurrently(executor, job, candidateServices, organization, user)));
+
+            // Learn about undispatchable job types as early as possible
+            for (Iterator<PendingDispatch> i = pendingDispatches.iterator(); i.hasNext();) {
+              PendingDispatch pendingDispatch = i.next();
+              if (pendingDispatch.result.isDone()) {
+                i.remove();
+                completeDispatch(pendingDispatch, systemLoad);
+              }
             }
-            continue;
-          } catch (UndispatchableJobException e) {
-            logger.debug("{} currently cannot be dispatched", job);
-            continue;
           }
-
-          logger.debug("{} dispatched to {}", job, hostAcceptingJob);
         } catch (ServiceRegistryException e) {
           Throwable cause = (e.getCause() != null) ? e.getCause() : e;
           logger.error("Error dispatching {}", job, cause);
@@ -451,6 +813,176 @@ public class JobDispatcher {
           securityService.setOrganization(null);
         }
       }
+
+      // Wait for the remaining dispatch requests to finish
+      for (PendingDispatch pendingDispatch : pendingDispatches) {
+        completeDispatch(pendingDispatch, systemLoad);
+      }
+    }
+
+    /**
+     * Dispatches the job on the current thread.
+     *
+     * @param job the job to dispatch
+     * @param services the candidate services
+     * @return the completed dispatch result
+     */
+    private Future<String> dispatchJobNow(JpaJob job, List<ServiceRegistration> services) {
+      try {
+        return CompletableFuture.completedFuture(dispatchJob(job, services));
+      } catch (Exception e) {
+        return CompletableFuture.failedFuture(e);
+      }
+    }
+
+    /**
+     * Dispatches the job using the dispatch thread pool.
+     *
+     * @param executor the dispatch thread pool
+     * @param job the job to dispatch
+     * @param services the candidate services
+     * @param organization the organization of the job's creator
+     * @param user the job's creator
+     * @return the pending dispatch result
+     */
+    private Future<String> dispatchJobConcurrently(ExecutorService executor, JpaJob job,
+        List<ServiceRegistration> services, Organization organization, User user) {
+      try {
+        return executor.submit(() -> {
+          dispatching.set(true);
+          securityService.setOrganization(organization);
+          securityService.setUser(user);
+          try {
+            return dispatchJob(job, services);
+          } finally {
+            securityService.setUser(null);
+            securityService.setOrganization(null);
+            dispatching.set(false);
+          }
+        });
+      } catch (RejectedExecutionException e) {
+        return CompletableFuture.failedFuture(new UndispatchableJobException(job + " cannot be dispatched now"));
+      }
+    }
+
+    /**
+     * Waits for the result of a dispatch request and applies it to the job, the dispatcher state and the system load.
+     *
+     * @param pendingDispatch the dispatch request
+     * @param systemLoad the system load of the current batch
+     */
+    private void completeDispatch(PendingDispatch pendingDispatch, SystemLoad systemLoad) {
+      JpaJob job = pendingDispatch.job;
+      modifyLoad(systemLoad, pendingDispatch.reservedHost, -job.getJobLoad());
+      try {
+        String hostAcceptingJob = awaitDispatch(pendingDispatch.result);
+        try {
+          systemLoad.updateNodeLoad(hostAcceptingJob, job.getJobLoad());
+        } catch (NotFoundException e) {
+          logger.info("Host {} not found in load list, cannot dispatch {} to it", hostAcceptingJob, job);
+        }
+        serviceRegistry.addDispatchedJobLoad(job, hostAcceptingJob);
+
+        dispatchPriorityList.remove(job.getId());
+        recordDispatched(job, pendingDispatch.previousStatus);
+        logger.debug("{} dispatched to {}", job, hostAcceptingJob);
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof ServiceUnavailableException) {
+          logger.debug("Jobs of type {} currently cannot be dispatched", job.getOperation());
+          // Don't mark workflow jobs as undispatchable to not impact worklfow operations
+          if (!ServiceRegistryJpaImpl.TYPE_WORKFLOW.equals(job.getJobType())) {
+            undispatchableJobTypes.add(pendingDispatch.jobSignature);
+          }
+        } else if (cause instanceof UndispatchableJobException) {
+          logger.debug("{} currently cannot be dispatched", job);
+        } else if (cause instanceof ServiceRegistryException && cause.getCause() != null) {
+          logger.error("Error dispatching {}", job, cause.getCause());
+        } else {
+          logger.error("Error dispatching {}", job, cause);
+        }
+      }
+    }
+
+    /**
+     * Waits for the result of a dispatch request. The request has been sent already, so its result is awaited even if
+     * the thread is interrupted, the interrupt is restored afterwards.
+     *
+     * @param result the pending dispatch result
+     * @return the host that accepted the job
+     * @throws ExecutionException if the job has not been dispatched
+     */
+    private String awaitDispatch(Future<String> result) throws ExecutionException {
+      boolean interrupted = false;
+      try {
+        while (true) {
+          try {
+            return result.get();
+          } catch (InterruptedException e) {
+            interrupted = true;
+          }
+        }
+      } finally {
+        if (interrupted) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+
+    /**
+     * Modifies the load of a host within the given system load, if the host is known.
+     *
+     * @param systemLoad the system load
+     * @param host the host, may be <code>null</code>
+     * @param load the load to add, negative to remove load
+     */
+    private void modifyLoad(SystemLoad systemLoad, String host, float load) {
+      if (host != null && systemLoad.containsHost(host)) {
+        systemLoad.get(host).modifyLoad(load);
+      }
+    }
+
+    /**
+     * Checks whether the children of the given job may only be dispatched to services with available capacity. This is
+     * the case if the parent job does not exist (anymore) or if it already has running children: when a job A starts a
+     * series of child jobs, then those child jobs should only be dispatched at the same time if there is processing
+     * capacity available.
+     *
+     * @param parentJobId the identifier of the parent job
+     * @return <code>true</code> if the children of the job may only be dispatched to services with capacity
+     * @throws ServiceRegistryException if the child jobs cannot be loaded
+     */
+    private boolean isCapacityRequiredForChildren(long parentJobId) throws ServiceRegistryException {
+      try {
+        serviceRegistry.getJob(parentJobId);
+      } catch (NotFoundException e) {
+        return true;
+      }
+      for (Job child : serviceRegistry.getChildJobs(parentJobId)) {
+        if (Job.Status.RUNNING.equals(child.getStatus())) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /**
+     * Updates the dispatcher statistics for a successfully dispatched job.
+     *
+     * @param job the dispatched job
+     * @param previousStatus the status of the job before it has been dispatched
+     */
+    private void recordDispatched(JpaJob job, Job.Status previousStatus) {
+      parkedJobs.remove(job.getId());
+      Long signalled = readyJobs.remove(job.getId());
+      long now = System.currentTimeMillis();
+      if (signalled != null) {
+        dispatcherStatistics.jobDispatched(now - signalled);
+      } else if (Job.Status.QUEUED.equals(previousStatus) && job.getDateCreated() != null) {
+        dispatcherStatistics.jobDispatched(now - job.getDateCreated().getTime());
+      } else {
+        dispatcherStatistics.jobDispatched(-1);
+      }
     }
 
     /**
@@ -471,6 +1003,10 @@ public class JobDispatcher {
         throw new ServiceUnavailableException("No service of type " + job.getJobType() + " available");
       }
 
+      // Remember the job's state in case none of the registrations can be tried
+      final Job.Status previousStatus = job.getStatus();
+      final ServiceRegistrationJpaImpl previousProcessor = job.getProcessorServiceRegistration();
+
       // Try the service registrations, after the first one finished, we quit;
       job.setStatus(Job.Status.DISPATCHING);
 
@@ -497,15 +1033,27 @@ public class JobDispatcher {
           continue;
         }
 
-        try {
-          job = serviceRegistry.updateInternal(job); // will open a tx
-        } catch (Exception e) {
-          // In theory, we should catch javax.persistence.OptimisticLockException. Unfortunately, eclipselink throws
-          // org.eclipse.persistence.exceptions.OptimisticLockException. In order to avoid importing the implementation
-          // specific APIs, we just catch Exception.
-          logger.debug("Unable to dispatch {}.  This is likely caused by another service registry dispatching the job",
-              job);
-          throw new UndispatchableJobException(job + " is already being dispatched");
+        // Don't let a slow host hold up the dispatching of jobs to other hosts
+        Semaphore hostPermit = acquireHostPermit(registration.getHost());
+        if (hostPermit == null) {
+          logger.debug("Too many dispatch requests in flight to {}, skipping it for {}", registration.getHost(), job);
+          continue;
+        }
+
+        // Mark the job as being dispatched once before it is sent anywhere, which keeps other dispatchers from sending
+        // it as well. The host accepting the job records itself as the processor when it starts running the job.
+        if (!triedDispatching) {
+          try {
+            job = serviceRegistry.updateInternal(job); // will open a tx
+          } catch (Exception e) {
+            hostPermit.release();
+            // In theory, we should catch javax.persistence.OptimisticLockException. Unfortunately, eclipselink throws
+            // org.eclipse.persistence.exceptions.OptimisticLockException. In order to avoid importing the
+            // implementation specific APIs, we just catch Exception.
+            logger.debug("Unable to dispatch {}.  This is likely caused by another service registry dispatching the "
+                + "job", job);
+            throw new UndispatchableJobException(job + " is already being dispatched");
+          }
         }
 
         triedDispatching = true;
@@ -531,7 +1079,11 @@ public class JobDispatcher {
           if (!ServiceRegistryJpaImpl.START_WORKFLOW.equals(job.getOperation())) {
             serviceRegistry.setCurrentJob(job.toJob());
           }
-          response = client.execute(post);
+          if (dispatchTimeoutMs > 0) {
+            response = client.execute(post, dispatchTimeoutMs, dispatchTimeoutMs);
+          } else {
+            response = client.execute(post);
+          }
           responseStatusCode = response.getStatusLine().getStatusCode();
           if (responseStatusCode == HttpStatus.SC_NO_CONTENT) {
             return registration.getHost();
@@ -565,6 +1117,7 @@ public class JobDispatcher {
             // ignore
           }
           serviceRegistry.setCurrentJob(null);
+          hostPermit.release();
         }
       }
 
@@ -587,12 +1140,28 @@ public class JobDispatcher {
         } catch (Exception e) {
           logger.error("Unable to put {} back into queue", job, e);
         }
+      } else {
+        // Nothing has been persisted, so the job is still waiting in its previous state and can be parked
+        job.setStatus(previousStatus);
+        job.setProcessorServiceRegistration(previousProcessor);
       }
 
       logger.debug("Unable to dispatch {}, no service is currently ready to accept the job", job);
       throw new UndispatchableJobException(job + " is currently undispatchable");
     }
 
+    /**
+     * Acquires a permit to send a dispatch request to the given host without waiting for one. A host without a free
+     * permit is skipped, so the job is sent to the next host or stays queued for the next round of dispatching.
+     *
+     * @param host the host
+     * @return the acquired permit which needs to be released, or <code>null</code> if no permit is available
+     */
+    private Semaphore acquireHostPermit(String host) {
+      Semaphore permit = hostPermits.computeIfAbsent(host, h -> new Semaphore(Math.max(1, maxInFlightPerHost)));
+      return permit.tryAcquire() ? permit : null;
+    }
+
     /**
      * Return dispatchable job ids, where the job status is RESTART or QUEUED and the job id is listed in the given set.
      *
@@ -638,4 +1207,22 @@ public class JobDispatcher {
       }
     };
   }
+
+  /** A dispatch request whose result may not be known yet */
+  private static final class PendingDispatch {
+    private final JpaJob job;
+    private final Job.Status previousStatus;
+    private final String jobSignature;
+    private final String reservedHost;
+    private final Future<String> result;
+
+    private PendingDispatch(JpaJob job, Job.Status previousStatus, String jobSignature, String reservedHost,
+        Future<String> result) {
+      this.job = job;
+      this.previousStatus = previousStatus;
+      this.jobSignature = jobSignature;
+      this.reservedHost = reservedHost;
+      this.result = result;
+    }
+  }
 }
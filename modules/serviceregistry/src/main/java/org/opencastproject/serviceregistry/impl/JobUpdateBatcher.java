@@ -0,0 +1,293 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.serviceregistry.impl;
+
+import org.opencastproject.db.DBSession;
+import org.opencastproject.job.jpa.JpaJob;
+import org.opencastproject.util.NotFoundException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Coalesces job updates issued by concurrent threads into shared database transactions.
+ * <p>
+ * Updates are collected for up to the flush interval and then written in a single transaction. The threads issuing
+ * the updates wait until their update has been committed, so an update which has returned successfully is as durable
+ * as an update written in its own transaction, regardless of the job's status. If a batch cannot be written, its
+ * updates are retried one by one so that a single failing update does not affect the others.
+ */
+class JobUpdateBatcher {
+
+  /** The logging facility */
+  private static final Logger logger = LoggerFactory.getLogger(JobUpdateBatcher.class);
+
+  /** Time to wait for updates before checking whether the batcher has been stopped, in milliseconds */
+  private static final long POLL_TIMEOUT = 100;
+
+  /** The database session */
+  private final DBSession db;
+
+  /** Applies an in-memory job to the job read from the database */
+  private final BiConsumer<JpaJob, JpaJob> updater;
+
+  /** Maximum time to wait for further updates before writing a batch, in milliseconds */
+  private final long flushInterval;
+
+  /** Maximum number of updates written in a single transaction */
+  private final int maxBatchSize;
+
+  /** Updates waiting to be written */
+  private final BlockingQueue<PendingUpdate> queue = new LinkedBlockingQueue<>();
+
+  /** Number of committed transactions */
+  private final AtomicLong transactions = new AtomicLong();
+
+  /** Number of committed updates */
+  private final AtomicLong updates = new AtomicLong();
+
+  /** The thread writing the batches */
+  private final Thread flusher = new Thread(this::run, "Job update batcher");
+
+  /** Whether new updates are batched */
+  private volatile boolean running = false;
+
+  /**
+   * Creates a new batcher. The batcher needs to be started before updates are batched.
+   *
+   * @param db
+   *          the database session
+   * @param updater
+   *          applies an in-memory job to the managed job read from the database
+   * @param flushInterval
+   *          the maximum time to wait for further updates before writing a batch, in milliseconds
+   * @param maxBatchSize
+   *          the maximum number of updates written in a single transaction
+   */
+  JobUpdateBatcher(DBSession db, BiConsumer<JpaJob, JpaJob> updater, long flushInterval, int maxBatchSize) {
+    this.db = db;
+    this.updater = updater;
+    this.flushInterval = flushInterval;
+    this.maxBatchSize = Math.max(1, maxBatchSize);
+    flusher.setDaemon(true);
+  }
+
+  /**
+   * Starts batching updates.
+   */
+  void start() {
+    running = true;
+    flusher.start();
+  }
+
+  /**
+   * Stops batching updates after writing all pending updates. Updates issued afterwards are written immediately.
+   */
+  void stop() {
+    running = false;
+    try {
+      flusher.join();
+    } catch (InterruptedException e) {
+      logger.warn("Interrupted while waiting for pending job updates to be written");
+      Thread.currentThread().interrupt();
+    }
+    List<PendingUpdate> pending = new ArrayList<>();
+    queue.drainTo(pending);
+    flush(pending);
+  }
+
+  /**
+   * Writes the given job to the database and waits for the write to be committed.
+   *
+   * @param job
+   *          the job to write
+   * @return the version of the job after the update
+   * @throws NotFoundException
+   *           if the job does not exist in the database
+   */
+  long update(JpaJob job) throws NotFoundException {
+    PendingUpdate update = new PendingUpdate(job);
+    if (!running) {
+      return write(update);
+    }
+    queue.add(update);
+    // The batcher may have been stopped before the update has been queued
+    if (!running && queue.remove(update)) {
+      return write(update);
+    }
+    try {
+      return update.result.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for the update of job " + job.getId(), e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof NotFoundException) {
+        throw (NotFoundException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
+  }
+
+  /**
+   * Returns the number of transactions committed by this batcher.
+   *
+   * @return the number of transactions
+   */
+  long getTransactionCount() {
+    return transactions.get();
+  }
+
+  /**
+   * Returns the number of job updates committed by this batcher.
+   *
+   * @return the number of updates
+   */
+  long getUpdateCount() {
+    return updates.get();
+  }
+
+  private void run() {
+    while (running) {
+      try {
+        PendingUpdate first = queue.poll(POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        List<PendingUpdate> batch = new ArrayList<>();
+        batch.add(first);
+        long deadline = System.currentTimeMillis() + flushInterval;
+        while (batch.size() < maxBatchSize) {
+          long wait = deadline - System.currentTimeMillis();
+          PendingUpdate next = wait > 0 ? queue.poll(wait, TimeUnit.MILLISECONDS) : queue.poll();
+          if (next == null) {
+            break;
+          }
+          batch.add(next);
+        }
+        flush(batch);
+      } catch (InterruptedException e) {
+        logger.warn("Job update batcher interrupted");
+        Thread.currentThread().interrupt();
+        return;
+      } catch (Exception e) {
+        logger.error("Error writing job updates", e);
+      }
+    }
+  }
+
+  /**
+   * Writes the given updates. Updates of the same job are written in separate transactions, in the order in which
+   * they have been issued, since each of them needs to see the version written by the previous one.
+   *
+   * @param batch
+   *          the updates to write
+   */
+  private void flush(List<PendingUpdate> batch) {
+    List<PendingUpdate> remaining = batch;
+    while (!remaining.isEmpty()) {
+      List<PendingUpdate> current = new ArrayList<>();
+      List<PendingUpdate> deferred = new ArrayList<>();
+      Set<Long> jobIds = new HashSet<>();
+      for (PendingUpdate update : remaining) {
+        if (jobIds.add(update.job.getId())) {
+          current.add(update);
+        } else {
+          deferred.add(update);
+        }
+      }
+
+      try {
+        write(current);
+      } catch (Exception e) {
+        logger.debug("Unable to write batch of {} job updates, writing them one by one", current.size(), e);
+        for (PendingUpdate update : current) {
+          try {
+            write(Collections.singletonList(update));
+          } catch (Exception e1) {
+            update.result.completeExceptionally(e1);
+          }
+        }
+      }
+      remaining = deferred;
+    }
+  }
+
+  /**
+   * Writes a single update on the current thread.
+   */
+  private long write(PendingUpdate update) throws NotFoundException {
+    write(Collections.singletonList(update));
+    return update.result.join();
+  }
+
+  /**
+   * Writes the given updates of distinct jobs in a single transaction and completes them once committed.
+   */
+  private void write(List<PendingUpdate> batch) throws NotFoundException {
+    List<JpaJob> written = db.execTxChecked(em -> {
+      List<JpaJob> jobs = new ArrayList<>(batch.size());
+      for (PendingUpdate update : batch) {
+        JpaJob fromDb = em.find(JpaJob.class, update.job.getId());
+        if (fromDb == null) {
+          throw new NotFoundException("Job " + update.job.getId() + " not found");
+        }
+        updater.accept(fromDb, update.job);
+        em.merge(fromDb);
+        jobs.add(fromDb);
+      }
+      return jobs;
+    });
+    transactions.incrementAndGet();
+    updates.addAndGet(batch.size());
+    for (int i = 0; i < batch.size(); i++) {
+      batch.get(i).result.complete(written.get(i).toJob().getVersion());
+    }
+  }
+
+  /** A job update waiting to be written */
+  private static final class PendingUpdate {
+    private final JpaJob job;
+    private final CompletableFuture<Long> result = new CompletableFuture<>();
+
+    private PendingUpdate(JpaJob job) {
+      this.job = job;
+    }
+  }
+
+}
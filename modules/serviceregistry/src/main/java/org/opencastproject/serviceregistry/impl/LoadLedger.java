@@ -0,0 +1,155 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.serviceregistry.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+
+/**
+ * Thread safe ledger of the load contributed by individual jobs, accumulated per host.
+ * <p>
+ * Job status updates on busy nodes record and release job loads concurrently, so the ledger does not use any locks.
+ * Each job is recorded at most once, which makes adding and removing the load of a job idempotent. Reading the load of
+ * a host never blocks writers.
+ */
+class LoadLedger {
+
+  /** Loads below this value are considered to be rounding errors */
+  private static final double EPSILON = 0.0000001;
+
+  /** The recorded jobs, by job identifier */
+  private final Map<Long, JobLoad> jobLoads = new ConcurrentHashMap<>();
+
+  /** The accumulated load, by host */
+  private final Map<String, DoubleAdder> hostLoads = new ConcurrentHashMap<>();
+
+  /**
+   * Records the load of a job running on the given host unless the job has already been recorded.
+   *
+   * @param jobId
+   *          the job identifier
+   * @param host
+   *          the host processing the job
+   * @param load
+   *          the job load
+   * @return <code>true</code> if the job has been recorded, <code>false</code> if it was already known
+   */
+  boolean addJobLoad(long jobId, String host, float load) {
+    return addJobLoad(jobId, new JobLoad(host, load, System.nanoTime()));
+  }
+
+  /**
+   * Records the jobs of another ledger which have been recorded there at or after the given time, e.g. because a
+   * database read started at that time may not reflect them. The jobs keep the time they have been recorded at.
+   *
+   * @param ledger
+   *          the ledger to take the jobs from
+   * @param since
+   *          the time as returned by {@link System#nanoTime()}
+   */
+  void addJobLoadsSince(LoadLedger ledger, long since) {
+    ledger.jobLoads.forEach((jobId, jobLoad) -> {
+      if (jobLoad.recorded - since >= 0) {
+        addJobLoad(jobId, jobLoad);
+      }
+    });
+  }
+
+  private boolean addJobLoad(long jobId, JobLoad jobLoad) {
+    // The host's adder has to exist before the job is published, a concurrent removal of the job relies on it
+    DoubleAdder hostLoad = hostLoads.computeIfAbsent(jobLoad.host, h -> new DoubleAdder());
+    if (jobLoads.putIfAbsent(jobId, jobLoad) != null) {
+      return false;
+    }
+    hostLoad.add(jobLoad.load);
+    return true;
+  }
+
+  /**
+   * Releases the load of a job which has been recorded before.
+   *
+   * @param jobId
+   *          the job identifier
+   * @return <code>true</code> if the job's load has been released, <code>false</code> if the job was not recorded
+   */
+  boolean removeJobLoad(long jobId) {
+    JobLoad jobLoad = jobLoads.remove(jobId);
+    if (jobLoad == null) {
+      return false;
+    }
+    hostLoads.computeIfAbsent(jobLoad.host, h -> new DoubleAdder()).add(-jobLoad.load);
+    return true;
+  }
+
+  /**
+   * Returns the load recorded for the given host.
+   *
+   * @param host
+   *          the host
+   * @return the accumulated load of all recorded jobs on the host
+   */
+  float getLoad(String host) {
+    DoubleAdder load = hostLoads.get(host);
+    return load == null ? 0.0f : clamp(load.sum());
+  }
+
+  /**
+   * Returns the loads recorded for all hosts.
+   *
+   * @return the accumulated load of the recorded jobs, by host
+   */
+  Map<String, Float> getLoads() {
+    Map<String, Float> loads = new HashMap<>();
+    hostLoads.forEach((host, load) -> loads.put(host, clamp(load.sum())));
+    return loads;
+  }
+
+  /**
+   * Returns the number of recorded jobs.
+   *
+   * @return the number of jobs
+   */
+  int getJobCount() {
+    return jobLoads.size();
+  }
+
+  private static float clamp(double load) {
+    return load < EPSILON ? 0.0f : (float) load;
+  }
+
+  /** The load of a single job */
+  private static final class JobLoad {
+    private final String host;
+    private final float load;
+    private final long recorded;
+
+    private JobLoad(String host, float load, long recorded) {
+      this.host = host;
+      this.load = load;
+      this.recorded = recorded;
+    }
+  }
+
+}
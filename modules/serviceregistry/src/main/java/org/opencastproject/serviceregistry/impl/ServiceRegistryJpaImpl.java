@@ -22,12 +22,15 @@
 package org.opencastproject.serviceregistry.impl;
 
 import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.opencastproject.db.Queries.namedQuery;
 import static org.opencastproject.job.api.AbstractJobProducer.ACCEPT_JOB_LOADS_EXCEEDING_PROPERTY;
 import static org.opencastproject.job.api.AbstractJobProducer.DEFAULT_ACCEPT_JOB_LOADS_EXCEEDING;
 import static org.opencastproject.job.api.Job.FailureReason.DATA;
 import static org.opencastproject.job.api.Job.Status.FAILED;
+import static org.opencastproject.security.api.SecurityConstants.ORGANIZATION_HEADER;
+import static org.opencastproject.security.api.SecurityConstants.USER_HEADER;
 import static org.opencastproject.serviceregistry.api.ServiceState.ERROR;
 import static org.opencastproject.serviceregistry.api.ServiceState.NORMAL;
 import static org.opencastproject.serviceregistry.api.ServiceState.WARNING;
@@ -49,6 +52,7 @@ import org.opencastproject.serviceregistry.api.HostStatistics;
 import org.opencastproject.serviceregistry.api.IncidentService;
 import org.opencastproject.serviceregistry.api.Incidents;
 import org.opencastproject.serviceregistry.api.JaxbServiceStatistics;
+import org.opencastproject.serviceregistry.api.JobCompletionNotifier;
 import org.opencastproject.serviceregistry.api.ServiceRegistration;
 import org.opencastproject.serviceregistry.api.ServiceRegistry;
 import org.opencastproject.serviceregistry.api.ServiceRegistryException;
@@ -56,7 +60,9 @@ import org.opencastproject.serviceregistry.api.ServiceStatistics;
 import org.opencastproject.serviceregistry.api.SystemLoad;
 import org.opencastproject.serviceregistry.api.SystemLoad.NodeLoad;
 import org.opencastproject.serviceregistry.impl.jmx.HostsStatistics;
+import org.opencastproject.serviceregistry.impl.jmx.JobCompletionStatistics;
 import org.opencastproject.serviceregistry.impl.jmx.JobsStatistics;
+import org.opencastproject.serviceregistry.impl.jmx.LoadStatistics;
 import org.opencastproject.serviceregistry.impl.jmx.ServicesStatistics;
 import org.opencastproject.serviceregistry.impl.jpa.HostRegistrationJpaImpl;
 import org.opencastproject.serviceregistry.impl.jpa.ServiceRegistrationJpaImpl;
@@ -72,7 +78,10 @@ import org.apache.commons.lang3.time.DateUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
+import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.HttpHead;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.message.BasicNameValuePair;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.framework.ServiceReference;
@@ -91,11 +100,13 @@ import org.osgi.util.tracker.ServiceTracker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.net.InetAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
@@ -105,7 +116,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
@@ -159,6 +173,15 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
   /** Jobs statistics JMX type */
   private static final String JMX_JOBS_STATISTICS_TYPE = "JobsStatistics";
 
+  /** JMX type for the load statistics */
+  private static final String JMX_LOAD_STATISTICS_TYPE = "LoadStatistics";
+
+  /** JMX type for the job completion statistics */
+  private static final String JMX_JOB_COMPLETION_STATISTICS_TYPE = "JobCompletionStatistics";
+
+  /** Path of the service registry endpoint used to report terminated jobs to other hosts */
+  static final String JOB_TERMINATED_PATH = "/services/jobs/terminated";
+
   /** The JMX business object for hosts statistics */
   private HostsStatistics hostsStatistics;
 
@@ -189,6 +212,12 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
   /** Configuration key for the encoding workers load threshold */
   protected static final String OPT_ENCODING_THRESHOLD = "org.opencastproject.encoding.workers.threshold";
 
+  /** Configuration key for the time to collect job updates to write them in a single transaction, in milliseconds */
+  protected static final String OPT_JOB_UPDATE_BATCH_INTERVAL = "job.update.batch.interval";
+
+  /** Configuration key for the maximum number of job updates written in a single transaction */
+  protected static final String OPT_JOB_UPDATE_BATCH_SIZE = "job.update.batch.size";
+
   /** The http client to use when connecting to remote servers */
   protected TrustedHttpClient client = null;
 
@@ -228,6 +257,12 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
   /** Default delay between checking if hosts are still alive in seconds * */
   static final long DEFAULT_HEART_BEAT = 60;
 
+  /** Default time to collect job updates, 0 writes each job update in its own transaction */
+  static final long DEFAULT_JOB_UPDATE_BATCH_INTERVAL = 0;
+
+  /** Default maximum number of job updates written in a single transaction */
+  static final int DEFAULT_JOB_UPDATE_BATCH_SIZE = 100;
+
   /** Default job load when not passed by service creating the job * */
   static final float DEFAULT_JOB_LOAD = 0.1f;
 
@@ -276,8 +311,6 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
   private static final Status[] activeJobStatus =
       Arrays.stream(Status.values()).filter(Status::isActive).collect(Collectors.toList()).toArray(new Status[0]);
 
-  protected static HashMap<Long, Float> jobCache = new HashMap<>();
-
   static {
     JOB_STATUSES_INFLUENCING_LOAD_BALANCING = new ArrayList<>();
     JOB_STATUSES_INFLUENCING_LOAD_BALANCING.add(Status.RUNNING);
@@ -286,8 +319,26 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
   /** Whether to accept a job whose load exceeds the host’s max load */
   protected Boolean acceptJobLoadsExeedingMaxLoad = true;
 
-  // Current system load
-  protected float localSystemLoad = 0.0f;
+  /** Writes job updates in batches, <code>null</code> if each job update is written in its own transaction */
+  protected volatile JobUpdateBatcher jobUpdateBatcher = null;
+
+  /** Load of the jobs running on this host */
+  protected final LoadLedger localLoadLedger = new LoadLedger();
+
+  /** In-memory model of the host loads used for dispatching */
+  protected final HostLoadModel hostLoadModel = new HostLoadModel();
+
+  /** Listener informed about jobs that became ready for dispatching, if event driven dispatching is enabled */
+  private volatile JobDispatchListener dispatchListener = null;
+
+  /** Wakes up the threads on this host waiting for jobs to terminate */
+  protected final JobCompletionNotifier jobCompletionNotifier = new JobCompletionNotifier();
+
+  /** Reports terminated jobs to the hosts processing their parent jobs */
+  protected ExecutorService jobCompletionExecutor = null;
+
+  /** The JMX business object for the job completion statistics */
+  private final JobCompletionStatistics jobCompletionStatistics = new JobCompletionStatistics(jobCompletionNotifier);
 
   /** OSGi DI */
   @Reference(target = "(osgi.unit.name=org.opencastproject.common)")
@@ -320,6 +371,8 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
               + "the service paths.", OpencastConstants.SERVER_URL_PROPERTY);
     }
 
+    jobCompletionExecutor = Executors.newSingleThreadExecutor();
+
     // Clean all undispatchable jobs that were orphaned when this host was last deactivated
     cleanUndispatchableJobs(hostName);
 
@@ -332,6 +385,9 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
       jmxBeans.add(JmxUtil.registerMXBean(hostsStatistics, JMX_HOSTS_STATISTICS_TYPE));
       jmxBeans.add(JmxUtil.registerMXBean(servicesStatistics, JMX_SERVICES_STATISTICS_TYPE));
       jmxBeans.add(JmxUtil.registerMXBean(jobsStatistics, JMX_JOBS_STATISTICS_TYPE));
+      jmxBeans.add(JmxUtil.registerMXBean(new LoadStatistics(this::getOwnLoad, localLoadLedger::getJobCount),
+          JMX_LOAD_STATISTICS_TYPE));
+      jmxBeans.add(JmxUtil.registerMXBean(jobCompletionStatistics, JMX_JOB_COMPLETION_STATISTICS_TYPE));
     } catch (ServiceRegistryException e) {
       logger.error("Error registering JMX statistic beans", e);
     }
@@ -390,13 +446,12 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
               .getOrElse(DEFAULT_ACCEPT_JOB_LOADS_EXCEEDING);
     }
 
-    localSystemLoad = 0;
     logger.info("Activated");
   }
 
   @Override
   public float getOwnLoad() {
-    return localSystemLoad;
+    return localLoadLedger.getLoad(hostName);
   }
 
   @Override
@@ -421,6 +476,12 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
       }
     }
 
+    stopJobUpdateBatcher();
+
+    if (jobCompletionExecutor != null) {
+      jobCompletionExecutor.shutdownNow();
+    }
+
     for (ObjectInstance mbean : jmxBeans) {
       JmxUtil.unregisterMXBean(mbean);
     }
@@ -588,6 +649,9 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
     });
 
     setJobUri(jpaJob);
+    if (dispatchable) {
+      fireJobReady(jpaJob);
+    }
     return jpaJob.toJob();
   }
 
@@ -620,6 +684,11 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
       throw new ServiceRegistryException(e);
     }
 
+    // Nobody should keep waiting for jobs which do not exist any longer
+    for (long jobId : jobIds) {
+      jobCompletionNotifier.jobTerminated(jobId);
+    }
+
     logger.info("Jobs with IDs '{}' deleted", jobIds);
   }
 
@@ -789,6 +858,37 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
       }
     }
 
+    long jobUpdateBatchInterval = DEFAULT_JOB_UPDATE_BATCH_INTERVAL;
+    String jobUpdateBatchIntervalString = StringUtils.trimToNull((String) properties.get(OPT_JOB_UPDATE_BATCH_INTERVAL));
+    if (jobUpdateBatchIntervalString != null) {
+      try {
+        jobUpdateBatchInterval = Long.parseLong(jobUpdateBatchIntervalString);
+      } catch (NumberFormatException e) {
+        logger.warn("Can not set job update batch interval to {}. {} must be an integer", jobUpdateBatchIntervalString,
+                OPT_JOB_UPDATE_BATCH_INTERVAL);
+      }
+    }
+
+    int jobUpdateBatchSize = DEFAULT_JOB_UPDATE_BATCH_SIZE;
+    String jobUpdateBatchSizeString = StringUtils.trimToNull((String) properties.get(OPT_JOB_UPDATE_BATCH_SIZE));
+    if (jobUpdateBatchSizeString != null) {
+      try {
+        jobUpdateBatchSize = Integer.parseInt(jobUpdateBatchSizeString);
+      } catch (NumberFormatException e) {
+        logger.warn("Can not set job update batch size to {}. {} must be an integer", jobUpdateBatchSizeString,
+                OPT_JOB_UPDATE_BATCH_SIZE);
+      }
+    }
+
+    stopJobUpdateBatcher();
+    if (jobUpdateBatchInterval > 0 && jobUpdateBatchSize > 1) {
+      logger.info("Writing up to {} job updates per transaction, collected for up to {}ms", jobUpdateBatchSize,
+              jobUpdateBatchInterval);
+      JobUpdateBatcher batcher = new JobUpdateBatcher(db, this::update, jobUpdateBatchInterval, jobUpdateBatchSize);
+      batcher.start();
+      jobUpdateBatcher = batcher;
+    }
+
     scheduledExecutor = Executors.newScheduledThreadPool(1);
 
     // Schedule the service heartbeat if the interval is > 0
@@ -859,22 +959,39 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
       // tx context is opened in
       //   updateInternal
       //   updateServiceForFailover
-      return db.execChecked(em -> {
-        Job oldJob = getJob(job.getId());
-        JpaJob jpaJob = updateInternal(job);
+      Job oldJob = getJob(job.getId());
+      JpaJob updated = db.execChecked(em -> {
+        JpaJob jpaJob = updateInternalBatched(job);
         if (!TYPE_WORKFLOW.equals(job.getJobType()) && job.getJobLoad() > 0.0f
             && job.getProcessorServiceRegistration() != null
             && job.getProcessorServiceRegistration().getHost().equals(getRegistryHostname())) {
           processCachedLoadChange(job);
         }
+        if (!TYPE_WORKFLOW.equals(job.getJobType())) {
+          processHostLoadChange(job);
+        }
 
         // All WorkflowService Jobs will be ignored
         if (oldJob.getStatus() != job.getStatus() && !TYPE_WORKFLOW.equals(job.getJobType())) {
           updateServiceForFailover(job);
         }
 
+        if (oldJob.getStatus() != job.getStatus()) {
+          fireJobReady(job);
+          if (JOB_STATUSES_INFLUENCING_LOAD_BALANCING.contains(oldJob.getStatus())
+              && oldJob.getProcessingHost() != null) {
+            fireCapacityReleased(oldJob.getProcessingHost());
+          }
+        }
+
         return jpaJob;
       });
+
+      // Wake up waiters only once the transaction is done, so that they find the job terminated when looking at it
+      if (oldJob.getStatus() != job.getStatus() && job.getStatus().isTerminated()) {
+        fireJobTerminated(oldJob);
+      }
+      return updated;
     } catch (ServiceRegistryException e) {
       throw e;
     } catch (NotFoundException e) {
@@ -894,44 +1011,206 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
     return updateJob(jpaJob).toJob();
   }
 
+  /**
+   * Sets the listener to inform about jobs that are ready to be dispatched. Passing <code>null</code> removes the
+   * current listener.
+   *
+   * @param listener
+   *          the dispatch listener
+   */
+  void setDispatchListener(JobDispatchListener listener) {
+    this.dispatchListener = listener;
+  }
+
+  /**
+   * Informs the dispatch listener, if any, that the given job is waiting to be dispatched.
+   *
+   * @param job
+   *          the job
+   */
+  private void fireJobReady(JpaJob job) {
+    JobDispatchListener listener = dispatchListener;
+    if (listener == null || !job.isDispatchable()) {
+      return;
+    }
+    if (Status.QUEUED.equals(job.getStatus()) || Status.RESTART.equals(job.getStatus())) {
+      try {
+        listener.jobReady(job.getId());
+      } catch (Exception e) {
+        logger.warn("Dispatch listener failed to handle {}", job, e);
+      }
+    }
+  }
+
+  /**
+   * Informs the dispatch listener, if any, that load has been released on the given host.
+   *
+   * @param host
+   *          the host
+   */
+  private void fireCapacityReleased(String host) {
+    JobDispatchListener listener = dispatchListener;
+    if (listener == null) {
+      return;
+    }
+    try {
+      listener.capacityReleased(host);
+    } catch (Exception e) {
+      logger.warn("Dispatch listener failed to handle released capacity on {}", host, e);
+    }
+  }
+
+  /**
+   * Wakes up the threads on this host waiting for the given job to terminate. If the parent job is processed on
+   * another host, the job is reported to that host as well, since that is where threads wait for child jobs.
+   *
+   * @param job
+   *          the terminated job
+   */
+  private void fireJobTerminated(Job job) {
+    jobCompletionNotifier.jobTerminated(job.getId());
+    final Long parentJobId = job.getParentJobId();
+    if (parentJobId == null || client == null || jobCompletionExecutor == null) {
+      return;
+    }
+
+    // The security context is bound to this thread, so the headers are prepared before handing the report over
+    final HttpPost post = new HttpPost();
+    final Organization organization = securityService == null ? null : securityService.getOrganization();
+    if (organization != null) {
+      post.addHeader(ORGANIZATION_HEADER, organization.getId());
+      final User user = securityService.getUser();
+      if (user != null) {
+        post.addHeader(USER_HEADER, user.getUsername());
+      }
+    }
+    post.setEntity(new UrlEncodedFormEntity(
+        Collections.singletonList(new BasicNameValuePair("id", Long.toString(job.getId()))), UTF_8));
+
+    try {
+      // Looking up the parent job is left to the executor as well, to keep it off the path of the job update
+      jobCompletionExecutor.execute(() -> {
+        final String parentHost;
+        try {
+          parentHost = getJob(parentJobId).getProcessingHost();
+        } catch (Exception e) {
+          logger.debug("Unable to find the host processing the parent of {}", job, e);
+          return;
+        }
+        if (parentHost == null || parentHost.equals(hostName)) {
+          return;
+        }
+
+        post.setURI(URI.create(UrlSupport.concat(parentHost, JOB_TERMINATED_PATH)));
+        HttpResponse response = null;
+        try {
+          response = client.execute(post);
+          if (response.getStatusLine().getStatusCode() != HttpStatus.SC_NO_CONTENT) {
+            logger.debug("Host {} did not accept the termination of {}: {}", parentHost, job, response.getStatusLine());
+            jobCompletionStatistics.remoteNotificationFailed();
+          } else {
+            jobCompletionStatistics.remoteNotificationSent();
+          }
+        } catch (Exception e) {
+          // Threads waiting on the other host will find out about the job by polling
+          logger.debug("Unable to report the termination of {} to {}", job, parentHost, e);
+          jobCompletionStatistics.remoteNotificationFailed();
+        } finally {
+          try {
+            client.close(response);
+          } catch (IOException e) {
+            // ignore
+          }
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      logger.debug("Not reporting the termination of {} while shutting down", job);
+    }
+  }
+
+  /**
+   * Wakes up the threads on this host waiting for the given jobs, which have been reported as terminated by another
+   * host.
+   *
+   * @param jobIds
+   *          the identifiers of the terminated jobs
+   */
+  public void notifyJobsTerminated(Collection<Long> jobIds) {
+    for (long jobId : jobIds) {
+      jobCompletionNotifier.jobTerminated(jobId);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @see org.opencastproject.serviceregistry.api.ServiceRegistry#waitForJobCompletion(Collection, long)
+   */
+  @Override
+  public Set<Long> waitForJobCompletion(Collection<Long> jobIds, long timeout) throws ServiceRegistryException {
+    return jobCompletionNotifier.await(jobIds, timeout);
+  }
+
+  /**
+   * Applies the load change caused by a job status transition to the in-memory host loads.
+   *
+   * @param job
+   *   The job to apply to the host loads
+   */
+  private void processHostLoadChange(JpaJob job) {
+    if (JOB_STATUSES_INFLUENCING_LOAD_BALANCING.contains(job.getStatus())
+        && job.getProcessorServiceRegistration() != null) {
+      hostLoadModel.addJobLoad(job.getId(), job.getProcessorServiceRegistration().getHost(), job.getJobLoad());
+    } else if (!Status.DISPATCHING.equals(job.getStatus())) {
+      hostLoadModel.removeJobLoad(job.getId());
+    }
+  }
+
+  /**
+   * Adds the load of a job that has just been dispatched to the in-memory host loads.
+   *
+   * @param job
+   *          the dispatched job
+   * @param host
+   *          the host which accepted the job
+   */
+  void addDispatchedJobLoad(JpaJob job, String host) {
+    if (!TYPE_WORKFLOW.equals(job.getJobType())) {
+      hostLoadModel.addJobLoad(job.getId(), host, job.getJobLoad());
+    }
+  }
+
   /**
    * Processes the job load changes for the *local* load cache
    *
    * @param job
    *   The job to apply to the load cache
    */
-  private synchronized void processCachedLoadChange(JpaJob job) {
-    if (JOB_STATUSES_INFLUENCING_LOAD_BALANCING.contains(job.getStatus()) && jobCache.get(job.getId()) == null) {
-      logger.debug("Adding to load cache: {}, type {}, load {}, status {}",
-              job, job.getJobType(), job.getJobLoad(), job.getStatus());
-      localSystemLoad += job.getJobLoad();
-      jobCache.put(job.getId(), job.getJobLoad());
-    } else if (jobCache.get(job.getId()) != null && Status.FINISHED.equals(job.getStatus())
-            || Status.FAILED.equals(job.getStatus()) || Status.WAITING.equals(job.getStatus())) {
-      logger.debug("Removing from load cache: {}, type {}, load {}, status {}",
-              job, job.getJobType(), job.getJobLoad(), job.getStatus());
-      localSystemLoad -= job.getJobLoad();
-      jobCache.remove(job.getId());
+  private void processCachedLoadChange(JpaJob job) {
+    if (JOB_STATUSES_INFLUENCING_LOAD_BALANCING.contains(job.getStatus())) {
+      if (localLoadLedger.addJobLoad(job.getId(), hostName, job.getJobLoad())) {
+        logger.debug("Adding to load cache: {}, type {}, load {}, status {}",
+                job, job.getJobType(), job.getJobLoad(), job.getStatus());
+      }
+    } else if (Status.FINISHED.equals(job.getStatus()) || Status.FAILED.equals(job.getStatus())
+            || Status.WAITING.equals(job.getStatus())) {
+      if (localLoadLedger.removeJobLoad(job.getId())) {
+        logger.debug("Removing from load cache: {}, type {}, load {}, status {}",
+                job, job.getJobType(), job.getJobLoad(), job.getStatus());
+      }
     } else {
       logger.debug("Ignoring for load cache: {}, type {}, status {}",
               job, job.getJobType(), job.getStatus());
     }
-    logger.debug("Current host load: {}, job load cache size: {}", format("%.1f", localSystemLoad), jobCache.size());
-
-    if (jobCache.isEmpty()) {
-      if (Math.abs(localSystemLoad) > 0.0000001F) {
-        logger.warn("No jobs in the job load cache, but load is {}: setting job load to 0", localSystemLoad);
-      }
-      localSystemLoad = 0.0F;
+    if (logger.isDebugEnabled()) {
+      logger.debug("Current host load: {}, job load cache size: {}", format("%.1f", getOwnLoad()),
+              localLoadLedger.getJobCount());
     }
   }
 
-  private synchronized void removeFromLoadCache(Long jobId) {
-    if (jobCache.get(jobId) != null) {
-      float jobLoad = jobCache.get(jobId);
-      logger.debug("Removing deleted job from load cache: Job {}, load {}", jobId, jobLoad);
-      localSystemLoad -= jobLoad;
-      jobCache.remove(jobId);
+  private void removeFromLoadCache(Long jobId) {
+    if (localLoadLedger.removeJobLoad(jobId)) {
+      logger.debug("Removing deleted job from load cache: Job {}", jobId);
     }
   }
 
@@ -968,6 +1247,35 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
     return job;
   }
 
+  /**
+   * Internal method to update a job like {@link #updateInternal(JpaJob)}, sharing the transaction with concurrent
+   * updates of other jobs if job updates are batched.
+   *
+   * @param job
+   *          the job to update
+   * @return the updated job
+   */
+  private JpaJob updateInternalBatched(JpaJob job) throws NotFoundException {
+    JobUpdateBatcher batcher = jobUpdateBatcher;
+    if (batcher == null) {
+      return updateInternal(job);
+    }
+    job.setVersion(batcher.update(job));
+    setJobUri(job);
+    return job;
+  }
+
+  /**
+   * Stops batching job updates after writing the pending updates.
+   */
+  private void stopJobUpdateBatcher() {
+    JobUpdateBatcher batcher = jobUpdateBatcher;
+    jobUpdateBatcher = null;
+    if (batcher != null) {
+      batcher.stop();
+    }
+  }
+
   public void updateStatisticsJobData() {
     jobsStatistics.updateAvg(db.exec(getAvgOperationsQuery()));
     jobsStatistics.updateJobCount(db.exec(getCountPerHostServiceQuery()));
@@ -1117,6 +1425,7 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
         return hr;
       });
 
+      hostLoadModel.invalidate();
       hostsStatistics.updateHost(hostRegistration);
     } catch (Exception e) {
       throw new ServiceRegistryException(e);
@@ -1146,6 +1455,7 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
       });
 
       logger.info("Host {} unregistered", host);
+      hostLoadModel.invalidate();
       hostsStatistics.updateHost(existingHostRegistration);
     } catch (Exception e) {
       throw new ServiceRegistryException(e);
@@ -1755,6 +2065,29 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
     };
   }
 
+  /**
+   * Gets the dispatchable jobs with the given identifiers which are in one of the given states.
+   *
+   * @param jobIds the identifiers of the jobs to load
+   * @param statuses the job status should be one from the given statuses
+   * @return the list of jobs waiting for dispatch, ordered by creation date
+   */
+  protected Function<EntityManager, List<JpaJob>> getDispatchableJobsWithIdsQuery(Collection<Long> jobIds,
+      Status... statuses) {
+    return em -> {
+      if (jobIds == null || jobIds.isEmpty() || statuses == null) {
+        return Collections.emptyList();
+      }
+
+      return namedQuery.findAll(
+          "Job.dispatchable.status.ids",
+          JpaJob.class,
+          Pair.of("jobids", jobIds),
+          Pair.of("statuses", Arrays.stream(statuses).map(Enum::ordinal).collect(Collectors.toList()))
+      ).apply(em);
+    };
+  }
+
   Function<EntityManager, List<Object[]>> getAvgOperationsQuery() {
     return namedQuery.findAll("Job.avgOperation", Object[].class);
   }
@@ -2007,6 +2340,36 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
     return db.exec(getHostLoadsQuery());
   }
 
+  /**
+   * Re-reads the in-memory host loads from the database.
+   */
+  void refreshHostLoads() {
+    long readStarted = System.nanoTime();
+    hostLoadModel.refresh(db.exec(getHostLoadsQuery()), readStarted);
+  }
+
+  /**
+   * Gets the current host loads from the in-memory model, which is refreshed from the database first if it is older
+   * than the given age. The returned loads are a copy which can be modified by the caller.
+   *
+   * @param maxAge
+   *          the maximum age of the in-memory host loads in milliseconds
+   * @param hostRegistrations
+   *          the hosts which must be contained in the returned loads
+   * @return the current host loads
+   */
+  SystemLoad getHostLoads(long maxAge, List<HostRegistration> hostRegistrations) {
+    if (hostLoadModel.isStale(maxAge)) {
+      refreshHostLoads();
+    }
+    SystemLoad systemLoad = hostLoadModel.getSystemLoad();
+    // Hosts registered since the last refresh have not taken any jobs yet
+    hostRegistrations.stream()
+        .filter(h -> !systemLoad.containsHost(h.getBaseUrl()))
+        .forEach(h -> systemLoad.addNodeLoad(new NodeLoad(h.getBaseUrl(), 0.0f, h.getMaxLoad())));
+    return systemLoad;
+  }
+
   /**
    * Gets a map of hosts to the number of jobs currently loading that host
    *
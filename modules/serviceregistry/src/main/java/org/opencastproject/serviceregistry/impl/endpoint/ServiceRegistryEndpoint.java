@@ -109,6 +109,12 @@ import javax.ws.rs.core.Response.Status;
 @JaxrsResource
 public class ServiceRegistryEndpoint {
 
+  /** The default time in milliseconds to wait for jobs to terminate */
+  static final long DEFAULT_JOB_WAIT_TIMEOUT = 30000L;
+
+  /** The maximum time in milliseconds a request may wait for jobs to terminate */
+  static final long MAX_JOB_WAIT_TIMEOUT = 60000L;
+
   /** The remote service maanger */
   protected ServiceRegistry serviceRegistry = null;
 
@@ -735,6 +741,46 @@ public class ServiceRegistryEndpoint {
   }
 
 
+  @POST
+  @Path("jobs/terminated")
+  @RestQuery(name = "jobsterminated", description = "Wakes up the threads on this host waiting for the given jobs, which have been terminated on another host", returnDescription = "No data is returned, just the HTTP status code", restParameters = {
+          @RestParameter(name = "id", isRequired = true, type = Type.INTEGER, description = "The identifier of a terminated job") }, responses = {
+          @RestResponse(responseCode = SC_NO_CONTENT, description = "The waiting threads have been woken up"),
+          @RestResponse(responseCode = SC_BAD_REQUEST, description = "No job identifier has been given"),
+          @RestResponse(responseCode = SC_SERVICE_UNAVAILABLE, description = "The service registry of this host cannot wake up waiting threads") })
+  public Response jobsTerminated(@FormParam("id") List<Long> jobIds) {
+    if (jobIds == null || jobIds.isEmpty()) {
+      return Response.status(Status.BAD_REQUEST).build();
+    }
+    if (!(serviceRegistry instanceof ServiceRegistryJpaImpl)) {
+      return Response.status(Status.SERVICE_UNAVAILABLE).build();
+    }
+    ((ServiceRegistryJpaImpl) serviceRegistry).notifyJobsTerminated(jobIds);
+    return Response.noContent().build();
+  }
+
+  @GET
+  @Path("jobs/terminated.json")
+  @Produces(MediaType.APPLICATION_JSON)
+  @RestQuery(name = "waitforjobs", description = "Waits until at least one of the given jobs has been terminated or until the timeout has elapsed", returnDescription = "The identifiers of the given jobs known to be terminated as JSON array, empty if none has been terminated within the timeout", restParameters = {
+          @RestParameter(name = "id", isRequired = true, type = Type.INTEGER, description = "The identifier of a job to wait for"),
+          @RestParameter(name = "timeout", isRequired = false, type = Type.INTEGER, defaultValue = "30000", description = "The maximum time to wait in milliseconds, at most " + MAX_JOB_WAIT_TIMEOUT) }, responses = {
+          @RestResponse(responseCode = SC_OK, description = "The terminated jobs"),
+          @RestResponse(responseCode = SC_BAD_REQUEST, description = "No job identifier or a negative timeout has been given") })
+  public Response waitForJobs(@QueryParam("id") List<Long> jobIds, @QueryParam("timeout") Long timeout) {
+    if (jobIds == null || jobIds.isEmpty() || (timeout != null && timeout < 0)) {
+      return Response.status(Status.BAD_REQUEST).build();
+    }
+    try {
+      long wait = Math.min(timeout == null ? DEFAULT_JOB_WAIT_TIMEOUT : timeout, MAX_JOB_WAIT_TIMEOUT);
+      JSONArray terminated = new JSONArray();
+      terminated.addAll(serviceRegistry.waitForJobCompletion(jobIds, wait));
+      return Response.ok(terminated.toJSONString()).build();
+    } catch (ServiceRegistryException e) {
+      throw new WebApplicationException(e);
+    }
+  }
+
   @POST
   @Path("removejobs")
   @RestQuery(name = "removejobs", description = "Removes all given jobs and their child jobs", returnDescription = "No data is returned, just the HTTP status code", restParameters = { @RestParameter(name = "jobIds", isRequired = true, description = "The IDs of the jobs to delete", type = Type.TEXT), }, responses = {
@@ -0,0 +1,111 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.serviceregistry.impl.jmx;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class DispatcherStatistics implements DispatcherStatisticsMXBean {
+
+  private final AtomicLong signalledJobs = new AtomicLong();
+  private final AtomicLong dispatchedJobs = new AtomicLong();
+  private final AtomicLong measuredJobs = new AtomicLong();
+  private final AtomicLong totalQueueWaitTime = new AtomicLong();
+  private final AtomicLong maxQueueWaitTime = new AtomicLong();
+  private volatile long lastQueueWaitTime = 0;
+  private volatile int readyJobs = 0;
+  private volatile int parkedJobs = 0;
+
+  /**
+   * Records a job which has been signalled as ready for dispatching.
+   */
+  public void jobSignalled() {
+    signalledJobs.incrementAndGet();
+  }
+
+  /**
+   * Records a successfully dispatched job.
+   *
+   * @param queueWaitTime
+   *          the time the job has been waiting for dispatch in milliseconds, or a negative value if unknown
+   */
+  public void jobDispatched(long queueWaitTime) {
+    dispatchedJobs.incrementAndGet();
+    if (queueWaitTime < 0) {
+      return;
+    }
+    measuredJobs.incrementAndGet();
+    totalQueueWaitTime.addAndGet(queueWaitTime);
+    maxQueueWaitTime.accumulateAndGet(queueWaitTime, Math::max);
+    lastQueueWaitTime = queueWaitTime;
+  }
+
+  /**
+   * Updates the current size of the dispatcher's queues.
+   *
+   * @param ready
+   *          the number of jobs waiting in the ready queue
+   * @param parked
+   *          the number of jobs waiting for capacity
+   */
+  public void updateQueueSizes(int ready, int parked) {
+    readyJobs = ready;
+    parkedJobs = parked;
+  }
+
+  @Override
+  public long getSignalledJobCount() {
+    return signalledJobs.get();
+  }
+
+  @Override
+  public long getDispatchedJobCount() {
+    return dispatchedJobs.get();
+  }
+
+  @Override
+  public int getReadyJobCount() {
+    return readyJobs;
+  }
+
+  @Override
+  public int getParkedJobCount() {
+    return parkedJobs;
+  }
+
+  @Override
+  public long getAverageQueueWaitTime() {
+    long measured = measuredJobs.get();
+    return measured == 0 ? 0 : totalQueueWaitTime.get() / measured;
+  }
+
+  @Override
+  public long getMaxQueueWaitTime() {
+    return maxQueueWaitTime.get();
+  }
+
+  @Override
+  public long getLastQueueWaitTime() {
+    return lastQueueWaitTime;
+  }
+
+}
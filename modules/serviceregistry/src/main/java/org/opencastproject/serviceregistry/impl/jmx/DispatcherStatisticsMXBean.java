@@ -0,0 +1,79 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.serviceregistry.impl.jmx;
+
+/**
+ * JMX Bean interface exposing job dispatcher statistics.
+ */
+public interface DispatcherStatisticsMXBean {
+
+  /**
+   * Gets the number of jobs which have been signalled as ready for dispatching
+   *
+   * @return the number of signalled jobs
+   */
+  long getSignalledJobCount();
+
+  /**
+   * Gets the number of jobs which have been dispatched successfully
+   *
+   * @return the number of dispatched jobs
+   */
+  long getDispatchedJobCount();
+
+  /**
+   * Gets the number of jobs currently waiting in the ready queue
+   *
+   * @return the number of ready jobs
+   */
+  int getReadyJobCount();
+
+  /**
+   * Gets the number of ready jobs which could not be dispatched and are waiting for capacity
+   *
+   * @return the number of parked jobs
+   */
+  int getParkedJobCount();
+
+  /**
+   * Gets the average time dispatched jobs have been waiting in the queue
+   *
+   * @return the average queue wait time in milliseconds
+   */
+  long getAverageQueueWaitTime();
+
+  /**
+   * Gets the longest time a dispatched job has been waiting in the queue
+   *
+   * @return the maximum queue wait time in milliseconds
+   */
+  long getMaxQueueWaitTime();
+
+  /**
+   * Gets the time the most recently dispatched job has been waiting in the queue
+   *
+   * @return the last queue wait time in milliseconds
+   */
+  long getLastQueueWaitTime();
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.serviceregistry.impl.jmx;
+
+import org.opencastproject.serviceregistry.api.JobCompletionNotifier;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class JobCompletionStatistics implements JobCompletionStatisticsMXBean {
+
+  private final JobCompletionNotifier notifier;
+  private final AtomicLong remoteNotificationsSent = new AtomicLong();
+  private final AtomicLong remoteNotificationsFailed = new AtomicLong();
+
+  /**
+   * Creates the statistics bean reading the wakeup statistics from the given notifier.
+   *
+   * @param notifier
+   *          the notifier waking up the threads waiting for jobs
+   */
+  public JobCompletionStatistics(JobCompletionNotifier notifier) {
+    this.notifier = notifier;
+  }
+
+  /** Records a terminated job reported to another host. */
+  public void remoteNotificationSent() {
+    remoteNotificationsSent.incrementAndGet();
+  }
+
+  /** Records a terminated job which could not be reported to another host. */
+  public void remoteNotificationFailed() {
+    remoteNotificationsFailed.incrementAndGet();
+  }
+
+  @Override
+  public long getTerminatedJobCount() {
+    return notifier.getTerminatedJobCount();
+  }
+
+  @Override
+  public long getWakeupCount() {
+    return notifier.getWakeupCount();
+  }
+
+  @Override
+  public long getAverageWakeupLatency() {
+    return notifier.getAverageWakeupLatency();
+  }
+
+  @Override
+  public long getMaxWakeupLatency() {
+    return notifier.getMaxWakeupLatency();
+  }
+
+  @Override
+  public long getLastWakeupLatency() {
+    return notifier.getLastWakeupLatency();
+  }
+
+  @Override
+  public long getRemoteNotificationsSent() {
+    return remoteNotificationsSent.get();
+  }
+
+  @Override
+  public long getRemoteNotificationsFailed() {
+    return remoteNotificationsFailed.get();
+  }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.serviceregistry.impl.jmx;
+
+/**
+ * JMX Bean interface exposing how fast threads waiting for jobs on this host are woken up once the jobs terminate.
+ */
+public interface JobCompletionStatisticsMXBean {
+
+  /**
+   * Gets the number of jobs reported as terminated on this host
+   *
+   * @return the number of terminated jobs
+   */
+  long getTerminatedJobCount();
+
+  /**
+   * Gets the number of times a thread waiting for jobs has been woken up by a terminated job
+   *
+   * @return the number of wakeups
+   */
+  long getWakeupCount();
+
+  /**
+   * Gets the average time between a job being reported as terminated and the waiting thread waking up
+   *
+   * @return the average wakeup latency in microseconds
+   */
+  long getAverageWakeupLatency();
+
+  /**
+   * Gets the longest time between a job being reported as terminated and the waiting thread waking up
+   *
+   * @return the maximum wakeup latency in microseconds
+   */
+  long getMaxWakeupLatency();
+
+  /**
+   * Gets the time between a job being reported as terminated and the waiting thread waking up for the last wakeup
+   *
+   * @return the last wakeup latency in microseconds
+   */
+  long getLastWakeupLatency();
+
+  /**
+   * Gets the number of terminated jobs reported to the hosts processing their parent jobs
+   *
+   * @return the number of notifications sent
+   */
+  long getRemoteNotificationsSent();
+
+  /**
+   * Gets the number of terminated jobs which could not be reported to the hosts processing their parent jobs
+   *
+   * @return the number of failed notifications
+   */
+  long getRemoteNotificationsFailed();
+
+}
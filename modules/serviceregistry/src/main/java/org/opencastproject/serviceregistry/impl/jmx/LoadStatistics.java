@@ -0,0 +1,56 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.serviceregistry.impl.jmx;
+
+import java.util.function.DoubleSupplier;
+import java.util.function.IntSupplier;
+
+public class LoadStatistics implements LoadStatisticsMXBean {
+
+  private final DoubleSupplier currentLoad;
+  private final IntSupplier runningJobCount;
+
+  /**
+   * Creates the statistics bean reading the values from the given sources whenever they are requested.
+   *
+   * @param currentLoad
+   *          the source of the current load
+   * @param runningJobCount
+   *          the source of the number of running jobs
+   */
+  public LoadStatistics(DoubleSupplier currentLoad, IntSupplier runningJobCount) {
+    this.currentLoad = currentLoad;
+    this.runningJobCount = runningJobCount;
+  }
+
+  @Override
+  public float getCurrentLoad() {
+    return (float) currentLoad.getAsDouble();
+  }
+
+  @Override
+  public int getRunningJobCount() {
+    return runningJobCount.getAsInt();
+  }
+
+}
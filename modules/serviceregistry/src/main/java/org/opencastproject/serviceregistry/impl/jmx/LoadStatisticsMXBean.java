@@ -0,0 +1,44 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.serviceregistry.impl.jmx;
+
+/**
+ * JMX Bean interface exposing the load of the jobs running on this host.
+ */
+public interface LoadStatisticsMXBean {
+
+  /**
+   * Gets the load of the jobs currently running on this host
+   *
+   * @return the current load
+   */
+  float getCurrentLoad();
+
+  /**
+   * Gets the number of jobs contributing to the current load
+   *
+   * @return the number of running jobs
+   */
+  int getRunningJobCount();
+
+}
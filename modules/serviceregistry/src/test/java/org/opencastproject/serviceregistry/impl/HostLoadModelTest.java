@@ -0,0 +1,113 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.serviceregistry.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.opencastproject.serviceregistry.api.SystemLoad;
+import org.opencastproject.serviceregistry.api.SystemLoad.NodeLoad;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class HostLoadModelTest {
+
+  private static final String HOST_A = "http://a:8080";
+  private static final String HOST_B = "http://b:8080";
+  private static final float DELTA = 0.0001f;
+
+  private HostLoadModel model;
+
+  @Before
+  public void setUp() {
+    SystemLoad systemLoad = new SystemLoad();
+    systemLoad.addNodeLoad(new NodeLoad(HOST_A, 1.0f, 4.0f));
+    systemLoad.addNodeLoad(new NodeLoad(HOST_B, 0.0f, 2.0f));
+    model = new HostLoadModel();
+    assertTrue(model.isStale(Long.MAX_VALUE));
+    model.refresh(systemLoad, System.nanoTime());
+  }
+
+  @Test
+  public void testRefresh() {
+    assertFalse(model.isStale(Long.MAX_VALUE));
+    SystemLoad systemLoad = model.getSystemLoad();
+    assertEquals(1.0f, systemLoad.get(HOST_A).getCurrentLoad(), DELTA);
+    assertEquals(4.0f, systemLoad.get(HOST_A).getMaxLoad(), DELTA);
+    assertEquals(0.0f, systemLoad.get(HOST_B).getCurrentLoad(), DELTA);
+
+    model.invalidate();
+    assertTrue(model.isStale(Long.MAX_VALUE));
+  }
+
+  @Test
+  public void testJobLoads() {
+    model.addJobLoad(1L, HOST_B, 1.5f);
+    // Adding the same job twice must not change the load
+    model.addJobLoad(1L, HOST_B, 1.5f);
+    assertEquals(1.5f, model.getSystemLoad().get(HOST_B).getCurrentLoad(), DELTA);
+
+    model.removeJobLoad(1L);
+    model.removeJobLoad(1L);
+    assertEquals(0.0f, model.getSystemLoad().get(HOST_B).getCurrentLoad(), DELTA);
+
+    // Loads of unknown jobs are part of the refreshed loads and are not touched
+    model.removeJobLoad(2L);
+    assertEquals(1.0f, model.getSystemLoad().get(HOST_A).getCurrentLoad(), DELTA);
+  }
+
+  @Test
+  public void testRefreshKeepsJobLoadsRecordedDuringRead() {
+    model.addJobLoad(1L, HOST_A, 1.0f);
+    long readStarted = System.nanoTime();
+    model.addJobLoad(2L, HOST_B, 1.5f);
+
+    // The read reflects the first job but may have missed the second one
+    SystemLoad systemLoad = new SystemLoad();
+    systemLoad.addNodeLoad(new NodeLoad(HOST_A, 2.0f, 4.0f));
+    systemLoad.addNodeLoad(new NodeLoad(HOST_B, 0.0f, 2.0f));
+    model.refresh(systemLoad, readStarted);
+    assertEquals(2.0f, model.getSystemLoad().get(HOST_A).getCurrentLoad(), DELTA);
+    assertEquals(1.5f, model.getSystemLoad().get(HOST_B).getCurrentLoad(), DELTA);
+
+    // The kept job is released as usual
+    model.removeJobLoad(2L);
+    assertEquals(0.0f, model.getSystemLoad().get(HOST_B).getCurrentLoad(), DELTA);
+
+    // A later read reflects all jobs recorded before it
+    model.addJobLoad(3L, HOST_B, 0.5f);
+    systemLoad.get(HOST_B).setCurrentLoad(0.5f);
+    model.refresh(systemLoad, System.nanoTime());
+    assertEquals(0.5f, model.getSystemLoad().get(HOST_B).getCurrentLoad(), DELTA);
+  }
+
+  @Test
+  public void testSnapshotIsCopy() {
+    SystemLoad systemLoad = model.getSystemLoad();
+    systemLoad.get(HOST_A).modifyLoad(2.0f);
+    assertEquals(1.0f, model.getSystemLoad().get(HOST_A).getCurrentLoad(), DELTA);
+  }
+
+}
@@ -0,0 +1,335 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.serviceregistry.impl;
+
+import static org.opencastproject.db.DBTestEnv.getDbSessionFactory;
+import static org.opencastproject.db.DBTestEnv.newEntityManagerFactory;
+import static org.opencastproject.db.DBTestEnv.newPersistenceProvider;
+
+import org.opencastproject.job.api.Job;
+import org.opencastproject.job.api.Job.Status;
+import org.opencastproject.security.api.DefaultOrganization;
+import org.opencastproject.security.api.JaxbOrganization;
+import org.opencastproject.security.api.JaxbRole;
+import org.opencastproject.security.api.JaxbUser;
+import org.opencastproject.security.api.Organization;
+import org.opencastproject.security.api.OrganizationDirectoryService;
+import org.opencastproject.security.api.SecurityService;
+import org.opencastproject.security.api.TrustedHttpClient;
+import org.opencastproject.security.api.User;
+import org.opencastproject.security.api.UserDirectoryService;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.utils.URLEncodedUtils;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.message.BasicStatusLine;
+import org.easymock.EasyMock;
+import org.eclipse.persistence.config.PersistenceUnitProperties;
+import org.eclipse.persistence.sessions.SessionEvent;
+import org.eclipse.persistence.sessions.SessionEventAdapter;
+import org.osgi.service.component.ComponentContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Simulates job dispatching to measure the dispatch throughput and fairness of the service registry and the job
+ * dispatcher, as a baseline for changes to the scheduling.
+ * <p>
+ * Each scenario uses a fresh embedded database with a number of simulated hosts, each running one service whose
+ * <code>/dispatch</code> endpoint is a stub accepting every job. Rounds of dispatching are run until all queued jobs
+ * have been dispatched. Jobs accepted in one round are completed by the simulated workers after the next round, so
+ * hosts fill up and the dispatcher has to respect their capacity.
+ * <p>
+ * For each combination of queue size and host count, the jobs dispatched per second, the percentiles of the time the
+ * jobs have been waiting in the queue, the database statements per job and the spread of the jobs across the hosts are
+ * reported. Only the dispatching is timed, not the simulated workers.
+ * <p>
+ * This is not run as part of the unit tests. Run it with the test classpath and the optional arguments
+ * <code>queueSizes hostCounts dispatchThreads dispatchLatencyMs</code>, e.g.
+ * <code>JobDispatchSimulation 100,1000 1,4,16 1 0</code>.
+ */
+public final class JobDispatchSimulation {
+
+  private static final Logger logger = LoggerFactory.getLogger(JobDispatchSimulation.class);
+
+  private static final String SERVICE = "simulation";
+  private static final String OPERATION = "simulate";
+  private static final float HOST_MAX_LOAD = 4.0f;
+  private static final float JOB_LOAD = 1.0f;
+  private static final int MAX_ROUNDS = 100000;
+
+  /** Interval of the dispatcher's own rounds of dispatching, in seconds */
+  private static final long SCHEDULED_DISPATCH_INTERVAL = 86400;
+
+  /** Number of SQL statements executed against the simulated database */
+  private static final AtomicLong statements = new AtomicLong();
+
+  private final int queueSize;
+  private final int hostCount;
+  private final int dispatchThreads;
+  private final long dispatchLatency;
+
+  /** Time a job has been created, by job identifier */
+  private final Map<Long, Long> created = new HashMap<>();
+
+  /** Time a job has been accepted by a stubbed service, by job identifier */
+  private final Map<Long, Long> accepted = new ConcurrentHashMap<>();
+
+  /** Number of jobs accepted, by host */
+  private final Map<String, AtomicLong> acceptedByHost = new ConcurrentHashMap<>();
+
+  private ServiceRegistryJpaImpl serviceRegistry;
+  private JobDispatcher jobDispatcher;
+
+  private JobDispatchSimulation(int queueSize, int hostCount, int dispatchThreads, long dispatchLatency) {
+    this.queueSize = queueSize;
+    this.hostCount = hostCount;
+    this.dispatchThreads = dispatchThreads;
+    this.dispatchLatency = dispatchLatency;
+  }
+
+  public static void main(String[] args) throws Exception {
+    List<Integer> queueSizes = parseList(args, 0, "100,1000");
+    List<Integer> hostCounts = parseList(args, 1, "1,4,16");
+    int dispatchThreads = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+    long dispatchLatency = args.length > 3 ? Long.parseLong(args[3]) : 0;
+
+    for (int queueSize : queueSizes) {
+      for (int hostCount : hostCounts) {
+        new JobDispatchSimulation(queueSize, hostCount, dispatchThreads, dispatchLatency).run();
+      }
+    }
+  }
+
+  private static List<Integer> parseList(String[] args, int index, String defaultValue) {
+    List<Integer> values = new ArrayList<>();
+    for (String value : (args.length > index ? args[index] : defaultValue).split(",")) {
+      values.add(Integer.parseInt(value.trim()));
+    }
+    return values;
+  }
+
+  private void run() throws Exception {
+    setUp();
+    try {
+      List<Job> jobs = new ArrayList<>(queueSize);
+      for (int i = 0; i < queueSize; i++) {
+        Job job = serviceRegistry.createJob(host(i % hostCount), SERVICE, OPERATION, null, null, true, null, JOB_LOAD);
+        created.put(job.getId(), System.currentTimeMillis());
+        jobs.add(job);
+      }
+
+      Runnable dispatcherRound = jobDispatcher.getJobDispatcherRunnable();
+      List<Long> running = new ArrayList<>();
+      long dispatchTime = 0;
+      long dispatchStatements = 0;
+      int rounds = 0;
+      while (accepted.size() < queueSize && rounds < MAX_ROUNDS) {
+        Map<Long, Long> before = new HashMap<>(accepted);
+        long statementsBefore = statements.get();
+        long start = System.nanoTime();
+        dispatcherRound.run();
+        dispatchTime += System.nanoTime() - start;
+        dispatchStatements += statements.get() - statementsBefore;
+        rounds++;
+
+        // Complete the jobs accepted in the previous round, keep the new ones running until the next round
+        complete(running);
+        running.clear();
+        for (Long jobId : accepted.keySet()) {
+          if (!before.containsKey(jobId)) {
+            running.add(jobId);
+          }
+        }
+      }
+
+      report(jobs, rounds, dispatchTime, dispatchStatements);
+    } finally {
+      tearDown();
+    }
+  }
+
+  private void complete(List<Long> jobIds) throws Exception {
+    for (long jobId : jobIds) {
+      Job job = serviceRegistry.getJob(jobId);
+      job.setStatus(Status.RUNNING);
+      job = serviceRegistry.updateJob(job);
+      job.setStatus(Status.FINISHED);
+      serviceRegistry.updateJob(job);
+    }
+  }
+
+  private void report(List<Job> jobs, int rounds, long dispatchTime, long dispatchStatements) {
+    List<Long> waitTimes = new ArrayList<>(jobs.size());
+    for (Job job : jobs) {
+      Long acceptedAt = accepted.get(job.getId());
+      if (acceptedAt != null) {
+        waitTimes.add(acceptedAt - created.get(job.getId()));
+      }
+    }
+    Collections.sort(waitTimes);
+
+    long minPerHost = Long.MAX_VALUE;
+    long maxPerHost = 0;
+    for (int i = 0; i < hostCount; i++) {
+      AtomicLong count = acceptedByHost.get(host(i));
+      long value = count == null ? 0 : count.get();
+      minPerHost = Math.min(minPerHost, value);
+      maxPerHost = Math.max(maxPerHost, value);
+    }
+
+    int dispatched = waitTimes.size();
+    double seconds = dispatchTime / 1e9;
+    logger.info(String.format("queue %d, hosts %d, threads %d, latency %dms: %d/%d jobs dispatched in %d rounds, "
+            + "%.0f jobs/s, queue wait p50 %dms p90 %dms p99 %dms max %dms, %.1f statements/job, "
+            + "jobs per host %d-%d", queueSize, hostCount, dispatchThreads, dispatchLatency, dispatched, queueSize,
+            rounds, dispatched / seconds, percentile(waitTimes, 0.5), percentile(waitTimes, 0.9),
+            percentile(waitTimes, 0.99), percentile(waitTimes, 1.0),
+            dispatched == 0 ? 0.0 : (double) dispatchStatements / dispatched, minPerHost, maxPerHost));
+  }
+
+  private static long percentile(List<Long> sortedValues, double percentile) {
+    if (sortedValues.isEmpty()) {
+      return 0;
+    }
+    int index = (int) Math.ceil(percentile * sortedValues.size()) - 1;
+    return sortedValues.get(Math.max(0, index));
+  }
+
+  private static String host(int index) {
+    return "http://host" + index + ":8080";
+  }
+
+  private void setUp() throws Exception {
+    Map<String, Object> persistenceProperties = new HashMap<>();
+    persistenceProperties.put(PersistenceUnitProperties.DDL_GENERATION, PersistenceUnitProperties.DROP_AND_CREATE);
+    persistenceProperties.put(PersistenceUnitProperties.DDL_GENERATION_MODE,
+            PersistenceUnitProperties.DDL_DATABASE_GENERATION);
+    persistenceProperties.put(PersistenceUnitProperties.SESSION_EVENT_LISTENER_CLASS,
+            StatementCounter.class.getName());
+    EntityManagerFactory emf = newEntityManagerFactory("org.opencastproject.common", "Auto", "org.h2.Driver",
+            "jdbc:h2:mem:simulation" + System.nanoTime() + ";DB_CLOSE_DELAY=-1", "sa", "sa", persistenceProperties,
+            newPersistenceProvider());
+
+    Organization organization = new DefaultOrganization();
+    JaxbOrganization jaxbOrganization = JaxbOrganization.fromOrganization(organization);
+    User user = new JaxbUser("simulation", "test", jaxbOrganization,
+            new JaxbRole(jaxbOrganization.getAdminRole(), jaxbOrganization));
+    SecurityService securityService = EasyMock.createNiceMock(SecurityService.class);
+    EasyMock.expect(securityService.getUser()).andReturn(user).anyTimes();
+    EasyMock.expect(securityService.getOrganization()).andReturn(organization).anyTimes();
+    OrganizationDirectoryService organizationDirectoryService = EasyMock.createNiceMock(
+            OrganizationDirectoryService.class);
+    EasyMock.expect(organizationDirectoryService.getOrganization(EasyMock.anyString())).andReturn(organization)
+            .anyTimes();
+    UserDirectoryService userDirectoryService = EasyMock.createNiceMock(UserDirectoryService.class);
+    EasyMock.expect(userDirectoryService.loadUser(EasyMock.anyString())).andReturn(user).anyTimes();
+
+    TrustedHttpClient client = EasyMock.createNiceMock(TrustedHttpClient.class);
+    EasyMock.expect(client.execute(EasyMock.anyObject(HttpUriRequest.class)))
+            .andAnswer(() -> acceptJob((HttpUriRequest) EasyMock.getCurrentArguments()[0])).anyTimes();
+    EasyMock.replay(securityService, organizationDirectoryService, userDirectoryService, client);
+
+    serviceRegistry = new ServiceRegistryJpaImpl();
+    serviceRegistry.setEntityManagerFactory(emf);
+    serviceRegistry.setDBSessionFactory(getDbSessionFactory());
+    serviceRegistry.setSecurityService(securityService);
+    serviceRegistry.setTrustedHttpClient(client);
+    serviceRegistry.activate(null);
+    for (int i = 0; i < hostCount; i++) {
+      serviceRegistry.registerHost(host(i), "127.0.0.1", "host" + i, 1024, 4, HOST_MAX_LOAD);
+      serviceRegistry.registerService(SERVICE, host(i), "/" + SERVICE);
+    }
+
+    Dictionary<String, Object> properties = new Hashtable<>();
+    // A positive interval enables the dispatch thread pool and the in-memory host loads like in production. The
+    // scheduled rounds are never due while a scenario is run, the rounds are run explicitly instead.
+    properties.put(JobDispatcher.OPT_DISPATCHINTERVAL, Long.toString(SCHEDULED_DISPATCH_INTERVAL));
+    properties.put(JobDispatcher.OPT_DISPATCH_THREADS, Integer.toString(dispatchThreads));
+    ComponentContext cc = EasyMock.createNiceMock(ComponentContext.class);
+    EasyMock.expect(cc.getProperties()).andReturn(properties).anyTimes();
+    EasyMock.replay(cc);
+
+    jobDispatcher = new JobDispatcher();
+    jobDispatcher.setEntityManagerFactory(emf);
+    jobDispatcher.setDBSessionFactory(getDbSessionFactory());
+    jobDispatcher.setServiceRegistry(serviceRegistry);
+    jobDispatcher.setSecurityService(securityService);
+    jobDispatcher.setOrganizationDirectoryService(organizationDirectoryService);
+    jobDispatcher.setUserDirectoryService(userDirectoryService);
+    jobDispatcher.setTrustedHttpClient(client);
+    jobDispatcher.activate(cc);
+  }
+
+  private void tearDown() throws Exception {
+    jobDispatcher.deactivate();
+    for (int i = 0; i < hostCount; i++) {
+      serviceRegistry.unregisterHost(host(i));
+    }
+    serviceRegistry.deactivate();
+  }
+
+  /**
+   * The stubbed <code>/dispatch</code> endpoint of the simulated services, accepting every job.
+   */
+  private HttpResponse acceptJob(HttpUriRequest request) throws Exception {
+    if (dispatchLatency > 0) {
+      Thread.sleep(dispatchLatency);
+    }
+    long now = System.currentTimeMillis();
+    for (NameValuePair param : URLEncodedUtils.parse(((HttpPost) request).getEntity())) {
+      if ("id".equals(param.getName())) {
+        accepted.put(Long.parseLong(param.getValue()), now);
+      }
+    }
+    String host = request.getURI().getScheme() + "://" + request.getURI().getAuthority();
+    acceptedByHost.computeIfAbsent(host, h -> new AtomicLong()).incrementAndGet();
+    return new BasicHttpResponse(new BasicStatusLine(new HttpVersion(1, 1), HttpStatus.SC_NO_CONTENT, "Accepted"));
+  }
+
+  /** Counts the SQL statements executed by the persistence layer */
+  public static final class StatementCounter extends SessionEventAdapter {
+    @Override
+    public void postExecuteCall(SessionEvent event) {
+      statements.incrementAndGet();
+    }
+  }
+
+}
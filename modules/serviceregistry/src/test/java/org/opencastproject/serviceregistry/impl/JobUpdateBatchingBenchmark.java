@@ -0,0 +1,140 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.serviceregistry.impl;
+
+import static org.opencastproject.db.DBTestEnv.getDbSessionFactory;
+import static org.opencastproject.db.DBTestEnv.newEntityManagerFactory;
+
+import org.opencastproject.job.api.Job;
+import org.opencastproject.job.api.Job.Status;
+import org.opencastproject.security.api.DefaultOrganization;
+import org.opencastproject.security.api.JaxbOrganization;
+import org.opencastproject.security.api.JaxbRole;
+import org.opencastproject.security.api.JaxbUser;
+import org.opencastproject.security.api.Organization;
+import org.opencastproject.security.api.SecurityService;
+import org.opencastproject.security.api.User;
+
+import org.easymock.EasyMock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Measures the job update throughput of the service registry against an embedded database, with each job update
+ * written in its own transaction and with job updates written in batches.
+ * <p>
+ * This is not run as part of the unit tests. Run it with the test classpath, optionally passing the number of jobs
+ * and the number of threads updating them, e.g. <code>JobUpdateBatchingBenchmark 10000 16</code>.
+ */
+public final class JobUpdateBatchingBenchmark {
+
+  private static final Logger logger = LoggerFactory.getLogger(JobUpdateBatchingBenchmark.class);
+
+  private static final String HOST = "http://localhost:8080";
+  private static final String SERVICE = "benchmark";
+
+  private JobUpdateBatchingBenchmark() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    int jobCount = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+    int threads = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+
+    ServiceRegistryJpaImpl serviceRegistry = createServiceRegistry();
+    try {
+      run(serviceRegistry, "unbatched", jobCount, threads, new Hashtable<>());
+
+      Dictionary<String, String> properties = new Hashtable<>();
+      properties.put(ServiceRegistryJpaImpl.OPT_JOB_UPDATE_BATCH_INTERVAL, "10");
+      properties.put(ServiceRegistryJpaImpl.OPT_JOB_UPDATE_BATCH_SIZE, "100");
+      run(serviceRegistry, "batched", jobCount, threads, properties);
+    } finally {
+      serviceRegistry.deactivate();
+    }
+  }
+
+  private static void run(ServiceRegistryJpaImpl serviceRegistry, String name, int jobCount, int threads,
+          Dictionary<String, String> properties) throws Exception {
+    serviceRegistry.updated(properties);
+    serviceRegistry.scheduledExecutor.shutdown();
+
+    List<Job> jobs = new ArrayList<>(jobCount);
+    for (int i = 0; i < jobCount; i++) {
+      jobs.add(serviceRegistry.createJob(HOST, SERVICE, "operation", null, null, false, null));
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    long start = System.nanoTime();
+    List<Future<Job>> results = new ArrayList<>(jobCount);
+    for (Job job : jobs) {
+      results.add(executor.submit(() -> {
+        job.setProcessingHost(HOST);
+        job.setStatus(Status.RUNNING);
+        Job running = serviceRegistry.updateJob(job);
+        running.setStatus(Status.FINISHED);
+        return serviceRegistry.updateJob(running);
+      }));
+    }
+    for (Future<Job> result : results) {
+      result.get();
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+    executor.shutdown();
+
+    long updates = 2L * jobCount;
+    JobUpdateBatcher batcher = serviceRegistry.jobUpdateBatcher;
+    long transactions = batcher == null ? updates : batcher.getTransactionCount();
+    logger.info(String.format("%-10s %d jobs, %d threads: %.0f updates/s, %d transactions, %.0f transactions/s, "
+            + "%.1f updates per transaction", name, jobCount, threads, updates / seconds, transactions,
+            transactions / seconds, (double) updates / transactions));
+  }
+
+  private static ServiceRegistryJpaImpl createServiceRegistry() throws Exception {
+    ServiceRegistryJpaImpl serviceRegistry = new ServiceRegistryJpaImpl();
+    serviceRegistry.setEntityManagerFactory(newEntityManagerFactory("org.opencastproject.common"));
+    serviceRegistry.setDBSessionFactory(getDbSessionFactory());
+
+    Organization organization = new DefaultOrganization();
+    JaxbOrganization jaxbOrganization = JaxbOrganization.fromOrganization(organization);
+    User user = new JaxbUser("benchmark", "test", jaxbOrganization,
+            new JaxbRole(jaxbOrganization.getAdminRole(), jaxbOrganization));
+    SecurityService securityService = EasyMock.createNiceMock(SecurityService.class);
+    EasyMock.expect(securityService.getUser()).andReturn(user).anyTimes();
+    EasyMock.expect(securityService.getOrganization()).andReturn(organization).anyTimes();
+    EasyMock.replay(securityService);
+    serviceRegistry.setSecurityService(securityService);
+
+    serviceRegistry.activate(null);
+    serviceRegistry.registerService(SERVICE, HOST, "/" + SERVICE);
+    return serviceRegistry;
+  }
+
+}
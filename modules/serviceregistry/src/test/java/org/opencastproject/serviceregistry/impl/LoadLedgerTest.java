@@ -0,0 +1,110 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.serviceregistry.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class LoadLedgerTest {
+
+  private static final String HOST_A = "http://a:8080";
+  private static final String HOST_B = "http://b:8080";
+  private static final float DELTA = 0.0001f;
+
+  @Test
+  public void testAddAndRemove() {
+    LoadLedger ledger = new LoadLedger();
+    assertTrue(ledger.addJobLoad(1L, HOST_A, 1.5f));
+    assertFalse(ledger.addJobLoad(1L, HOST_A, 1.5f));
+    assertTrue(ledger.addJobLoad(2L, HOST_B, 0.5f));
+    assertEquals(1.5f, ledger.getLoad(HOST_A), DELTA);
+    assertEquals(0.5f, ledger.getLoad(HOST_B), DELTA);
+    assertEquals(2, ledger.getJobCount());
+
+    assertTrue(ledger.removeJobLoad(1L));
+    assertFalse(ledger.removeJobLoad(1L));
+    assertFalse(ledger.removeJobLoad(3L));
+    assertEquals(0.0f, ledger.getLoad(HOST_A), DELTA);
+    assertEquals(0.5f, ledger.getLoads().get(HOST_B), DELTA);
+    assertEquals(1, ledger.getJobCount());
+  }
+
+  @Test
+  public void testConcurrentUpdates() throws Exception {
+    LoadLedger ledger = new LoadLedger();
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      final long offset = t * 1000L;
+      threads.add(new Thread(() -> {
+        for (long id = offset; id < offset + 1000; id++) {
+          ledger.addJobLoad(id, HOST_A, 0.1f);
+          ledger.removeJobLoad(id);
+          ledger.addJobLoad(id, HOST_A, 0.1f);
+        }
+      }));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(4000, ledger.getJobCount());
+    assertEquals(400.0f, ledger.getLoad(HOST_A), 0.01f);
+  }
+
+  @Test
+  public void testConcurrentRemovalOfFirstJobOnHost() throws Exception {
+    LoadLedger ledger = new LoadLedger();
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    Thread remover = new Thread(() -> {
+      try {
+        for (long id = 0; id < 10000; id++) {
+          while (!ledger.removeJobLoad(id)) {
+            Thread.yield();
+          }
+        }
+      } catch (Throwable t) {
+        failure.set(t);
+      }
+    });
+    remover.start();
+    // Each job is the first one on its host, so its removal may race with the creation of the host's load
+    for (long id = 0; id < 10000 && remover.isAlive(); id++) {
+      ledger.addJobLoad(id, "http://host" + id + ":8080", 1.0f);
+    }
+    remover.join();
+    assertNull(failure.get());
+    assertEquals(0, ledger.getJobCount());
+    assertEquals(0.0f, ledger.getLoad("http://host9999:8080"), DELTA);
+  }
+
+}
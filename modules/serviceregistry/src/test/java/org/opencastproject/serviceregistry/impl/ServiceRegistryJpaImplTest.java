@@ -83,7 +83,10 @@ import java.util.Date;
 import java.util.Dictionary;
 import java.util.Hashtable;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
 import javax.management.ObjectInstance;
@@ -485,6 +488,76 @@ public class ServiceRegistryJpaImplTest {
     assertThrows(IllegalStateException.class, () -> barrier.waitForJobs(JOB_BARRIER_TIMEOUT));
   }
 
+  @Test
+  public void testEventDrivenDispatching() throws Exception {
+    Dictionary<String, String> properties = new Hashtable<>();
+    properties.put(JobDispatcher.OPT_DISPATCHINTERVAL, "1");
+    properties.put(JobDispatcher.OPT_DISPATCH_EVENT_DRIVEN, "true");
+    properties.put(JobDispatcher.OPT_DISPATCH_RECOVERY_INTERVAL, "3600");
+    jobDispatcher.updated(properties);
+    try {
+      Job job = serviceRegistryJpaImpl.createJob(TEST_HOST, TEST_SERVICE_2, TEST_OPERATION, null, null, true, null);
+      // No round of dispatching is due, so the job must have been dispatched because it has been signalled
+      long timeout = System.currentTimeMillis() + 10 * JOB_BARRIER_TIMEOUT;
+      // The job is removed from the ready jobs only once it has been handed over to the service
+      while ((Status.QUEUED.equals(job.getStatus()) || !jobDispatcher.readyJobs.isEmpty())
+          && System.currentTimeMillis() < timeout) {
+        Thread.sleep(10);
+        job = serviceRegistryJpaImpl.getJob(job.getId());
+      }
+      assertEquals(Status.DISPATCHING, job.getStatus());
+      assertEquals(TEST_HOST, job.getProcessingHost());
+      Assert.assertTrue(jobDispatcher.readyJobs.isEmpty());
+    } finally {
+      properties.put(JobDispatcher.OPT_DISPATCHINTERVAL, "0");
+      jobDispatcher.updated(properties);
+    }
+  }
+
+  @Test
+  public void testJobParkedWhileHostIsBusy() throws Exception {
+    Dictionary<String, String> properties = new Hashtable<>();
+    properties.put(JobDispatcher.OPT_DISPATCHINTERVAL, "1");
+    properties.put(JobDispatcher.OPT_DISPATCH_EVENT_DRIVEN, "true");
+    properties.put(JobDispatcher.OPT_DISPATCH_RECOVERY_INTERVAL, "3600");
+    jobDispatcher.updated(properties);
+    // Every dispatch request the host may take is in flight already
+    jobDispatcher.hostPermits.put(TEST_HOST, new Semaphore(0));
+    try {
+      Job job = serviceRegistryJpaImpl.createJob(TEST_HOST, TEST_SERVICE_2, TEST_OPERATION, null, null, true, null);
+      long timeout = System.currentTimeMillis() + 10 * JOB_BARRIER_TIMEOUT;
+      while (!jobDispatcher.parkedJobs.contains(job.getId()) && System.currentTimeMillis() < timeout) {
+        Thread.sleep(10);
+      }
+      // The job has not been sent anywhere, so it waits for capacity instead of being dropped
+      Assert.assertTrue(jobDispatcher.parkedJobs.contains(job.getId()));
+      Assert.assertTrue(jobDispatcher.readyJobs.containsKey(job.getId()));
+      assertEquals(Status.QUEUED, serviceRegistryJpaImpl.getJob(job.getId()).getStatus());
+    } finally {
+      jobDispatcher.hostPermits.remove(TEST_HOST);
+      jobDispatcher.parkedJobs.clear();
+      jobDispatcher.readyJobs.clear();
+      properties.put(JobDispatcher.OPT_DISPATCHINTERVAL, "0");
+      jobDispatcher.updated(properties);
+    }
+  }
+
+  @Test
+  public void testRoundStopsWhenReconfigured() throws Exception {
+    Runnable round = jobDispatcher.getJobDispatcherRunnable();
+    Dictionary<String, String> properties = new Hashtable<>();
+    properties.put(JobDispatcher.OPT_DISPATCHINTERVAL, "0");
+    jobDispatcher.updated(properties);
+
+    Job job = serviceRegistryJpaImpl.createJob(TEST_HOST, TEST_SERVICE_2, TEST_OPERATION, null, null, true, null);
+    // A round started with the previous configuration does not send any further jobs
+    round.run();
+    assertEquals(Status.QUEUED, serviceRegistryJpaImpl.getJob(job.getId()).getStatus());
+
+    jobDispatcher.getJobDispatcherRunnable().run();
+    assertEquals(Status.DISPATCHING, serviceRegistryJpaImpl.getJob(job.getId()).getStatus());
+  }
+
   @Test
   public void testUpdateJobFailed() throws Exception {
     Job job = serviceRegistryJpaImpl.createJob(TEST_HOST, TEST_SERVICE, TEST_PATH, null, null, true, null, 1.0f);
@@ -502,6 +575,46 @@ public class ServiceRegistryJpaImplTest {
     Assert.assertNotNull(updatedJob.getRunTime());
   }
 
+  @Test
+  public void testBatchedJobUpdates() throws Exception {
+    Dictionary<String, String> properties = new Hashtable<>();
+    properties.put(ServiceRegistryJpaImpl.OPT_JOB_UPDATE_BATCH_INTERVAL, "20");
+    properties.put(ServiceRegistryJpaImpl.OPT_JOB_UPDATE_BATCH_SIZE, "50");
+    serviceRegistryJpaImpl.updated(properties);
+    JobUpdateBatcher batcher = serviceRegistryJpaImpl.jobUpdateBatcher;
+    Assert.assertNotNull(batcher);
+    try {
+      List<Job> jobs = new ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+        jobs.add(serviceRegistryJpaImpl.createJob(TEST_HOST, TEST_SERVICE, TEST_OPERATION, null, null, false, null));
+      }
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+      List<Future<Job>> results = new ArrayList<>();
+      for (Job job : jobs) {
+        results.add(executor.submit(() -> {
+          job.setProcessingHost(TEST_HOST);
+          job.setStatus(Status.RUNNING);
+          Job running = serviceRegistryJpaImpl.updateJob(job);
+          running.setStatus(Status.FINISHED);
+          return serviceRegistryJpaImpl.updateJob(running);
+        }));
+      }
+      for (Future<Job> result : results) {
+        Job updated = result.get(10, TimeUnit.SECONDS);
+        Job fromDb = serviceRegistryJpaImpl.getJob(updated.getId());
+        assertEquals(Status.FINISHED, fromDb.getStatus());
+        assertEquals(fromDb.getVersion(), updated.getVersion());
+        Assert.assertNotNull(fromDb.getDateCompleted());
+      }
+      executor.shutdown();
+      assertEquals(40, batcher.getUpdateCount());
+      Assert.assertTrue(batcher.getTransactionCount() <= batcher.getUpdateCount());
+    } finally {
+      serviceRegistryJpaImpl.updated(new Hashtable<>());
+    }
+    Assert.assertNull(serviceRegistryJpaImpl.jobUpdateBatcher);
+  }
+
   @Test
   public void testErrorState() throws Exception {
     // set max attempts to 1
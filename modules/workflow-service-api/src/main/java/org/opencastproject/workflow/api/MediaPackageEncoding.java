@@ -0,0 +1,136 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.workflow.api;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The formats a {@link WorkflowInstance} can use to store its media package in the database.
+ * <p>
+ * Every format except for {@link #XML} starts with a header identifying the format and its version, so rows written
+ * with any of the formats can be read regardless of the format currently configured. Media package XML never starts
+ * with such a header, which keeps rows written by previous versions readable without a migration.
+ */
+public enum MediaPackageEncoding {
+
+  /** The media package XML as is. */
+  XML("") {
+    @Override
+    public String encode(String xml) {
+      return xml;
+    }
+
+    @Override
+    protected String decodeContent(String content) {
+      return content;
+    }
+  },
+
+  /** Gzip compressed media package XML, Base64 encoded to fit into the text column. */
+  GZIP("gzip:1:") {
+    @Override
+    public String encode(String xml) {
+      final ByteArrayOutputStream bytes = new ByteArrayOutputStream(xml.length() / 4);
+      try (OutputStream out = new GZIPOutputStream(Base64.getEncoder().wrap(bytes))) {
+        out.write(xml.getBytes(StandardCharsets.UTF_8));
+      } catch (IOException e) {
+        throw new IllegalStateException("Unable to compress media package", e);
+      }
+      return getHeader() + bytes.toString(StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    protected String decodeContent(String content) {
+      final byte[] compressed = content.getBytes(StandardCharsets.US_ASCII);
+      try (InputStream in = new GZIPInputStream(Base64.getDecoder().wrap(new ByteArrayInputStream(compressed)))) {
+        return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+      } catch (IOException e) {
+        throw new IllegalArgumentException("Unable to decompress media package", e);
+      }
+    }
+  };
+
+  /** The header identifying the format */
+  private final String header;
+
+  MediaPackageEncoding(String header) {
+    this.header = header;
+  }
+
+  /** Returns the header identifying values stored in this format. */
+  public String getHeader() {
+    return header;
+  }
+
+  /**
+   * Converts media package XML into its stored form.
+   *
+   * @param xml
+   *          the media package XML
+   * @return the stored form
+   */
+  public abstract String encode(String xml);
+
+  /**
+   * Converts the stored form without its header back into media package XML.
+   */
+  protected abstract String decodeContent(String content);
+
+  /**
+   * Converts a stored media package back into XML, regardless of the format it has been stored in.
+   *
+   * @param value
+   *          the stored media package
+   * @return the media package XML
+   * @throws IllegalArgumentException
+   *           if the stored media package is corrupted
+   */
+  public static String decode(String value) {
+    for (MediaPackageEncoding encoding : values()) {
+      if (encoding != XML && value.startsWith(encoding.header)) {
+        return encoding.decodeContent(value.substring(encoding.header.length()));
+      }
+    }
+    return value;
+  }
+
+  /**
+   * Returns the format with the given name, ignoring case.
+   *
+   * @throws IllegalArgumentException
+   *           if there is no such format
+   */
+  public static MediaPackageEncoding parse(String name) {
+    return valueOf(name.trim().toUpperCase(Locale.ROOT));
+  }
+
+}
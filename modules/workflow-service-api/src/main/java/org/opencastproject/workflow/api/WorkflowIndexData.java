@@ -43,6 +43,12 @@ import javax.persistence.Table;
                 query = "SELECT id, state, mediapackage_id, organization_id FROM oc_workflow ORDER BY mediapackage_id, id DESC",
                 resultSetMapping = "DataResult"
         ),
+        @NamedNativeQuery(
+                name = "WorkflowIndexData.getAllAfter",
+                query = "SELECT id, state, mediapackage_id, organization_id FROM oc_workflow WHERE mediapackage_id > ?1 "
+                        + "ORDER BY mediapackage_id, id DESC",
+                resultSetMapping = "DataResult"
+        ),
 })
 @SqlResultSetMapping(
         name = "DataResult",
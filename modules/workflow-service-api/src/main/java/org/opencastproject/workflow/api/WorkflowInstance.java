@@ -230,6 +230,9 @@ public class WorkflowInstance {
   /** Logging utilities */
   private static final Logger logger = LoggerFactory.getLogger(WorkflowInstance.class);
 
+  /** The format new and updated workflows store their media package in */
+  private static volatile MediaPackageEncoding mediaPackageEncoding = MediaPackageEncoding.XML;
+
   /**
    * Default constructor without any import.
    */
@@ -252,7 +255,7 @@ public class WorkflowInstance {
     this.state = WorkflowState.INSTANTIATED;
     this.dateCreated = new Date();
     this.mediaPackageObj = mediaPackage;
-    this.mediaPackage = mediaPackage == null ? null : MediaPackageParser.getAsXml(mediaPackage);
+    this.mediaPackage = mediaPackage == null ? null : encodeMediaPackage(mediaPackage);
     this.mediaPackageId = mediaPackage == null ? null : mediaPackage.getIdentifier().toString();
     this.seriesId = mediaPackage == null ? null : mediaPackage.getSeries();
 
@@ -290,7 +293,7 @@ public class WorkflowInstance {
     this.dateCreated = dateCreated;
     this.dateCompleted = dateCompleted;
     this.mediaPackageObj = mediaPackage;
-    this.mediaPackage = mediaPackage == null ? null : MediaPackageParser.getAsXml(mediaPackage);
+    this.mediaPackage = mediaPackage == null ? null : encodeMediaPackage(mediaPackage);
     this.operations = operations;
     this.configurations = configurations;
     this.mediaPackageId = mediaPackageId;
@@ -379,10 +382,10 @@ public class WorkflowInstance {
         return mediaPackageObj;
       }
       if (mediaPackage != null) {
-        mediaPackageObj = MediaPackageParser.getFromXml(mediaPackage);
+        mediaPackageObj = MediaPackageParser.getFromXml(MediaPackageEncoding.decode(mediaPackage));
         return mediaPackageObj;
       }
-    } catch (MediaPackageException e) {
+    } catch (MediaPackageException | IllegalArgumentException e) {
       logger.error("Error parsing media package in workflow instance", e);
     }
     return null;
@@ -390,11 +393,24 @@ public class WorkflowInstance {
 
   public void setMediaPackage(MediaPackage mediaPackage) {
     this.mediaPackageObj = mediaPackage;
-    this.mediaPackage = mediaPackage == null ? null : MediaPackageParser.getAsXml(mediaPackage);
+    this.mediaPackage = mediaPackage == null ? null : encodeMediaPackage(mediaPackage);
     this.mediaPackageId = mediaPackage == null ? null : mediaPackage.getIdentifier().toString();
     this.seriesId = mediaPackage == null ? null : mediaPackage.getSeries();
   }
 
+  /** Serializes a media package into the configured storage format. */
+  private static String encodeMediaPackage(MediaPackage mediaPackage) {
+    return mediaPackageEncoding.encode(MediaPackageParser.getAsXml(mediaPackage));
+  }
+
+  /**
+   * Sets the format new and updated workflows store their media package in. Workflows stored in other formats can still
+   * be read.
+   */
+  static void setMediaPackageEncoding(MediaPackageEncoding encoding) {
+    mediaPackageEncoding = encoding;
+  }
+
   public boolean isActive() {
     return !getState().isTerminated();
   }
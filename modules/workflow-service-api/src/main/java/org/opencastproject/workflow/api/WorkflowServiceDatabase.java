@@ -105,6 +105,22 @@ public interface WorkflowServiceDatabase {
    */
   List<WorkflowIndexData> getWorkflowIndexData(int limit, int offset) throws WorkflowDatabaseException;
 
+  /**
+   * Gets workflow index data for the events following the given media package, ordered by media package id and
+   * starting with the latest workflow of each event.
+   * Selects only workflow id, state, mediapackage id and organization id
+   *
+   * @param afterMediaPackageId
+   *          only return data of media packages with a greater id, use an empty string to start from the beginning
+   * @param limit
+   *          max number of data objects to be returned
+   * @return list of {@link WorkflowIndexData}s
+   * @throws WorkflowDatabaseException
+   *           if there is a problem communicating with the underlying data store
+   */
+  List<WorkflowIndexData> getWorkflowIndexData(String afterMediaPackageId, int limit)
+          throws WorkflowDatabaseException;
+
   /**
    * Returns the number of events workflows have been run on.
    *
@@ -60,6 +60,9 @@ public class WorkflowServiceDatabaseImpl implements WorkflowServiceDatabase {
   /** JPA persistence unit name */
   public static final String PERSISTENCE_UNIT = "org.opencastproject.workflow.api";
 
+  /** Configuration key for the format workflows store their media package in */
+  public static final String MEDIAPACKAGE_ENCODING_KEY = "org.opencastproject.workflow.mediapackage.encoding";
+
   /** Factory used to create {@link EntityManager}s for transactions */
   protected EntityManagerFactory emf;
 
@@ -101,6 +104,19 @@ public class WorkflowServiceDatabaseImpl implements WorkflowServiceDatabase {
   public void activate(ComponentContext cc) {
     logger.info("Activating persistence manager for workflow");
     db = dbSessionFactory.createSession(emf);
+
+    MediaPackageEncoding encoding = MediaPackageEncoding.XML;
+    String encodingName = cc == null ? null : cc.getBundleContext().getProperty(MEDIAPACKAGE_ENCODING_KEY);
+    if (encodingName != null) {
+      try {
+        encoding = MediaPackageEncoding.parse(encodingName);
+      } catch (IllegalArgumentException e) {
+        logger.warn("Invalid configuration for the workflow media package encoding ({}={})",
+            MEDIAPACKAGE_ENCODING_KEY, encodingName);
+      }
+    }
+    logger.info("Storing workflow media packages as {}", encoding);
+    WorkflowInstance.setMediaPackageEncoding(encoding);
   }
 
   /**
@@ -216,6 +232,26 @@ public class WorkflowServiceDatabaseImpl implements WorkflowServiceDatabase {
     }
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * @see WorkflowServiceDatabase#getWorkflowIndexData(String afterMediaPackageId, int limit)
+   */
+  public List<WorkflowIndexData> getWorkflowIndexData(String afterMediaPackageId, int limit)
+          throws WorkflowDatabaseException {
+    try {
+      return db.exec(em -> {
+        return em
+            .createNamedQuery("WorkflowIndexData.getAllAfter", WorkflowIndexData.class)
+            .setParameter(1, afterMediaPackageId)
+            .setMaxResults(limit)
+            .getResultList();
+      });
+    } catch (Exception e) {
+      throw new WorkflowDatabaseException(e);
+    }
+  }
+
   /**
    * {@inheritDoc}
    *
@@ -42,6 +42,7 @@ import org.opencastproject.elasticsearch.index.objects.event.EventSearchQuery;
 import org.opencastproject.elasticsearch.index.rebuild.AbstractIndexProducer;
 import org.opencastproject.elasticsearch.index.rebuild.IndexProducer;
 import org.opencastproject.elasticsearch.index.rebuild.IndexRebuildException;
+import org.opencastproject.elasticsearch.index.rebuild.IndexRebuildRunner;
 import org.opencastproject.elasticsearch.index.rebuild.IndexRebuildService;
 import org.opencastproject.job.api.Job;
 import org.opencastproject.job.api.Job.Status;
@@ -101,6 +102,8 @@ import org.opencastproject.workflow.api.WorkflowUtil;
 import org.opencastproject.workflow.api.XmlWorkflowParser;
 import org.opencastproject.workspace.api.Workspace;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.util.concurrent.Striped;
 
 import org.apache.commons.io.IOUtils;
@@ -119,7 +122,10 @@ import org.slf4j.LoggerFactory;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.lang.ref.WeakReference;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -129,6 +135,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
@@ -232,6 +239,9 @@ public class WorkflowServiceImpl extends AbstractIndexProducer implements Workfl
   private final Striped<Lock> updateLock = Striped.lazyWeakLock(1024);
   private final Striped<Lock> mediaPackageLocks = Striped.lazyWeakLock(1024);
 
+  /** What the last update of a workflow persisted, used to tell what has changed since */
+  private final Cache<Long, UpdateSnapshot> updateSnapshots = CacheBuilder.newBuilder().maximumSize(10000).build();
+
   /** The Elasticsearch indices */
   private ElasticsearchIndex index;
 
@@ -279,10 +289,34 @@ public class WorkflowServiceImpl extends AbstractIndexProducer implements Workfl
    * Fires the workflow listeners on workflow updates.
    */
   protected void fireListeners(final WorkflowInstance oldWorkflowInstance, final WorkflowInstance newWorkflowInstance) {
+    if (oldWorkflowInstance == null) {
+      fireListeners(null, null, null, newWorkflowInstance);
+    } else {
+      WorkflowOperationInstance oldOperation = oldWorkflowInstance.getCurrentOperation();
+      fireListeners(oldWorkflowInstance.getState(), oldOperation == null ? null : oldOperation.getTemplate(),
+          oldOperation == null ? null : oldOperation.getId(), newWorkflowInstance);
+    }
+  }
+
+  /**
+   * Fires the workflow listeners on workflow updates.
+   *
+   * @param oldState
+   *          the state before the update, or <code>null</code> for a new workflow
+   * @param oldOperationTemplate
+   *          the template of the current operation before the update, or <code>null</code> if there was none
+   * @param oldOperationId
+   *          the id of the current operation before the update
+   * @param newWorkflowInstance
+   *          the workflow instance after the update
+   */
+  private void fireListeners(final WorkflowState oldState, final String oldOperationTemplate,
+          final Long oldOperationId, final WorkflowInstance newWorkflowInstance) {
     final User currentUser = securityService.getUser();
     final Organization currentOrganization = securityService.getOrganization();
+    final WorkflowOperationInstance newOperation = newWorkflowInstance.getCurrentOperation();
     for (final WorkflowListener listener : listeners) {
-      if (oldWorkflowInstance == null || !oldWorkflowInstance.getState().equals(newWorkflowInstance.getState())) {
+      if (oldState == null || !oldState.equals(newWorkflowInstance.getState())) {
         Runnable runnable = () -> {
           try {
             securityService.setUser(currentUser);
@@ -298,9 +332,9 @@ public class WorkflowServiceImpl extends AbstractIndexProducer implements Workfl
         logger.debug("Not notifying {} because the workflow state has not changed", listener);
       }
 
-      if (newWorkflowInstance.getCurrentOperation() != null) {
-        if (oldWorkflowInstance == null || oldWorkflowInstance.getCurrentOperation() == null
-                || !oldWorkflowInstance.getCurrentOperation().equals(newWorkflowInstance.getCurrentOperation())) {
+      if (newOperation != null) {
+        if (oldOperationTemplate == null || !oldOperationTemplate.equals(newOperation.getTemplate())
+                || !Objects.equals(oldOperationId, newOperation.getId())) {
           Runnable runnable = () -> {
             try {
               securityService.setUser(currentUser);
@@ -970,6 +1004,7 @@ public class WorkflowServiceImpl extends AbstractIndexProducer implements Workfl
       }
 
       // Remove workflow from database
+      updateSnapshots.invalidate(workflowInstanceId);
       persistence.removeFromDatabase(instance);
     } finally {
       lock.unlock();
@@ -1080,6 +1115,7 @@ public class WorkflowServiceImpl extends AbstractIndexProducer implements Workfl
     try {
       workflowJob = serviceRegistry.getJob(workflowInstanceId);
       workflowJob.setStatus(Status.RUNNING);
+      updateSnapshots.invalidate(workflowInstanceId);
       persistence.updateInDatabase(workflowInstance);
       serviceRegistry.updateJob(workflowJob);
 
@@ -1166,88 +1202,53 @@ public class WorkflowServiceImpl extends AbstractIndexProducer implements Workfl
     lock.lock();
 
     try {
+      // The workflow operation worker updates the same instance again and again. If this instance has been updated
+      // before, there is no need to read it back and to check the permissions again.
+      UpdateSnapshot snapshot = updateSnapshots.getIfPresent(workflowInstance.getId());
+      if (snapshot != null && !snapshot.isOf(workflowInstance)) {
+        snapshot = null;
+      }
+      updateSnapshots.invalidate(workflowInstance.getId());
+
       WorkflowInstance originalWorkflowInstance = null;
-      try {
-        // get workflow and assert permissions
-        originalWorkflowInstance = getWorkflowById(workflowInstance.getId());
-      } catch (NotFoundException e) {
-        // That's fine, it's a new workflow instance
+      if (snapshot == null) {
+        try {
+          // get workflow and assert permissions
+          originalWorkflowInstance = getWorkflowById(workflowInstance.getId());
+        } catch (NotFoundException e) {
+          // That's fine, it's a new workflow instance
+        }
       }
 
       MediaPackage updatedMediaPackage = null;
+      byte[] mediaPackageDigest = null;
       try {
 
         // Before we persist this, extract the metadata
         updatedMediaPackage = workflowInstance.getMediaPackage();
+        mediaPackageDigest = digest(updatedMediaPackage);
 
-        populateMediaPackageMetadata(updatedMediaPackage);
-
-        String seriesId = updatedMediaPackage.getSeries();
-        if (seriesId != null && workflowInstance.getCurrentOperation() != null) {
-          // If the mediapackage contains a series, find the series ACLs and add the security information to the
-          // mediapackage
-
-          try {
-            AccessControlList acl = seriesService.getSeriesAccessControl(seriesId);
-            Tuple<AccessControlList, AclScope> activeAcl = authorizationService.getAcl(
-                updatedMediaPackage, AclScope.Series);
-            // Update series ACL if it differs from the active series ACL on the media package
-            if (!AclScope.Series.equals(activeAcl.getB()) || !AccessControlUtil.equals(activeAcl.getA(), acl)) {
-              authorizationService.setAcl(updatedMediaPackage, AclScope.Series, acl);
-            }
-          } catch (NotFoundException e) {
-            logger.debug("Not updating series ACL on event {} since series {} has no ACL set",
-                updatedMediaPackage, seriesId, e);
-          }
+        // The metadata and the series ACL have been applied to the media package by the last update already, unless
+        // it has been modified since
+        if (snapshot != null && snapshot.hasMediaPackage(mediaPackageDigest)) {
+          logger.trace("Media package of workflow {} is unchanged, not updating its metadata", workflowInstance);
+        } else {
+          updateMediaPackageMetadata(workflowInstance, updatedMediaPackage);
         }
-
-        workflowInstance.setMediaPackage(updatedMediaPackage);
       } catch (SeriesException e) {
         throw new WorkflowDatabaseException(e);
       } catch (Exception e) {
         logger.error("Metadata for media package {} could not be updated", updatedMediaPackage, e);
+        mediaPackageDigest = null;
       }
 
       // Synchronize the job status with the workflow
       WorkflowState workflowState = workflowInstance.getState();
 
-      Job job;
-      try {
-        job = serviceRegistry.getJob(workflowInstance.getId());
-        job.setPayload(Long.toString(workflowInstance.getId()));
-
-        // Synchronize workflow and job state
-        switch (workflowState) {
-          case FAILED:
-            job.setStatus(Status.FAILED);
-            break;
-          case FAILING:
-            break;
-          case INSTANTIATED:
-            job.setDispatchable(true);
-            job.setStatus(Status.QUEUED);
-            break;
-          case PAUSED:
-            job.setStatus(Status.PAUSED);
-            break;
-          case RUNNING:
-            job.setStatus(Status.RUNNING);
-            break;
-          case STOPPED:
-            job.setStatus(Status.CANCELLED);
-            break;
-          case SUCCEEDED:
-            job.setStatus(Status.FINISHED);
-            break;
-          default:
-            throw new IllegalStateException("Found a workflow state that is not handled");
-        }
-      } catch (ServiceRegistryException e) {
-        throw new WorkflowDatabaseException(
-            "Unable to read workflow job " + workflowInstance.getId() + " from service registry", e);
-      } catch (NotFoundException e) {
-        throw new WorkflowDatabaseException(
-            "Job for workflow " + workflowInstance.getId() + " not found in service registry", e);
+      // The job of a running workflow has been set to running by the last update already
+      Job job = null;
+      if (snapshot == null || snapshot.getState() != WorkflowState.RUNNING || workflowState != WorkflowState.RUNNING) {
+        job = getSynchronizedJob(workflowInstance);
       }
 
       // Update both workflow and workflow job
@@ -1255,7 +1256,9 @@ public class WorkflowServiceImpl extends AbstractIndexProducer implements Workfl
         //Update the database
         persistence.updateInDatabase(workflowInstance);
 
-        job = serviceRegistry.updateJob(job);
+        if (job != null) {
+          serviceRegistry.updateJob(job);
+        }
 
         WorkflowOperationInstance op = workflowInstance.getCurrentOperation();
 
@@ -1279,12 +1282,21 @@ public class WorkflowServiceImpl extends AbstractIndexProducer implements Workfl
         throw new WorkflowDatabaseException("Job for workflow " + workflowInstance.getId()
             + " not found in service registry", e);
       } catch (Exception e) {
-        throw new WorkflowDatabaseException("Update of workflow job " + job.getId() + " in the service registry failed, "
-            + "service registry and workflow table may be out of sync", e);
+        throw new WorkflowDatabaseException("Update of workflow job " + workflowInstance.getId()
+            + " in the service registry failed, service registry and workflow table may be out of sync", e);
+      }
+
+      if (!workflowState.isTerminated() && mediaPackageDigest != null) {
+        updateSnapshots.put(workflowInstance.getId(), new UpdateSnapshot(workflowInstance, mediaPackageDigest));
       }
 
       try {
-        fireListeners(originalWorkflowInstance, workflowInstance);
+        if (snapshot == null) {
+          fireListeners(originalWorkflowInstance, workflowInstance);
+        } else {
+          fireListeners(snapshot.getState(), snapshot.getOperationTemplate(), snapshot.getOperationId(),
+              workflowInstance);
+        }
       } catch (Exception e) {
         // Can't happen, since we are converting from an in-memory object
         throw new IllegalStateException("In-memory workflow instance could not be serialized", e);
@@ -1294,6 +1306,109 @@ public class WorkflowServiceImpl extends AbstractIndexProducer implements Workfl
     }
   }
 
+  /**
+   * Computes the SHA-256 digest of the serialized media package, which is all a snapshot needs to tell whether the media
+   * package of the next update has been modified.
+   *
+   * @param mediaPackage
+   *          the media package
+   * @return the digest
+   */
+  private static byte[] digest(MediaPackage mediaPackage) {
+    try {
+      return MessageDigest.getInstance("SHA-256")
+          .digest(MediaPackageParser.getAsXml(mediaPackage).getBytes(StandardCharsets.UTF_8));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not supported", e);
+    }
+  }
+
+  /**
+   * Extracts the metadata of the media package of a workflow and applies the ACL of its series.
+   *
+   * @param workflowInstance
+   *          the workflow instance
+   * @param updatedMediaPackage
+   *          the media package of the workflow instance
+   * @throws SeriesException
+   *          if the series ACL cannot be loaded
+   */
+  private void updateMediaPackageMetadata(WorkflowInstance workflowInstance, MediaPackage updatedMediaPackage)
+          throws SeriesException {
+    populateMediaPackageMetadata(updatedMediaPackage);
+
+    String seriesId = updatedMediaPackage.getSeries();
+    if (seriesId != null && workflowInstance.getCurrentOperation() != null) {
+      // If the mediapackage contains a series, find the series ACLs and add the security information to the
+      // mediapackage
+
+      try {
+        AccessControlList acl = seriesService.getSeriesAccessControl(seriesId);
+        Tuple<AccessControlList, AclScope> activeAcl = authorizationService.getAcl(
+            updatedMediaPackage, AclScope.Series);
+        // Update series ACL if it differs from the active series ACL on the media package
+        if (!AclScope.Series.equals(activeAcl.getB()) || !AccessControlUtil.equals(activeAcl.getA(), acl)) {
+          authorizationService.setAcl(updatedMediaPackage, AclScope.Series, acl);
+        }
+      } catch (NotFoundException e) {
+        logger.debug("Not updating series ACL on event {} since series {} has no ACL set",
+            updatedMediaPackage, seriesId, e);
+      }
+    }
+
+    workflowInstance.setMediaPackage(updatedMediaPackage);
+  }
+
+  /**
+   * Loads the job of a workflow and synchronizes its status with the state of the workflow.
+   *
+   * @param workflowInstance
+   *          the workflow instance
+   * @return the job, which still needs to be updated in the service registry
+   * @throws WorkflowDatabaseException
+   *          if the job cannot be loaded
+   */
+  private Job getSynchronizedJob(WorkflowInstance workflowInstance) throws WorkflowDatabaseException {
+    try {
+      Job job = serviceRegistry.getJob(workflowInstance.getId());
+      job.setPayload(Long.toString(workflowInstance.getId()));
+
+      // Synchronize workflow and job state
+      switch (workflowInstance.getState()) {
+        case FAILED:
+          job.setStatus(Status.FAILED);
+          break;
+        case FAILING:
+          break;
+        case INSTANTIATED:
+          job.setDispatchable(true);
+          job.setStatus(Status.QUEUED);
+          break;
+        case PAUSED:
+          job.setStatus(Status.PAUSED);
+          break;
+        case RUNNING:
+          job.setStatus(Status.RUNNING);
+          break;
+        case STOPPED:
+          job.setStatus(Status.CANCELLED);
+          break;
+        case SUCCEEDED:
+          job.setStatus(Status.FINISHED);
+          break;
+        default:
+          throw new IllegalStateException("Found a workflow state that is not handled");
+      }
+      return job;
+    } catch (ServiceRegistryException e) {
+      throw new WorkflowDatabaseException(
+          "Unable to read workflow job " + workflowInstance.getId() + " from service registry", e);
+    } catch (NotFoundException e) {
+      throw new WorkflowDatabaseException(
+          "Job for workflow " + workflowInstance.getId() + " not found in service registry", e);
+    }
+  }
+
   /**
    * {@inheritDoc}
    *
@@ -2176,91 +2291,87 @@ public class WorkflowServiceImpl extends AbstractIndexProducer implements Workfl
 
   @Override
   public void repopulate(IndexRebuildService.DataType type) throws IndexRebuildException {
+    repopulate(type, new IndexRebuildRunner(getService()));
+  }
+
+  @Override
+  public void repopulate(IndexRebuildService.DataType type, IndexRebuildRunner runner) throws IndexRebuildException {
+    final int total;
     try {
-      final int total;
-      try {
-        total = persistence.countMediaPackages();
-      } catch (WorkflowDatabaseException e) {
-        logIndexRebuildError(logger, e);
-        throw new IndexRebuildException(getService(), e);
-      }
+      total = persistence.countMediaPackages();
+    } catch (WorkflowDatabaseException e) {
+      logIndexRebuildError(logger, e);
+      throw new IndexRebuildException(getService(), e);
+    }
+    if (total == 0) {
+      return;
+    }
 
-      if (total > 0) {
-        logIndexRebuildBegin(logger, total, "workflows");
-        int current = 0;
-        int n = 20;
-        List<WorkflowIndexData> workflowIndexData;
-
-        int limit = 1000;
-        int offset = 0;
-        String currentMediapackageId;
-        String lastMediapackageId = "";
-        var updatedWorkflowRange = new ArrayList<Event>();
-        do {
-          try {
-            workflowIndexData = persistence.getWorkflowIndexData(limit, offset);
-          } catch (WorkflowDatabaseException e) {
-            logIndexRebuildError(logger, e);
-            throw new IndexRebuildException(getService(), e);
+    logIndexRebuildBegin(logger, total, "workflows");
+    try {
+      runner.run(total, securityService, (after, limit) -> {
+        // The workflows are ordered by media package and the latest comes first, which is the one to index. The
+        // remaining workflows of the last media package are skipped by the next page starting after it.
+        List<WorkflowIndexData> latest = new ArrayList<>();
+        String lastMediaPackageId = null;
+        for (WorkflowIndexData indexData : persistence.getWorkflowIndexData(after == null ? "" : after, limit)) {
+          if (!indexData.getMediaPackageId().equals(lastMediaPackageId)) {
+            latest.add(indexData);
+            lastMediaPackageId = indexData.getMediaPackageId();
           }
-          if (!workflowIndexData.isEmpty()) {
-            offset += limit;
-            logger.debug("Got {} workflows for re-indexing", workflowIndexData.size());
-
-            for (WorkflowIndexData indexData : workflowIndexData) {
-              currentMediapackageId = indexData.getMediaPackageId();
-              if (currentMediapackageId.equals(lastMediapackageId)) {
-                continue;
-              }
-              current++;
-
-              // Include PAUSED; otherwise, paused workflows will show up as "Finished"
-              if (!WorkflowUtil.isActive(WorkflowInstance.WorkflowState.values()[indexData.getState()].toString())
-                      || WorkflowState.PAUSED == WorkflowInstance.WorkflowState.values()[indexData.getState()]) {
-                String orgid = indexData.getOrganizationId();
-                if (null == orgid) {
-                  String mpId = indexData.getMediaPackageId();
-                  //We're assuming here that mediapackages don't change orgs
-                  RichAResult results = assetManager.getSnapshotsById(mpId);
-                  if (results.getSize() == 0) {
-                    logger.debug("Dropping {} from the index since it is missing from the database", mpId);
-                    continue;
-                  }
-                  orgid = results.getSnapshots().stream().findFirst().get().getOrganizationId();
-                  //We try-catch here since it's possible for the WF to exist in the *index* but not in the *DB*
-                  // It probably shouldn't be, but that won't keep it from happening anyway.
-                  try {
-                    //NB: This version of getWorkflow takes the org id, which in this case is null
-                    // Using the normal version filters by org, and since this workflow has a NULL org it can't be found
-                    WorkflowInstance instance = persistence.getWorkflow(indexData.getId(), null);
-                    instance.setOrganizationId(orgid);
-                    persistence.updateInDatabase(instance);
-                  } catch (NotFoundException e) {
-                    //Technically this should never happen, but getWorkflow throws it.
-                  }
-                }
-                var updatedWorkflowData = index.getEvent(indexData.getMediaPackageId(), orgid, securityService.getUser());
-                updatedWorkflowData = getStateUpdateFunction(indexData).apply(updatedWorkflowData);
-                updatedWorkflowRange.add(updatedWorkflowData.get());
-
-                if (updatedWorkflowRange.size() >= n || current >= total) {
-                  index.bulkEventUpdate(updatedWorkflowRange);
-                  logIndexRebuildProgress(logger, total, current, n);
-                  updatedWorkflowRange.clear();
-                }
-              }
-              else {
-                logger.info("Skipping. Workflow {} is currently active.", indexData.getId());
-              }
+        }
+        return latest;
+      }, WorkflowIndexData::getMediaPackageId, this::indexWorkflowStates);
+    } catch (IndexRebuildException e) {
+      logIndexRebuildError(logger, e.getCause());
+      throw e;
+    }
+  }
 
-              lastMediapackageId = currentMediapackageId;
-            }
+  /**
+   * Updates the workflow state of the events in the index.
+   *
+   * @param workflowIndexData
+   *          the latest workflow of each event
+   */
+  private void indexWorkflowStates(List<WorkflowIndexData> workflowIndexData) throws Exception {
+    var updatedWorkflowRange = new ArrayList<Event>();
+    for (WorkflowIndexData indexData : workflowIndexData) {
+      // Include PAUSED; otherwise, paused workflows will show up as "Finished"
+      if (!WorkflowUtil.isActive(WorkflowInstance.WorkflowState.values()[indexData.getState()].toString())
+              || WorkflowState.PAUSED == WorkflowInstance.WorkflowState.values()[indexData.getState()]) {
+        String orgid = indexData.getOrganizationId();
+        if (null == orgid) {
+          String mpId = indexData.getMediaPackageId();
+          //We're assuming here that mediapackages don't change orgs
+          RichAResult results = assetManager.getSnapshotsById(mpId);
+          if (results.getSize() == 0) {
+            logger.debug("Dropping {} from the index since it is missing from the database", mpId);
+            continue;
           }
-        } while (!workflowIndexData.isEmpty());
+          orgid = results.getSnapshots().stream().findFirst().get().getOrganizationId();
+          //We try-catch here since it's possible for the WF to exist in the *index* but not in the *DB*
+          // It probably shouldn't be, but that won't keep it from happening anyway.
+          try {
+            //NB: This version of getWorkflow takes the org id, which in this case is null
+            // Using the normal version filters by org, and since this workflow has a NULL org it can't be found
+            WorkflowInstance instance = persistence.getWorkflow(indexData.getId(), null);
+            instance.setOrganizationId(orgid);
+            persistence.updateInDatabase(instance);
+          } catch (NotFoundException e) {
+            //Technically this should never happen, but getWorkflow throws it.
+          }
+        }
+        var updatedWorkflowData = index.getEvent(indexData.getMediaPackageId(), orgid, securityService.getUser());
+        updatedWorkflowData = getStateUpdateFunction(indexData).apply(updatedWorkflowData);
+        updatedWorkflowRange.add(updatedWorkflowData.get());
+      }
+      else {
+        logger.info("Skipping. Workflow {} is currently active.", indexData.getId());
       }
-    } catch (Exception e) {
-      logIndexRebuildError(logger, e);
-      throw new IndexRebuildException(getService(), e);
+    }
+    if (!updatedWorkflowRange.isEmpty()) {
+      index.bulkEventUpdate(updatedWorkflowRange);
     }
   }
 
@@ -2383,4 +2494,48 @@ public class WorkflowServiceImpl extends AbstractIndexProducer implements Workfl
       return Optional.of(event);
     };
   }
+
+  /**
+   * The state of a workflow instance as persisted by {@link #update(WorkflowInstance)}. The media package digest is the
+   * one of the media package the update was called with, so if the next update is called with the same media package,
+   * the metadata and series ACL have been applied to it already.
+   */
+  private static final class UpdateSnapshot {
+    private final WeakReference<WorkflowInstance> instance;
+    private final WorkflowState state;
+    private final String operationTemplate;
+    private final Long operationId;
+    private final byte[] mediaPackageDigest;
+
+    UpdateSnapshot(WorkflowInstance instance, byte[] mediaPackageDigest) {
+      WorkflowOperationInstance operation = instance.getCurrentOperation();
+      this.instance = new WeakReference<>(instance);
+      this.state = instance.getState();
+      this.operationTemplate = operation == null ? null : operation.getTemplate();
+      this.operationId = operation == null ? null : operation.getId();
+      this.mediaPackageDigest = mediaPackageDigest;
+    }
+
+    /** Whether this is the snapshot of exactly this instance, not just of one with the same id. */
+    boolean isOf(WorkflowInstance workflowInstance) {
+      return instance.get() == workflowInstance;
+    }
+
+    WorkflowState getState() {
+      return state;
+    }
+
+    String getOperationTemplate() {
+      return operationTemplate;
+    }
+
+    Long getOperationId() {
+      return operationId;
+    }
+
+    /** Whether the media package of the snapshot has the given digest. */
+    boolean hasMediaPackage(byte[] digest) {
+      return MessageDigest.isEqual(mediaPackageDigest, digest);
+    }
+  }
 }
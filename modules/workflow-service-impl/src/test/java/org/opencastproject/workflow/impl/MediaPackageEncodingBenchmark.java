@@ -0,0 +1,128 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.workflow.impl;
+
+import org.opencastproject.mediapackage.Attachment;
+import org.opencastproject.mediapackage.Catalog;
+import org.opencastproject.mediapackage.CatalogImpl;
+import org.opencastproject.mediapackage.MediaPackage;
+import org.opencastproject.mediapackage.MediaPackageBuilderFactory;
+import org.opencastproject.mediapackage.MediaPackageElementFlavor;
+import org.opencastproject.mediapackage.MediaPackageParser;
+import org.opencastproject.mediapackage.attachment.AttachmentImpl;
+import org.opencastproject.mediapackage.track.TrackImpl;
+import org.opencastproject.util.Checksum;
+import org.opencastproject.util.ChecksumType;
+import org.opencastproject.workflow.api.MediaPackageEncoding;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Compares the formats a workflow can store its media package in, by the time it takes to marshal and unmarshal a
+ * media package and by the size of the stored value.
+ * <p>
+ * This is not run as part of the unit tests. Run it with the test classpath, optionally passing the number of elements
+ * of the media package and the number of iterations, e.g. <code>MediaPackageEncodingBenchmark 500 200</code>.
+ */
+public final class MediaPackageEncodingBenchmark {
+
+  private static final Logger logger = LoggerFactory.getLogger(MediaPackageEncodingBenchmark.class);
+
+  private MediaPackageEncodingBenchmark() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    int elements = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+    int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+    MediaPackage mediaPackage = createMediaPackage(elements);
+    for (MediaPackageEncoding encoding : MediaPackageEncoding.values()) {
+      // warm up
+      run(mediaPackage, encoding, Math.max(1, iterations / 10));
+      run(mediaPackage, encoding, iterations);
+    }
+  }
+
+  private static void run(MediaPackage mediaPackage, MediaPackageEncoding encoding, int iterations)
+          throws Exception {
+    String stored = null;
+    long marshal = 0;
+    long unmarshal = 0;
+    for (int i = 0; i < iterations; i++) {
+      long start = System.nanoTime();
+      stored = encoding.encode(MediaPackageParser.getAsXml(mediaPackage));
+      long marshalled = System.nanoTime();
+      MediaPackageParser.getFromXml(MediaPackageEncoding.decode(stored));
+      long unmarshalled = System.nanoTime();
+      marshal += marshalled - start;
+      unmarshal += unmarshalled - marshalled;
+    }
+    logger.info(String.format("%-5s %5d elements: marshal %8.3f ms, unmarshal %8.3f ms, stored size %9d bytes",
+            encoding, mediaPackage.getElements().length, marshal / 1e6 / iterations, unmarshal / 1e6 / iterations,
+            stored.getBytes(StandardCharsets.UTF_8).length));
+  }
+
+  /** Creates a media package with tracks, catalogs and attachments resembling a processed recording. */
+  private static MediaPackage createMediaPackage(int elements) throws Exception {
+    MediaPackage mediaPackage = MediaPackageBuilderFactory.newInstance().newMediaPackageBuilder().createNew();
+    mediaPackage.setTitle("Benchmark recording");
+    String base = "http://admin.example.org/files/mediapackage/" + mediaPackage.getIdentifier() + "/";
+    for (int i = 0; i < elements; i++) {
+      String id = UUID.randomUUID().toString();
+      URI uri = new URI(base + id + "/element-" + i);
+      Checksum checksum = Checksum.create(ChecksumType.DEFAULT_TYPE, id.replace("-", ""));
+      switch (i % 3) {
+        case 0:
+          TrackImpl track = TrackImpl.fromURI(uri);
+          track.setFlavor(MediaPackageElementFlavor.parseFlavor("presenter/delivery"));
+          track.setDuration(3600000L);
+          track.setChecksum(checksum);
+          track.addTag("engage-download");
+          track.addTag("archive");
+          mediaPackage.add(track);
+          break;
+        case 1:
+          Catalog catalog = CatalogImpl.fromURI(uri);
+          catalog.setFlavor(MediaPackageElementFlavor.parseFlavor("mpeg-7/segments"));
+          catalog.setChecksum(checksum);
+          catalog.addTag("archive");
+          mediaPackage.add(catalog);
+          break;
+        default:
+          Attachment attachment = AttachmentImpl.fromURI(uri);
+          attachment.setFlavor(MediaPackageElementFlavor.parseFlavor("presenter/segment+preview"));
+          attachment.setChecksum(checksum);
+          attachment.addTag("engage-download");
+          mediaPackage.add(attachment);
+          break;
+      }
+    }
+    return mediaPackage;
+  }
+
+}
@@ -28,6 +28,7 @@ import org.opencastproject.mediapackage.MediaPackageElements;
 import org.opencastproject.mediapackage.MediaPackageParser;
 import org.opencastproject.mediapackage.Track;
 import org.opencastproject.mediapackage.track.TrackImpl;
+import org.opencastproject.workflow.api.MediaPackageEncoding;
 import org.opencastproject.workflow.api.WorkflowDefinition;
 import org.opencastproject.workflow.api.WorkflowDefinitionImpl;
 import org.opencastproject.workflow.api.WorkflowInstance;
@@ -91,6 +92,23 @@ public class WorkflowInstanceTest {
     Assert.assertEquals(2, workflow.getMediaPackage().getTracks().length);
   }
 
+  @Test
+  public void testMediaPackageEncoding() throws Exception {
+    MediaPackage mp = MediaPackageBuilderFactory.newInstance().newMediaPackageBuilder().createNew();
+    for (int i = 0; i < 10; i++) {
+      mp.add(TrackImpl.fromURI(new URI("http://sample/track-" + i + ".mp4")));
+    }
+    String xml = MediaPackageParser.getAsXml(mp);
+
+    for (MediaPackageEncoding encoding : MediaPackageEncoding.values()) {
+      String encoded = encoding.encode(xml);
+      Assert.assertTrue(encoded.startsWith(encoding.getHeader()));
+      Assert.assertEquals(xml, MediaPackageEncoding.decode(encoded));
+    }
+    Assert.assertTrue(MediaPackageEncoding.GZIP.encode(xml).length() < xml.length());
+    Assert.assertEquals(MediaPackageEncoding.GZIP, MediaPackageEncoding.parse(" gzip "));
+  }
+
   @Test
   public void testWorkflowDefinitionDeserialization() throws Exception {
     InputStream in = getClass().getResourceAsStream("/workflow-definition-1.xml");
@@ -36,6 +36,7 @@ import org.opencastproject.elasticsearch.api.SearchResult;
 import org.opencastproject.elasticsearch.api.SearchResultItem;
 import org.opencastproject.elasticsearch.index.ElasticsearchIndex;
 import org.opencastproject.elasticsearch.index.objects.event.EventSearchQuery;
+import org.opencastproject.job.api.Job;
 import org.opencastproject.job.api.JobContext;
 import org.opencastproject.mediapackage.DefaultMediaPackageSerializerImpl;
 import org.opencastproject.mediapackage.MediaPackage;
@@ -52,6 +53,7 @@ import org.opencastproject.security.api.OrganizationDirectoryService;
 import org.opencastproject.security.api.SecurityService;
 import org.opencastproject.security.api.UserDirectoryService;
 import org.opencastproject.serviceregistry.api.IncidentService;
+import org.opencastproject.serviceregistry.api.ServiceRegistryException;
 import org.opencastproject.serviceregistry.api.ServiceRegistryInMemoryImpl;
 import org.opencastproject.util.NotFoundException;
 import org.opencastproject.util.data.Tuple;
@@ -95,6 +97,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class WorkflowServiceImplTest {
 
@@ -118,6 +121,11 @@ public class WorkflowServiceImplTest {
 
   private AccessControlList acl = new AccessControlList();
 
+  /** The thread whose metadata extractions and job updates are counted */
+  private volatile Thread countingThread = null;
+  private final AtomicInteger metadataExtractions = new AtomicInteger();
+  private final AtomicInteger jobUpdates = new AtomicInteger();
+
   @Before
   public void setUp() throws Exception {
 
@@ -204,6 +212,12 @@ public class WorkflowServiceImplTest {
     service.setOrganizationDirectoryService(organizationDirectoryService);
 
     MediaPackageMetadataService mds = createNiceMock(MediaPackageMetadataService.class);
+    expect(mds.getMetadata(anyObject())).andAnswer(() -> {
+      if (Thread.currentThread() == countingThread) {
+        metadataExtractions.incrementAndGet();
+      }
+      return null;
+    }).anyTimes();
     replay(mds);
     service.addMetadataService(mds);
 
@@ -217,7 +231,15 @@ public class WorkflowServiceImplTest {
     replay(incidentService);
 
     serviceRegistry = new ServiceRegistryInMemoryImpl(service, securityService, userDirectoryService,
-            organizationDirectoryService, incidentService);
+            organizationDirectoryService, incidentService) {
+      @Override
+      public Job updateJob(Job job) throws NotFoundException, ServiceRegistryException {
+        if (Thread.currentThread() == countingThread) {
+          jobUpdates.incrementAndGet();
+        }
+        return super.updateJob(job);
+      }
+    };
     serviceRegistry.registerHost(REMOTE_HOST, REMOTE_HOST, "remote", Runtime.getRuntime().totalMemory(), Runtime.getRuntime().
             availableProcessors(), Runtime.getRuntime().availableProcessors());
     serviceRegistry.registerService(REMOTE_SERVICE, REMOTE_HOST, "/path", true);
@@ -701,6 +723,67 @@ protected WorkflowInstance startAndWait(WorkflowDefinition definition, MediaPack
     }
   }
 
+  /**
+   * Starts a workflow, sets it to running and updates it once, like the workflow operation worker does before running
+   * an operation. The metadata extractions and job updates of the test thread are counted from then on.
+   */
+  private WorkflowInstance startRunningInstance() throws Exception {
+    WorkflowInstance instance = startAndWait(pausingWorkflowDefinition, mediapackage1, WorkflowState.PAUSED);
+    instance = service.getWorkflowById(instance.getId());
+    instance.setState(WorkflowState.RUNNING);
+    service.update(instance);
+    metadataExtractions.set(0);
+    jobUpdates.set(0);
+    countingThread = Thread.currentThread();
+    return instance;
+  }
+
+  @Test
+  public void testUpdateUnchangedInstance() throws Exception {
+    WorkflowInstance instance = startRunningInstance();
+
+    service.update(instance);
+    assertEquals(0, metadataExtractions.get());
+    assertEquals(0, jobUpdates.get());
+    assertEquals(Job.Status.RUNNING, serviceRegistry.getJob(instance.getId()).getStatus());
+  }
+
+  @Test
+  public void testUpdateChangedMediaPackage() throws Exception {
+    WorkflowInstance instance = startRunningInstance();
+
+    instance.getMediaPackage().setTitle("Changed title");
+    service.update(instance);
+    assertEquals(1, metadataExtractions.get());
+    assertEquals(0, jobUpdates.get());
+    assertEquals("Changed title", service.getWorkflowById(instance.getId()).getMediaPackage().getTitle());
+
+    // The changed media package is the one of the snapshot now
+    service.update(instance);
+    assertEquals(1, metadataExtractions.get());
+  }
+
+  @Test
+  public void testUpdateChangedState() throws Exception {
+    WorkflowInstance instance = startRunningInstance();
+
+    instance.setState(WorkflowState.PAUSED);
+    service.update(instance);
+    assertEquals(0, metadataExtractions.get());
+    assertEquals(1, jobUpdates.get());
+    assertEquals(Job.Status.PAUSED, serviceRegistry.getJob(instance.getId()).getStatus());
+  }
+
+  @Test
+  public void testUpdateOtherInstanceObject() throws Exception {
+    WorkflowInstance instance = startRunningInstance();
+
+    // An instance which has not been updated before, e.g. parsed by the REST endpoint, takes the full path
+    service.update(service.getWorkflowById(instance.getId()));
+    assertEquals(1, metadataExtractions.get());
+    assertEquals(1, jobUpdates.get());
+  }
+
   class SucceedingWorkflowOperationHandler extends AbstractWorkflowOperationHandler {
 
     @Override
@@ -0,0 +1,196 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.workingfilerepository.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+/**
+ * Content addressed storage for the files of the working file repository.
+ * <p>
+ * Each distinct content is stored once as a blob named after its SHA-256 digest, in a directory named after its md5
+ * digest, which is the digest the working file repository keeps next to every file. Media package elements with the
+ * same content are hard links to the same blob. The number of links of a blob is its reference count: a blob with a
+ * single link is only referenced by the store itself and can be removed. Since removing a blob only removes one of
+ * its links, the content of an element is never lost, even if a blob is removed while it is being linked.
+ */
+class ContentAddressedStore {
+
+  /** The logger */
+  private static final Logger logger = LoggerFactory.getLogger(ContentAddressedStore.class);
+
+  /** The file attribute holding the number of hard links of a file */
+  private static final String LINK_COUNT_ATTRIBUTE = "unix:nlink";
+
+  /** The root directory of the blobs */
+  private final Path root;
+
+  /**
+   * Creates a store keeping its blobs in the given directory.
+   *
+   * @param root
+   *          the root directory of the blobs, which needs to be on the same file system as the media package elements
+   */
+  ContentAddressedStore(Path root) {
+    this.root = root;
+  }
+
+  /**
+   * Returns whether the file system of the given directory supports hard links and reports link counts.
+   *
+   * @param directory
+   *          the directory to check
+   * @return <code>true</code> if content addressed storage can be used within the directory
+   */
+  static boolean isSupported(Path directory) {
+    Path source = null;
+    Path link = null;
+    try {
+      Files.createDirectories(directory);
+      source = Files.createTempFile(directory, "link-check", ".tmp");
+      link = source.resolveSibling(source.getFileName() + ".link");
+      Files.createLink(link, source);
+      return getLinkCount(source) == 2;
+    } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+      logger.debug("Hard links are not supported in {}", directory, e);
+      return false;
+    } finally {
+      deleteQuietly(link);
+      deleteQuietly(source);
+    }
+  }
+
+  /**
+   * Stores the content of the given file. If the same content is stored already, the file is replaced by a link to the
+   * existing blob. Otherwise, the file becomes the blob for its content.
+   *
+   * @param file
+   *          the file to store, which is not yet visible as a media package element
+   * @param md5
+   *          the md5 digest of the file
+   * @param sha256
+   *          the SHA-256 digest of the file
+   * @return the file to make visible as media package element, holding the same content as the given file
+   * @throws IOException
+   *           if the content cannot be stored
+   */
+  Path store(Path file, String md5, String sha256) throws IOException {
+    Path blob = root.resolve(md5).resolve(sha256);
+    Files.createDirectories(blob.getParent());
+    // Retry in case the blob is created or removed concurrently
+    for (int attempt = 0; attempt < 3; attempt++) {
+      if (Files.exists(blob)) {
+        Path link = file.resolveSibling(file.getFileName() + ".link");
+        try {
+          Files.deleteIfExists(link);
+          Files.createLink(link, blob);
+        } catch (NoSuchFileException e) {
+          continue;
+        }
+        // The modification time is shared by all links and used to determine when elements expire
+        Files.setLastModifiedTime(blob, FileTime.fromMillis(System.currentTimeMillis()));
+        Files.delete(file);
+        logger.debug("Deduplicated {} to blob {}", file, blob);
+        return link;
+      }
+      try {
+        Files.createLink(blob, file);
+        logger.debug("Stored {} as blob {}", file, blob);
+        return file;
+      } catch (FileAlreadyExistsException e) {
+        // Stored concurrently, link to it instead
+      }
+    }
+    logger.debug("Unable to store {} as blob {}, keeping it as plain file", file, blob);
+    return file;
+  }
+
+  /**
+   * Removes the blobs for the given md5 digest which are no longer referenced by any media package element.
+   *
+   * @param md5
+   *          the md5 digest of the content that has been released
+   */
+  void release(String md5) {
+    Path directory = root.resolve(md5);
+    if (!Files.isDirectory(directory)) {
+      return;
+    }
+    try (DirectoryStream<Path> blobs = Files.newDirectoryStream(directory)) {
+      for (Path blob : blobs) {
+        if (getLinkCount(blob) <= 1) {
+          logger.debug("Removing unreferenced blob {}", blob);
+          Files.deleteIfExists(blob);
+        }
+      }
+    } catch (IOException e) {
+      logger.warn("Unable to release blobs in {}", directory, e);
+      return;
+    }
+    try {
+      Files.deleteIfExists(directory);
+    } catch (IOException e) {
+      // The directory is not empty or has been reused concurrently
+    }
+  }
+
+  /**
+   * Removes all blobs which are no longer referenced by any media package element.
+   */
+  void sweep() {
+    if (!Files.isDirectory(root)) {
+      return;
+    }
+    try (DirectoryStream<Path> directories = Files.newDirectoryStream(root, Files::isDirectory)) {
+      for (Path directory : directories) {
+        release(directory.getFileName().toString());
+      }
+    } catch (IOException e) {
+      logger.warn("Unable to remove unreferenced blobs from {}", root, e);
+    }
+  }
+
+  private static int getLinkCount(Path file) throws IOException {
+    return (Integer) Files.getAttribute(file, LINK_COUNT_ATTRIBUTE);
+  }
+
+  private static void deleteQuietly(Path file) {
+    if (file == null) {
+      return;
+    }
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      // Nothing to do
+    }
+  }
+
+}
@@ -48,7 +48,6 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.InputStream;
@@ -56,12 +55,13 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
-import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
@@ -96,6 +96,11 @@ public class WorkingFileRepositoryImpl implements WorkingFileRepository, PathMap
   public static final String WORKING_FILE_REPOSITORY_CLEANUP_MAX_AGE_KEY = "org.opencastproject.working.file.repository.cleanup.max.age";
   /** Configuration key for collections to clean up. */
   private static final String WORKING_FILE_REPOSITORY_CLEANUP_COLLECTIONS_KEY = "org.opencastproject.working.file.repository.cleanup.collections";
+  /** Configuration key for storing identical media package elements only once. */
+  public static final String WORKING_FILE_REPOSITORY_DEDUPLICATE_KEY = "org.opencastproject.working.file.repository.deduplicate";
+
+  /** The directory below the root directory holding the content addressed blobs */
+  public static final String BLOB_PATH_PREFIX = "/blobs/";
 
   /** The JMX working file repository bean */
   private WorkingFileRepositoryBean workingFileRepositoryBean = new WorkingFileRepositoryBean(this);
@@ -131,6 +136,9 @@ public class WorkingFileRepositoryImpl implements WorkingFileRepository, PathMap
   /** The working file repository cleaner */
   private WorkingFileRepositoryCleaner workingFileRepositoryCleaner;
 
+  /** The store for the content of media package elements, <code>null</code> if elements are not deduplicated */
+  protected ContentAddressedStore contentStore = null;
+
   /**
    * Activate the component
    */
@@ -170,6 +178,11 @@ public class WorkingFileRepositoryImpl implements WorkingFileRepository, PathMap
 
     registeredMXBean = JmxUtil.registerMXBean(workingFileRepositoryBean, JMX_WORKING_FILE_REPOSITORY_TYPE);
 
+    // Store identical media package elements only once if requested
+    if (Boolean.parseBoolean(cc.getBundleContext().getProperty(WORKING_FILE_REPOSITORY_DEDUPLICATE_KEY))) {
+      enableDeduplication();
+    }
+
     // Determine garbage collection period
     int garbageCollectionPeriodInSeconds = -1;
     String period = StringUtils.trimToNull(
@@ -213,6 +226,21 @@ public class WorkingFileRepositoryImpl implements WorkingFileRepository, PathMap
     logger.info(getDiskSpace());
   }
 
+  /**
+   * Stores identical media package elements only once, using hard links to content addressed blobs, if the file system
+   * supports it.
+   */
+  void enableDeduplication() {
+    Path blobDirectory = Paths.get(rootDirectory, BLOB_PATH_PREFIX);
+    if (ContentAddressedStore.isSupported(blobDirectory)) {
+      contentStore = new ContentAddressedStore(blobDirectory);
+      logger.info("Deduplicating media package elements using blobs in {}", blobDirectory);
+    } else {
+      logger.warn("The file system at {} does not support hard links, media package elements are not deduplicated",
+          rootDirectory);
+    }
+  }
+
   /**
    * Callback from OSGi on service deactivation.
    */
@@ -255,6 +283,7 @@ public class WorkingFileRepositoryImpl implements WorkingFileRepository, PathMap
     File f;
     try {
       f = getFile(mediaPackageID, mediaPackageElementID);
+      String md5 = contentStore != null ? readMd5(getMd5File(f)) : null;
 
       File parentDirectory = f.getParentFile();
       logger.debug("Attempting to delete {}", parentDirectory.getAbsolutePath());
@@ -262,6 +291,9 @@ public class WorkingFileRepositoryImpl implements WorkingFileRepository, PathMap
       File parentsParentDirectory = parentDirectory.getParentFile();
       if (parentsParentDirectory.isDirectory() && parentsParentDirectory.list().length == 0)
         FileUtils.forceDelete(parentDirectory.getParentFile());
+      if (md5 != null) {
+        contentStore.release(md5);
+      }
       return true;
     } catch (NotFoundException e) {
       logger.info("Unable to delete non existing media package element {}@{}", mediaPackageElementID, mediaPackageID);
@@ -354,9 +386,18 @@ public class WorkingFileRepositoryImpl implements WorkingFileRepository, PathMap
     File dir = getElementDirectory(mediaPackageID, mediaPackageElementID);
 
     File[] filesToDelete = null;
+    List<String> replacedMd5s = new ArrayList<>();
 
     if (dir.exists()) {
       filesToDelete = dir.listFiles();
+      if (contentStore != null && filesToDelete != null) {
+        for (File md5FileToDelete : dir.listFiles(MD5_FINAME_FILTER)) {
+          String md5 = readMd5(md5FileToDelete);
+          if (md5 != null) {
+            replacedMd5s.add(md5);
+          }
+        }
+      }
     } else {
       logger.debug("Attempting to create a new directory at {}", dir.getAbsolutePath());
       FileUtils.forceMkdir(dir);
@@ -376,7 +417,6 @@ public class WorkingFileRepositoryImpl implements WorkingFileRepository, PathMap
       logger.debug("Adding file {}", f.getAbsolutePath());
     }
 
-    FileOutputStream out = null;
     try {
 
       fTmp = File.createTempFile(f.getName(), ".tmp", dir);
@@ -384,36 +424,39 @@ public class WorkingFileRepositoryImpl implements WorkingFileRepository, PathMap
 
       logger.trace("Writing to new temporary file {}", fTmp.getAbsolutePath());
 
-      out = new FileOutputStream(fTmp);
-
-      // Wrap the input stream and copy the input stream to the file
-      MessageDigest messageDigest = null;
-      DigestInputStream dis = null;
-      try {
-        messageDigest = MessageDigest.getInstance("MD5");
-        dis = new DigestInputStream(in, messageDigest);
-        IOUtils.copy(dis, out);
-      } catch (NoSuchAlgorithmException e1) {
-        logger.error("Unable to create md5 message digest");
+      // Copy the input stream to the file, calculating the hashes in the same pass
+      MessageDigest md5Digest = createDigest("MD5");
+      // The blob key needs a collision resistant digest
+      MessageDigest contentDigest = contentStore != null ? createDigest("SHA-256") : null;
+      if (contentDigest != null) {
+        FileSupport.copy(in, fTmp, md5Digest, contentDigest);
+      } else {
+        FileSupport.copy(in, fTmp, md5Digest);
       }
 
       // Store the hash
-      String md5 = Checksum.convertToHex(dis.getMessageDigest().digest());
+      String md5 = Checksum.convertToHex(md5Digest.digest());
       try {
         FileUtils.writeStringToFile(md5FileTmp, md5);
       } catch (IOException e) {
         FileUtils.deleteQuietly(md5FileTmp);
         throw e;
-      } finally {
-        IOUtils.closeQuietly(dis);
+      }
+
+      // Replace the new file with a link to identical content stored before
+      if (contentDigest != null) {
+        String sha256 = Checksum.convertToHex(contentDigest.digest());
+        try {
+          fTmp = contentStore.store(fTmp.toPath(), md5, sha256).toFile();
+        } catch (IOException e) {
+          logger.warn("Unable to deduplicate {}, storing it as a plain file", f.getAbsolutePath(), e);
+        }
       }
 
     } catch (IOException e) {
-      IOUtils.closeQuietly(out);
       FileUtils.deleteQuietly(dir);
       throw e;
     } finally {
-      IOUtils.closeQuietly(out);
       IOUtils.closeQuietly(in);
     }
 
@@ -442,9 +485,29 @@ public class WorkingFileRepositoryImpl implements WorkingFileRepository, PathMap
       }
     }
 
+    // Release the content of the replaced file
+    for (String md5 : replacedMd5s) {
+      contentStore.release(md5);
+    }
+
     return getURI(mediaPackageID, mediaPackageElementID, filename);
   }
 
+  /**
+   * Creates a message digest for an algorithm every Java platform is required to support.
+   *
+   * @param algorithm
+   *         the digest algorithm
+   * @return the message digest
+   */
+  private static MessageDigest createDigest(String algorithm) {
+    try {
+      return MessageDigest.getInstance(algorithm);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("Unable to create " + algorithm + " message digest", e);
+    }
+  }
+
   /**
    * Creates a file containing the md5 hash for the contents of a source file.
    *
@@ -471,6 +534,22 @@ public class WorkingFileRepositoryImpl implements WorkingFileRepository, PathMap
     }
   }
 
+  /**
+   * Reads the md5 hash from an md5 file.
+   *
+   * @param md5File
+   *         The md5 file
+   * @return The md5 hash or <code>null</code> if it cannot be read
+   */
+  private String readMd5(File md5File) {
+    try {
+      return StringUtils.trimToNull(FileUtils.readFileToString(md5File, "utf-8"));
+    } catch (IOException e) {
+      logger.debug("Unable to read md5 hash from {}", md5File, e);
+      return null;
+    }
+  }
+
   /**
    * Gets the file handle for an md5 associated with a content file. Calling this method and obtaining a File handle is
    * not a guarantee that the md5 file exists.
@@ -657,7 +736,6 @@ public class WorkingFileRepositoryImpl implements WorkingFileRepository, PathMap
     checkPathSafe(fileName);
     File f = Paths.get(rootDirectory, COLLECTION_PATH_PREFIX, collectionId, toSafeName(fileName)).toFile();
     logger.debug("Attempting to write a file to {}", f.getAbsolutePath());
-    FileOutputStream out = null;
     try {
       if (!f.exists()) {
         logger.debug("Attempting to create a new file at {}", f.getAbsolutePath());
@@ -670,21 +748,13 @@ public class WorkingFileRepositoryImpl implements WorkingFileRepository, PathMap
       } else {
         logger.debug("Attempting to overwrite the file at {}", f.getAbsolutePath());
       }
-      out = new FileOutputStream(f);
 
-      // Wrap the input stream and copy the input stream to the file
-      MessageDigest messageDigest = null;
-      DigestInputStream dis = null;
-      try {
-        messageDigest = MessageDigest.getInstance("MD5");
-        dis = new DigestInputStream(in, messageDigest);
-        IOUtils.copy(dis, out);
-      } catch (NoSuchAlgorithmException e1) {
-        logger.error("Unable to create md5 message digest");
-      }
+      // Copy the input stream to the file, calculating the hash in the same pass
+      MessageDigest md5Digest = createDigest("MD5");
+      FileSupport.copy(in, f, md5Digest);
 
       // Store the hash
-      String md5 = Checksum.convertToHex(dis.getMessageDigest().digest());
+      String md5 = Checksum.convertToHex(md5Digest.digest());
       File md5File = null;
       try {
         md5File = getMd5File(f);
@@ -692,15 +762,12 @@ public class WorkingFileRepositoryImpl implements WorkingFileRepository, PathMap
       } catch (IOException e) {
         FileUtils.deleteQuietly(md5File);
         throw e;
-      } finally {
-        IOUtils.closeQuietly(dis);
       }
 
     } catch (IOException e) {
       FileUtils.deleteQuietly(f);
       throw e;
     } finally {
-      IOUtils.closeQuietly(out);
       IOUtils.closeQuietly(in);
     }
     return getCollectionURI(collectionId, fileName);
@@ -725,9 +792,16 @@ public class WorkingFileRepositoryImpl implements WorkingFileRepository, PathMap
     try {
       destFile = new File(destDir, toSafeName(toFileName));
       FileSupport.link(source, destFile);
-      createMd5(destFile);
-    } catch (Exception e) {
+      File sourceMd5 = getMd5File(source);
+      if (sourceMd5.isFile()) {
+        // The content is unchanged, so the hash of the source is reused instead of reading the file again
+        Files.copy(sourceMd5.toPath(), getMd5File(destFile).toPath(), StandardCopyOption.REPLACE_EXISTING);
+      } else {
+        createMd5(destFile);
+      }
+    } catch (IOException e) {
       FileUtils.deleteDirectory(destDir);
+      throw e;
     }
     return getURI(toMediaPackage, toMediaPackageElement, toFileName);
   }
@@ -991,9 +1065,13 @@ public class WorkingFileRepositoryImpl implements WorkingFileRepository, PathMap
 
   @Override
   public boolean cleanupOldFilesFromMediaPackage(long days) throws IOException {
-    return RecursiveDirectoryCleaner.cleanDirectory(
+    boolean cleaned = RecursiveDirectoryCleaner.cleanDirectory(
             Paths.get(rootDirectory, MEDIAPACKAGE_PATH_PREFIX),
             Duration.ofDays(days));
+    if (contentStore != null) {
+      contentStore.sweep();
+    }
+    return cleaned;
   }
 
   /**
@@ -35,11 +35,13 @@ import org.apache.commons.io.IOUtils;
 import org.easymock.EasyMock;
 import org.junit.After;
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.io.File;
 import java.io.InputStream;
+import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
@@ -51,6 +53,7 @@ public class WorkingFileRepositoryTest {
   private String collectionId = "collection-1";
   private String filename = "file.gif";
   private WorkingFileRepositoryImpl repo = new WorkingFileRepositoryImpl();
+  private SecurityService securityService;
 
   @Before
   public void setUp() throws Exception {
@@ -61,7 +64,7 @@ public class WorkingFileRepositoryTest {
     EasyMock.expect(organization.getProperties()).andReturn(orgProps).anyTimes();
     EasyMock.replay(organization);
 
-    SecurityService securityService = EasyMock.createMock(SecurityService.class);
+    securityService = EasyMock.createMock(SecurityService.class);
     EasyMock.expect(securityService.getOrganization()).andReturn(organization).anyTimes();
     EasyMock.replay(securityService);
 
@@ -197,6 +200,33 @@ public class WorkingFileRepositoryTest {
     }
   }
 
+  @Test
+  public void testCopyWithoutMd5() throws Exception {
+    // The hash of the source may be removed concurrently, e.g. by a cleanup of the collection
+    WorkingFileRepositoryImpl racingRepo = new WorkingFileRepositoryImpl() {
+      @Override
+      public File getFileFromCollection(String collectionId, String fileName) throws NotFoundException {
+        File file = super.getFileFromCollection(collectionId, fileName);
+        FileUtils.deleteQuietly(new File(file.getParent(), file.getName() + MD5_EXTENSION));
+        return file;
+      }
+    };
+    racingRepo.setSecurityService(securityService);
+    racingRepo.rootDirectory = repo.rootDirectory;
+    racingRepo.serverUrl = repo.serverUrl;
+    racingRepo.servicePath = repo.servicePath;
+
+    File source = repo.getFileFromCollection(collectionId, filename);
+    String md5 = FileUtils.readFileToString(new File(source.getParent(), source.getName()
+        + WorkingFileRepositoryImpl.MD5_EXTENSION), "UTF-8");
+
+    // The hash of the copy is calculated if the source has none
+    racingRepo.copyTo(collectionId, filename, "copied-mediapackage", "copied-element", "newfile.gif");
+    File copy = repo.getFile("copied-mediapackage", "copied-element");
+    File copyMd5 = new File(copy.getParent(), copy.getName() + WorkingFileRepositoryImpl.MD5_EXTENSION);
+    Assert.assertEquals(md5, FileUtils.readFileToString(copyMd5, "UTF-8"));
+  }
+
   @Test
   public void testMove() throws Exception {
     String newFileName = "newfile.gif";
@@ -270,4 +300,28 @@ public class WorkingFileRepositoryTest {
     }
   }
 
+  @Test
+  public void testDeduplication() throws Exception {
+    repo.enableDeduplication();
+    Assume.assumeNotNull(repo.contentStore);
+
+    String otherElementID = "working-file-test-element-2";
+    for (String elementID : Arrays.asList(mediaPackageElementID, otherElementID)) {
+      try (InputStream in = getClass().getClassLoader().getResourceAsStream("opencast_header.gif")) {
+        repo.put(mediaPackageID, elementID, "opencast_header.gif", in);
+      }
+    }
+    File file = repo.getFile(mediaPackageID, mediaPackageElementID);
+    File otherFile = repo.getFile(mediaPackageID, otherElementID);
+    Assert.assertTrue(Files.isSameFile(file.toPath(), otherFile.toPath()));
+    Assert.assertEquals(3, Files.getAttribute(file.toPath(), "unix:nlink"));
+
+    // The content is kept as long as it is referenced
+    Assert.assertTrue(repo.delete(mediaPackageID, mediaPackageElementID));
+    Assert.assertEquals(2, Files.getAttribute(otherFile.toPath(), "unix:nlink"));
+    Assert.assertTrue(repo.delete(mediaPackageID, otherElementID));
+    File blobs = new File(repo.rootDirectory, WorkingFileRepositoryImpl.BLOB_PATH_PREFIX);
+    Assert.assertEquals(0, blobs.list().length);
+  }
+
 }
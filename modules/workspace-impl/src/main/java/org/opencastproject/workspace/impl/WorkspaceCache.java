@@ -0,0 +1,337 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.workspace.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Keeps track of the files in the workspace and removes the least recently used ones once their total size exceeds a
+ * configured limit.
+ * <p>
+ * Files which are currently pinned (e.g. while they are being downloaded or while the job which requested them is
+ * running) or which have been accessed within the configured minimum age are considered in use and are never evicted.
+ * Files hard linked to the working file repository do not count towards the size, removing them would not free any
+ * space. The cache also counts how many requests could be served from the workspace without transferring the file
+ * again.
+ */
+public class WorkspaceCache {
+
+  /** The logging facility */
+  private static final Logger logger = LoggerFactory.getLogger(WorkspaceCache.class);
+
+  /** The workspace root directory */
+  private final File root;
+
+  /** The maximum size of all tracked files in bytes. Values &lt;= 0 disable eviction. */
+  private final long maxSize;
+
+  /** The time in milliseconds a file is protected from eviction after it has been accessed */
+  private final long minAge;
+
+  /** The tracked files in access order */
+  private final LinkedHashMap<File, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  /** Files which must not be evicted along with their pin count */
+  private final Map<File, Integer> pinned = new HashMap<>();
+
+  /** Files pinned until the job which requested them has terminated, by job identifier */
+  private final Map<Long, Set<File>> jobPins = new HashMap<>();
+
+  /** Files which are being deleted to keep the workspace within its limit */
+  private final Set<File> evicting = new HashSet<>();
+
+  /** The total size of all tracked files */
+  private long size = 0L;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * Creates a new workspace cache.
+   *
+   * @param root
+   *          the workspace root directory
+   * @param maxSize
+   *          the maximum size of the workspace in bytes or a value &lt;= 0 to never evict files
+   * @param minAge
+   *          the time in milliseconds a file is protected from eviction after it has been accessed
+   */
+  public WorkspaceCache(File root, long maxSize, long minAge) {
+    this.root = root;
+    this.maxSize = maxSize;
+    this.minAge = minAge;
+  }
+
+  /** Whether the size of the workspace is limited. */
+  public boolean isEnabled() {
+    return maxSize > 0;
+  }
+
+  /**
+   * Registers all files which already exist in the workspace, the least recently modified ones first.
+   */
+  public void load() {
+    if (!isEnabled() || !root.isDirectory()) {
+      return;
+    }
+    try (Stream<Path> files = Files.walk(root.toPath())) {
+      files.filter(Files::isRegularFile)
+              .map(Path::toFile)
+              .sorted(Comparator.comparingLong(File::lastModified))
+              .forEachOrdered(file -> add(file, file.lastModified()));
+    } catch (IOException | UncheckedIOException e) {
+      logger.warn("Unable to register existing workspace files", e);
+    }
+    synchronized (this) {
+      logger.info("Workspace cache tracks {} files with {} bytes (limit {} bytes)", entries.size(), size, maxSize);
+    }
+    evict();
+  }
+
+  /** Records that a file has been served from the workspace without transferring it. */
+  public void hit() {
+    hits.increment();
+  }
+
+  /** Records that a file had to be transferred into the workspace. */
+  public void miss() {
+    misses.increment();
+  }
+
+  /**
+   * Protects a file from eviction until {@link #unpin(File)} is called. Calls may be nested. If the file is being
+   * evicted, this waits until it has been deleted so that the caller finds it missing.
+   */
+  public synchronized void pin(File file) {
+    boolean interrupted = false;
+    while (evicting.contains(file)) {
+      try {
+        wait();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    pinned.merge(file, 1, Integer::sum);
+  }
+
+  /**
+   * Releases a protection acquired with {@link #pin(File)}.
+   */
+  public synchronized void unpin(File file) {
+    pinned.computeIfPresent(file, (f, count) -> count > 1 ? count - 1 : null);
+  }
+
+  /**
+   * Protects a file already pinned with {@link #pin(File)} from eviction until {@link #releaseJob(long)} is called for
+   * the given job.
+   */
+  public synchronized void pinForJob(long jobId, File file) {
+    if (jobPins.computeIfAbsent(jobId, id -> new HashSet<>()).add(file)) {
+      pinned.merge(file, 1, Integer::sum);
+    }
+  }
+
+  /**
+   * Releases the protection of all files pinned for a job with {@link #pinForJob(long, File)}.
+   */
+  public synchronized void releaseJob(long jobId) {
+    final Set<File> files = jobPins.remove(jobId);
+    if (files != null) {
+      files.forEach(this::unpin);
+    }
+  }
+
+  /** Returns the identifiers of the jobs which currently pin files. */
+  public synchronized Set<Long> getPinningJobs() {
+    return new HashSet<>(jobPins.keySet());
+  }
+
+  /**
+   * Marks a file as most recently used and evicts other files if the workspace has grown beyond its limit.
+   */
+  public void touch(File file) {
+    if (!isEnabled()) {
+      return;
+    }
+    add(file, System.currentTimeMillis());
+    evict();
+  }
+
+  /**
+   * Stops tracking a file which has been removed from the workspace.
+   */
+  public synchronized void remove(File file) {
+    final Entry entry = entries.remove(file);
+    if (entry != null) {
+      size -= entry.size;
+    }
+  }
+
+  /**
+   * Stops tracking all files within a directory which has been removed from the workspace.
+   */
+  public synchronized void removeAll(File directory) {
+    final Path path = directory.toPath();
+    final Iterator<Map.Entry<File, Entry>> i = entries.entrySet().iterator();
+    while (i.hasNext()) {
+      final Map.Entry<File, Entry> entry = i.next();
+      if (entry.getKey().toPath().startsWith(path)) {
+        size -= entry.getValue().size;
+        i.remove();
+      }
+    }
+  }
+
+  private void add(File file, long accessed) {
+    final Entry entry = new Entry(sizeOf(file), accessed);
+    synchronized (this) {
+      final Entry previous = entries.put(file, entry);
+      size += entry.size - (previous == null ? 0L : previous.size);
+    }
+  }
+
+  /**
+   * Returns the space which would be freed by removing the file, which is nothing if the file is hard linked, e.g. to
+   * the working file repository.
+   */
+  private static long sizeOf(File file) {
+    try {
+      final Object links = Files.getAttribute(file.toPath(), "unix:nlink");
+      if (links instanceof Number && ((Number) links).intValue() > 1) {
+        return 0L;
+      }
+    } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+      // The link count is not available, count the file
+    }
+    return file.length();
+  }
+
+  /**
+   * Removes the least recently used files until the workspace is within its limit again. The files are selected while
+   * holding the lock but deleted without it, so that other workspace operations are not blocked by the file system.
+   */
+  void evict() {
+    for (Map.Entry<File, Entry> victim : selectVictims()) {
+      final File file = victim.getKey();
+      final boolean deleted = file.delete();
+      final boolean remaining = !deleted && file.isFile();
+      synchronized (this) {
+        evicting.remove(file);
+        notifyAll();
+        if (deleted) {
+          // empty directories are left to the workspace cleaner since concurrent downloads may be about to use them
+          logger.debug("Evicted {} ({} bytes) from the workspace", file, victim.getValue().size);
+          evictions.increment();
+        } else if (remaining) {
+          logger.warn("Unable to evict {} from the workspace", file);
+          final Entry previous = entries.put(file, victim.getValue());
+          size += victim.getValue().size - (previous == null ? 0L : previous.size);
+        }
+        // otherwise the file has been removed by other means and is no longer tracked
+      }
+    }
+  }
+
+  /**
+   * Selects the least recently used files to remove until the workspace is within its limit again. The selected files
+   * are no longer tracked and cannot be pinned until they have been deleted.
+   */
+  private synchronized List<Map.Entry<File, Entry>> selectVictims() {
+    final List<Map.Entry<File, Entry>> victims = new ArrayList<>();
+    if (size <= maxSize) {
+      return victims;
+    }
+    final long now = System.currentTimeMillis();
+    final Iterator<Map.Entry<File, Entry>> i = entries.entrySet().iterator();
+    while (size > maxSize && i.hasNext()) {
+      final Map.Entry<File, Entry> entry = i.next();
+      final File file = entry.getKey();
+      final Entry value = entry.getValue();
+      if (value.size == 0L || pinned.containsKey(file) || evicting.contains(file) || now - value.accessed < minAge) {
+        continue;
+      }
+      evicting.add(file);
+      victims.add(Map.entry(file, value));
+      size -= value.size;
+      i.remove();
+    }
+    if (size > maxSize) {
+      logger.debug("Workspace size {} exceeds limit {} but all remaining files are in use", size, maxSize);
+    }
+    return victims;
+  }
+
+  /** Returns the number of requests served from the workspace without transferring the file. */
+  public long getHits() {
+    return hits.sum();
+  }
+
+  /** Returns the number of requests which required the file to be transferred into the workspace. */
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  /** Returns the number of files removed to keep the workspace within its size limit. */
+  public long getEvictions() {
+    return evictions.sum();
+  }
+
+  /** Returns the total size of all tracked files in bytes. */
+  public synchronized long getSize() {
+    return size;
+  }
+
+  /** Size and last access time of a tracked file. */
+  private static final class Entry {
+    private final long size;
+    private final long accessed;
+
+    Entry(long size, long accessed) {
+      this.size = size;
+      this.accessed = accessed;
+    }
+  }
+
+}
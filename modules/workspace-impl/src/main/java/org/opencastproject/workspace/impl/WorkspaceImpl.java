@@ -38,10 +38,13 @@ import static org.opencastproject.util.data.Prelude.sleep;
 import org.opencastproject.assetmanager.util.AssetPathUtils;
 import org.opencastproject.assetmanager.util.DistributionPathUtils;
 import org.opencastproject.cleanup.RecursiveDirectoryCleaner;
+import org.opencastproject.job.api.Job;
 import org.opencastproject.mediapackage.identifier.Id;
 import org.opencastproject.security.api.SecurityService;
 import org.opencastproject.security.api.TrustedHttpClient;
 import org.opencastproject.security.api.TrustedHttpClientException;
+import org.opencastproject.serviceregistry.api.ServiceRegistry;
+import org.opencastproject.serviceregistry.api.ServiceRegistryException;
 import org.opencastproject.util.FileSupport;
 import org.opencastproject.util.HttpUtil;
 import org.opencastproject.util.IoSupport;
@@ -58,10 +61,10 @@ import org.opencastproject.workingfilerepository.api.WorkingFileRepository;
 import org.opencastproject.workspace.api.Workspace;
 import org.opencastproject.workspace.impl.jmx.WorkspaceBean;
 
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.input.TeeInputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.HttpResponse;
@@ -72,6 +75,8 @@ import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -81,18 +86,30 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
+import java.io.InterruptedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.UserDefinedFileAttributeView;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.management.ObjectInstance;
 import javax.servlet.http.HttpServletResponse;
@@ -127,6 +144,16 @@ public final class WorkspaceImpl implements Workspace {
   public static final String WORKSPACE_CLEANUP_PERIOD_KEY = "org.opencastproject.workspace.cleanup.period";
   /** Configuration key for garbage collection max age. */
   public static final String WORKSPACE_CLEANUP_MAX_AGE_KEY = "org.opencastproject.workspace.cleanup.max.age";
+  /** Configuration key for the maximum size of the workspace in bytes. */
+  public static final String WORKSPACE_CACHE_MAX_SIZE_KEY = "org.opencastproject.workspace.cache.max.size";
+  /** Configuration key for the time in seconds a file is protected from eviction after it has been accessed. */
+  public static final String WORKSPACE_CACHE_MIN_AGE_KEY = "org.opencastproject.workspace.cache.min.age";
+
+  /** Default time in seconds a file is protected from eviction after it has been accessed */
+  private static final long DEFAULT_CACHE_MIN_AGE = 3600L;
+
+  /** Time in milliseconds to wait for the termination of jobs using workspace files before looking for new jobs */
+  private static final long JOB_PIN_CHECK_INTERVAL = 10000L;
 
   /** Workspace JMX type */
   private static final String JMX_WORKSPACE_TYPE = "Workspace";
@@ -134,8 +161,14 @@ public final class WorkspaceImpl implements Workspace {
   /** Unknown file name string */
   private static final String UNKNOWN_FILENAME = "unknown";
 
+  /** Name of the user defined file attribute holding the md5 of downloaded files */
+  private static final String MD5_ATTRIBUTE = "opencast.md5";
+
   /** The JMX workspace bean */
-  private WorkspaceBean workspaceBean = new WorkspaceBean(this);
+  private WorkspaceBean workspaceBean = null;
+
+  /** Tracks the workspace files and evicts them if the workspace exceeds its size limit */
+  private WorkspaceCache cache = new WorkspaceCache(null, 0L, 0L);
 
   /** The JMX bean object instance */
   private ObjectInstance registeredMXBean;
@@ -152,6 +185,12 @@ public final class WorkspaceImpl implements Workspace {
 
   private SecurityService securityService = null;
 
+  /** The service registry, used to protect the files requested by a job from eviction while the job is running */
+  private volatile ServiceRegistry serviceRegistry = null;
+
+  /** Releases the files requested by jobs once the jobs have terminated */
+  private ExecutorService jobPinReleaser = null;
+
   /** The working file repository */
   private WorkingFileRepository wfr = null;
 
@@ -169,6 +208,9 @@ public final class WorkspaceImpl implements Workspace {
   private String downloadUrl = null;
   private String downloadPath = null;
 
+  /** Downloads which are currently running, by their target file */
+  private final ConcurrentMap<File, CompletableFuture<File>> downloads = new ConcurrentHashMap<>();
+
   /** The workspce cleaner */
   private WorkspaceCleaner workspaceCleaner = null;
 
@@ -293,6 +335,35 @@ public final class WorkspaceImpl implements Workspace {
       }
     }
 
+    // Set up the size limit of the workspace
+    long cacheMaxSize = 0L;
+    if (ensureContextProp(cc, WORKSPACE_CACHE_MAX_SIZE_KEY)) {
+      String maxSize = cc.getBundleContext().getProperty(WORKSPACE_CACHE_MAX_SIZE_KEY);
+      try {
+        cacheMaxSize = Long.parseLong(maxSize);
+      } catch (NumberFormatException e) {
+        logger.warn("Invalid configuration for workspace cache max size ({}={})", WORKSPACE_CACHE_MAX_SIZE_KEY,
+                maxSize);
+      }
+    }
+    long cacheMinAge = DEFAULT_CACHE_MIN_AGE;
+    if (ensureContextProp(cc, WORKSPACE_CACHE_MIN_AGE_KEY)) {
+      String minAge = cc.getBundleContext().getProperty(WORKSPACE_CACHE_MIN_AGE_KEY);
+      try {
+        cacheMinAge = Long.parseLong(minAge);
+      } catch (NumberFormatException e) {
+        logger.warn("Invalid configuration for workspace cache min age ({}={})", WORKSPACE_CACHE_MIN_AGE_KEY, minAge);
+      }
+    }
+    cache = new WorkspaceCache(f, cacheMaxSize, cacheMinAge * 1000L);
+    cache.load();
+
+    if (cache.isEnabled()) {
+      jobPinReleaser = Executors.newSingleThreadExecutor();
+      jobPinReleaser.execute(this::releaseTerminatedJobPins);
+    }
+
+    workspaceBean = new WorkspaceBean(this, cache);
     registeredMXBean = JmxUtil.registerMXBean(workspaceBean, JMX_WORKSPACE_TYPE);
 
     // Start cleanup scheduler if we have sensible cleanup values:
@@ -333,6 +404,35 @@ public final class WorkspaceImpl implements Workspace {
     if (workspaceCleaner != null) {
       workspaceCleaner.shutdown();
     }
+    if (jobPinReleaser != null) {
+      jobPinReleaser.shutdownNow();
+    }
+  }
+
+  /**
+   * Releases the files requested by jobs as soon as the service registry reports the jobs as terminated.
+   */
+  private void releaseTerminatedJobPins() {
+    while (!Thread.currentThread().isInterrupted()) {
+      try {
+        final ServiceRegistry registry = serviceRegistry;
+        final Set<Long> jobIds = cache.getPinningJobs();
+        if (registry == null || jobIds.isEmpty()) {
+          Thread.sleep(JOB_PIN_CHECK_INTERVAL);
+          continue;
+        }
+        for (long jobId : registry.waitForJobCompletion(jobIds, JOB_PIN_CHECK_INTERVAL)) {
+          cache.releaseJob(jobId);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (ServiceRegistryException | RuntimeException e) {
+        logger.warn("Unable to release the workspace files of terminated jobs", e);
+        if (!sleep(JOB_PIN_CHECK_INTERVAL)) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
   }
 
   /**
@@ -365,6 +465,29 @@ public final class WorkspaceImpl implements Workspace {
       logger.debug("Created unique filename: {}", inWs);
     }
 
+    cache.pin(inWs);
+    try {
+      final File file = fetch(uri, inWs);
+      // files with a unique name are temporary copies owned by the caller
+      if (!uniqueFilename) {
+        // the file stays in use until the job requesting it has terminated
+        final ServiceRegistry registry = serviceRegistry;
+        final Job currentJob = registry == null ? null : registry.getCurrentJob();
+        if (currentJob != null) {
+          cache.pinForJob(currentJob.getId(), file);
+        }
+        cache.touch(file);
+      }
+      return file;
+    } finally {
+      cache.unpin(inWs);
+    }
+  }
+
+  /**
+   * Gets the file at <code>uri</code> into the workspace file <code>inWs</code>, transferring it only if necessary.
+   */
+  private File fetch(final URI uri, final File inWs) throws NotFoundException, IOException {
     if (pathMappable != null && StringUtils.isNotBlank(pathMappable.getPathPrefix())
             && StringUtils.isNotBlank(pathMappable.getUrlPrefix())) {
       if (uri.toString().startsWith(pathMappable.getUrlPrefix())) {
@@ -378,8 +501,10 @@ public final class WorkspaceImpl implements Workspace {
           if (workspaceFileLastModified < wfrCopy.lastModified()) {
             logger.debug("Replacing {} with an updated version from the file repository", inWs.getAbsolutePath());
             locked(inWs, copyOrLink(wfrCopy));
+            cache.miss();
           } else {
             logger.debug("{} is up to date", inWs);
+            cache.hit();
           }
           logger.debug("Getting {} directly from working file repository root at {}", uri, inWs);
           return new File(inWs.getAbsolutePath());
@@ -395,11 +520,58 @@ public final class WorkspaceImpl implements Workspace {
     if (asset != null) {
       logger.debug("Copy local file {} from asset manager to workspace", asset);
       Files.copy(asset.toPath(), inWs.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      cache.miss();
       return new File(inWs.getAbsolutePath());
     }
 
     // do HTTP transfer
-    return locked(inWs, downloadIfNecessary(uri));
+    return download(uri, inWs);
+  }
+
+  /**
+   * Download <code>uri</code> to <code>inWs</code> if necessary. Concurrent requests for the same workspace file share
+   * a single download instead of checking the remote file one after another.
+   */
+  private File download(final URI uri, final File inWs) throws NotFoundException, IOException {
+    final CompletableFuture<File> download = new CompletableFuture<>();
+    final CompletableFuture<File> running = downloads.putIfAbsent(inWs, download);
+    if (running != null) {
+      logger.debug("Waiting for running download of {}", uri);
+      final File file = await(running, uri);
+      cache.hit();
+      return file;
+    }
+    try {
+      final File file = locked(inWs, downloadIfNecessary(uri));
+      download.complete(file);
+      return file;
+    } catch (NotFoundException | IOException | RuntimeException e) {
+      download.completeExceptionally(e);
+      throw e;
+    } finally {
+      downloads.remove(inWs, download);
+    }
+  }
+
+  /** Wait for a download started by another thread and rethrow its failure. */
+  private static File await(final CompletableFuture<File> download, final URI uri)
+          throws NotFoundException, IOException {
+    try {
+      return download.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the download of " + uri);
+    } catch (ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof NotFoundException) {
+        throw new NotFoundException(cause.getMessage(), cause);
+      } else if (cause instanceof IOException) {
+        throw new IOException(cause.getMessage(), cause);
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IOException(cause);
+    }
   }
 
   @Override
@@ -473,12 +645,14 @@ public final class WorkspaceImpl implements Workspace {
         return right(none(File.class));
       case HttpServletResponse.SC_NOT_MODIFIED:
         logger.debug("{} has not been modified.", url);
+        cache.hit();
         return right(some(dst));
       case HttpServletResponse.SC_ACCEPTED:
         logger.debug("{} is not ready, try again later.", url);
         return left(response.getHeaders("token")[0].getValue());
       case HttpServletResponse.SC_OK:
         logger.debug("Downloading {} to {}", url, dst.getAbsolutePath());
+        cache.miss();
         return right(some(downloadTo(response, dst)));
       default:
         logger.warn("Received unexpected response status {} while trying to download from {}", status, url);
@@ -567,14 +741,66 @@ public final class WorkspaceImpl implements Workspace {
   private static File downloadTo(final HttpResponse response, final File dst) throws IOException {
     // ignore return value
     dst.createNewFile();
+    final MessageDigest md5;
+    try {
+      md5 = MessageDigest.getInstance("MD5");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
     try (InputStream in = response.getEntity().getContent()) {
-      try (OutputStream out = new FileOutputStream(dst)) {
-        IOUtils.copyLarge(in, out);
-      }
+      FileSupport.copy(in, dst, md5);
     }
+    // remember the checksum so the next If-None-Match does not need to read the file again
+    writeCachedMd5(dst, Hex.encodeHexString(md5.digest()));
     return dst;
   }
 
+  /**
+   * Stores the md5 of a file in a user defined file attribute, together with the modification time it is valid for.
+   * This is a no-op if the file system does not support user defined attributes.
+   */
+  private static void writeCachedMd5(final File file, final String md5) {
+    final UserDefinedFileAttributeView view = Files.getFileAttributeView(file.toPath(),
+            UserDefinedFileAttributeView.class);
+    if (view == null) {
+      return;
+    }
+    try {
+      final String value = file.lastModified() + ":" + md5;
+      view.write(MD5_ATTRIBUTE, StandardCharsets.US_ASCII.encode(value));
+    } catch (IOException | UnsupportedOperationException e) {
+      logger.trace("Unable to store md5 of {} in a file attribute", file, e);
+    }
+  }
+
+  /**
+   * Returns the md5 stored by {@link #writeCachedMd5(File, String)} if the file has not been modified since.
+   *
+   * @return the md5 hash or <code>null</code> if no valid checksum is stored
+   */
+  private static String readCachedMd5(final File file) {
+    final UserDefinedFileAttributeView view = Files.getFileAttributeView(file.toPath(),
+            UserDefinedFileAttributeView.class);
+    if (view == null) {
+      return null;
+    }
+    try {
+      if (!view.list().contains(MD5_ATTRIBUTE)) {
+        return null;
+      }
+      final ByteBuffer buffer = ByteBuffer.allocate(view.size(MD5_ATTRIBUTE));
+      view.read(MD5_ATTRIBUTE, buffer);
+      buffer.flip();
+      final String[] value = StandardCharsets.US_ASCII.decode(buffer).toString().split(":", 2);
+      if (value.length == 2 && value[0].equals(Long.toString(file.lastModified()))) {
+        return value[1];
+      }
+    } catch (IOException | UnsupportedOperationException e) {
+      logger.trace("Unable to read md5 of {} from file attribute", file, e);
+    }
+    return null;
+  }
+
   /**
    * Returns the md5 of a file
    *
@@ -596,6 +822,10 @@ public final class WorkspaceImpl implements Workspace {
       throw new IllegalArgumentException("File " + file.getAbsolutePath() + " can not be read");
     }
 
+    final String cached = readCachedMd5(file);
+    if (cached != null) {
+      return cached;
+    }
     try (InputStream in = new FileInputStream(file)) {
       return DigestUtils.md5Hex(in);
     }
@@ -634,6 +864,7 @@ public final class WorkspaceImpl implements Workspace {
       synchronized (lock) {
         File mpElementDir = f.getParentFile();
         FileUtils.forceDelete(f);
+        cache.remove(f);
 
         // Remove containing folder if a mediapackage element or a not a static collection
         if (isMediaPackage || !isStaticCollection(collectionId)) {
@@ -656,6 +887,7 @@ public final class WorkspaceImpl implements Workspace {
     // delete locally
     final File f = workspaceFile(WorkingFileRepository.MEDIAPACKAGE_PATH_PREFIX, mediaPackageID, mediaPackageElementID);
     FileUtils.deleteQuietly(f);
+    cache.removeAll(f);
     FileSupport.delete(f.getParentFile());
     // delete in WFR
     wfr.delete(mediaPackageID, mediaPackageElementID);
@@ -677,20 +909,26 @@ public final class WorkspaceImpl implements Workspace {
     }
 
     // Try hard linking first and fall back to tee-ing to both the working file repository and the workspace
-    if (linkingEnabled) {
-      // The WFR stores an md5 hash along with the file, so we need to use the API and not try to write (link) the file
-      // there ourselves
-      wfr.put(mediaPackageID, mediaPackageElementID, fileName, in);
-      File workingFileRepoDirectory = workingFileRepositoryFile(WorkingFileRepository.MEDIAPACKAGE_PATH_PREFIX,
-              mediaPackageID, mediaPackageElementID);
-      File workingFileRepoCopy = new File(workingFileRepoDirectory, safeFileName);
-      FileSupport.link(workingFileRepoCopy, workspaceFile, true);
-    } else {
-      try (FileOutputStream out = new FileOutputStream(workspaceFile)) {
-        try (InputStream tee = new TeeInputStream(in, out, true)) {
-          wfr.put(mediaPackageID, mediaPackageElementID, fileName, tee);
+    cache.pin(workspaceFile);
+    try {
+      if (linkingEnabled) {
+        // The WFR stores an md5 hash along with the file, so we need to use the API and not try to write (link) the
+        // file there ourselves
+        wfr.put(mediaPackageID, mediaPackageElementID, fileName, in);
+        File workingFileRepoDirectory = workingFileRepositoryFile(WorkingFileRepository.MEDIAPACKAGE_PATH_PREFIX,
+                mediaPackageID, mediaPackageElementID);
+        File workingFileRepoCopy = new File(workingFileRepoDirectory, safeFileName);
+        FileSupport.link(workingFileRepoCopy, workspaceFile, true);
+      } else {
+        try (FileOutputStream out = new FileOutputStream(workspaceFile)) {
+          try (InputStream tee = new TeeInputStream(in, out, true)) {
+            wfr.put(mediaPackageID, mediaPackageElementID, fileName, tee);
+          }
         }
       }
+      cache.touch(workspaceFile);
+    } finally {
+      cache.unpin(workspaceFile);
     }
     // wait until the file appears on the WFR node
     waitForResource(uri, HttpServletResponse.SC_OK, "File %s does not appear in WFR");
@@ -712,6 +950,7 @@ public final class WorkspaceImpl implements Workspace {
         FileUtils.touch(tempFile);
         out = new FileOutputStream(tempFile);
       }
+      cache.pin(tempFile);
 
       // Try hard linking first and fall back to tee-ing to both the working file repository and the workspace
       if (linkingEnabled) {
@@ -732,7 +971,11 @@ public final class WorkspaceImpl implements Workspace {
     } finally {
       IoSupport.closeQuietly(tee);
       IoSupport.closeQuietly(out);
+      if (tempFile != null) {
+        cache.unpin(tempFile);
+      }
     }
+    cache.touch(tempFile);
     waitForResource(uri, HttpServletResponse.SC_OK, "File %s does not appear in WFR");
     return uri;
   }
@@ -762,6 +1005,8 @@ public final class WorkspaceImpl implements Workspace {
       FileUtils.forceMkdir(copy.getParentFile());
       FileUtils.deleteQuietly(copy);
       FileUtils.moveFile(original, copy);
+      cache.remove(original);
+      cache.touch(copy);
       if (!isStaticCollection(collection)) {
         FileSupport.delete(original.getParentFile());
       }
@@ -783,6 +1028,7 @@ public final class WorkspaceImpl implements Workspace {
     // local delete
     final File f = workspaceFile(WorkingFileRepository.COLLECTION_PATH_PREFIX, collectionId, toSafeName(fileName));
     FileUtils.deleteQuietly(f);
+    cache.remove(f);
     if (removeCollection) {
       FileSupport.delete(f.getParentFile());
     }
@@ -912,6 +1158,21 @@ public final class WorkspaceImpl implements Workspace {
     this.securityService = securityService;
   }
 
+  @Reference(
+      cardinality = ReferenceCardinality.OPTIONAL,
+      policy = ReferencePolicy.DYNAMIC,
+      unbind = "unsetServiceRegistry"
+  )
+  public void setServiceRegistry(ServiceRegistry serviceRegistry) {
+    this.serviceRegistry = serviceRegistry;
+  }
+
+  public void unsetServiceRegistry(ServiceRegistry serviceRegistry) {
+    if (this.serviceRegistry == serviceRegistry) {
+      this.serviceRegistry = null;
+    }
+  }
+
   private static final long TIMEOUT = 2L * 60L * 1000L;
   private static final long INTERVAL = 1000L;
 
@@ -949,6 +1210,22 @@ public final class WorkspaceImpl implements Workspace {
 
     // Clean workspace root directly
     RecursiveDirectoryCleaner.cleanDirectory(Paths.get(wsRoot), Duration.ofSeconds(maxAgeInSeconds));
+
+    // Release the files of jobs whose termination has been missed
+    final ServiceRegistry registry = serviceRegistry;
+    if (registry != null) {
+      for (long jobId : cache.getPinningJobs()) {
+        try {
+          if (registry.getJob(jobId).getStatus().isTerminated()) {
+            cache.releaseJob(jobId);
+          }
+        } catch (NotFoundException e) {
+          cache.releaseJob(jobId);
+        } catch (ServiceRegistryException e) {
+          logger.warn("Unable to look up job {} using workspace files", jobId, e);
+        }
+      }
+    }
   }
 
   @Override
@@ -969,6 +1246,7 @@ public final class WorkspaceImpl implements Workspace {
       logger.debug("Clean workspace media package directory {}", mediaPackageDir);
       FileUtils.deleteDirectory(mediaPackageDir);
     }
+    cache.removeAll(mediaPackageDir);
   }
 
   @Override
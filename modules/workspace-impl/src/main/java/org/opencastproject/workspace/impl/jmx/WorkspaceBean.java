@@ -23,13 +23,16 @@ package org.opencastproject.workspace.impl.jmx;
 
 import org.opencastproject.util.data.Option.Match;
 import org.opencastproject.workspace.api.Workspace;
+import org.opencastproject.workspace.impl.WorkspaceCache;
 
 public class WorkspaceBean implements WorkspaceMXBean {
 
   private final Workspace workspace;
+  private final WorkspaceCache cache;
 
-  public WorkspaceBean(Workspace workspace) {
+  public WorkspaceBean(Workspace workspace, WorkspaceCache cache) {
     this.workspace = workspace;
+    this.cache = cache;
   }
 
   /**
@@ -86,4 +89,36 @@ public class WorkspaceBean implements WorkspaceMXBean {
     });
   }
 
+  /**
+   * @see org.opencastproject.workspace.impl.jmx.WorkspaceMXBean#getCacheHits()
+   */
+  @Override
+  public long getCacheHits() {
+    return cache.getHits();
+  }
+
+  /**
+   * @see org.opencastproject.workspace.impl.jmx.WorkspaceMXBean#getCacheMisses()
+   */
+  @Override
+  public long getCacheMisses() {
+    return cache.getMisses();
+  }
+
+  /**
+   * @see org.opencastproject.workspace.impl.jmx.WorkspaceMXBean#getCacheEvictions()
+   */
+  @Override
+  public long getCacheEvictions() {
+    return cache.getEvictions();
+  }
+
+  /**
+   * @see org.opencastproject.workspace.impl.jmx.WorkspaceMXBean#getCacheSize()
+   */
+  @Override
+  public long getCacheSize() {
+    return cache.getSize();
+  }
+
 }
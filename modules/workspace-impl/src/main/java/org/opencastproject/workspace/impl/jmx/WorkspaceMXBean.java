@@ -47,4 +47,32 @@ public interface WorkspaceMXBean {
    */
   long getTotalSpace();
 
+  /**
+   * Gets the number of files served from the workspace without transferring them again
+   *
+   * @return number of cache hits
+   */
+  long getCacheHits();
+
+  /**
+   * Gets the number of files which had to be transferred into the workspace
+   *
+   * @return number of cache misses
+   */
+  long getCacheMisses();
+
+  /**
+   * Gets the number of files removed to keep the workspace within its size limit
+   *
+   * @return number of evicted files
+   */
+  long getCacheEvictions();
+
+  /**
+   * Gets the size of the files tracked by the workspace cache in bytes
+   *
+   * @return tracked size in bytes, 0 if the workspace size is not limited
+   */
+  long getCacheSize();
+
 }
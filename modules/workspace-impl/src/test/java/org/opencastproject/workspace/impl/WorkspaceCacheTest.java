@@ -0,0 +1,191 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.workspace.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
+
+public class WorkspaceCacheTest {
+
+  @Rule
+  public TemporaryFolder testFolder = new TemporaryFolder();
+
+  private File root;
+
+  @Before
+  public void setUp() throws Exception {
+    root = testFolder.newFolder("workspace");
+  }
+
+  private File createFile(String name, int size) throws Exception {
+    final File file = new File(root, name);
+    Files.write(file.toPath(), new byte[size]);
+    return file;
+  }
+
+  @Test
+  public void testEvictLeastRecentlyUsed() throws Exception {
+    final WorkspaceCache cache = new WorkspaceCache(root, 250L, 0L);
+    final File a = createFile("a", 100);
+    final File b = createFile("b", 100);
+    final File c = createFile("c", 100);
+    cache.touch(a);
+    cache.touch(b);
+    cache.touch(a);
+    cache.touch(c);
+
+    assertTrue(a.isFile());
+    assertFalse(b.isFile());
+    assertTrue(c.isFile());
+    assertEquals(200L, cache.getSize());
+    assertEquals(1L, cache.getEvictions());
+  }
+
+  @Test
+  public void testFilesInUseAreNotEvicted() throws Exception {
+    final WorkspaceCache cache = new WorkspaceCache(root, 150L, 0L);
+    final File a = createFile("a", 100);
+    final File b = createFile("b", 100);
+    cache.pin(a);
+    cache.touch(a);
+    cache.pin(b);
+    cache.touch(b);
+    cache.unpin(b);
+
+    // both files were in use when the limit was exceeded
+    assertTrue(a.isFile());
+    assertTrue(b.isFile());
+    assertEquals(200L, cache.getSize());
+
+    cache.unpin(a);
+    cache.pin(b);
+    cache.touch(b);
+    cache.unpin(b);
+    assertFalse(a.isFile());
+    assertTrue(b.isFile());
+    assertEquals(100L, cache.getSize());
+
+    // recently accessed files are protected as well
+    final WorkspaceCache protectedCache = new WorkspaceCache(root, 50L, 60000L);
+    protectedCache.touch(b);
+    assertTrue(b.isFile());
+    assertEquals(0L, protectedCache.getEvictions());
+  }
+
+  @Test
+  public void testFilesInUseByJobAreNotEvicted() throws Exception {
+    final WorkspaceCache cache = new WorkspaceCache(root, 150L, 0L);
+    final File a = createFile("a", 100);
+    final File b = createFile("b", 100);
+    cache.pin(a);
+    cache.pinForJob(1L, a);
+    cache.touch(a);
+    cache.unpin(a);
+    assertEquals(Collections.singleton(1L), cache.getPinningJobs());
+
+    // the job requesting the file is still running
+    cache.pin(b);
+    cache.touch(b);
+    cache.unpin(b);
+    assertTrue(a.isFile());
+    assertTrue(b.isFile());
+    assertEquals(200L, cache.getSize());
+
+    cache.releaseJob(1L);
+    assertTrue(cache.getPinningJobs().isEmpty());
+    cache.pin(b);
+    cache.touch(b);
+    cache.unpin(b);
+    assertFalse(a.isFile());
+    assertTrue(b.isFile());
+    assertEquals(100L, cache.getSize());
+  }
+
+  @Test
+  public void testLinkedFilesAreNotCounted() throws Exception {
+    final WorkspaceCache cache = new WorkspaceCache(root, 150L, 0L);
+    final File a = createFile("a", 100);
+    final File b = createFile("b", 100);
+    final File repository = testFolder.newFolder("repository");
+    try {
+      Files.createLink(new File(repository, "a").toPath(), a.toPath());
+    } catch (UnsupportedOperationException e) {
+      Assume.assumeNoException(e);
+    }
+    cache.touch(a);
+    cache.touch(b);
+
+    // removing the linked file would not free any space
+    assertTrue(a.isFile());
+    assertTrue(b.isFile());
+    assertEquals(100L, cache.getSize());
+  }
+
+  @Test
+  public void testLoadAndRemove() throws Exception {
+    final File a = createFile("a", 100);
+    final File b = createFile("b", 100);
+    assertTrue(new File(root, "mp").mkdir());
+    final File c = createFile("mp/c", 100);
+    assertTrue(a.setLastModified(1000L));
+    assertTrue(b.setLastModified(2000L));
+    assertTrue(c.setLastModified(3000L));
+
+    final WorkspaceCache cache = new WorkspaceCache(root, 250L, 0L);
+    cache.load();
+    assertFalse(a.isFile());
+    assertTrue(b.isFile());
+    assertEquals(200L, cache.getSize());
+
+    cache.removeAll(new File(root, "mp"));
+    assertEquals(100L, cache.getSize());
+    cache.remove(b);
+    assertEquals(0L, cache.getSize());
+  }
+
+  @Test
+  public void testDisabled() throws Exception {
+    final WorkspaceCache cache = new WorkspaceCache(root, 0L, 0L);
+    final File a = createFile("a", 100);
+    cache.touch(a);
+    cache.hit();
+    cache.miss();
+    cache.miss();
+    assertTrue(a.isFile());
+    assertEquals(0L, cache.getSize());
+    assertEquals(1L, cache.getHits());
+    assertEquals(2L, cache.getMisses());
+  }
+
+}
@@ -58,6 +58,13 @@ import java.net.URI;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.servlet.http.HttpServletResponse;
 
@@ -276,6 +283,69 @@ public class WorkspaceImplTest {
     Assert.assertEquals(expectedFile, resultingFile);
   }
 
+  @Test
+  public void testConcurrentGetSharesDownload() throws Exception {
+    final int callers = 50;
+    final File expectedFile = new File(workspaceRoot + "/http_foo.com/videos/large.mp4");
+    FileUtils.deleteQuietly(expectedFile);
+
+    WorkingFileRepository repo = EasyMock.createNiceMock(WorkingFileRepository.class);
+    EasyMock.expect(repo.getBaseUri()).andReturn(new URI("http://localhost:8080/files")).anyTimes();
+    EasyMock.expect(repo.toSafeName(anyObject(String.class)))
+        .andAnswer(() -> (String) EasyMock.getCurrentArguments()[0])
+        .anyTimes();
+    EasyMock.replay(repo);
+    workspace.setRepository(repo);
+
+    Organization organization = EasyMock.createMock(Organization.class);
+    EasyMock.expect(organization.getId()).andReturn("org1").anyTimes();
+    SecurityService securityService = EasyMock.createMock(SecurityService.class);
+    EasyMock.expect(securityService.getOrganization()).andReturn(organization).anyTimes();
+    EasyMock.replay(securityService, organization);
+    workspace.setSecurityService(securityService);
+
+    // the download blocks until all callers have been started
+    final CountDownLatch started = new CountDownLatch(callers);
+    final AtomicInteger requests = new AtomicInteger();
+    HttpEntity httpEntity = EasyMock.createMock(HttpEntity.class);
+    expect(httpEntity.getContent()).andAnswer(() -> {
+      started.await();
+      Thread.sleep(500L);
+      return IOUtils.toInputStream("large file", "UTF-8");
+    }).anyTimes();
+    CloseableHttpResponse response = EasyMock.createMock(CloseableHttpResponse.class);
+    expect(response.getStatusLine())
+        .andReturn(new BasicStatusLine(new ProtocolVersion("Http", 1, 1), 200, "Good to go"))
+        .anyTimes();
+    expect(response.getEntity()).andReturn(httpEntity).anyTimes();
+    TrustedHttpClient trustedHttpClient = EasyMock.createNiceMock(TrustedHttpClient.class);
+    expect(trustedHttpClient.execute(anyObject(HttpUriRequest.class))).andAnswer(() -> {
+      requests.incrementAndGet();
+      return response;
+    }).anyTimes();
+    EasyMock.replay(httpEntity, response, trustedHttpClient);
+    workspace.setTrustedHttpClient(trustedHttpClient);
+
+    final URI uri = URI.create("http://foo.com/videos/large.mp4");
+    final ExecutorService executor = Executors.newFixedThreadPool(callers);
+    try {
+      final List<Future<File>> results = new ArrayList<>();
+      for (int i = 0; i < callers; i++) {
+        results.add(executor.submit(() -> {
+          started.countDown();
+          return workspace.get(uri);
+        }));
+      }
+      for (Future<File> result : results) {
+        Assert.assertEquals(expectedFile.getAbsoluteFile(), result.get().getAbsoluteFile());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    Assert.assertEquals(1, requests.get());
+    Assert.assertEquals("large file", FileUtils.readFileToString(expectedFile, StandardCharsets.UTF_8));
+  }
+
   @Test
   public void testCleanup() throws Exception {
     workspace.cleanup(-1);